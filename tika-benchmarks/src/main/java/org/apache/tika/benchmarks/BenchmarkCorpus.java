@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Locates documents for the benchmarks.  By default, this uses the
+ * <code>src/test/resources/test-documents</code> directories of all modules
+ * in the source tree that contains the working directory.  Set the system
+ * property {@link #CORPUS_PROPERTY} to a directory to use a different corpus.
+ */
+public final class BenchmarkCorpus {
+
+    /**
+     * System property pointing to a directory of documents to use
+     * instead of the test documents in the source tree.
+     */
+    public static final String CORPUS_PROPERTY = "tika.benchmark.corpus";
+
+    private static final String TEST_DOCUMENTS = "test-documents";
+
+    private static List<Path> DIRECTORIES;
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * @return directories that make up the corpus
+     * @throws IOException if the corpus can't be found
+     */
+    public static synchronized List<Path> getDirectories() throws IOException {
+        if (DIRECTORIES != null) {
+            return DIRECTORIES;
+        }
+        String corpus = System.getProperty(CORPUS_PROPERTY);
+        if (corpus != null && !corpus.isBlank()) {
+            Path dir = Paths.get(corpus);
+            if (!Files.isDirectory(dir)) {
+                throw new IOException(CORPUS_PROPERTY + " is not a directory: " + dir);
+            }
+            DIRECTORIES = Collections.singletonList(dir);
+            return DIRECTORIES;
+        }
+        Path root = findSourceRoot();
+        List<Path> dirs = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(p -> p.endsWith(TEST_DOCUMENTS) &&
+                            p.getParent().endsWith(Paths.get("src", "test", "resources")))
+                    .filter(Files::isDirectory)
+                    .sorted()
+                    .forEach(dirs::add);
+        }
+        if (dirs.isEmpty()) {
+            throw new IOException("Couldn't find any test-documents directories under " + root);
+        }
+        DIRECTORIES = Collections.unmodifiableList(dirs);
+        return DIRECTORIES;
+    }
+
+    /**
+     * @param fileName name of a document in the corpus
+     * @return the first document with this name
+     * @throws IOException if there's no such document
+     */
+    public static Path find(String fileName) throws IOException {
+        for (Path dir : getDirectories()) {
+            Path p = dir.resolve(fileName);
+            if (Files.isRegularFile(p)) {
+                return p;
+            }
+        }
+        throw new IOException("Couldn't find " + fileName + " in " + getDirectories());
+    }
+
+    /**
+     * @param maxFiles maximum number of documents to return
+     * @return all regular files in the corpus, sorted by path, up to maxFiles
+     */
+    public static List<Path> listAll(int maxFiles) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path dir : getDirectories()) {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.filter(Files::isRegularFile).sorted().forEach(files::add);
+            }
+        }
+        if (files.size() > maxFiles) {
+            return new ArrayList<>(files.subList(0, maxFiles));
+        }
+        return files;
+    }
+
+    /**
+     * @param path document
+     * @param maxBytes maximum number of bytes to read
+     * @return up to maxBytes from the start of the document
+     */
+    public static byte[] readPrefix(Path path, int maxBytes) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length <= maxBytes) {
+            return bytes;
+        }
+        byte[] prefix = new byte[maxBytes];
+        System.arraycopy(bytes, 0, prefix, 0, maxBytes);
+        return prefix;
+    }
+
+    private static Path findSourceRoot() throws IOException {
+        Path dir = Paths.get("").toAbsolutePath();
+        while (dir != null) {
+            if (Files.isDirectory(dir.resolve("tika-core")) &&
+                    Files.isDirectory(dir.resolve("tika-parsers"))) {
+                return dir;
+            }
+            dir = dir.getParent();
+        }
+        throw new IOException("Couldn't find the Tika source tree from " +
+                Paths.get("").toAbsolutePath() + ". Run from within the source tree or set -D" +
+                CORPUS_PROPERTY);
+    }
+}
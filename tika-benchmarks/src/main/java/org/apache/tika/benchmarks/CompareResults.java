@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH result files written with <code>-rf json</code>, e.g. one
+ * from a baseline build and one from a candidate build, and prints the change
+ * in score for each benchmark and parameter combination.  A positive change
+ * is an improvement: higher throughput, or lower time per operation.
+ * <pre>
+ * java -cp target/benchmarks.jar org.apache.tika.benchmarks.CompareResults baseline.json candidate.json
+ * </pre>
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json>");
+            System.exit(1);
+        }
+        Map<String, JsonNode> baseline = load(Paths.get(args[0]));
+        Map<String, JsonNode> candidate = load(Paths.get(args[1]));
+        System.out.println(String.format(Locale.ROOT, "%-80s %14s %14s %10s %9s",
+                "Benchmark", "Baseline", "Candidate", "Units", "Change"));
+        for (Map.Entry<String, JsonNode> e : baseline.entrySet()) {
+            JsonNode base = e.getValue();
+            JsonNode cand = candidate.get(e.getKey());
+            double baseScore = base.get("primaryMetric").get("score").asDouble();
+            String units = base.get("primaryMetric").get("scoreUnit").asText();
+            if (cand == null) {
+                System.out.println(String.format(Locale.ROOT, "%-80s %14.3f %14s %10s %9s",
+                        e.getKey(), baseScore, "-", units, "-"));
+                continue;
+            }
+            double candScore = cand.get("primaryMetric").get("score").asDouble();
+            double change = (candScore - baseScore) / baseScore;
+            if (!"thrpt".equals(base.get("mode").asText())) {
+                //for time per operation, lower is better
+                change = -change;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-80s %14.3f %14.3f %10s %+8.1f%%",
+                    e.getKey(), baseScore, candScore, units, change * 100));
+        }
+        for (String key : candidate.keySet()) {
+            if (!baseline.containsKey(key)) {
+                System.out.println(String.format(Locale.ROOT, "%-80s %14s %14.3f", key, "-",
+                        candidate.get(key).get("primaryMetric").get("score").asDouble()));
+            }
+        }
+    }
+
+    private static Map<String, JsonNode> load(Path path) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(path.toFile());
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : root) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText()
+                    .replace("org.apache.tika.benchmarks.", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                Map<String, String> sorted = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> it = params.fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> p = it.next();
+                    sorted.put(p.getKey(), p.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
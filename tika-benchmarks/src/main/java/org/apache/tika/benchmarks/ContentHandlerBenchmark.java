@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ToXMLContentHandler;
+import org.apache.tika.sax.XHTMLContentHandler;
+
+/**
+ * Cost of the SAX handler chain that every parser writes to:
+ * {@link XHTMLContentHandler} (which includes the
+ * {@link org.apache.tika.sax.SafeContentHandler} checks) in front of a
+ * {@link ToXMLContentHandler} or a {@link BodyContentHandler}.  The synthetic
+ * document has paragraphs of plain text, with an invalid XML character
+ * in every tenth paragraph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentHandlerBenchmark {
+
+    @Param({"100", "10000"})
+    public int paragraphs;
+
+    @Param({"xml", "text"})
+    public String handler;
+
+    private char[] clean;
+    private char[] dirty;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        clean = sb.toString().toCharArray();
+        sb.setCharAt(sb.length() / 2, '\u0001');
+        dirty = sb.toString().toCharArray();
+    }
+
+    @Benchmark
+    public int writeDocument() throws SAXException {
+        ContentHandler sink = "xml".equals(handler) ?
+                new ToXMLContentHandler() : new BodyContentHandler(-1);
+        XHTMLContentHandler xhtml = new XHTMLContentHandler(sink, new Metadata());
+        xhtml.startDocument();
+        for (int i = 0; i < paragraphs; i++) {
+            char[] text = (i % 10 == 9) ? dirty : clean;
+            xhtml.startElement("p");
+            xhtml.characters(text, 0, text.length);
+            xhtml.endElement("p");
+        }
+        xhtml.endDocument();
+        return sink.toString().length();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.mime.MimeTypes;
+
+/**
+ * Detection latency over the corpus.  Each invocation detects the next
+ * document, so the score is the mean latency across the corpus.
+ * <p>
+ * <code>detector=mimetypes</code> measures magic and name detection in
+ * {@link MimeTypes}, <code>detector=default</code> measures the full
+ * default detector chain, including the container detectors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionBenchmark {
+
+    private static final int MAX_FILES = 2000;
+
+    @Param({"mimetypes", "default"})
+    public String detector;
+
+    @Param({"true", "false"})
+    public boolean withName;
+
+    private Detector tikaDetector;
+    private final List<byte[]> documents = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private int cursor = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("mimetypes".equals(detector)) {
+            tikaDetector = MimeTypes.getDefaultMimeTypes();
+        } else {
+            tikaDetector = TikaConfig.getDefaultConfig().getDetector();
+        }
+        for (Path p : BenchmarkCorpus.listAll(MAX_FILES)) {
+            //the container detectors may read the whole document
+            documents.add(BenchmarkCorpus.readPrefix(p, 10 * 1024 * 1024));
+            names.add(p.getFileName().toString());
+        }
+    }
+
+    @Benchmark
+    public MediaType detect() throws IOException {
+        int i = cursor++;
+        if (cursor == documents.size()) {
+            cursor = 0;
+        }
+        Metadata metadata = new Metadata();
+        if (withName) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, names.get(i));
+        }
+        try (InputStream is = TikaInputStream.get(documents.get(i))) {
+            return tikaDetector.detect(is, metadata);
+        }
+    }
+
+    @Benchmark
+    public MediaType detectNameOnly() throws IOException {
+        int i = cursor++;
+        if (cursor == names.size()) {
+            cursor = 0;
+        }
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, names.get(i));
+        return tikaDetector.detect(null, metadata);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+
+/**
+ * Common {@link Metadata} operations on an object with a realistic number of keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataBenchmark {
+
+    @Param({"10", "100"})
+    public int keys;
+
+    private String[] names;
+    private String[] values;
+    private Metadata metadata;
+
+    @Setup
+    public void setUp() {
+        names = new String[keys];
+        values = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = "custom:key-" + i;
+            values[i] = "value number " + i;
+        }
+        metadata = build();
+    }
+
+    private Metadata build() {
+        Metadata m = new Metadata();
+        for (int i = 0; i < keys; i++) {
+            m.set(names[i], values[i]);
+        }
+        m.add(TikaCoreProperties.TIKA_PARSED_BY, "org.apache.tika.parser.DefaultParser");
+        m.add(TikaCoreProperties.TIKA_PARSED_BY, "org.apache.tika.parser.pdf.PDFParser");
+        return m;
+    }
+
+    @Benchmark
+    public Metadata populate() {
+        return build();
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        for (String name : names) {
+            bh.consume(metadata.get(name));
+        }
+        bh.consume(metadata.getValues(TikaCoreProperties.TIKA_PARSED_BY));
+    }
+
+    @Benchmark
+    public int iterate() {
+        int total = 0;
+        for (String name : metadata.names()) {
+            total += metadata.getValues(name).length;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Metadata copy() {
+        Metadata copy = new Metadata();
+        for (String name : metadata.names()) {
+            for (String value : metadata.getValues(name)) {
+                copy.add(name, value);
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmarks;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.ContentHandler;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ToXMLContentHandler;
+
+/**
+ * Per-format parse throughput of the {@link AutoDetectParser} with the
+ * standard parsers, including detection and embedded documents.
+ * Run with <code>-prof gc</code> to see the allocation per document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"testPDF.pdf", "testWORD.docx", "testWORD.doc", "testEXCEL.xlsx",
+            "testEXCEL.xls", "testPPT.pptx", "testHTML.html", "testXML.xml",
+            "testRFC822", "testJPEG_EXIF.jpg", "test-documents.zip"})
+    public String fileName;
+
+    /**
+     * <code>text</code> for a {@link BodyContentHandler},
+     * <code>xml</code> for a {@link ToXMLContentHandler}
+     */
+    @Param({"text", "xml"})
+    public String handler;
+
+    private Parser parser;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        parser = new AutoDetectParser(TikaConfig.getDefaultConfig());
+        bytes = Files.readAllBytes(BenchmarkCorpus.find(fileName));
+    }
+
+    @Benchmark
+    public int parse() throws Exception {
+        ContentHandler contentHandler = "xml".equals(handler) ?
+                new ToXMLContentHandler() : new BodyContentHandler(-1);
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        try (InputStream is = TikaInputStream.get(bytes)) {
+            parser.parse(is, contentHandler, metadata, new ParseContext());
+        }
+        return contentHandler.toString().length() + metadata.size();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.codec.PipesCodec;
+import org.apache.tika.pipes.emitter.EmitData;
+import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.pipes.fetcher.FetchKey;
+
+/**
+ * Encoding and decoding cost of the messages that the PipesClient and the
+ * forked PipesServer exchange, for each {@link PipesCodec}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipesCodecBenchmark {
+
+    @Param({"binary", "java"})
+    public String codecName;
+
+    /**
+     * Number of metadata objects (container plus attachments) in the emit data
+     */
+    @Param({"1", "50"})
+    public int metadataObjects;
+
+    private PipesCodec codec;
+    private FetchEmitTuple tuple;
+    private EmitData emitData;
+    private byte[] encodedTuple;
+    private byte[] encodedEmitData;
+
+    @Setup
+    public void setUp() throws Exception {
+        codec = PipesCodec.load(codecName);
+        Metadata userMetadata = new Metadata();
+        userMetadata.set("custom:source", "s3://bucket/some/long/path/to/a/document.pdf");
+        tuple = new FetchEmitTuple("id-1", new FetchKey("fetcher", "some/long/path/to/a/document.pdf"),
+                new EmitKey("emitter", "some/long/path/to/a/document.pdf.json"), userMetadata,
+                new ParseContext(), FetchEmitTuple.ON_PARSE_EXCEPTION.EMIT);
+        List<Metadata> metadataList = new ArrayList<>();
+        for (int i = 0; i < metadataObjects; i++) {
+            Metadata m = new Metadata();
+            for (int k = 0; k < 30; k++) {
+                m.set("custom:key-" + k, "value number " + k);
+            }
+            m.add(TikaCoreProperties.TIKA_PARSED_BY, "org.apache.tika.parser.DefaultParser");
+            m.set(TikaCoreProperties.TIKA_CONTENT, "The quick brown fox jumps over the lazy dog. " +
+                    "The quick brown fox jumps over the lazy dog. " + i);
+            metadataList.add(m);
+        }
+        emitData = new EmitData(tuple.getEmitKey(), metadataList);
+        encodedTuple = codec.encodeFetchEmitTuple(tuple);
+        encodedEmitData = codec.encodeEmitData(emitData);
+    }
+
+    @Benchmark
+    public byte[] encodeTuple() throws Exception {
+        return codec.encodeFetchEmitTuple(tuple);
+    }
+
+    @Benchmark
+    public FetchEmitTuple decodeTuple() throws Exception {
+        return codec.decodeFetchEmitTuple(encodedTuple);
+    }
+
+    @Benchmark
+    public byte[] encodeEmitData() throws Exception {
+        return codec.encodeEmitData(emitData);
+    }
+
+    @Benchmark
+    public EmitData decodeEmitData() throws Exception {
+        return codec.decodeEmitData(encodedEmitData);
+    }
+}
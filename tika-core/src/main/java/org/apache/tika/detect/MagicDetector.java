@@ -16,14 +16,11 @@
  */
 package org.apache.tika.detect;
 
-import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.regex.Matcher;
@@ -91,6 +88,10 @@ public class MagicDetector implements Detector {
      * starts at this offset.
      */
     private final int offsetRangeEnd;
+    /**
+     * Compiled regular expression, lazily initialized if {@link #isRegex} is true.
+     */
+    private volatile Pattern regex;
 
     /**
      * Creates a detector for input documents that have the exact given byte
@@ -373,52 +374,102 @@ public class MagicDetector implements Detector {
                 }
             }
 
-            if (this.isRegex) {
-                int flags = 0;
-                if (this.isStringIgnoreCase) {
-                    flags = Pattern.CASE_INSENSITIVE;
-                }
+            if (matches(buffer, 0, Math.max(0, offset - offsetRangeBegin))) {
+                return type;
+            }
+            return MediaType.OCTET_STREAM;
+        } finally {
+            input.reset();
+        }
+    }
 
-                Pattern p = Pattern.compile(new String(this.pattern, UTF_8), flags);
+    /**
+     * Checks whether the given document prefix matches this magic.  This gives
+     * the same result as {@link #detect(InputStream, Metadata)} on a stream
+     * containing the given bytes, but it doesn't copy the bytes.
+     *
+     * @param data first few bytes of the document
+     * @return <code>true</code> if the prefix matches
+     * @since Apache Tika 4.0.0
+     */
+    public boolean matches(byte[] data) {
+        if (data.length < offsetRangeBegin) {
+            return false;
+        }
+        return matches(data, offsetRangeBegin,
+                Math.min(data.length, offsetRangeEnd + length));
+    }
 
-                ByteBuffer bb = ByteBuffer.wrap(buffer);
-                CharBuffer result = ISO_8859_1.decode(bb);
-                Matcher m = p.matcher(result);
+    /**
+     * Returns whether a document that starts with the given byte could match
+     * this magic.  This returns <code>true</code> unless the magic is a fixed
+     * pattern at offset zero, which allows callers to skip magics cheaply.
+     *
+     * @param b first byte of the document
+     * @return <code>false</code> if a document starting with this byte can't match
+     * @since Apache Tika 4.0.0
+     */
+    public boolean canMatchFirstByte(byte b) {
+        if (isRegex || offsetRangeEnd != 0 || length == 0) {
+            return true;
+        }
+        return maskByte(b, 0) == pattern[0];
+    }
 
-                boolean match = false;
-                // Loop until we've covered the entire offset range
-                for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
-                    m.region(i, length + i);
-                    match = m.lookingAt(); // match regex from start of region
-                    if (match) {
-                        return type;
-                    }
-                }
-            } else {
-                if (offset < offsetRangeBegin + length) {
-                    return MediaType.OCTET_STREAM;
-                }
-                // Loop until we've covered the entire offset range
-                for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
-                    boolean match = true;
-                    int masked;
-                    for (int j = 0; match && j < length; j++) {
-                        masked = (buffer[i + j] & mask[j]);
-                        if (this.isStringIgnoreCase) {
-                            masked = Character.toLowerCase(masked);
-                        }
-                        match = (masked == pattern[j]);
-                    }
-                    if (match) {
-                        return type;
-                    }
+    /**
+     * Matches the comparison window <code>data[start, end)</code>, which holds
+     * the bytes starting at {@link #offsetRangeBegin}.  Any bytes of the window
+     * past <code>end</code> are treated as zeros.
+     */
+    private boolean matches(byte[] data, int start, int end) {
+        int windowLength = length + (offsetRangeEnd - offsetRangeBegin);
+        if (this.isRegex) {
+            Matcher m = getRegex().matcher(new Latin1Window(data, start, end, windowLength));
+            // Loop until we've covered the entire offset range
+            for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
+                m.region(i, length + i);
+                if (m.lookingAt()) { // match regex from start of region
+                    return true;
                 }
             }
+            return false;
+        }
+        if (end - start < length) {
+            return false;
+        }
+        // Loop until we've covered the entire offset range
+        for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
+            boolean match = true;
+            for (int j = 0; match && j < length; j++) {
+                int index = start + i + j;
+                match = (maskByte(index < end ? data[index] : 0, j) == pattern[j]);
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            return MediaType.OCTET_STREAM;
-        } finally {
-            input.reset();
+    private int maskByte(byte b, int j) {
+        int masked = (b & mask[j]);
+        if (this.isStringIgnoreCase) {
+            masked = Character.toLowerCase(masked);
         }
+        return masked;
+    }
+
+    private Pattern getRegex() {
+        Pattern p = regex;
+        if (p == null) {
+            int flags = 0;
+            if (this.isStringIgnoreCase) {
+                flags = Pattern.CASE_INSENSITIVE;
+            }
+            p = Pattern.compile(new String(this.pattern, UTF_8), flags);
+            regex = p;
+        }
+        return p;
     }
 
     public int getLength() {
@@ -435,4 +486,52 @@ public class MagicDetector implements Detector {
         return "Magic Detection for " + type + " looking for " + pattern.length + " bytes = " +
                 Arrays.toString(this.pattern) + " mask = " + Arrays.toString(this.mask);
     }
+
+    /**
+     * ISO-8859-1 view of a byte window, padded with zeros to the given length.
+     */
+    private static class Latin1Window implements CharSequence {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private final int length;
+
+        Latin1Window(byte[] data, int start, int end, int length) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index: " + index);
+            }
+            int i = start + index;
+            return i < end ? (char) (data[i] & 0xff) : 0;
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length || from > to) {
+                throw new IndexOutOfBoundsException("from: " + from + " to: " + to);
+            }
+            return new Latin1Window(data, start + from, end, to - from);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                sb.append(charAt(i));
+            }
+            return sb.toString();
+        }
+    }
 }
@@ -32,10 +32,12 @@ import org.apache.tika.exception.TikaException;
 import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metrics.TikaMetrics;
 import org.apache.tika.parser.DelegatingParser;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.parser.ParseRecord;
 import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.cache.CachingParser;
 import org.apache.tika.sax.BodyContentHandler;
 import org.apache.tika.sax.EmbeddedContentHandler;
 
@@ -61,6 +63,8 @@ public class ParsingEmbeddedDocumentExtractor implements EmbeddedDocumentExtract
 
     @Override
     public boolean shouldParseEmbedded(Metadata metadata) {
+        //whether or not this is parsed, the output of the container depends on it
+        CachingParser.markEmbedded(context);
         DocumentSelector selector = context.get(DocumentSelector.class);
         if (selector != null) {
             return selector.select(metadata);
@@ -81,6 +85,12 @@ public class ParsingEmbeddedDocumentExtractor implements EmbeddedDocumentExtract
     public void parseEmbedded(
             TikaInputStream tis, ContentHandler handler, Metadata metadata, boolean outputHtml)
             throws SAXException, IOException {
+        //the output of the container depends on this embedded document
+        CachingParser.markEmbedded(context);
+        TikaMetrics metrics = context.get(TikaMetrics.class);
+        if (metrics != null) {
+            metrics.add(TikaMetrics.EMBEDDED, 1);
+        }
         if (outputHtml) {
             AttributesImpl attributes = new AttributesImpl();
             attributes.addAttribute("", "class", "class", "CDATA", "package-entry");
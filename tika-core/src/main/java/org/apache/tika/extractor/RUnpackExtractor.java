@@ -38,7 +38,9 @@ import org.apache.tika.io.BoundedInputStream;
 import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metrics.TikaMetrics;
 import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.cache.CachingParser;
 import org.apache.tika.sax.BodyContentHandler;
 import org.apache.tika.sax.EmbeddedContentHandler;
 
@@ -69,6 +71,12 @@ public class RUnpackExtractor extends ParsingEmbeddedDocumentExtractor {
     public void parseEmbedded(
             TikaInputStream tis, ContentHandler handler, Metadata metadata, boolean outputHtml)
             throws SAXException, IOException {
+        //the output of the container depends on this embedded document
+        CachingParser.markEmbedded(context);
+        TikaMetrics metrics = context.get(TikaMetrics.class);
+        if (metrics != null) {
+            metrics.add(TikaMetrics.EMBEDDED, 1);
+        }
         if (outputHtml) {
             AttributesImpl attributes = new AttributesImpl();
             attributes.addAttribute("", "class", "class", "CDATA", "package-entry");
@@ -25,6 +25,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -38,6 +39,7 @@ import java.sql.SQLException;
 
 import org.apache.commons.io.input.TaggedInputStream;
 import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.TeeOutputStream;
 
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
@@ -723,6 +725,27 @@ public class TikaInputStream extends TaggedInputStream {
      * @throws IOException
      */
     public Path getPath(int maxBytes) throws IOException {
+        return getPath(maxBytes, null);
+    }
+
+    /**
+     * Same as {@link #getPath()}, but if the stream has to be spooled to a
+     * temporary file, every spooled byte is also written to <code>copy</code>.
+     * This lets a caller process the full stream (e.g. digest it) during the
+     * spool instead of reading the temporary file again afterwards.
+     * Nothing is written to <code>copy</code> if this stream already
+     * {@link #hasFile() has a file}. <code>copy</code> is not closed.
+     *
+     * @param copy stream to which the spooled bytes are also written
+     * @return the original path or the temporary file
+     * @throws IOException
+     * @since Apache Tika 4.0.0
+     */
+    public Path getPath(OutputStream copy) throws IOException {
+        return getPath(-1, copy);
+    }
+
+    private Path getPath(int maxBytes, OutputStream copy) throws IOException {
         if (path != null) {
             return path;
         }
@@ -745,7 +768,13 @@ public class TikaInputStream extends TaggedInputStream {
                 }
             } else {
                 // Spool the entire stream into a temporary file
-                Files.copy(this, tmpFile, REPLACE_EXISTING);
+                if (copy == null) {
+                    Files.copy(this, tmpFile, REPLACE_EXISTING);
+                } else {
+                    try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                        transferTo(new TeeOutputStream(os, copy));
+                    }
+                }
             }
             //successful so far, set tis' path to tmpFile
             path = tmpFile;
@@ -18,6 +18,10 @@ package org.apache.tika.metadata;
 
 import static org.apache.tika.utils.DateUtils.formatDate;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.text.DateFormat;
 import java.text.DateFormatSymbols;
@@ -33,6 +37,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.function.BiConsumer;
 
 import org.apache.tika.metadata.Property.PropertyType;
 import org.apache.tika.metadata.writefilter.MetadataWriteFilter;
@@ -47,6 +52,10 @@ public class Metadata
 
 
     private static final MetadataWriteFilter ACCEPT_ALL = new MetadataWriteFilter() {
+        //the value computed for this class before it was changed; keep it so that
+        //metadata serialized by earlier versions can still be read
+        private static final long serialVersionUID = -1484185309044046888L;
+
         @Override
         public void filterExisting(Map<String, String[]> data) {
             //no-op
@@ -54,6 +63,12 @@ public class Metadata
 
         @Override
         public void add(String field, String value, Map<String, String[]> data) {
+            if (data instanceof MetadataStore) {
+                if (value != null) {
+                    ((MetadataStore) data).add(field, value);
+                }
+                return;
+            }
             String[] values = data.get(field);
             if (values == null) {
                 set(field, value, data);
@@ -65,7 +80,9 @@ public class Metadata
         //legacy behavior -- remove the field if value is null
         @Override
         public void set(String field, String value, Map<String, String[]> data) {
-            if (value != null) {
+            if (value != null && data instanceof MetadataStore) {
+                ((MetadataStore) data).set(field, value);
+            } else if (value != null) {
                 data.put(field, new String[]{ value });
             } else {
                 data.remove(field);
@@ -87,6 +104,14 @@ public class Metadata
      * Serial version UID
      */
     private static final long serialVersionUID = 5623926545693153182L;
+    /**
+     * The serialized form is kept as it was when the values were held in a
+     * <code>HashMap&lt;String, String[]&gt;</code>.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("metadata", Map.class),
+            new ObjectStreamField("writeFilter", MetadataWriteFilter.class)};
+    private static final String[] EMPTY = new String[0];
     /**
      * Some parsers will have the date as a ISO-8601 string
      * already, and will set that into the Metadata object.
@@ -95,7 +120,7 @@ public class Metadata
     /**
      * A map of all metadata attributes.
      */
-    private Map<String, String[]> metadata = null;
+    private MetadataStore metadata = null;
 
 
     private MetadataWriteFilter writeFilter = ACCEPT_ALL;
@@ -103,7 +128,7 @@ public class Metadata
      * Constructs a new, empty metadata.
      */
     public Metadata() {
-        metadata = new HashMap<>();
+        metadata = new MetadataStore();
     }
 
     private static DateFormat createDateFormat(String format, TimeZone timezone) {
@@ -133,8 +158,7 @@ public class Metadata
      * @return true is named value is multivalued, false if single value or null
      */
     public boolean isMultiValued(final Property property) {
-        return metadata.get(property.getName()) != null &&
-                metadata.get(property.getName()).length > 1;
+        return metadata.count(property.getName()) > 1;
     }
 
     /**
@@ -144,7 +168,7 @@ public class Metadata
      * @return true is named value is multivalued, false if single value or null
      */
     public boolean isMultiValued(final String name) {
-        return metadata.get(name) != null && metadata.get(name).length > 1;
+        return metadata.count(name) > 1;
     }
 
     /**
@@ -153,7 +177,21 @@ public class Metadata
      * @return Metadata names
      */
     public String[] names() {
-        return metadata.keySet().toArray(new String[0]);
+        return metadata.keySet().toArray(new String[metadata.size()]);
+    }
+
+    /**
+     * Performs the given action for each name and its values, without
+     * copying the names into a new array as {@link #names()} does.
+     * The action must not modify this metadata or the values array.
+     *
+     * @param action the action to perform for each name and its values
+     * @since Apache Tika 4.0.0
+     */
+    public void forEach(BiConsumer<String, String[]> action) {
+        for (Entry<String, String[]> e : metadata.entrySet()) {
+            action.accept(e.getKey(), e.getValue());
+        }
     }
 
     /**
@@ -164,12 +202,7 @@ public class Metadata
      * @return the value associated to the specified metadata name.
      */
     public String get(final String name) {
-        String[] values = metadata.get(name);
-        if (values == null) {
-            return null;
-        } else {
-            return values[0];
-        }
+        return metadata.first(name);
     }
 
     /**
@@ -277,7 +310,7 @@ public class Metadata
     private String[] _getValues(final String name) {
         String[] values = metadata.get(name);
         if (values == null) {
-            values = new String[0];
+            values = EMPTY;
         }
         return values;
     }
@@ -301,8 +334,7 @@ public class Metadata
      * @param newValues the metadata values
      */
     protected void add(final String name, final String[] newValues) {
-        String[] values = metadata.get(name);
-        if (values == null) {
+        if (!metadata.containsKey(name)) {
             set(name, newValues);
         } else {
             for (String val : newValues) {
@@ -331,9 +363,7 @@ public class Metadata
                 }
             }
         } else {
-            String[] values = metadata.get(property.getName());
-
-            if (values == null) {
+            if (!metadata.containsKey(property.getName())) {
                 set(property, value);
             } else {
                 if (property.isMultiValuePermitted()) {
@@ -678,8 +708,7 @@ public class Metadata
             return false;
         }
 
-        String[] names = names();
-        for (String name : names) {
+        for (String name : metadata.keySet()) {
             String[] otherValues = other._getValues(name);
             String[] thisValues = _getValues(name);
             if (otherValues.length != thisValues.length) {
@@ -696,10 +725,9 @@ public class Metadata
 
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
-        String[] names = names();
-        for (String name : names) {
-            String[] values = _getValues(name);
-            for (String value : values) {
+        for (Entry<String, String[]> e : metadata.entrySet()) {
+            String name = e.getKey();
+            for (String value : e.getValue()) {
                 if (stringBuilder.length() > 0) {
                     stringBuilder.append(" ");
                 }
@@ -708,4 +736,19 @@ public class Metadata
         }
         return stringBuilder.toString();
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("metadata", new HashMap<>(metadata));
+        fields.put("writeFilter", writeFilter);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Map<String, String[]> map = (Map<String, String[]>) fields.get("metadata", null);
+        metadata = map == null ? new MetadataStore() : new MetadataStore(map);
+        writeFilter = (MetadataWriteFilter) fields.get("writeFilter", ACCEPT_ALL);
+    }
 }
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.metadata;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact backing store for {@link Metadata}.
+ * <p>
+ * A name with a single value is stored as the bare string rather than as a
+ * one-element array.  Names that have values appended to them are held in a
+ * growable list, so repeated calls to {@link #add(String, String)} do not
+ * copy the values on every call.  Names that match a registered
+ * {@link Property} are stored using the property's own name instance, so
+ * that names read from serialized metadata are not held in many copies.
+ * <p>
+ * This class also implements <code>Map&lt;String, String[]&gt;</code> so
+ * that it can be handed to a
+ * {@link org.apache.tika.metadata.writefilter.MetadataWriteFilter}.  Arrays
+ * returned from the map view must not be modified.
+ */
+class MetadataStore extends AbstractMap<String, String[]> {
+
+    /**
+     * Values are a {@link String}, a <code>String[]</code> or a {@link Values}.
+     */
+    private final Map<String, Object> data = new HashMap<>();
+
+    private EntrySet entrySet;
+
+    MetadataStore() {
+    }
+
+    MetadataStore(Map<String, String[]> map) {
+        putAll(map);
+    }
+
+    /**
+     * @return the first value of the name, or <code>null</code> if the name is not set
+     */
+    String first(String name) {
+        Object v = data.get(name);
+        if (v == null || v instanceof String) {
+            return (String) v;
+        } else if (v instanceof String[]) {
+            String[] values = (String[]) v;
+            return values.length > 0 ? values[0] : null;
+        }
+        return ((Values) v).array[0];
+    }
+
+    /**
+     * @return the number of values for the name
+     */
+    int count(String name) {
+        Object v = data.get(name);
+        if (v == null) {
+            return 0;
+        } else if (v instanceof String) {
+            return 1;
+        } else if (v instanceof String[]) {
+            return ((String[]) v).length;
+        }
+        return ((Values) v).size;
+    }
+
+    /**
+     * Replaces all values of the name with the given non-null value.
+     */
+    void set(String name, String value) {
+        data.put(intern(name), value);
+    }
+
+    /**
+     * Appends the given non-null value to the values of the name.
+     */
+    void add(String name, String value) {
+        Object v = data.get(name);
+        if (v == null) {
+            data.put(intern(name), value);
+        } else if (v instanceof String) {
+            data.put(name, new Values(new String[]{(String) v}, value));
+        } else if (v instanceof String[]) {
+            data.put(name, new Values((String[]) v, value));
+        } else {
+            ((Values) v).add(value);
+        }
+    }
+
+    @Override
+    public String[] get(Object name) {
+        return toArray(data.get(name));
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return data.containsKey(name);
+    }
+
+    @Override
+    public String[] put(String name, String[] values) {
+        Object stored = values;
+        if (values != null && values.length == 1 && values[0] != null) {
+            stored = values[0];
+        }
+        return toArray(data.put(intern(name), stored));
+    }
+
+    @Override
+    public String[] remove(Object name) {
+        return toArray(data.remove(name));
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return data.keySet();
+    }
+
+    @Override
+    public Set<Entry<String, String[]>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private static String intern(String name) {
+        Property property = Property.get(name);
+        return property == null ? name : property.getName();
+    }
+
+    private static String[] toArray(Object v) {
+        if (v == null || v instanceof String[]) {
+            return (String[]) v;
+        } else if (v instanceof String) {
+            return new String[]{(String) v};
+        }
+        return ((Values) v).toArray();
+    }
+
+    /**
+     * Growable list of values.  The backing array is trimmed when it is
+     * handed out, so that repeated reads without an intervening add do not
+     * copy it again.
+     */
+    private static final class Values {
+
+        private String[] array;
+
+        private int size;
+
+        Values(String[] values, String value) {
+            size = values.length;
+            array = Arrays.copyOf(values, Math.max(4, size * 2));
+            array[size++] = value;
+        }
+
+        void add(String value) {
+            if (size == array.length) {
+                array = Arrays.copyOf(array, size * 2);
+            }
+            array[size++] = value;
+        }
+
+        String[] toArray() {
+            if (size != array.length) {
+                array = Arrays.copyOf(array, size);
+            }
+            return array;
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, String[]>> {
+
+        @Override
+        public Iterator<Entry<String, String[]>> iterator() {
+            Iterator<Entry<String, Object>> it = data.entrySet().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Entry<String, String[]> next() {
+                    Entry<String, Object> e = it.next();
+                    return new SimpleImmutableEntry<>(e.getKey(),
+                            MetadataStore.toArray(e.getValue()));
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        public void clear() {
+            data.clear();
+        }
+    }
+}
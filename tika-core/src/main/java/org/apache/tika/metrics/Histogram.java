@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative longs, e.g. durations in nanoseconds.
+ * <p>
+ * Values are counted in buckets whose width grows with the value: each
+ * power of two is split into eight buckets, so percentiles are accurate
+ * to within 12.5%.  Recording a value is a few atomic increments, and the
+ * memory use is fixed at about 4KB regardless of the number of values.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value values less than 0 are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(getBucket(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long c = getCount();
+        return c == 0 ? 0 : (double) getSum() / c;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket that contains the percentile,
+     * capped at the maximum value, or 0 if nothing has been recorded.
+     * While values are being recorded, this is an estimate.
+     */
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(getUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @param unit the unit of the recorded values; the durations in the
+     *             map are in milliseconds
+     * @return count, mean, 50th, 90th and 99th percentiles and max
+     */
+    public Map<String, Object> toMap(TimeUnit unit) {
+        double millisPerUnit = unit.toNanos(1) / 1_000_000.0;
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", getCount());
+        map.put("mean_ms", round(getMean() * millisPerUnit));
+        map.put("p50_ms", round(getPercentile(50) * millisPerUnit));
+        map.put("p90_ms", round(getPercentile(90) * millisPerUnit));
+        map.put("p99_ms", round(getPercentile(99) * millisPerUnit));
+        map.put("max_ms", round(getMax() * millisPerUnit));
+        return map;
+    }
+
+    private static double round(double d) {
+        return Math.round(d * 1000.0) / 1000.0;
+    }
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + subBucket) << shift;
+        long upper = lower + (1L << shift) - 1;
+        //the last buckets overflow
+        return lower < 0 || upper < lower ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.metrics;
+
+import org.apache.tika.parser.ParseContext;
+
+/**
+ * Times a single parse for {@link TikaMetrics}.  The time that is spent on
+ * the embedded documents of a document is subtracted from the document's time,
+ * so that each parser is charged only for its own work.  The time of
+ * the outermost parse is also recorded as {@link TikaMetrics.Stage#PARSE}.
+ * <p>
+ * This is not thread safe; the parse of a document and of its
+ * embedded documents have to happen on the same thread.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public final class ParseTimer {
+
+    private final TikaMetrics metrics;
+    private final ParseContext context;
+    private final ParseTimer parent;
+    private final long start;
+    private long embeddedNanos = 0;
+
+    private ParseTimer(TikaMetrics metrics, ParseContext context, ParseTimer parent) {
+        this.metrics = metrics;
+        this.context = context;
+        this.parent = parent;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * @param context
+     * @return a started timer, or <code>null</code> if there are no
+     * {@link TikaMetrics} in the context
+     */
+    public static ParseTimer start(ParseContext context) {
+        TikaMetrics metrics = context.get(TikaMetrics.class);
+        if (metrics == null) {
+            return null;
+        }
+        ParseTimer timer = new ParseTimer(metrics, context, context.get(ParseTimer.class));
+        context.set(ParseTimer.class, timer);
+        return timer;
+    }
+
+    /**
+     * Subtracts time from the timer that is currently running in the
+     * context, e.g. the time to detect the type of an embedded document.
+     *
+     * @param context
+     * @param nanos
+     */
+    public static void excludeFromCurrent(ParseContext context, long nanos) {
+        ParseTimer timer = context.get(ParseTimer.class);
+        if (timer != null) {
+            timer.embeddedNanos += nanos;
+        }
+    }
+
+    /**
+     * @param parserName
+     * @param mimeType
+     */
+    public void stop(String parserName, String mimeType) {
+        long elapsed = System.nanoTime() - start;
+        context.set(ParseTimer.class, parent);
+        metrics.recordParse(parserName, mimeType, elapsed - embeddedNanos);
+        if (parent == null) {
+            metrics.record(TikaMetrics.Stage.PARSE, elapsed);
+        } else {
+            parent.embeddedNanos += elapsed;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.ParseContext;
+
+/**
+ * Registry of durations and counts for tuning, e.g. how long each parser
+ * and each mime type takes, and how much time is spent in each {@link Stage}.
+ * <p>
+ * Recording is lock-free, and the registry may be shared by any number of
+ * threads.  To collect metrics for a parse, set a registry in the
+ * {@link ParseContext}; the parsers then record through {@link ParseTimer}.
+ * If there is no registry in the context, nothing is recorded.
+ * <p>
+ * Durations are recorded in nanoseconds in {@link Histogram}s, which
+ * are organized in groups, e.g. {@link #PARSER}, and keyed by name
+ * within each group.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class TikaMetrics {
+
+    public enum Stage {
+        FETCH, DETECT, PARSE, EMIT
+    }
+
+    /**
+     * Group for the durations of the {@link Stage}s
+     */
+    public static final String STAGE = "stage";
+
+    /**
+     * Group for the durations of the parsers, not including the time spent on
+     * the embedded documents
+     */
+    public static final String PARSER = "parser";
+
+    /**
+     * Group for the durations of the parses per mime type, not including the time
+     * spent on the embedded documents
+     */
+    public static final String MIME_TYPE = "mime_type";
+
+    /**
+     * Group for the durations per {@link org.apache.tika.pipes.PipesResult.STATUS}
+     */
+    public static final String STATUS = "status";
+
+    /**
+     * Maximum number of histograms in a group.  Once a group is full, e.g. with
+     * mime types that clients made up, new names are recorded under {@link #OTHER}.
+     */
+    public static final int MAX_NAMES_PER_GROUP = 500;
+
+    public static final String OTHER = "other";
+
+    public static final String BYTES_IN = "bytes_in";
+    public static final String BYTES_OUT = "bytes_out";
+    public static final String EMBEDDED = "embedded";
+
+    private final Map<String, Map<String, Histogram>> groups = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void record(Stage stage, long nanos) {
+        getHistogram(STAGE, stage.name().toLowerCase(Locale.ROOT)).record(nanos);
+    }
+
+    /**
+     * @param parserName class name of the parser
+     * @param mimeType   content type of the document; parameters are removed
+     * @param nanos      duration
+     */
+    public void recordParse(String parserName, String mimeType, long nanos) {
+        getHistogram(PARSER, parserName).record(nanos);
+        getHistogram(MIME_TYPE, getBaseType(mimeType)).record(nanos);
+    }
+
+    /**
+     * @param group
+     * @param name
+     * @return the histogram, which is created if it doesn't exist yet; if the group
+     * already has {@link #MAX_NAMES_PER_GROUP} histograms, the one for {@link #OTHER}
+     */
+    public Histogram getHistogram(String group, String name) {
+        Map<String, Histogram> histograms = groups.get(group);
+        if (histograms == null) {
+            histograms = groups.computeIfAbsent(group, k -> new ConcurrentHashMap<>());
+        }
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            if (histograms.size() >= MAX_NAMES_PER_GROUP) {
+                name = OTHER;
+            }
+            histogram = histograms.computeIfAbsent(name, k -> new Histogram());
+        }
+        return histogram;
+    }
+
+    public void add(String counter, long delta) {
+        LongAdder adder = counters.get(counter);
+        if (adder == null) {
+            adder = counters.computeIfAbsent(counter, k -> new LongAdder());
+        }
+        adder.add(delta);
+    }
+
+    public long getCounter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * @return a snapshot of the counters and histograms as nested maps
+     * that can be serialized as json; durations are in milliseconds
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new TreeMap<>();
+        Map<String, Object> counterMap = new TreeMap<>();
+        counters.forEach((k, v) -> counterMap.put(k, v.sum()));
+        map.put("counters", counterMap);
+        groups.forEach((group, histograms) -> {
+            Map<String, Object> groupMap = new TreeMap<>();
+            histograms.forEach((name, h) -> groupMap.put(name, h.toMap(TimeUnit.NANOSECONDS)));
+            map.put(group, groupMap);
+        });
+        return map;
+    }
+
+    private static String getBaseType(String mimeType) {
+        if (mimeType == null) {
+            return MediaType.OCTET_STREAM.toString();
+        }
+        MediaType mediaType = MediaType.parse(mimeType);
+        return mediaType == null ? mimeType : mediaType.getBaseType().toString();
+    }
+}
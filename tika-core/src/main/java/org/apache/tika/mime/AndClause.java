@@ -35,6 +35,16 @@ class AndClause implements Clause {
         return true;
     }
 
+    @Override
+    public boolean canMatchFirstByte(byte b) {
+        for (Clause clause : clauses) {
+            if (!clause.canMatchFirstByte(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public int size() {
         int size = 0;
         for (Clause clause : clauses) {
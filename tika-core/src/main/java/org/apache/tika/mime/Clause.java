@@ -34,4 +34,13 @@ interface Clause extends Serializable {
      */
     int size();
 
+    /**
+     * Returns whether this clause could match data that starts with the given byte.
+     * This is used to skip clauses without evaluating them, so the default
+     * implementation conservatively returns <code>true</code>.
+     */
+    default boolean canMatchFirstByte(byte b) {
+        return true;
+    }
+
 }
@@ -49,6 +49,11 @@ class Magic implements Clause, Comparable<Magic> {
         return clause.eval(data);
     }
 
+    @Override
+    public boolean canMatchFirstByte(byte b) {
+        return clause.canMatchFirstByte(b);
+    }
+
     public int size() {
         return clause.size();
     }
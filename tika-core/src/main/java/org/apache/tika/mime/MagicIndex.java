@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.mime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable index over the sorted magics of a {@link MimeTypes} repository.
+ * For each possible first byte of a document, this holds the magics that
+ * could match a document starting with that byte, in their original order.
+ * Iterating over the candidates instead of over all magics gives
+ * identical results, because the skipped magics can't match.
+ */
+class MagicIndex {
+
+    private static final Magic[] EMPTY = new Magic[0];
+
+    private final Magic[][] candidates = new Magic[256][];
+
+    private final Magic[] htmlMagics;
+
+    MagicIndex(List<Magic> magics, MimeType htmlMimeType) {
+        Magic[] all = magics.toArray(EMPTY);
+        List<Magic> tmp = new ArrayList<>(all.length);
+        for (int i = 0; i < candidates.length; i++) {
+            tmp.clear();
+            byte b = (byte) i;
+            for (Magic magic : all) {
+                if (magic.canMatchFirstByte(b)) {
+                    tmp.add(magic);
+                }
+            }
+            candidates[i] = tmp.toArray(EMPTY);
+        }
+        tmp.clear();
+        for (Magic magic : all) {
+            if (magic.getType().equals(htmlMimeType)) {
+                tmp.add(magic);
+            }
+        }
+        htmlMagics = tmp.toArray(EMPTY);
+    }
+
+    /**
+     * @param firstByte first byte of the document
+     * @return magics that could match a document starting with the given byte,
+     * sorted by priority
+     */
+    Magic[] getCandidates(byte firstByte) {
+        return candidates[firstByte & 0xff];
+    }
+
+    /**
+     * @return all magics for text/html, sorted by priority
+     */
+    Magic[] getHtmlMagics() {
+        return htmlMagics;
+    }
+}
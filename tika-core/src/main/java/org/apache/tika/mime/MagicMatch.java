@@ -16,12 +16,7 @@
  */
 package org.apache.tika.mime;
 
-import java.io.IOException;
-
-import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
-
 import org.apache.tika.detect.MagicDetector;
-import org.apache.tika.metadata.Metadata;
 
 /**
  * Defines a magic match.
@@ -38,7 +33,7 @@ class MagicMatch implements Clause {
 
     private final String mask;
 
-    private MagicDetector detector = null;
+    private volatile MagicDetector detector = null;
 
     MagicMatch(MediaType mediaType, String type, String offset, String value, String mask) {
         this.mediaType = mediaType;
@@ -48,21 +43,23 @@ class MagicMatch implements Clause {
         this.mask = mask;
     }
 
-    private synchronized MagicDetector getDetector() {
-        if (detector == null) {
-            detector = MagicDetector.parse(mediaType, type, offset, value, mask);
+    private MagicDetector getDetector() {
+        MagicDetector d = detector;
+        if (d == null) {
+            //parsing is idempotent, so a race here only costs a duplicate parse
+            d = MagicDetector.parse(mediaType, type, offset, value, mask);
+            detector = d;
         }
-        return detector;
+        return d;
     }
 
     public boolean eval(byte[] data) {
-        try {
-            return getDetector().detect(UnsynchronizedByteArrayInputStream.builder().setByteArray(data).get(), new Metadata()) !=
-                    MediaType.OCTET_STREAM;
-        } catch (IOException e) {
-            // Should never happen with a ByteArrayInputStream
-            return false;
-        }
+        return getDetector().matches(data);
+    }
+
+    @Override
+    public boolean canMatchFirstByte(byte b) {
+        return getDetector().canMatchFirstByte(b);
     }
 
     public int size() {
@@ -73,6 +73,15 @@ public final class MimeTypes implements Detector, Serializable {
      * Serial version UID.
      */
     private static final long serialVersionUID = -1350863170146349036L;
+    /**
+     * Number of header bytes used for magic detection, see {@link #getMinLength()}
+     */
+    private static final int MIN_LENGTH = 64 * 1024;
+    /**
+     * Reusable per-thread buffer for {@link #readMagicHeader(InputStream)}
+     */
+    private static final ThreadLocal<byte[]> HEADER_BUFFER =
+            ThreadLocal.withInitial(() -> new byte[MIN_LENGTH]);
     private static final Map<ClassLoader, MimeTypes> CLASSLOADER_SPECIFIC_DEFAULT_TYPES =
             new HashMap<>();
     private static MimeTypes DEFAULT_TYPES = null;
@@ -109,6 +118,10 @@ public final class MimeTypes implements Detector, Serializable {
      * Sorted list of all registered magics
      */
     private final List<Magic> magics = new ArrayList<>();
+    /**
+     * Index over {@link #magics}, lazily rebuilt after the magics change
+     */
+    private transient volatile MagicIndex magicIndex;
     /**
      * Sorted list of all registered rootXML
      */
@@ -230,9 +243,10 @@ public final class MimeTypes implements Detector, Serializable {
         }
 
         // Then, check for magic bytes
+        MagicIndex index = getMagicIndex();
         List<MimeType> result = new ArrayList<>(1);
         int currentPriority = -1;
-        for (Magic magic : magics) {
+        for (Magic magic : index.getCandidates(data[0])) {
             if (currentPriority > 0 && currentPriority > magic.getPriority()) {
                 break;
             }
@@ -266,10 +280,7 @@ public final class MimeTypes implements Detector, Serializable {
                         // So, if we got here, we might have a HTML file that's
                         //  invalid XML. So, try our HTML magics explicitly (TIKA-2419)
                         boolean isHTML = false;
-                        for (Magic magic : magics) {
-                            if (!magic.getType().equals(htmlMimeType)) {
-                                continue;
-                            }
+                        for (Magic magic : index.getHtmlMagics()) {
                             if (magic.eval(data)) {
                                 isHTML = true;
                                 break;
@@ -309,6 +320,10 @@ public final class MimeTypes implements Detector, Serializable {
      * The given stream is never {@link InputStream#close() closed},
      * {@link InputStream#mark(int) marked}, or
      * {@link InputStream#reset() reset} by this method.
+     * <p>
+     * If the stream is at least {@link #getMinLength()} bytes long, the returned
+     * array is a per-thread buffer that is reused by the next call from the
+     * same thread, so callers must be done with it before reading another header.
      *
      * @param stream stream to be read
      * @return first {@link #getMinLength()} (or fewer) bytes of the stream
@@ -319,7 +334,7 @@ public final class MimeTypes implements Detector, Serializable {
             throw new IllegalArgumentException("InputStream is missing");
         }
 
-        byte[] bytes = new byte[getMinLength()];
+        byte[] bytes = HEADER_BUFFER.get();
         int totalRead = 0;
 
         int lastRead = stream.read(bytes);
@@ -465,7 +480,7 @@ public final class MimeTypes implements Detector, Serializable {
     public int getMinLength() {
         // This needs to be reasonably large to be able to correctly detect
         // things like XML root elements after initial comment and DTDs
-        return 64 * 1024;
+        return MIN_LENGTH;
     }
 
     /**
@@ -480,6 +495,7 @@ public final class MimeTypes implements Detector, Serializable {
         // Update the magics index...
         if (type.hasMagic()) {
             magics.addAll(type.getMagics());
+            magicIndex = null;
         }
 
         // Update the xml (xmlRoot) index...
@@ -501,6 +517,16 @@ public final class MimeTypes implements Detector, Serializable {
         }
         Collections.sort(magics);
         Collections.sort(xmls);
+        magicIndex = null;
+    }
+
+    private MagicIndex getMagicIndex() {
+        MagicIndex index = magicIndex;
+        if (index == null) {
+            index = new MagicIndex(magics, htmlMimeType);
+            magicIndex = index;
+        }
+        return index;
     }
 
     /**
@@ -61,6 +61,19 @@ class MinShouldMatchClause implements Clause {
         return false;
     }
 
+    @Override
+    public boolean canMatchFirstByte(byte b) {
+        int matches = 0;
+        for (Clause clause : clauses) {
+            if (clause.canMatchFirstByte(b)) {
+                if (++matches >= min) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public int size() {
         int size = 0;
         for (Clause clause : clauses) {
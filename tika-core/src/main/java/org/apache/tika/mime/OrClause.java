@@ -35,6 +35,16 @@ class OrClause implements Clause {
         return false;
     }
 
+    @Override
+    public boolean canMatchFirstByte(byte b) {
+        for (Clause clause : clauses) {
+            if (clause.canMatchFirstByte(b)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public int size() {
         int size = 0;
         for (Clause clause : clauses) {
@@ -20,8 +20,11 @@ import java.io.Serializable;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 /**
  * Defines a MimeType pattern.
@@ -33,6 +36,11 @@ class Patterns implements Serializable {
      */
     private static final long serialVersionUID = -5778015347278111140L;
 
+    /**
+     * Maximum number of resource names whose result is cached.
+     */
+    private static final int MAX_CACHE_SIZE = 1000;
+
     private final MediaTypeRegistry registry;
 
     /**
@@ -49,9 +57,24 @@ class Patterns implements Serializable {
      */
     private final SortedMap<String, MimeType> globs =
             new TreeMap<>(new LengthComparator());
+    /**
+     * Literal prefix and suffix that a name must have to match a glob compiled from
+     * a wildcard pattern, keyed by the compiled glob.  Used to skip the regex.
+     */
+    private final Map<String, String[]> globLiterals = new HashMap<>();
     private int minExtensionLength = Integer.MAX_VALUE;
     private int maxExtensionLength = 0;
 
+    /**
+     * Precompiled form of {@link #globs}, lazily rebuilt after the globs change.
+     */
+    private transient volatile CompiledGlobs compiledGlobs;
+
+    /**
+     * Bounded cache of recent {@link #matches(String)} results.
+     */
+    private transient volatile Map<String, Optional<MimeType>> cache;
+
     public Patterns(MediaTypeRegistry registry) {
         this.registry = registry;
     }
@@ -64,6 +87,7 @@ class Patterns implements Serializable {
         if (pattern == null || type == null) {
             throw new IllegalArgumentException("Pattern and/or mime type is missing");
         }
+        cache = null;
 
         if (isJavaRegex) {
             // in this case, we don't need to build a regex pattern
@@ -80,7 +104,9 @@ class Patterns implements Serializable {
                 addExtension(extension, type);
                 type.addExtension(extension);
             } else {
-                addGlob(compile(pattern), type);
+                String glob = compile(pattern);
+                addGlob(glob, type);
+                globLiterals.put(glob, new String[]{literalPrefix(pattern), literalSuffix(pattern)});
             }
         }
     }
@@ -116,6 +142,7 @@ class Patterns implements Serializable {
         MimeType previous = globs.get(glob);
         if (previous == null || registry.isSpecializationOf(previous.getType(), type.getType())) {
             globs.put(glob, type);
+            compiledGlobs = null;
         } else if (previous == type ||
                 registry.isSpecializationOf(type.getType(), previous.getType())) {
             // do nothing
@@ -143,6 +170,25 @@ class Patterns implements Serializable {
             throw new IllegalArgumentException("Name is missing");
         }
 
+        Map<String, Optional<MimeType>> results = cache;
+        if (results == null) {
+            results = new ConcurrentHashMap<>();
+            cache = results;
+        }
+        Optional<MimeType> cached = results.get(name);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        MimeType type = uncachedMatches(name);
+        if (results.size() >= MAX_CACHE_SIZE) {
+            //cheap approximation of LRU: start over with the most recent names
+            results.clear();
+        }
+        results.put(name, Optional.ofNullable(type));
+        return type;
+    }
+
+    private MimeType uncachedMatches(String name) {
         // First, try exact match of the provided resource name
         if (names.containsKey(name)) {
             return names.get(name);
@@ -158,13 +204,42 @@ class Patterns implements Serializable {
         }
 
         // And finally, try complex regexp matching
-        for (Map.Entry<String, MimeType> entry : globs.entrySet()) {
-            if (name.matches(entry.getKey())) {
-                return entry.getValue();
-            }
+        return getCompiledGlobs().matches(name);
+    }
+
+    private CompiledGlobs getCompiledGlobs() {
+        CompiledGlobs compiled = compiledGlobs;
+        if (compiled == null) {
+            compiled = new CompiledGlobs(globs, globLiterals);
+            compiledGlobs = compiled;
         }
+        return compiled;
+    }
 
-        return null;
+    /**
+     * @return the literal characters at the start of a wildcard pattern
+     */
+    private static String literalPrefix(String glob) {
+        int i = 0;
+        while (i < glob.length() && !isWildcard(glob.charAt(i))) {
+            i++;
+        }
+        return glob.substring(0, i);
+    }
+
+    /**
+     * @return the literal characters at the end of a wildcard pattern
+     */
+    private static String literalSuffix(String glob) {
+        int i = glob.length();
+        while (i > 0 && !isWildcard(glob.charAt(i - 1))) {
+            i--;
+        }
+        return glob.substring(i);
+    }
+
+    private static boolean isWildcard(char ch) {
+        return ch == '*' || ch == '?' || ch == '[' || ch == ']';
     }
 
     private String compile(String glob) {
@@ -187,6 +262,45 @@ class Patterns implements Serializable {
         return pattern.toString();
     }
 
+    /**
+     * The glob patterns, precompiled in match order, with the literal prefix
+     * and suffix of each pattern (if known) as a cheap pre-filter.
+     */
+    private static final class CompiledGlobs {
+
+        private final Pattern[] patterns;
+        private final String[] prefixes;
+        private final String[] suffixes;
+        private final MimeType[] types;
+
+        CompiledGlobs(SortedMap<String, MimeType> globs, Map<String, String[]> literals) {
+            int size = globs.size();
+            patterns = new Pattern[size];
+            prefixes = new String[size];
+            suffixes = new String[size];
+            types = new MimeType[size];
+            int i = 0;
+            for (Map.Entry<String, MimeType> entry : globs.entrySet()) {
+                patterns[i] = Pattern.compile(entry.getKey());
+                String[] prefixAndSuffix = literals.get(entry.getKey());
+                prefixes[i] = prefixAndSuffix == null ? "" : prefixAndSuffix[0];
+                suffixes[i] = prefixAndSuffix == null ? "" : prefixAndSuffix[1];
+                types[i] = entry.getValue();
+                i++;
+            }
+        }
+
+        MimeType matches(String name) {
+            for (int i = 0; i < patterns.length; i++) {
+                if (name.startsWith(prefixes[i]) && name.endsWith(suffixes[i]) &&
+                        patterns[i].matcher(name).matches()) {
+                    return types[i];
+                }
+            }
+            return null;
+        }
+    }
+
     private static final class LengthComparator implements Comparator<String>, Serializable {
 
         /**
@@ -35,8 +35,11 @@ import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.HttpHeaders;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metrics.ParseTimer;
+import org.apache.tika.metrics.TikaMetrics;
 import org.apache.tika.mime.MediaType;
 import org.apache.tika.mime.MediaTypeRegistry;
+import org.apache.tika.parser.cache.CachingParser;
 import org.apache.tika.sax.SecureContentHandler;
 
 public class AutoDetectParser extends CompositeParser {
@@ -107,6 +110,7 @@ public class AutoDetectParser extends CompositeParser {
             fallback = new EmptyParser();
         }
 
+        fallback = maybeCache(fallback, config.getAutoDetectParserConfig());
         if (config.getAutoDetectParserConfig().getDigesterFactory() == null) {
             return fallback;
         } else {
@@ -121,11 +125,21 @@ public class AutoDetectParser extends CompositeParser {
         if (config.getAutoDetectParserConfig().getDigesterFactory() == null) {
             return config.getParser();
         }
-        return new DigestingParser(config.getParser(),
+        return new DigestingParser(
+                maybeCache(config.getParser(), config.getAutoDetectParserConfig()),
                 config.getAutoDetectParserConfig().getDigesterFactory().build(),
                 config.getAutoDetectParserConfig().getDigesterFactory().isSkipContainerDocument());
     }
 
+    //the cache has to be inside the DigestingParser; it is keyed on the digests
+    private static Parser maybeCache(Parser parser, AutoDetectParserConfig autoDetectParserConfig) {
+        if (autoDetectParserConfig.getExtractCache() == null) {
+            return parser;
+        }
+        return new CachingParser(parser, autoDetectParserConfig.getExtractCache(),
+                autoDetectParserConfig.getExtractCacheFingerprint());
+    }
+
     /**
      * Returns the type detector used by this parser to auto-detect the type
      * of a document.
@@ -176,7 +190,15 @@ public class AutoDetectParser extends CompositeParser {
             maybeSpool(tis, autoDetectParserConfig, metadata);
 
             // Automatically detect the MIME type of the document
+            TikaMetrics metrics = context.get(TikaMetrics.class);
+            long detectStart = metrics == null ? 0 : System.nanoTime();
             MediaType type = detector.detect(tis, metadata);
+            if (metrics != null) {
+                long detectNanos = System.nanoTime() - detectStart;
+                metrics.record(TikaMetrics.Stage.DETECT, detectNanos);
+                //detecting an embedded document isn't the work of the container's parser
+                ParseTimer.excludeFromCurrent(context, detectNanos);
+            }
             //update CONTENT_TYPE as long as it wasn't set by parser override
             if (metadata.get(TikaCoreProperties.CONTENT_TYPE_PARSER_OVERRIDE) == null ||
                     !metadata.get(TikaCoreProperties.CONTENT_TYPE_PARSER_OVERRIDE)
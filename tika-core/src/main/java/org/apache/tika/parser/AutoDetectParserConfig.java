@@ -27,6 +27,8 @@ import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.extractor.EmbeddedDocumentExtractorFactory;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.writefilter.MetadataWriteFilterFactory;
+import org.apache.tika.parser.cache.ExtractCache;
+import org.apache.tika.parser.cache.ExtractCacheKeys;
 import org.apache.tika.sax.ContentHandlerDecoratorFactory;
 
 /**
@@ -53,8 +55,18 @@ public class AutoDetectParserConfig extends ConfigBase implements Serializable {
 
     public static AutoDetectParserConfig load(Element element)
             throws TikaConfigException, IOException {
-        return AutoDetectParserConfig.buildSingle("autoDetectParserConfig",
+        AutoDetectParserConfig config = AutoDetectParserConfig.buildSingle("autoDetectParserConfig",
                 AutoDetectParserConfig.class, element, AutoDetectParserConfig.DEFAULT);
+        if (config.getExtractCache() != null) {
+            if (config.getDigesterFactory() == null) {
+                throw new TikaConfigException("An extractCache requires a digesterFactory");
+            }
+            if (config.getExtractCacheFingerprint() == null) {
+                config.setExtractCacheFingerprint(
+                        ExtractCacheKeys.fingerprint(element.getOwnerDocument()));
+            }
+        }
+        return config;
     }
 
     /**
@@ -95,6 +107,10 @@ public class AutoDetectParserConfig extends ConfigBase implements Serializable {
 
     private boolean throwOnZeroBytes = true;
 
+    private transient ExtractCache extractCache = null;
+
+    private String extractCacheFingerprint = null;
+
     /**
      * Creates a SecureContentHandlerConfig using the passed in parameters.
      *
@@ -193,6 +209,40 @@ public class AutoDetectParserConfig extends ConfigBase implements Serializable {
         return this.digesterFactory;
     }
 
+    /**
+     * If this is set, the output of parsing documents without embedded documents
+     * is stored in and served from this cache, keyed on the digests
+     * from the {@link #setDigesterFactory(DigestingParser.DigesterFactory) digesterFactory},
+     * which is required, and on the {@link #setExtractCacheFingerprint(String) fingerprint}.
+     *
+     * @param extractCache
+     * @since Apache Tika 4.0.0
+     */
+    public void setExtractCache(ExtractCache extractCache) {
+        this.extractCache = extractCache;
+    }
+
+    public ExtractCache getExtractCache() {
+        return extractCache;
+    }
+
+    /**
+     * Fingerprint of the configuration that is part of every {@link ExtractCache} key.
+     * When this config is loaded from a tika-config.xml, the default is a
+     * digest of the Tika version and of the full tika-config.xml, so that a
+     * change to either invalidates the cache.
+     *
+     * @param extractCacheFingerprint
+     * @since Apache Tika 4.0.0
+     */
+    public void setExtractCacheFingerprint(String extractCacheFingerprint) {
+        this.extractCacheFingerprint = extractCacheFingerprint;
+    }
+
+    public String getExtractCacheFingerprint() {
+        return extractCacheFingerprint;
+    }
+
     public void setThrowOnZeroBytes(boolean throwOnZeroBytes) {
         this.throwOnZeroBytes = throwOnZeroBytes;
     }
@@ -210,7 +260,8 @@ public class AutoDetectParserConfig extends ConfigBase implements Serializable {
                 metadataWriteFilterFactory + ", embeddedDocumentExtractorFactory=" +
                 embeddedDocumentExtractorFactory + ", contentHandlerDecoratorFactory=" +
                 contentHandlerDecoratorFactory + ", digesterFactory=" + digesterFactory +
-                ", throwOnZeroBytes=" + throwOnZeroBytes + '}';
+                ", throwOnZeroBytes=" + throwOnZeroBytes + ", extractCache=" + extractCache +
+                ", extractCacheFingerprint=" + extractCacheFingerprint + '}';
     }
 }
 
@@ -18,6 +18,7 @@ package org.apache.tika.parser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,6 +37,7 @@ import org.apache.tika.io.TemporaryResources;
 import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metrics.ParseTimer;
 import org.apache.tika.mime.MediaType;
 import org.apache.tika.mime.MediaTypeRegistry;
 import org.apache.tika.sax.TaggedContentHandler;
@@ -70,6 +72,17 @@ public class CompositeParser implements Parser {
      */
     private Parser fallback = new EmptyParser();
 
+    /**
+     * Cached media type to parser lookup table, see {@link #getDispatchTable(ParseContext)}.
+     */
+    private transient volatile DispatchTable dispatchTable;
+
+    /**
+     * Whether a subclass overrides {@link #getParsers(ParseContext)}, in which case
+     * the lookup table can't be cached.
+     */
+    private final boolean getParsersOverridden;
+
     public CompositeParser(MediaTypeRegistry registry, List<Parser> parsers,
                            Collection<Class<? extends Parser>> excludeParsers) {
         if (excludeParsers == null || excludeParsers.isEmpty()) {
@@ -83,6 +96,7 @@ public class CompositeParser implements Parser {
             }
         }
         this.registry = registry;
+        this.getParsersOverridden = isGetParsersOverridden(getClass());
     }
 
     public CompositeParser(MediaTypeRegistry registry, List<Parser> parsers) {
@@ -98,13 +112,70 @@ public class CompositeParser implements Parser {
     }
 
     public Map<MediaType, Parser> getParsers(ParseContext context) {
-        Map<MediaType, Parser> map = new HashMap<>();
-        for (Parser parser : parsers) {
-            for (MediaType type : parser.getSupportedTypes(context)) {
-                map.put(registry.normalize(type), parser);
+        return new HashMap<>(getComponentDispatchTable(context));
+    }
+
+    /**
+     * Returns the normalized media type to parser lookup table that is used
+     * to select a component parser.  The table is computed once and reused
+     * for as long as the component parsers, the registry and the types that each
+     * parser reports for the given context stay the same.  For the vast majority
+     * of parsers, the supported types do not depend on the parse context and are
+     * a constant set, so checking whether the table is still valid costs one
+     * reference comparison per component parser.  A parser whose supported types
+     * do depend on the context causes the table to be rebuilt only when
+     * its types actually change.
+     * <p>
+     * Subclasses that need to add parsers to the table should override this
+     * and must not modify the map returned by this implementation.  For backwards
+     * compatibility, if a subclass overrides {@link #getParsers(ParseContext)} but not
+     * this method, the table is not cached and that method is called instead.
+     *
+     * @param context parse context
+     * @return unmodifiable lookup table
+     * @since Apache Tika 4.0.0
+     */
+    protected Map<MediaType, Parser> getDispatchTable(ParseContext context) {
+        if (getParsersOverridden) {
+            return getParsers(context);
+        }
+        return getComponentDispatchTable(context);
+    }
+
+    private Map<MediaType, Parser> getComponentDispatchTable(ParseContext context) {
+        List<Parser> currentParsers = parsers;
+        MediaTypeRegistry currentRegistry = registry;
+        DispatchTable table = dispatchTable;
+        if (table != null && table.isValid(currentRegistry, currentParsers, context)) {
+            return table.map;
+        }
+        table = new DispatchTable(currentRegistry, currentParsers, context);
+        dispatchTable = table;
+        return table.map;
+    }
+
+    /**
+     * @return whether the most specific <code>getParsers(ParseContext)</code> is declared
+     * in a subclass of the class that declares the most specific
+     * <code>getDispatchTable(ParseContext)</code>
+     */
+    private static boolean isGetParsersOverridden(Class<?> clazz) {
+        Class<?> getParsersClass = null;
+        Class<?> getDispatchTableClass = null;
+        for (Class<?> c = clazz; c != null && getDispatchTableClass == null;
+                c = c.getSuperclass()) {
+            for (Method m : c.getDeclaredMethods()) {
+                if (m.getParameterCount() != 1 || m.getParameterTypes()[0] != ParseContext.class) {
+                    continue;
+                }
+                if (getParsersClass == null && m.getName().equals("getParsers")) {
+                    getParsersClass = c;
+                } else if (m.getName().equals("getDispatchTable")) {
+                    getDispatchTableClass = c;
+                }
             }
         }
-        return map;
+        return getParsersClass != null && getParsersClass != getDispatchTableClass;
     }
 
     private boolean isExcluded(Collection<Class<? extends Parser>> excludeParsers,
@@ -172,6 +243,7 @@ public class CompositeParser implements Parser {
      */
     public void setMediaTypeRegistry(MediaTypeRegistry registry) {
         this.registry = registry;
+        this.dispatchTable = null;
     }
 
     /**
@@ -203,6 +275,7 @@ public class CompositeParser implements Parser {
             this.parsers.add(ParserDecorator
                     .withTypes(entry.getValue(), Collections.singleton(entry.getKey())));
         }
+        this.dispatchTable = null;
     }
 
     /**
@@ -241,7 +314,7 @@ public class CompositeParser implements Parser {
     }
 
     protected Parser getParser(Metadata metadata, ParseContext context) {
-        Map<MediaType, Parser> map = getParsers(context);
+        Map<MediaType, Parser> map = getDispatchTable(context);
         //check for parser override first
         String contentTypeString = metadata.get(TikaCoreProperties.CONTENT_TYPE_PARSER_OVERRIDE);
         if (contentTypeString == null) {
@@ -266,7 +339,7 @@ public class CompositeParser implements Parser {
     }
 
     public Set<MediaType> getSupportedTypes(ParseContext context) {
-        return getParsers(context).keySet();
+        return getDispatchTable(context).keySet();
     }
 
     /**
@@ -294,6 +367,8 @@ public class CompositeParser implements Parser {
             parserRecord.addParserClass(parserClassname);
             ParserUtils.recordParserDetails(parserClassname, metadata);
             parserRecord.beforeParse();
+            //composite parsers choose a parser and then time that one
+            ParseTimer timer = isComposite(parser) ? null : ParseTimer.start(context);
             try {
                 parser.parse(taggedStream, taggedHandler, metadata, context);
             } catch (SecurityException e) {
@@ -310,6 +385,10 @@ public class CompositeParser implements Parser {
                 throw new TikaException("TIKA-237: Illegal SAXException from " + parser, e);
             } catch (RuntimeException e) {
                 throw new TikaException("Unexpected RuntimeException from " + parser, e);
+            } finally {
+                if (timer != null) {
+                    timer.stop(parserClassname, metadata.get(Metadata.CONTENT_TYPE));
+                }
             }
         } finally {
             tmp.dispose();
@@ -321,6 +400,13 @@ public class CompositeParser implements Parser {
         }
     }
 
+    private static boolean isComposite(Parser parser) {
+        while (parser instanceof ParserDecorator) {
+            parser = ((ParserDecorator) parser).getWrappedParser();
+        }
+        return parser instanceof CompositeParser;
+    }
+
     private void recordEmbeddedMetadata(Metadata metadata, ParseContext context) {
         ParseRecord record = context.get(ParseRecord.class);
         if (record == null) {
@@ -345,4 +431,48 @@ public class CompositeParser implements Parser {
             }
         }
     }
+
+    /**
+     * Immutable snapshot of the component parsers, their supported types
+     * and the resulting lookup table.
+     */
+    private static class DispatchTable {
+        private final MediaTypeRegistry registry;
+        private final Parser[] parsers;
+        private final Set<MediaType>[] types;
+        private final Map<MediaType, Parser> map;
+
+        @SuppressWarnings("unchecked")
+        DispatchTable(MediaTypeRegistry registry, List<Parser> parsers, ParseContext context) {
+            this.registry = registry;
+            this.parsers = parsers.toArray(new Parser[0]);
+            this.types = new Set[this.parsers.length];
+            Map<MediaType, Parser> tmp = new HashMap<>();
+            for (int i = 0; i < this.parsers.length; i++) {
+                types[i] = this.parsers[i].getSupportedTypes(context);
+                for (MediaType type : types[i]) {
+                    tmp.put(registry.normalize(type), this.parsers[i]);
+                }
+            }
+            this.map = Collections.unmodifiableMap(tmp);
+        }
+
+        boolean isValid(MediaTypeRegistry registry, List<Parser> parsers, ParseContext context) {
+            if (registry != this.registry || parsers.size() != this.parsers.length) {
+                return false;
+            }
+            for (int i = 0; i < this.parsers.length; i++) {
+                Parser parser = parsers.get(i);
+                if (parser != this.parsers[i]) {
+                    return false;
+                }
+                Set<MediaType> supportedTypes = parser.getSupportedTypes(context);
+                //fast path: the same constant set as last time
+                if (supportedTypes != types[i] && !types[i].equals(supportedTypes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -19,6 +19,7 @@ package org.apache.tika.parser;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -150,7 +151,22 @@ public class DefaultParser extends CompositeParser {
     @Override
     public Map<MediaType, Parser> getParsers(ParseContext context) {
         Map<MediaType, Parser> map = super.getParsers(context);
+        addDynamicParsers(map, context);
+        return map;
+    }
+
+    @Override
+    protected Map<MediaType, Parser> getDispatchTable(ParseContext context) {
+        Map<MediaType, Parser> map = super.getDispatchTable(context);
+        if (loader == null || !loader.isDynamic()) {
+            return map;
+        }
+        map = new HashMap<>(map);
+        addDynamicParsers(map, context);
+        return Collections.unmodifiableMap(map);
+    }
 
+    private void addDynamicParsers(Map<MediaType, Parser> map, ParseContext context) {
         if (loader != null) {
             // Add dynamic parser service (they always override static ones)
             MediaTypeRegistry registry = getMediaTypeRegistry();
@@ -162,8 +178,6 @@ public class DefaultParser extends CompositeParser {
                 }
             }
         }
-
-        return map;
     }
 
     @Override
@@ -29,6 +29,7 @@ import org.apache.tika.io.TemporaryResources;
 import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.cache.ComputedDigests;
 
 public class DigestingParser extends ParserDecorator {
 
@@ -50,12 +51,14 @@ public class DigestingParser extends ParserDecorator {
                       ParseContext context) throws IOException, SAXException, TikaException {
         TemporaryResources tmp = new TemporaryResources();
         TikaInputStream tis = TikaInputStream.get(stream, tmp, metadata);
+        ComputedDigests parentDigests = context.get(ComputedDigests.class);
         try {
             if (shouldDigest(metadata)) {
-                digester.digest(tis, metadata, context);
+                ComputedDigests.digest(digester, tis, metadata, context);
             }
             super.parse(tis, handler, metadata, context);
         } finally {
+            context.set(ComputedDigests.class, parentDigests);
             tmp.dispose();
         }
     }
@@ -85,6 +85,28 @@ public class ParseContext implements Serializable {
         }
     }
 
+    /**
+     * Returns a new context with the objects in this context for the given keys.
+     * The objects themselves are shared, not copied.  This is meant for handing
+     * part of a context to another thread: parsers write to the context, and
+     * the context isn't thread safe.
+     *
+     * @param keys names of the interfaces of the objects to copy; this takes names
+     *             so that callers can copy objects of classes they don't depend on
+     * @return the new context
+     * @since Apache Tika 4.0.0
+     */
+    public ParseContext copy(String... keys) {
+        ParseContext copy = new ParseContext();
+        for (String key : keys) {
+            Object value = context.get(key);
+            if (value != null) {
+                copy.context.put(key, value);
+            }
+        }
+        return copy;
+    }
+
     public boolean isEmpty() {
         return context.size() == 0;
     }
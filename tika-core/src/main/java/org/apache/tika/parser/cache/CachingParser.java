@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.tika.config.TikaTaskTimeout;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.extractor.DocumentSelector;
+import org.apache.tika.extractor.EmbeddedDocumentBytesHandler;
+import org.apache.tika.extractor.EmbeddedDocumentExtractor;
+import org.apache.tika.extractor.ParentContentHandler;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metrics.ParseTimer;
+import org.apache.tika.metrics.TikaMetrics;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.ParseRecord;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.ParserDecorator;
+import org.apache.tika.parser.RecursiveParserWrapper;
+import org.apache.tika.pipes.HandlerConfig;
+import org.apache.tika.pipes.extractor.EmbeddedDocumentBytesConfig;
+
+/**
+ * Parser decorator that looks up the output of a parse in an {@link ExtractCache}
+ * by the digest(s) of the document and a fingerprint of the configuration.
+ * On a hit, the recorded SAX events are replayed to the handler and the
+ * metadata that the original parse added or changed is applied; the
+ * decorated parser is not called.
+ * <p>
+ * Only digests that were computed for the document during this parse are used,
+ * see {@link ComputedDigests}, so this has to be wrapped by a
+ * {@link org.apache.tika.parser.DigestingParser}.  The cache is bypassed if the
+ * {@link ParseContext} carries anything that may change the output of a parser,
+ * e.g. a password provider or a parser config, because the fingerprint only covers
+ * the static configuration.
+ * <p>
+ * Only documents without embedded documents are stored: the output of a container
+ * depends on how its embedded documents are handled, which happens outside of this
+ * parser.  Duplicate attachments and duplicate stand-alone files are served from the
+ * cache.  The {@link EmbeddedDocumentExtractor} in the context is wrapped during the
+ * parse so that a document that uses it is never stored; parsers that create their
+ * own extractor rely on {@link #markEmbedded(ParseContext)}.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class CachingParser extends ParserDecorator {
+
+    private static final long serialVersionUID = -4378613926218376128L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingParser.class);
+
+    public static final long DEFAULT_MAX_RECORD_BYTES = 10L * 1024L * 1024L;
+
+    private static final byte VERSION = 1;
+
+    /**
+     * Entries in the parse context that don't change what a parser outputs for a
+     * document without embedded documents; any other entry bypasses the cache.
+     */
+    private static final Set<String> NEUTRAL_CONTEXT_KEYS = Set.of(
+            Parser.class.getName(),
+            EmbeddedDocumentExtractor.class.getName(),
+            DocumentSelector.class.getName(),
+            ParentContentHandler.class.getName(),
+            EmbeddedDocumentBytesHandler.class.getName(),
+            EmbeddedDocumentBytesConfig.class.getName(),
+            HandlerConfig.class.getName(),
+            RecursiveParserWrapper.class.getName() + "$RecursivelySecureContentHandler",
+            ParseRecord.class.getName(),
+            ParseTimer.class.getName(),
+            TikaMetrics.class.getName(),
+            TikaTaskTimeout.class.getName(),
+            ComputedDigests.class.getName(),
+            Frame.class.getName());
+
+    private final transient ExtractCache extractCache;
+    private final String fingerprint;
+    private final long maxRecordBytes;
+
+    public CachingParser(Parser parser, ExtractCache extractCache, String fingerprint) {
+        this(parser, extractCache, fingerprint, DEFAULT_MAX_RECORD_BYTES);
+    }
+
+    /**
+     * @param parser         parser to decorate
+     * @param extractCache   cache
+     * @param fingerprint    fingerprint of the configuration of the parser
+     * @param maxRecordBytes parses with recordings larger than this aren't stored
+     */
+    public CachingParser(Parser parser, ExtractCache extractCache, String fingerprint,
+                         long maxRecordBytes) {
+        super(parser);
+        this.extractCache = extractCache;
+        this.fingerprint = fingerprint;
+        this.maxRecordBytes = maxRecordBytes;
+    }
+
+    /**
+     * Records that the document that is currently being parsed has an embedded
+     * document, so that the output for the document is not stored.
+     *
+     * @param context
+     */
+    public static void markEmbedded(ParseContext context) {
+        Frame frame = context.get(Frame.class);
+        if (frame != null) {
+            frame.hasEmbedded = true;
+        }
+    }
+
+    @Override
+    public void parse(InputStream stream, ContentHandler handler, Metadata metadata,
+                      ParseContext context) throws IOException, SAXException, TikaException {
+        markEmbedded(context);
+        String key = getKey(metadata, context);
+        if (key == null) {
+            super.parse(stream, handler, metadata, context);
+            return;
+        }
+        if (replay(key, handler, metadata)) {
+            return;
+        }
+        Map<String, String[]> before = snapshot(metadata);
+        RecordingContentHandler recorder = new RecordingContentHandler(handler, maxRecordBytes);
+        Frame parent = context.get(Frame.class);
+        Frame frame = new Frame();
+        EmbeddedDocumentExtractor extractor = context.get(EmbeddedDocumentExtractor.class);
+        context.set(Frame.class, frame);
+        if (extractor != null) {
+            context.set(EmbeddedDocumentExtractor.class, new MarkingExtractor(extractor, frame));
+        }
+        try {
+            super.parse(stream, recorder, metadata, context);
+        } finally {
+            context.set(Frame.class, parent);
+            if (extractor != null) {
+                context.set(EmbeddedDocumentExtractor.class, extractor);
+            }
+        }
+        if (frame.hasEmbedded || recorder.isTruncated()) {
+            return;
+        }
+        try {
+            extractCache.put(key, encode(before, metadata, recorder));
+        } catch (IOException e) {
+            LOG.warn("couldn't store extract in cache", e);
+        }
+    }
+
+    /**
+     * @return the cache key or <code>null</code> if the parse mustn't be cached
+     */
+    private String getKey(Metadata metadata, ParseContext context) {
+        if (extractCache == null) {
+            return null;
+        }
+        String digestKey = ComputedDigests.getDigestKey(metadata, context);
+        if (digestKey == null) {
+            return null;
+        }
+        for (String contextKey : context.keySet()) {
+            if (!NEUTRAL_CONTEXT_KEYS.contains(contextKey)) {
+                LOG.debug("not caching, the parse context has a {}", contextKey);
+                return null;
+            }
+        }
+        String inputKey = ExtractCacheKeys.getInputKey(metadata, context);
+        if (inputKey == null) {
+            return null;
+        }
+        return "parse:" + fingerprint + ":" + digestKey + ":" + inputKey;
+    }
+
+    private boolean replay(String key, ContentHandler handler, Metadata metadata)
+            throws SAXException {
+        byte[] bytes;
+        try {
+            bytes = extractCache.get(key);
+            if (bytes == null) {
+                return false;
+            }
+            //make sure that the whole entry is readable before sending anything to the handler
+            decode(bytes, new DefaultHandler(), new Metadata());
+        } catch (IOException | SAXException | RuntimeException e) {
+            LOG.warn("couldn't read extract from cache", e);
+            remove(key);
+            return false;
+        }
+        try {
+            decode(bytes, handler, metadata);
+        } catch (IOException e) {
+            //can't happen, we just read it
+            throw new SAXException(e);
+        }
+        LOG.debug("extract cache hit {}", key);
+        return true;
+    }
+
+    private void remove(String key) {
+        try {
+            extractCache.remove(key);
+        } catch (IOException e) {
+            LOG.warn("couldn't remove {} from cache", key, e);
+        }
+    }
+
+    private static Map<String, String[]> snapshot(Metadata metadata) {
+        Map<String, String[]> snapshot = new HashMap<>();
+        metadata.forEach(snapshot::put);
+        return snapshot;
+    }
+
+    private static byte[] encode(Map<String, String[]> before, Metadata after,
+                                 RecordingContentHandler recorder) throws IOException {
+        //names with new or changed values; an empty array means the name was removed
+        List<String> names = new ArrayList<>();
+        for (String name : after.names()) {
+            if (!Arrays.equals(before.get(name), after.getValues(name))) {
+                names.add(name);
+            }
+        }
+        for (String name : before.keySet()) {
+            if (after.get(name) == null) {
+                names.add(name);
+            }
+        }
+        UnsynchronizedByteArrayOutputStream bos =
+                UnsynchronizedByteArrayOutputStream.builder().get();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeByte(VERSION);
+        out.writeInt(names.size());
+        for (String name : names) {
+            RecordingContentHandler.writeString(out, name);
+            String[] values = after.getValues(name);
+            out.writeInt(values.length);
+            for (String v : values) {
+                RecordingContentHandler.writeString(out, v);
+            }
+        }
+        recorder.writeTo(out);
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private static void decode(byte[] bytes, ContentHandler handler, Metadata metadata)
+            throws IOException, SAXException {
+        DataInputStream in = new DataInputStream(
+                UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get());
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported extract cache entry version: " + version);
+        }
+        int numNames = in.readInt();
+        for (int i = 0; i < numNames; i++) {
+            String name = RecordingContentHandler.readString(in);
+            int numValues = in.readInt();
+            String[] values = new String[numValues];
+            for (int j = 0; j < numValues; j++) {
+                values[j] = RecordingContentHandler.readString(in);
+            }
+            metadata.remove(name);
+            for (String v : values) {
+                metadata.add(name, v);
+            }
+        }
+        RecordingContentHandler.replay(in, handler);
+    }
+
+    //tracks whether the document that is being parsed has embedded documents
+    private static class Frame {
+        private boolean hasEmbedded = false;
+    }
+
+    //marks the document as a container as soon as the parser touches the extractor
+    private static class MarkingExtractor implements EmbeddedDocumentExtractor {
+
+        private final EmbeddedDocumentExtractor delegate;
+        private final Frame frame;
+
+        MarkingExtractor(EmbeddedDocumentExtractor delegate, Frame frame) {
+            this.delegate = delegate;
+            this.frame = frame;
+        }
+
+        @Override
+        public boolean shouldParseEmbedded(Metadata metadata) {
+            frame.hasEmbedded = true;
+            return delegate.shouldParseEmbedded(metadata);
+        }
+
+        @Override
+        public void parseEmbedded(TikaInputStream stream, ContentHandler handler,
+                                  Metadata metadata, boolean outputHtml)
+                throws SAXException, IOException {
+            frame.hasEmbedded = true;
+            delegate.parseEmbedded(stream, handler, metadata, outputHtml);
+        }
+    }
+}
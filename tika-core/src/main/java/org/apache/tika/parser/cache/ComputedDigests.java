@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.DigestingParser;
+import org.apache.tika.parser.ParseContext;
+
+/**
+ * The digests that a {@link DigestingParser.Digester} computed for the document that
+ * is being parsed.  This is set in the {@link ParseContext} by whoever ran the digester,
+ * and it is what {@link ExtractCache} keys are built from.  Digests that came in with
+ * the input metadata, e.g. from a client's request headers, are never trusted.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public final class ComputedDigests implements Serializable {
+
+    private static final long serialVersionUID = 2817062944375110583L;
+
+    //the metadata of the document that was digested
+    private final Metadata metadata;
+    private final String digestKey;
+
+    private ComputedDigests(Metadata metadata, String digestKey) {
+        this.metadata = metadata;
+        this.digestKey = digestKey;
+    }
+
+    /**
+     * Digests the stream, adds the digests to the metadata and records them
+     * in the context for the document with this metadata.
+     *
+     * @param digester
+     * @param stream       stream that supports mark/reset, see
+     *                     {@link DigestingParser.Digester#digest(InputStream, Metadata, ParseContext)}
+     * @param metadata
+     * @param parseContext
+     * @throws IOException
+     */
+    public static void digest(DigestingParser.Digester digester, InputStream stream,
+                              Metadata metadata, ParseContext parseContext) throws IOException {
+        //digest into an empty metadata so that values from the input can't be mistaken
+        //for computed ones
+        Metadata digests = new Metadata();
+        digester.digest(stream, digests, parseContext);
+        String digestKey = ExtractCacheKeys.getDigestKey(digests);
+        for (String name : digests.names()) {
+            if (ExtractCacheKeys.isDigest(name) || metadata.get(name) == null) {
+                metadata.remove(name);
+                for (String v : digests.getValues(name)) {
+                    metadata.add(name, v);
+                }
+            }
+        }
+        parseContext.set(ComputedDigests.class,
+                digestKey == null ? null : new ComputedDigests(metadata, digestKey));
+    }
+
+    /**
+     * @param metadata
+     * @param parseContext
+     * @return the digests that were computed for the document with this metadata in a
+     * stable order, or <code>null</code> if that document wasn't digested
+     */
+    public static String getDigestKey(Metadata metadata, ParseContext parseContext) {
+        ComputedDigests computed = parseContext.get(ComputedDigests.class);
+        if (computed == null || computed.metadata != metadata) {
+            return null;
+        }
+        return computed.digestKey;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.IOException;
+
+/**
+ * Store for the results of parsing byte-identical documents.  Keys are
+ * built by the callers from the content digest(s) of a document and a
+ * fingerprint of the configuration that produced the result.
+ * Values are opaque to the cache.
+ * <p>
+ * Implementations must be thread safe.  A cache may drop entries at any time.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public interface ExtractCache {
+
+    /**
+     * @param key
+     * @return the value stored for the key or <code>null</code> if there is none
+     * @throws IOException
+     */
+    byte[] get(String key) throws IOException;
+
+    /**
+     * Stores the value for the key.  The cache may decline to store a value,
+     * for example, if it is too large.
+     *
+     * @param key
+     * @param value
+     * @throws IOException
+     */
+    void put(String key, byte[] value) throws IOException;
+
+    /**
+     * Removes the entry for the key, e.g. because it can't be read.
+     *
+     * @param key
+     * @throws IOException
+     */
+    void remove(String key) throws IOException;
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import org.apache.tika.Tika;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.PasswordProvider;
+
+/**
+ * Helpers for building {@link ExtractCache} keys.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public final class ExtractCacheKeys {
+
+    private static final String DIGEST_PREFIX = TikaCoreProperties.TIKA_META_PREFIX + "digest" +
+            TikaCoreProperties.NAMESPACE_PREFIX_DELIMITER;
+
+    //input metadata that parsers may read, e.g. for detection or the charset
+    private static final String[] INPUT_KEYS = {
+            TikaCoreProperties.RESOURCE_NAME_KEY.getName(),
+            Metadata.CONTENT_TYPE,
+            TikaCoreProperties.CONTENT_TYPE_HINT.getName(),
+            TikaCoreProperties.CONTENT_TYPE_USER_OVERRIDE.getName(),
+            TikaCoreProperties.CONTENT_TYPE_PARSER_OVERRIDE.getName()};
+
+    private ExtractCacheKeys() {
+    }
+
+    /**
+     * @param name
+     * @return whether this is the name of a digest that a
+     * {@link org.apache.tika.parser.DigestingParser.Digester} sets
+     */
+    public static boolean isDigest(String name) {
+        return name.startsWith(DIGEST_PREFIX);
+    }
+
+    /**
+     * This must only be called on metadata that a digester wrote to, never on the
+     * metadata of a request; see {@link ComputedDigests}.
+     *
+     * @param metadata
+     * @return the digests in the metadata (as set by a
+     * {@link org.apache.tika.parser.DigestingParser.Digester}) in a stable order,
+     * or <code>null</code> if there are none
+     */
+    static String getDigestKey(Metadata metadata) {
+        String[] names = metadata.names();
+        Arrays.sort(names);
+        StringBuilder sb = null;
+        for (String name : names) {
+            if (!isDigest(name)) {
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder();
+            } else {
+                sb.append(';');
+            }
+            sb.append(name.substring(DIGEST_PREFIX.length())).append('=')
+                    .append(metadata.get(name));
+        }
+        return sb == null ? null : sb.toString();
+    }
+
+    /**
+     * The output of a parse may depend on the file name and the content type that
+     * came in with the document, not only on its bytes.
+     *
+     * @param metadata the input metadata of the parse
+     * @param context
+     * @return a fingerprint of the input metadata that may change the output of a parse,
+     * or <code>null</code> if the parse mustn't be cached because it may need a password
+     */
+    public static String getInputKey(Metadata metadata, ParseContext context) {
+        if (context.get(PasswordProvider.class) != null) {
+            return null;
+        }
+        MessageDigest md = newMessageDigest();
+        for (String name : INPUT_KEYS) {
+            String[] values = metadata.getValues(name);
+            update(md, name + "=" + values.length);
+            for (String v : values) {
+                update(md, v);
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * @param configNode
+     * @return a fingerprint of the Tika version and the element names, attributes
+     * and text of the configuration
+     */
+    public static String fingerprint(Node configNode) {
+        MessageDigest md = newMessageDigest();
+        update(md, Tika.getString());
+        update(md, configNode);
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public static String sha256Hex(byte[] bytes) {
+        return HexFormat.of().formatHex(newMessageDigest().digest(bytes));
+    }
+
+    public static String sha256Hex(String s) {
+        return sha256Hex(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void update(MessageDigest md, Node node) {
+        switch (node.getNodeType()) {
+            case Node.DOCUMENT_NODE:
+                update(md, ((Document) node).getDocumentElement());
+                break;
+            case Node.ELEMENT_NODE:
+                update(md, "<" + node.getNodeName());
+                NamedNodeMap attributes = node.getAttributes();
+                String[] attrs = new String[attributes.getLength()];
+                for (int i = 0; i < attrs.length; i++) {
+                    Node attr = attributes.item(i);
+                    attrs[i] = attr.getNodeName() + "=" + attr.getNodeValue();
+                }
+                Arrays.sort(attrs);
+                for (String attr : attrs) {
+                    update(md, attr);
+                }
+                for (Node child = node.getFirstChild(); child != null;
+                        child = child.getNextSibling()) {
+                    update(md, child);
+                }
+                update(md, ">");
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                String text = node.getNodeValue().trim();
+                if (!text.isEmpty()) {
+                    update(md, text);
+                }
+                break;
+            default:
+                //skip comments and processing instructions
+                break;
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        //length prefix so that adjacent strings can't run together
+        md.update((byte) (bytes.length >>> 24));
+        md.update((byte) (bytes.length >>> 16));
+        md.update((byte) (bytes.length >>> 8));
+        md.update((byte) bytes.length);
+        md.update(bytes);
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
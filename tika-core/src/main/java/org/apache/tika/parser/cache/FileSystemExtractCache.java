@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.tika.config.Initializable;
+import org.apache.tika.config.InitializableProblemHandler;
+import org.apache.tika.config.Param;
+import org.apache.tika.exception.TikaConfigException;
+
+/**
+ * {@link ExtractCache} that stores each entry in its own file under
+ * <code>basePath</code>.  When the total size of the entries exceeds
+ * <code>maxBytes</code>, the least recently used entries are deleted.
+ * Entries that are already in <code>basePath</code> are picked up on
+ * initialization in the order of their last modified times.
+ * <p>
+ * Do not share a <code>basePath</code> between processes that write
+ * to it concurrently; each process keeps its own view of the size
+ * of the cache.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class FileSystemExtractCache implements ExtractCache, Initializable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileSystemExtractCache.class);
+
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024L * 1024L;
+
+    public static final long DEFAULT_MAX_ENTRY_BYTES = 10L * 1024L * 1024L;
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Object[] lock = new Object[0];
+    //file name -> size in bytes, in access order
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private Path basePath;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long maxEntryBytes = DEFAULT_MAX_ENTRY_BYTES;
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        String name = getFileName(key);
+        synchronized (lock) {
+            if (index.get(name) == null) {
+                return null;
+            }
+        }
+        Path p = getPath(name);
+        try {
+            byte[] bytes = Files.readAllBytes(p);
+            //keep the order of use across restarts
+            Files.setLastModifiedTime(p, FileTime.fromMillis(System.currentTimeMillis()));
+            return bytes;
+        } catch (NoSuchFileException e) {
+            //evicted in the meantime
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] value) throws IOException {
+        if (value.length > maxEntryBytes || value.length > maxBytes) {
+            return;
+        }
+        String name = getFileName(key);
+        Path p = getPath(name);
+        Files.createDirectories(p.getParent());
+        Path tmp = Files.createTempFile(p.getParent(), name, TMP_SUFFIX);
+        try {
+            Files.write(tmp, value);
+            Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        List<String> evicted;
+        synchronized (lock) {
+            Long previous = index.put(name, (long) value.length);
+            totalBytes += value.length - (previous == null ? 0 : previous);
+            evicted = evict();
+        }
+        delete(evicted);
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+        String name = getFileName(key);
+        synchronized (lock) {
+            Long size = index.remove(name);
+            if (size == null) {
+                return;
+            }
+            totalBytes -= size;
+        }
+        Files.deleteIfExists(getPath(name));
+    }
+
+    //call this while holding the lock
+    private List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            totalBytes -= e.getValue();
+            evicted.add(e.getKey());
+            it.remove();
+        }
+        return evicted;
+    }
+
+    private void delete(List<String> names) {
+        for (String name : names) {
+            try {
+                Files.deleteIfExists(getPath(name));
+            } catch (IOException e) {
+                LOG.warn("couldn't delete evicted cache entry {}", name, e);
+            }
+        }
+    }
+
+    private Path getPath(String name) {
+        return basePath.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    private static String getFileName(String key) {
+        return ExtractCacheKeys.sha256Hex(key);
+    }
+
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    /**
+     * Directory for the cache entries.  This is required.
+     *
+     * @param basePath
+     */
+    public void setBasePath(String basePath) {
+        this.basePath = Paths.get(basePath);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Maximum total size of the cache entries.  The default is 1GB.
+     *
+     * @param maxBytes
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Entries larger than this are not stored.  The default is 10MB.
+     *
+     * @param maxEntryBytes
+     */
+    public void setMaxEntryBytes(long maxEntryBytes) {
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    @Override
+    public void initialize(Map<String, Param> params) throws TikaConfigException {
+        if (basePath == null) {
+            return;
+        }
+        List<Path> entries = new ArrayList<>();
+        try {
+            Files.createDirectories(basePath);
+            try (Stream<Path> paths = Files.walk(basePath, 2)) {
+                paths.filter(Files::isRegularFile).forEach(entries::add);
+            }
+            Map<Path, Long> lastModified = new LinkedHashMap<>();
+            for (Path p : entries) {
+                lastModified.put(p, Files.getLastModifiedTime(p).toMillis());
+            }
+            entries.sort(Comparator.comparing(lastModified::get));
+            List<String> evicted;
+            synchronized (lock) {
+                for (Path p : entries) {
+                    String name = p.getFileName().toString();
+                    if (name.endsWith(TMP_SUFFIX)) {
+                        //left over from a crash
+                        Files.deleteIfExists(p);
+                        continue;
+                    }
+                    long size = Files.size(p);
+                    index.put(name, size);
+                    totalBytes += size;
+                }
+                evicted = evict();
+            }
+            delete(evicted);
+        } catch (IOException e) {
+            throw new TikaConfigException("couldn't initialize extract cache in " + basePath, e);
+        }
+    }
+
+    @Override
+    public void checkInitialization(InitializableProblemHandler problemHandler)
+            throws TikaConfigException {
+        if (basePath == null) {
+            throw new TikaConfigException("'basePath' must be set");
+        }
+        if (maxBytes < 0 || maxEntryBytes < 0) {
+            throw new TikaConfigException("'maxBytes' and 'maxEntryBytes' must be >= 0");
+        }
+    }
+}
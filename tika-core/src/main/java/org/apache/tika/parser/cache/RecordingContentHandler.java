@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import org.apache.tika.sax.ContentHandlerDecorator;
+
+/**
+ * Passes SAX events through to the decorated handler and records them
+ * so that they can be replayed later with {@link #replay(DataInputStream, ContentHandler)}.
+ * If the recording grows beyond <code>maxBytes</code>, recording stops
+ * and the recording is marked as {@link #isTruncated() truncated}.
+ */
+class RecordingContentHandler extends ContentHandlerDecorator {
+
+    private static final byte END = 0;
+    private static final byte START_DOCUMENT = 1;
+    private static final byte END_DOCUMENT = 2;
+    private static final byte START_PREFIX_MAPPING = 3;
+    private static final byte END_PREFIX_MAPPING = 4;
+    private static final byte START_ELEMENT = 5;
+    private static final byte END_ELEMENT = 6;
+    private static final byte CHARACTERS = 7;
+    private static final byte IGNORABLE_WHITESPACE = 8;
+    private static final byte PROCESSING_INSTRUCTION = 9;
+    private static final byte SKIPPED_ENTITY = 10;
+
+    private final UnsynchronizedByteArrayOutputStream bytes =
+            UnsynchronizedByteArrayOutputStream.builder().get();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final long maxBytes;
+    private boolean truncated = false;
+
+    RecordingContentHandler(ContentHandler handler, long maxBytes) {
+        super(handler);
+        this.maxBytes = maxBytes;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Writes the recorded events to the output.
+     */
+    void writeTo(DataOutputStream output) throws IOException {
+        out.writeByte(END);
+        bytes.writeTo(output);
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        super.startDocument();
+        record(START_DOCUMENT);
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        super.endDocument();
+        record(END_DOCUMENT);
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        super.startPrefixMapping(prefix, uri);
+        record(START_PREFIX_MAPPING, prefix, uri);
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+        super.endPrefixMapping(prefix);
+        record(END_PREFIX_MAPPING, prefix);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+            throws SAXException {
+        super.startElement(uri, localName, qName, atts);
+        if (!canRecord()) {
+            return;
+        }
+        try {
+            out.writeByte(START_ELEMENT);
+            writeString(out, uri);
+            writeString(out, localName);
+            writeString(out, qName);
+            out.writeInt(atts.getLength());
+            for (int i = 0; i < atts.getLength(); i++) {
+                writeString(out, atts.getURI(i));
+                writeString(out, atts.getLocalName(i));
+                writeString(out, atts.getQName(i));
+                writeString(out, atts.getType(i));
+                writeString(out, atts.getValue(i));
+            }
+        } catch (IOException e) {
+            //can't happen with a byte array
+            truncated = true;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(uri, localName, qName);
+        record(END_ELEMENT, uri, localName, qName);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        super.characters(ch, start, length);
+        record(CHARACTERS, new String(ch, start, length));
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        super.ignorableWhitespace(ch, start, length);
+        record(IGNORABLE_WHITESPACE, new String(ch, start, length));
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        super.processingInstruction(target, data);
+        record(PROCESSING_INSTRUCTION, target, data);
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException {
+        super.skippedEntity(name);
+        record(SKIPPED_ENTITY, name);
+    }
+
+    private boolean canRecord() {
+        if (!truncated && bytes.size() > maxBytes) {
+            truncated = true;
+        }
+        return !truncated;
+    }
+
+    private void record(byte op, String... strings) {
+        if (!canRecord()) {
+            return;
+        }
+        try {
+            out.writeByte(op);
+            for (String s : strings) {
+                writeString(out, s);
+            }
+        } catch (IOException e) {
+            //can't happen with a byte array
+            truncated = true;
+        }
+    }
+
+    /**
+     * Replays the events written by {@link #writeTo(DataOutputStream)}.
+     */
+    static void replay(DataInputStream in, ContentHandler handler)
+            throws IOException, SAXException {
+        while (true) {
+            byte op = in.readByte();
+            switch (op) {
+                case END:
+                    return;
+                case START_DOCUMENT:
+                    handler.startDocument();
+                    break;
+                case END_DOCUMENT:
+                    handler.endDocument();
+                    break;
+                case START_PREFIX_MAPPING:
+                    handler.startPrefixMapping(readString(in), readString(in));
+                    break;
+                case END_PREFIX_MAPPING:
+                    handler.endPrefixMapping(readString(in));
+                    break;
+                case START_ELEMENT:
+                    String uri = readString(in);
+                    String localName = readString(in);
+                    String qName = readString(in);
+                    int numAttrs = in.readInt();
+                    AttributesImpl atts = new AttributesImpl();
+                    for (int i = 0; i < numAttrs; i++) {
+                        atts.addAttribute(readString(in), readString(in), readString(in),
+                                readString(in), readString(in));
+                    }
+                    handler.startElement(uri, localName, qName, atts);
+                    break;
+                case END_ELEMENT:
+                    handler.endElement(readString(in), readString(in), readString(in));
+                    break;
+                case CHARACTERS:
+                    char[] chars = readString(in).toCharArray();
+                    handler.characters(chars, 0, chars.length);
+                    break;
+                case IGNORABLE_WHITESPACE:
+                    char[] ws = readString(in).toCharArray();
+                    handler.ignorableWhitespace(ws, 0, ws.length);
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    handler.processingInstruction(readString(in), readString(in));
+                    break;
+                case SKIPPED_ENTITY:
+                    handler.skippedEntity(readString(in));
+                    break;
+                default:
+                    throw new IOException("unrecognized SAX event: " + op);
+            }
+        }
+    }
+
+    //unlike DataOutputStream#writeUTF, this handles strings longer than 64k and null
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -27,13 +27,50 @@ import org.apache.tika.metadata.Metadata;
 import org.apache.tika.parser.DigestingParser;
 import org.apache.tika.parser.ParseContext;
 
-
+/**
+ * Runs several digesters over the same stream.
+ * <p>
+ * If all of the digesters are {@link InputStreamDigester}s that do not
+ * override {@link InputStreamDigester#digest(InputStream, Metadata, ParseContext)},
+ * all of the digests are computed with a single read of the stream.  Otherwise,
+ * the digesters are run one after the other.
+ */
 public class CompositeDigester implements DigestingParser.Digester {
 
     private final DigestingParser.Digester[] digesters;
 
+    //null if the digesters have to be run one after the other
+    private final InputStreamDigester[] singlePassDigesters;
+
+    private final int markLimit;
+
     public CompositeDigester(DigestingParser.Digester... digesters) {
         this.digesters = digesters;
+        InputStreamDigester[] singlePass = new InputStreamDigester[digesters.length];
+        int minMarkLimit = Integer.MAX_VALUE;
+        for (int i = 0; i < digesters.length; i++) {
+            if (!isSinglePass(digesters[i])) {
+                singlePass = null;
+                break;
+            }
+            singlePass[i] = (InputStreamDigester) digesters[i];
+            minMarkLimit = Math.min(minMarkLimit, singlePass[i].getMarkLimit());
+        }
+        this.singlePassDigesters = singlePass;
+        this.markLimit = minMarkLimit;
+    }
+
+    private static boolean isSinglePass(DigestingParser.Digester digester) {
+        if (!(digester instanceof InputStreamDigester)) {
+            return false;
+        }
+        try {
+            return digester.getClass()
+                    .getMethod("digest", InputStream.class, Metadata.class, ParseContext.class)
+                    .getDeclaringClass() == InputStreamDigester.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
     }
 
     @Override
@@ -41,8 +78,12 @@ public class CompositeDigester implements DigestingParser.Digester {
         TemporaryResources tmp = new TemporaryResources();
         TikaInputStream tis = TikaInputStream.get(is, tmp, m);
         try {
-            for (DigestingParser.Digester digester : digesters) {
-                digester.digest(tis, m, parseContext);
+            if (singlePassDigesters != null && singlePassDigesters.length > 0) {
+                InputStreamDigester.digest(singlePassDigesters, markLimit, tis, m);
+            } else {
+                for (DigestingParser.Digester digester : digesters) {
+                    digester.digest(tis, m, parseContext);
+                }
             }
         } finally {
             try {
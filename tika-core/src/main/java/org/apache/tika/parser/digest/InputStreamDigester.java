@@ -17,10 +17,11 @@
 
 package org.apache.tika.parser.digest;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
@@ -37,6 +38,8 @@ import org.apache.tika.utils.StringUtils;
 
 public class InputStreamDigester implements DigestingParser.Digester {
 
+    private static final int BUFFER_SIZE = 8192;
+
     private final String algorithm;
     private final String algorithmKeyName;
     private final DigestingParser.Encoder encoder;
@@ -70,21 +73,6 @@ public class InputStreamDigester implements DigestingParser.Digester {
         }
     }
 
-    /**
-     * Copied from commons-codec
-     */
-    private static MessageDigest updateDigest(MessageDigest digest, InputStream data, Metadata metadata)
-            throws IOException {
-        byte[] buffer = new byte[1024];
-        long total = 0;
-        for (int read = data.read(buffer, 0, 1024); read > -1; read = data.read(buffer, 0, 1024)) {
-            digest.update(buffer, 0, read);
-            total += read;
-        }
-        setContentLength(total, metadata);
-        return digest;
-    }
-
     private static void setContentLength(long length, Metadata metadata) {
         if (StringUtils.isBlank(metadata.get(Metadata.CONTENT_LENGTH))) {
             //only add it if it hasn't been populated already
@@ -92,7 +80,7 @@ public class InputStreamDigester implements DigestingParser.Digester {
         }
     }
 
-    private MessageDigest newMessageDigest() {
+    MessageDigest newMessageDigest() {
         try {
             Provider provider = getProvider();
             if (provider == null) {
@@ -127,42 +115,63 @@ public class InputStreamDigester implements DigestingParser.Digester {
     @Override
     public void digest(InputStream is, Metadata metadata, ParseContext parseContext)
             throws IOException {
+        digest(new InputStreamDigester[]{this}, markLimit, is, metadata);
+    }
+
+    int getMarkLimit() {
+        return markLimit;
+    }
+
+    /**
+     * Runs all of the digesters with a single read of the stream.
+     * <p>
+     * If the stream is no longer than <code>markLimit</code>, it is digested
+     * via mark/reset.  Otherwise, it is digested while it is spooled to a
+     * temporary file, or if it already has a file, the file is digested.
+     */
+    static void digest(InputStreamDigester[] digesters, int markLimit, InputStream is,
+                       Metadata metadata) throws IOException {
+        MessageDigest[] messageDigests = new MessageDigest[digesters.length];
+        for (int i = 0; i < digesters.length; i++) {
+            messageDigests[i] = digesters[i].newMessageDigest();
+        }
         TikaInputStream tis = TikaInputStream.cast(is);
         if (tis != null && tis.hasFile()) {
-            long sz = -1;
-            if (tis.hasFile()) {
-                sz = tis.getLength();
-            }
+            long sz = tis.getLength();
             //if the inputstream has a file,
             //and its size is greater than its mark limit,
             //just digest the underlying file.
             if (sz > markLimit) {
-                digestFile(tis.getFile(), sz, metadata);
+                digestFile(tis.getPath(), sz, digesters, messageDigests, metadata);
                 return;
             }
         }
 
-
         //try the usual mark/reset stuff.
         //however, if you actually hit the bound,
         //then stop and spool to file via TikaInputStream
         BoundedInputStream bis = new BoundedInputStream(markLimit, is);
-        boolean finishedStream = false;
         bis.mark(markLimit + 1);
-        finishedStream = digestStream(bis, metadata);
+        long length = update(messageDigests, bis);
+        boolean finishedStream = !bis.hasHitBound();
         bis.reset();
         if (finishedStream) {
+            setContentLength(length, metadata);
+            setDigests(digesters, messageDigests, metadata);
             return;
         }
         //if the stream wasn't finished -- if the stream was longer than the mark limit --
-        //spool to File and digest that.
+        //digest it while it is spooled to a file.
+        for (MessageDigest messageDigest : messageDigests) {
+            messageDigest.reset();
+        }
         if (tis != null) {
-            digestFile(tis.getFile(), -1, metadata);
+            spool(tis, digesters, messageDigests, metadata);
         } else {
             TemporaryResources tmp = new TemporaryResources();
             try {
-                TikaInputStream tmpTikaInputStream = TikaInputStream.get(is, tmp, metadata);
-                digestFile(tmpTikaInputStream.getFile(), -1, metadata);
+                spool(TikaInputStream.get(is, tmp, metadata), digesters, messageDigests,
+                        metadata);
             } finally {
                 try {
                     tmp.dispose();
@@ -173,44 +182,80 @@ public class InputStreamDigester implements DigestingParser.Digester {
         }
     }
 
-    private String getMetadataKey() {
-        return TikaCoreProperties.TIKA_META_PREFIX + "digest" +
-                TikaCoreProperties.NAMESPACE_PREFIX_DELIMITER + algorithmKeyName;
+    private static void spool(TikaInputStream tis, InputStreamDigester[] digesters,
+                              MessageDigest[] messageDigests, Metadata metadata)
+            throws IOException {
+        if (tis.hasFile()) {
+            digestFile(tis.getPath(), tis.getLength(), digesters, messageDigests, metadata);
+            return;
+        }
+        tis.getPath(new DigestingOutputStream(messageDigests));
+        setContentLength(tis.getLength(), metadata);
+        setDigests(digesters, messageDigests, metadata);
+    }
+
+    private static void digestFile(Path path, long sz, InputStreamDigester[] digesters,
+                                   MessageDigest[] messageDigests, Metadata metadata)
+            throws IOException {
+        setContentLength(sz, metadata);
+        try (InputStream is = Files.newInputStream(path)) {
+            update(messageDigests, is);
+        }
+        setDigests(digesters, messageDigests, metadata);
     }
 
-    private void digestFile(File f, long sz, Metadata m) throws IOException {
-        //only add it if it hasn't been populated already
-        if (StringUtils.isBlank(m.get(Metadata.CONTENT_LENGTH))) {
-            if (sz < 0) {
-                sz = f.length();
+    /**
+     * @return the number of bytes read
+     */
+    private static long update(MessageDigest[] messageDigests, InputStream is)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        for (int read = is.read(buffer); read > -1; read = is.read(buffer)) {
+            for (MessageDigest messageDigest : messageDigests) {
+                messageDigest.update(buffer, 0, read);
             }
-            setContentLength(sz, m);
+            total += read;
         }
-        try (InputStream is = new FileInputStream(f)) {
-            digestStream(is, m);
+        return total;
+    }
+
+    private static void setDigests(InputStreamDigester[] digesters,
+                                   MessageDigest[] messageDigests, Metadata metadata) {
+        for (int i = 0; i < digesters.length; i++) {
+            metadata.set(digesters[i].getMetadataKey(),
+                    digesters[i].encoder.encode(messageDigests[i].digest()));
         }
     }
 
+    private String getMetadataKey() {
+        return TikaCoreProperties.TIKA_META_PREFIX + "digest" +
+                TikaCoreProperties.NAMESPACE_PREFIX_DELIMITER + algorithmKeyName;
+    }
+
     /**
-     * @param is       input stream to read from
-     * @param metadata metadata for reporting the digest
-     * @return whether or not this finished the input stream
-     * @throws IOException
+     * Updates the digests with the bytes that are spooled to disk.
      */
-    private boolean digestStream(InputStream is, Metadata metadata) throws IOException {
-        byte[] digestBytes;
-        MessageDigest messageDigest = newMessageDigest();
+    private static class DigestingOutputStream extends OutputStream {
 
-        updateDigest(messageDigest, is, metadata);
-        digestBytes = messageDigest.digest();
+        private final MessageDigest[] messageDigests;
 
-        if (is instanceof BoundedInputStream) {
-            if (((BoundedInputStream) is).hasHitBound()) {
-                return false;
+        DigestingOutputStream(MessageDigest[] messageDigests) {
+            this.messageDigests = messageDigests;
+        }
+
+        @Override
+        public void write(int b) {
+            for (MessageDigest messageDigest : messageDigests) {
+                messageDigest.update((byte) b);
             }
         }
-        metadata.set(getMetadataKey(), encoder.encode(digestBytes));
-        return true;
-    }
 
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (MessageDigest messageDigest : messageDigests) {
+                messageDigest.update(b, off, len);
+            }
+        }
+    }
 }
@@ -42,6 +42,8 @@ public class FetchEmitTuple implements Serializable {
 
     private EmbeddedDocumentBytesConfig embeddedDocumentBytesConfig;
 
+    private long size = -1;
+
     public FetchEmitTuple(String id, FetchKey fetchKey, EmitKey emitKey) {
         this(id, fetchKey, emitKey, new Metadata());
     }
@@ -89,6 +91,23 @@ public class FetchEmitTuple implements Serializable {
         return onParseException;
     }
 
+    /**
+     * @return the size of the document in bytes, or -1 if it isn't known
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * The size of the document in bytes, if the pipes iterator knows it.  This is only
+     * used to schedule the tuple, it is not passed to the parse; use the metadata for that.
+     *
+     * @param size
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -102,7 +121,7 @@ public class FetchEmitTuple implements Serializable {
         return Objects.equals(id, that.id) && Objects.equals(fetchKey, that.fetchKey) && Objects.equals(emitKey, that.emitKey)
                 && Objects.equals(metadata, that.metadata) &&
                 Objects.equals(parseContext, that.parseContext) && onParseException == that.onParseException &&
-                Objects.equals(embeddedDocumentBytesConfig, that.embeddedDocumentBytesConfig);
+                Objects.equals(embeddedDocumentBytesConfig, that.embeddedDocumentBytesConfig) && size == that.size;
     }
 
     @Override
@@ -114,6 +133,7 @@ public class FetchEmitTuple implements Serializable {
         result = 31 * result + Objects.hashCode(parseContext);
         result = 31 * result + Objects.hashCode(onParseException);
         result = 31 * result + Objects.hashCode(embeddedDocumentBytesConfig);
+        result = 31 * result + Long.hashCode(size);
         return result;
     }
 
@@ -121,6 +141,6 @@ public class FetchEmitTuple implements Serializable {
     public String toString() {
         return "FetchEmitTuple{" + "id='" + id + '\'' + ", fetchKey=" + fetchKey + ", emitKey=" + emitKey +
                 ", metadata=" + metadata + ", parseContext=" + parseContext +
-                ", onParseException=" + onParseException + ", embeddedDocumentBytesConfig=" + embeddedDocumentBytesConfig + '}';
+                ", onParseException=" + onParseException + ", embeddedDocumentBytesConfig=" + embeddedDocumentBytesConfig + ", size=" + size + '}';
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.pipes.fetcher.Fetcher;
+
+/**
+ * The result of fetching a tuple ahead of its parse in the PipesServer.
+ * Unless the fetcher already returned a file-backed stream, the full
+ * stream is spooled to a temporary file during the fetch so that the
+ * parse doesn't wait on the remote store.  The temporary file is deleted
+ * when this is closed.
+ */
+class FetchedInput implements Closeable {
+
+    private final TikaInputStream stream;
+    private final Metadata metadata;
+
+    private FetchedInput(TikaInputStream stream, Metadata metadata) {
+        this.stream = stream;
+        this.metadata = metadata;
+    }
+
+    static FetchedInput fetch(Fetcher fetcher, FetchEmitTuple t)
+            throws TikaException, IOException {
+        Metadata metadata = new Metadata();
+        InputStream is = fetcher.fetch(t.getFetchKey().getFetchKey(), metadata,
+                t.getParseContext());
+        TikaInputStream tis = TikaInputStream.get(is, metadata);
+        try {
+            tis.getPath();
+        } catch (IOException | RuntimeException e) {
+            tis.close();
+            throw e;
+        }
+        return new FetchedInput(tis, metadata);
+    }
+
+    TikaInputStream getStream() {
+        return stream;
+    }
+
+    Metadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
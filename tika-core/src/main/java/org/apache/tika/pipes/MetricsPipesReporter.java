@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.tika.config.Field;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metrics.TikaMetrics;
+
+/**
+ * PipesReporter that aggregates {@link TikaMetrics} and logs a snapshot
+ * of them at the info level every <code>logEveryMillis</code> and on close.
+ * <p>
+ * The duration of each tuple is recorded per {@link PipesResult.STATUS}.
+ * When the result is passed back for emitting, the parse times per parser
+ * and per mime type, the number of embedded documents and the sizes
+ * are taken from the metadata list as well.  As with {@link org.apache.tika.metrics.ParseTimer},
+ * the time of the embedded documents is subtracted from the time of their parent.
+ * The {@link org.apache.tika.pipes.async.AsyncEmitter} records its emits in these
+ * metrics.  Fetching, and emitting in the forked processes, are part of the
+ * durations per status.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class MetricsPipesReporter extends PipesReporterBase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsPipesReporter.class);
+
+    private final TikaMetrics metrics = new TikaMetrics();
+    private final AtomicLong lastLogged = new AtomicLong(System.currentTimeMillis());
+    private long logEveryMillis = 60000;
+
+    @Override
+    public void report(FetchEmitTuple t, PipesResult result, long elapsed) {
+        if (!accept(result.getStatus())) {
+            return;
+        }
+        metrics.getHistogram(TikaMetrics.STATUS, result.getStatus().name())
+                .record(TimeUnit.MILLISECONDS.toNanos(elapsed));
+        if (result.getEmitData() != null && result.getEmitData().getMetadataList() != null) {
+            recordMetadataList(result.getEmitData().getMetadataList());
+            metrics.add(TikaMetrics.BYTES_OUT, result.getEmitData().getEstimatedSizeBytes());
+        }
+        maybeLog();
+    }
+
+    private void recordMetadataList(List<Metadata> metadataList) {
+        if (metadataList.isEmpty()) {
+            return;
+        }
+        Metadata container = metadataList.get(0);
+        metrics.add(TikaMetrics.EMBEDDED, metadataList.size() - 1);
+        long length = parseLong(container.get(Metadata.CONTENT_LENGTH));
+        if (length > -1) {
+            metrics.add(TikaMetrics.BYTES_IN, length);
+        }
+        long containerMillis = parseLong(container.get(TikaCoreProperties.PARSE_TIME_MILLIS));
+        if (containerMillis > -1) {
+            metrics.record(TikaMetrics.Stage.PARSE, TimeUnit.MILLISECONDS.toNanos(containerMillis));
+        }
+        //the parse time of a document includes the parse times of its embedded documents
+        Map<String, Long> embeddedMillis = new HashMap<>();
+        for (Metadata m : metadataList) {
+            long millis = parseLong(m.get(TikaCoreProperties.PARSE_TIME_MILLIS));
+            String idPath = m.get(TikaCoreProperties.EMBEDDED_ID_PATH);
+            if (millis > -1 && idPath != null) {
+                embeddedMillis.merge(getParentIdPath(idPath), millis, Long::sum);
+            }
+        }
+        for (Metadata m : metadataList) {
+            long millis = parseLong(m.get(TikaCoreProperties.PARSE_TIME_MILLIS));
+            String[] parsedBy = m.getValues(TikaCoreProperties.TIKA_PARSED_BY);
+            if (millis < 0 || parsedBy.length == 0) {
+                continue;
+            }
+            String idPath = m.get(TikaCoreProperties.EMBEDDED_ID_PATH);
+            millis -= embeddedMillis.getOrDefault(idPath == null ? "" : idPath, 0L);
+            //the last one is the parser that did the work
+            metrics.recordParse(parsedBy[parsedBy.length - 1], m.get(Metadata.CONTENT_TYPE),
+                    TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+        }
+    }
+
+    /**
+     * @param idPath e.g. <code>/1/3</code>
+     * @return e.g. <code>/1</code>, or the empty string for the container document
+     */
+    private static String getParentIdPath(String idPath) {
+        int i = idPath.lastIndexOf('/');
+        return i < 1 ? "" : idPath.substring(0, i);
+    }
+
+    private void maybeLog() {
+        long now = System.currentTimeMillis();
+        long last = lastLogged.get();
+        if (now - last >= logEveryMillis && lastLogged.compareAndSet(last, now)) {
+            LOG.info("pipes metrics: {}", metrics.toMap());
+        }
+    }
+
+    private static long parseLong(String s) {
+        if (s == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public TikaMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param pipesReporter
+     * @return the metrics of the reporter if it is a MetricsPipesReporter or a
+     * {@link CompositePipesReporter} that contains one, otherwise <code>null</code>
+     */
+    public static TikaMetrics findMetrics(PipesReporter pipesReporter) {
+        if (pipesReporter instanceof MetricsPipesReporter) {
+            return ((MetricsPipesReporter) pipesReporter).getMetrics();
+        }
+        if (pipesReporter instanceof CompositePipesReporter) {
+            for (PipesReporter r : ((CompositePipesReporter) pipesReporter).getPipesReporters()) {
+                TikaMetrics metrics = findMetrics(r);
+                if (metrics != null) {
+                    return metrics;
+                }
+            }
+        }
+        return null;
+    }
+
+    public long getLogEveryMillis() {
+        return logEveryMillis;
+    }
+
+    /**
+     * How often to log the metrics.  Default is 60000 ms.
+     *
+     * @param logEveryMillis
+     */
+    @Field
+    public void setLogEveryMillis(long logEveryMillis) {
+        this.logEveryMillis = logEveryMillis;
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOG.info("pipes metrics: {}", metrics.toMap());
+    }
+
+    @Override
+    public void error(Throwable t) {
+        LOG.error("pipes error", t);
+    }
+
+    @Override
+    public void error(String msg) {
+        LOG.error("pipes error {}", msg);
+    }
+}
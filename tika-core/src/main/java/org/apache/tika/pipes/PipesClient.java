@@ -26,22 +26,23 @@ import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +50,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.codec.PipesCodec;
 import org.apache.tika.pipes.emitter.EmitData;
 import org.apache.tika.pipes.emitter.EmitKey;
 import org.apache.tika.utils.ProcessUtils;
@@ -59,6 +61,11 @@ import org.apache.tika.utils.StringUtils;
  * a single thread for {@link #process(FetchEmitTuple)} processing.
  * See {@link org.apache.tika.pipes.async.AsyncProcessor} for handling
  * multiple PipesClients.
+ * <p>
+ * The exception is when {@link PipesConfigBase#getNumInFlightTuples()} is greater than 1.
+ * In that case, up to that many threads may call {@link #process(FetchEmitTuple)}
+ * concurrently, and their requests are multiplexed over the pipe to the forked
+ * PipesServer.
  */
 public class PipesClient implements Closeable {
 
@@ -71,6 +78,7 @@ public class PipesClient implements Closeable {
     //single threaded
     private final Object[] executorServiceLock = new Object[0];
     private final PipesConfigBase pipesConfig;
+    private final PipesCodec pipesCodec;
     private final int pipesClientId;
     private volatile boolean closed = false;
     private ExecutorService executorService = Executors.newFixedThreadPool(1);
@@ -79,9 +87,23 @@ public class PipesClient implements Closeable {
     private DataInputStream input;
     private int filesProcessed = 0;
 
+    //these are only used if numParserThreads + numPrefetchTuples > 1
+    private final Object[] processLock = new Object[0];
+    private final AtomicInteger requestCounter = new AtomicInteger(0);
+    private final Map<Integer, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    private ResponseReader responseReader;
+
+    //these are only used if warmStandby is true
+    private ExecutorService standbyExecutorService;
+    private StandbyProcess standby;
+
     public PipesClient(PipesConfigBase pipesConfig) {
         this.pipesConfig = pipesConfig;
+        this.pipesCodec = PipesCodec.load(pipesConfig.getPipesCodec());
         this.pipesClientId = CLIENT_COUNTER.getAndIncrement();
+        if (pipesConfig.isWarmStandby()) {
+            standbyExecutorService = Executors.newFixedThreadPool(1);
+        }
     }
 
     public int getFilesProcessed() {
@@ -120,9 +142,21 @@ public class PipesClient implements Closeable {
             }
             closed = true;
         }
+        if (standbyExecutorService != null) {
+            synchronized (standbyExecutorService) {
+                if (standby != null) {
+                    standby.destroy();
+                    standby = null;
+                }
+                standbyExecutorService.shutdownNow();
+            }
+        }
     }
 
     public PipesResult process(FetchEmitTuple t) throws IOException, InterruptedException {
+        if (pipesConfig.getNumInFlightTuples() > 1) {
+            return processMultiThreaded(t);
+        }
         boolean restart = false;
         if (!ping()) {
             restart = true;
@@ -133,32 +167,122 @@ public class PipesClient implements Closeable {
             restart = true;
         }
         if (restart) {
-            boolean successfulRestart = false;
-            while (!successfulRestart) {
-                try {
-                    restart();
-                    successfulRestart = true;
-                } catch (TimeoutException e) {
-                    LOG.warn("pipesClientId={}: couldn't restart within {} ms (startupTimeoutMillis)",
-                            pipesClientId, pipesConfig.getStartupTimeoutMillis());
-                    Thread.sleep(pipesConfig.getSleepOnStartupTimeoutMillis());
+            restartUntilSuccessful();
+        }
+        return actuallyProcess(t);
+    }
+
+    private void restartUntilSuccessful() throws IOException, InterruptedException {
+        boolean successfulRestart = false;
+        while (!successfulRestart) {
+            try {
+                restart();
+                successfulRestart = true;
+            } catch (TimeoutException e) {
+                LOG.warn("pipesClientId={}: couldn't restart within {} ms (startupTimeoutMillis)",
+                        pipesClientId, pipesConfig.getStartupTimeoutMillis());
+                Thread.sleep(pipesConfig.getSleepOnStartupTimeoutMillis());
+            }
+        }
+    }
+
+    private PipesResult processMultiThreaded(FetchEmitTuple t)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        PendingRequest request = new PendingRequest(t, start);
+        int requestId;
+        synchronized (processLock) {
+            while (true) {
+                if (closed) {
+                    throw new IllegalArgumentException("pipesClientId=" + pipesClientId +
+                            ": PipesClient closed");
+                }
+                boolean hitMaxFiles = pipesConfig.getMaxFilesProcessedPerProcess() > 0 &&
+                        filesProcessed >= pipesConfig.getMaxFilesProcessedPerProcess();
+                boolean alive = process != null && process.isAlive() &&
+                        responseReader != null && !responseReader.done;
+                if (alive && !hitMaxFiles) {
+                    break;
+                }
+                if (!pendingRequests.isEmpty()) {
+                    //let the in-flight requests finish (or fail) before restarting
+                    processLock.wait(1000);
+                    continue;
                 }
+                if (hitMaxFiles) {
+                    LOG.info("pipesClientId={}: restarting server after hitting max files: {}",
+                            pipesClientId, filesProcessed);
+                }
+                restartUntilSuccessful();
+                responseReader = new ResponseReader(input);
+                Thread readerThread = new Thread(responseReader,
+                        "pipesClientId=" + pipesClientId + " response reader");
+                readerThread.setDaemon(true);
+                readerThread.start();
+            }
+            requestId = requestCounter.incrementAndGet();
+            request.responseReader = responseReader;
+            pendingRequests.put(requestId, request);
+            filesProcessed++;
+            try {
+                byte[] bytes = pipesCodec.encodeFetchEmitTuple(t);
+                output.write(CALL.getByte());
+                output.writeInt(requestId);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+                output.flush();
+            } catch (IOException e) {
+                //the response reader will fail this request when it hits EOF
+                LOG.warn("pipesClientId={}: problem writing request {}", pipesClientId, t.getId(), e);
             }
         }
-        return actuallyProcess(t);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("pipesClientId={}: timer -- write tuple requestId={}: {} ms",
+                    pipesClientId, requestId, System.currentTimeMillis() - start);
+        }
+        try {
+            return request.result.get(getMultiThreadedTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            //we never complete exceptionally
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            //leave the request in place: the server is still working on it, and the
+            //response reader has to be able to read and drop its response when it comes
+            throw e;
+        } catch (TimeoutException e) {
+            pendingRequests.remove(requestId);
+            long elapsed = System.currentTimeMillis() - start;
+            LOG.warn("pipesClientId={} client timeout: {} in {} ms; failing all in-flight " +
+                    "requests", pipesClientId, t.getId(), elapsed);
+            synchronized (processLock) {
+                //make sure that another thread hasn't already restarted the process
+                if (request.responseReader == responseReader) {
+                    destroyForcibly();
+                }
+            }
+            return buildFatalResult(PipesResult.TIMEOUT, request.intermediateResult);
+        }
+    }
+
+    /**
+     * The server times out each fetch and each parse on its own.  A prefetched
+     * tuple may also have to wait for a parser thread, so give it one
+     * timeout for each round of parses that could be ahead of it.
+     */
+    private long getMultiThreadedTimeoutMillis() {
+        int numParserThreads = pipesConfig.getNumParserThreads();
+        int rounds = 1 + (pipesConfig.getNumPrefetchTuples() + numParserThreads - 1) /
+                numParserThreads;
+        return rounds * pipesConfig.getTimeoutMillis();
     }
 
     private PipesResult actuallyProcess(FetchEmitTuple t) throws InterruptedException {
         long start = System.currentTimeMillis();
+        filesProcessed++;
         final PipesResult[] intermediateResult = new PipesResult[1];
         FutureTask<PipesResult> futureTask = new FutureTask<>(() -> {
 
-            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
-            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
-                objectOutputStream.writeObject(t);
-            }
-
-            byte[] bytes = bos.toByteArray();
+            byte[] bytes = pipesCodec.encodeFetchEmitTuple(t);
             output.write(CALL.getByte());
             output.writeInt(bytes.length);
             output.write(bytes);
@@ -172,10 +296,10 @@ public class PipesClient implements Closeable {
             if (Thread.currentThread().isInterrupted()) {
                 throw new InterruptedException("thread interrupt");
             }
-            PipesResult result = readResults(t, start);
+            PipesResult result = readResults(input.read(), t, start, input);
             while (result.getStatus().equals(PipesResult.STATUS.INTERMEDIATE_RESULT)) {
                 intermediateResult[0] = result;
-                result = readResults(t, start);
+                result = readResults(input.read(), t, start, input);
             }
             if (LOG.isDebugEnabled()) {
                 long elapsed = System.currentTimeMillis() - readStart;
@@ -188,7 +312,7 @@ public class PipesClient implements Closeable {
                         System.currentTimeMillis() - readStart);
             }
             if (result.getStatus() == PipesResult.STATUS.OOM) {
-                return buildFatalResult(result, intermediateResult);
+                return buildFatalResult(result, intermediateResult[0]);
             }
             return result;
         });
@@ -210,7 +334,7 @@ public class PipesClient implements Closeable {
             if (!process.isAlive() && TIMEOUT_EXIT_CODE == process.exitValue()) {
                 LOG.warn("pipesClientId={} server timeout: {} in {} ms", pipesClientId, t.getId(),
                         elapsed);
-                return buildFatalResult(PipesResult.TIMEOUT, intermediateResult);
+                return buildFatalResult(PipesResult.TIMEOUT, intermediateResult[0]);
             }
             process.waitFor(500, TimeUnit.MILLISECONDS);
             if (process.isAlive()) {
@@ -220,31 +344,31 @@ public class PipesClient implements Closeable {
                 LOG.warn("pipesClientId={} crash: {} in {} ms with exit code {}", pipesClientId,
                         t.getId(), elapsed, process.exitValue());
             }
-            return buildFatalResult(PipesResult.UNSPECIFIED_CRASH, intermediateResult);
+            return buildFatalResult(PipesResult.UNSPECIFIED_CRASH, intermediateResult[0]);
         } catch (TimeoutException e) {
             long elapsed = System.currentTimeMillis() - start;
             destroyForcibly();
             LOG.warn("pipesClientId={} client timeout: {} in {} ms", pipesClientId, t.getId(),
                     elapsed);
-            return buildFatalResult(PipesResult.TIMEOUT, intermediateResult);
+            return buildFatalResult(PipesResult.TIMEOUT, intermediateResult[0]);
         } finally {
             futureTask.cancel(true);
         }
     }
 
     private PipesResult buildFatalResult(PipesResult result,
-                                         PipesResult[] intermediateResult) {
+                                         PipesResult intermediateResult) {
 
-        if (intermediateResult[0] == null) {
+        if (intermediateResult == null) {
             return result;
         } else {
             if (LOG.isTraceEnabled()) {
-                LOG.trace("intermediate result: {}", intermediateResult[0].getEmitData());
+                LOG.trace("intermediate result: {}", intermediateResult.getEmitData());
             }
-            intermediateResult[0].getEmitData().getMetadataList().get(0).set(
+            intermediateResult.getEmitData().getMetadataList().get(0).set(
                     TikaCoreProperties.PIPES_RESULT, result.getStatus().toString());
             return new PipesResult(result.getStatus(),
-                    intermediateResult[0].getEmitData(), true);
+                    intermediateResult.getEmitData(), true);
         }
     }
 
@@ -280,9 +404,9 @@ public class PipesClient implements Closeable {
         }
     }
 
-    private PipesResult readResults(FetchEmitTuple t, long start) throws IOException {
+    private PipesResult readResults(int statusByte, FetchEmitTuple t, long start,
+                                    DataInputStream input) throws IOException {
 
-        int statusByte = input.read();
         long millis = System.currentTimeMillis() - start;
         PipesServer.STATUS status = null;
         try {
@@ -306,40 +430,40 @@ public class PipesClient implements Closeable {
             case EMIT_EXCEPTION:
                 LOG.warn("pipesClientId={} emit exception: {} in {} ms", pipesClientId, t.getId(),
                         millis);
-                return readMessage(PipesResult.STATUS.EMIT_EXCEPTION);
+                return readMessage(PipesResult.STATUS.EMIT_EXCEPTION, input);
             case EMITTER_NOT_FOUND:
                 LOG.warn("pipesClientId={} emitter not found: {} in {} ms", pipesClientId,
                         t.getId(), millis);
-                return readMessage(PipesResult.STATUS.NO_EMITTER_FOUND);
+                return readMessage(PipesResult.STATUS.NO_EMITTER_FOUND, input);
             case FETCHER_NOT_FOUND:
                 LOG.warn("pipesClientId={} fetcher not found: {} in {} ms", pipesClientId,
                         t.getId(), millis);
-                return readMessage(PipesResult.STATUS.NO_FETCHER_FOUND);
+                return readMessage(PipesResult.STATUS.NO_FETCHER_FOUND, input);
             case FETCHER_INITIALIZATION_EXCEPTION:
                 LOG.warn("pipesClientId={} fetcher initialization exception: {} in {} ms",
                         pipesClientId, t.getId(), millis);
-                return readMessage(PipesResult.STATUS.FETCHER_INITIALIZATION_EXCEPTION);
+                return readMessage(PipesResult.STATUS.FETCHER_INITIALIZATION_EXCEPTION, input);
             case FETCH_EXCEPTION:
                 LOG.warn("pipesClientId={} fetch exception: {} in {} ms", pipesClientId, t.getId(),
                         millis);
-                return readMessage(PipesResult.STATUS.FETCH_EXCEPTION);
+                return readMessage(PipesResult.STATUS.FETCH_EXCEPTION, input);
             case INTERMEDIATE_RESULT:
                 LOG.debug("pipesClientId={} intermediate success: {} in {} ms", pipesClientId,
                         t.getId(), millis);
-                return deserializeIntermediateResult(t.getEmitKey(), t.getParseContext());
+                return deserializeIntermediateResult(t.getEmitKey(), t.getParseContext(), input);
             case PARSE_SUCCESS:
                 //there may have been a parse exception, but the parse didn't crash
                 LOG.debug("pipesClientId={} parse success: {} in {} ms", pipesClientId, t.getId(),
                         millis);
-                return deserializeEmitData();
+                return deserializeEmitData(input);
             case PARSE_EXCEPTION_NO_EMIT:
-                return readMessage(PipesResult.STATUS.PARSE_EXCEPTION_NO_EMIT);
+                return readMessage(PipesResult.STATUS.PARSE_EXCEPTION_NO_EMIT, input);
             case EMIT_SUCCESS:
                 LOG.debug("pipesClientId={} emit success: {} in {} ms", pipesClientId, t.getId(),
                         millis);
                 return PipesResult.EMIT_SUCCESS;
             case EMIT_SUCCESS_PARSE_EXCEPTION:
-                return readMessage(PipesResult.STATUS.EMIT_SUCCESS_PARSE_EXCEPTION);
+                return readMessage(PipesResult.STATUS.EMIT_SUCCESS_PARSE_EXCEPTION, input);
             case EMPTY_OUTPUT:
                 return PipesResult.EMPTY_OUTPUT;
             //fall through
@@ -354,7 +478,8 @@ public class PipesClient implements Closeable {
 
     }
 
-    private PipesResult readMessage(PipesResult.STATUS status) throws IOException {
+    private PipesResult readMessage(PipesResult.STATUS status, DataInputStream input)
+            throws IOException {
         //readInt checks for EOF
         int length = input.readInt();
         byte[] bytes = new byte[length];
@@ -363,42 +488,29 @@ public class PipesClient implements Closeable {
         return new PipesResult(status, msg);
     }
 
-    private PipesResult deserializeEmitData() throws IOException {
+    private PipesResult deserializeEmitData(DataInputStream input) throws IOException {
         int length = input.readInt();
         byte[] bytes = new byte[length];
         input.readFully(bytes);
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(
-                UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get())) {
-            EmitData emitData = (EmitData) objectInputStream.readObject();
+        EmitData emitData = pipesCodec.decodeEmitData(bytes);
 
-            String stack = emitData.getContainerStackTrace();
-            if (StringUtils.isBlank(stack)) {
-                return new PipesResult(emitData);
-            } else {
-                return new PipesResult(emitData, stack);
-            }
-        } catch (ClassNotFoundException e) {
-            LOG.error("class not found exception deserializing data", e);
-            //this should be catastrophic
-            throw new RuntimeException(e);
+        String stack = emitData.getContainerStackTrace();
+        if (StringUtils.isBlank(stack)) {
+            return new PipesResult(emitData);
+        } else {
+            return new PipesResult(emitData, stack);
         }
     }
 
-    private PipesResult deserializeIntermediateResult(EmitKey emitKey, ParseContext parseContext) throws IOException {
+    private PipesResult deserializeIntermediateResult(EmitKey emitKey, ParseContext parseContext,
+                                                      DataInputStream input) throws IOException {
 
         int length = input.readInt();
         byte[] bytes = new byte[length];
         input.readFully(bytes);
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(
-                UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get())) {
-            Metadata metadata = (Metadata) objectInputStream.readObject();
-            EmitData emitData = new EmitData(emitKey, Collections.singletonList(metadata));
-            return new PipesResult(PipesResult.STATUS.INTERMEDIATE_RESULT, emitData, true);
-        } catch (ClassNotFoundException e) {
-            LOG.error("class not found exception deserializing data", e);
-            //this should be catastrophic
-            throw new RuntimeException(e);
-        }
+        Metadata metadata = pipesCodec.decodeMetadata(bytes);
+        EmitData emitData = new EmitData(emitKey, Collections.singletonList(metadata));
+        return new PipesResult(PipesResult.STATUS.INTERMEDIATE_RESULT, emitData, true);
     }
 
     private void restart() throws IOException, InterruptedException, TimeoutException {
@@ -425,45 +537,21 @@ public class PipesClient implements Closeable {
         } else {
             LOG.info("pipesClientId={}: starting process", pipesClientId);
         }
-        ProcessBuilder pb = new ProcessBuilder(getCommandline());
-        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
-
-        try {
-            process = pb.start();
-        } catch (Exception e) {
-            //Do we ever want this to be not fatal?!
-            LOG.error("failed to start client", e);
-            throw new FailedToStartClientException(e);
+        filesProcessed = 0;
+        if (swapInStandby()) {
+            startStandby();
+            return;
         }
+        process = startProcess();
         input = new DataInputStream(process.getInputStream());
         output = new DataOutputStream(process.getOutputStream());
 
         //wait for ready signal
+        final Process startedProcess = process;
+        final DataInputStream startedInput = input;
         final UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
         FutureTask<Integer> futureTask = new FutureTask<>(() -> {
-            int b = input.read();
-            int read = 1;
-            while (read < MAX_BYTES_BEFORE_READY && b != READY.getByte()) {
-
-                if (b == -1) {
-                    throw new RuntimeException(getMsg("pipesClientId=" + pipesClientId + ": " +
-                            "Couldn't start server -- read EOF before 'ready' byte.\n" +
-                            " process isAlive=" + process.isAlive(), bos));
-                }
-                bos.write(b);
-                b = input.read();
-                read++;
-            }
-            if (read >= MAX_BYTES_BEFORE_READY) {
-                throw new RuntimeException(getMsg("pipesClientId=" + pipesClientId + ": " +
-                        "Couldn't start server: read too many bytes before 'ready' byte.\n" +
-                        " Make absolutely certain that your logger is not writing to " +
-                        "stdout.\n", bos));
-            }
-            if (bos.size() > 0) {
-                LOG.warn("pipesClientId={}: From forked process before start byte: {}",
-                        pipesClientId, bos.toString(StandardCharsets.UTF_8));
-            }
+            readReady(startedProcess, startedInput, bos);
             return 1;
         });
         long start = System.currentTimeMillis();
@@ -488,6 +576,122 @@ public class PipesClient implements Closeable {
         } finally {
             futureTask.cancel(true);
         }
+        startStandby();
+    }
+
+    private Process startProcess() throws FailedToStartClientException {
+        ProcessBuilder pb = new ProcessBuilder(getCommandline());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+        try {
+            return pb.start();
+        } catch (Exception e) {
+            //Do we ever want this to be not fatal?!
+            LOG.error("failed to start client", e);
+            throw new FailedToStartClientException(e);
+        }
+    }
+
+    private void readReady(Process process, DataInputStream input,
+                           UnsynchronizedByteArrayOutputStream bos) throws IOException {
+        int b = input.read();
+        int read = 1;
+        while (read < MAX_BYTES_BEFORE_READY && b != READY.getByte()) {
+
+            if (b == -1) {
+                throw new RuntimeException(getMsg("pipesClientId=" + pipesClientId + ": " +
+                        "Couldn't start server -- read EOF before 'ready' byte.\n" +
+                        " process isAlive=" + process.isAlive(), bos));
+            }
+            bos.write(b);
+            b = input.read();
+            read++;
+        }
+        if (read >= MAX_BYTES_BEFORE_READY) {
+            throw new RuntimeException(getMsg("pipesClientId=" + pipesClientId + ": " +
+                    "Couldn't start server: read too many bytes before 'ready' byte.\n" +
+                    " Make absolutely certain that your logger is not writing to " +
+                    "stdout.\n", bos));
+        }
+        if (bos.size() > 0) {
+            LOG.warn("pipesClientId={}: From forked process before start byte: {}",
+                    pipesClientId, bos.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * If warmStandby is configured, this starts a second forked process
+     * that initializes in the background so that the next restart can
+     * swap it in instead of waiting for a new process to start.
+     */
+    private void startStandby() {
+        if (standbyExecutorService == null) {
+            return;
+        }
+        synchronized (standbyExecutorService) {
+            if (closed || standby != null) {
+                return;
+            }
+            Process standbyProcess;
+            try {
+                standbyProcess = startProcess();
+            } catch (FailedToStartClientException e) {
+                LOG.warn("pipesClientId={}: couldn't start standby process", pipesClientId, e);
+                return;
+            }
+            StandbyProcess newStandby = new StandbyProcess(standbyProcess);
+            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+            newStandby.ready = standbyExecutorService.submit(() -> {
+                readReady(standbyProcess, newStandby.input, bos);
+                return true;
+            });
+            standby = newStandby;
+            LOG.debug("pipesClientId={}: started standby process", pipesClientId);
+        }
+    }
+
+    /**
+     * @return whether a standby process was ready and was swapped in
+     * as the current process
+     */
+    private boolean swapInStandby() throws InterruptedException {
+        if (standbyExecutorService == null) {
+            return false;
+        }
+        StandbyProcess candidate;
+        synchronized (standbyExecutorService) {
+            candidate = standby;
+            standby = null;
+        }
+        if (candidate == null) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            //this should return immediately if the standby has had time to start
+            candidate.ready.get(pipesConfig.getStartupTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.warn("pipesClientId={}: standby process didn't start; starting a new process",
+                    pipesClientId, e);
+            candidate.destroy();
+            return false;
+        } catch (InterruptedException e) {
+            candidate.destroy();
+            throw e;
+        }
+        //the standby may have shut itself down after shutdownClientAfterMillis
+        if (!candidate.process.isAlive()) {
+            LOG.info("pipesClientId={}: standby process is no longer alive; " +
+                    "starting a new process", pipesClientId);
+            candidate.destroy();
+            return false;
+        }
+        process = candidate.process;
+        input = candidate.input;
+        output = candidate.output;
+        LOG.info("pipesClientId={}: swapped in standby process; waited {} ms", pipesClientId,
+                System.currentTimeMillis() - start);
+        return true;
     }
 
     private static String getMsg(String msg, UnsynchronizedByteArrayOutputStream bos) {
@@ -561,7 +765,126 @@ public class PipesClient implements Closeable {
         commandLine.add(Long.toString(pipesConfig.getMaxForEmitBatchBytes()));
         commandLine.add(Long.toString(pipesConfig.getTimeoutMillis()));
         commandLine.add(Long.toString(pipesConfig.getShutdownClientAfterMillis()));
+        commandLine.add(pipesCodec.getName());
+        commandLine.add(Integer.toString(pipesConfig.getNumParserThreads()));
+        commandLine.add(Integer.toString(pipesConfig.getNumPrefetchTuples()));
         LOG.debug("pipesClientId={}: commandline: {}", pipesClientId, commandLine);
         return commandLine.toArray(new String[0]);
     }
+
+    private static class PendingRequest {
+        private final FetchEmitTuple tuple;
+        private final long start;
+        private final CompletableFuture<PipesResult> result = new CompletableFuture<>();
+        private volatile PipesResult intermediateResult;
+        private ResponseReader responseReader;
+
+        PendingRequest(FetchEmitTuple tuple, long start) {
+            this.tuple = tuple;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Reads the multiplexed responses from a single forked process and hands
+     * them to the waiting requests.  When the process ends, this fails all
+     * of the requests that are still in flight.
+     */
+    private class ResponseReader implements Runnable {
+        private final DataInputStream input;
+        private volatile boolean done = false;
+
+        ResponseReader(DataInputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    int statusByte = input.read();
+                    if (statusByte == -1) {
+                        LOG.debug("pipesClientId={}: response reader hit EOF", pipesClientId);
+                        return;
+                    }
+                    int requestId = input.readInt();
+                    PendingRequest request = pendingRequests.get(requestId);
+                    if (request == null) {
+                        throw new IOException("unknown requestId: " + requestId);
+                    }
+                    PipesResult result = readResults(statusByte, request.tuple, request.start,
+                            input);
+                    if (result.getStatus() == PipesResult.STATUS.INTERMEDIATE_RESULT) {
+                        request.intermediateResult = result;
+                        continue;
+                    }
+                    if (result.getStatus() == PipesResult.STATUS.OOM ||
+                            result.getStatus() == PipesResult.STATUS.TIMEOUT) {
+                        result = buildFatalResult(result, request.intermediateResult);
+                    }
+                    complete(requestId, request, result);
+                }
+            } catch (IOException e) {
+                LOG.warn("pipesClientId={}: problem reading from server", pipesClientId, e);
+            } finally {
+                failInFlight();
+            }
+        }
+
+        private void complete(int requestId, PendingRequest request, PipesResult result) {
+            synchronized (processLock) {
+                pendingRequests.remove(requestId);
+                if (pendingRequests.isEmpty()) {
+                    processLock.notifyAll();
+                }
+            }
+            request.result.complete(result);
+        }
+
+        private void failInFlight() {
+            synchronized (processLock) {
+                done = true;
+                for (Integer requestId : pendingRequests.keySet()) {
+                    PendingRequest request = pendingRequests.remove(requestId);
+                    if (request != null) {
+                        LOG.warn("pipesClientId={} crash: {} in {} ms", pipesClientId,
+                                request.tuple.getId(), System.currentTimeMillis() - request.start);
+                        request.result.complete(buildFatalResult(PipesResult.UNSPECIFIED_CRASH,
+                                request.intermediateResult));
+                    }
+                }
+                processLock.notifyAll();
+            }
+        }
+    }
+
+    private static class StandbyProcess {
+        private final Process process;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+        private Future<Boolean> ready;
+
+        StandbyProcess(Process process) {
+            this.process = process;
+            this.input = new DataInputStream(process.getInputStream());
+            this.output = new DataOutputStream(process.getOutputStream());
+        }
+
+        void destroy() {
+            if (ready != null) {
+                ready.cancel(true);
+            }
+            process.destroyForcibly();
+            try {
+                input.close();
+            } catch (IOException e) {
+                //swallow
+            }
+            try {
+                output.close();
+            } catch (IOException e) {
+                //swallow
+            }
+        }
+    }
 }
@@ -23,6 +23,8 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.tika.config.ConfigBase;
+import org.apache.tika.pipes.codec.BinaryPipesCodec;
+import org.apache.tika.pipes.codec.PipesCodec;
 
 public class PipesConfigBase extends ConfigBase {
 
@@ -43,6 +45,12 @@ public class PipesConfigBase extends ConfigBase {
 
     public static final int DEFAULT_MAX_FILES_PROCESSED_PER_PROCESS = 10000;
 
+    public static final String DEFAULT_PIPES_CODEC = BinaryPipesCodec.NAME;
+
+    public static final int DEFAULT_NUM_PARSER_THREADS = 1;
+
+    public static final int DEFAULT_NUM_PREFETCH_TUPLES = 0;
+
     //if an extract is larger than this, the forked PipesServer should
     //emit the extract directly and not send the contents back to the PipesClient
     private long maxForEmitBatchBytes = DEFAULT_MAX_FOR_EMIT_BATCH;
@@ -61,6 +69,10 @@ public class PipesConfigBase extends ConfigBase {
     private List<String> forkedJvmArgs = new ArrayList<>();
     private Path tikaConfig;
     private String javaPath = "java";
+    private String pipesCodec = DEFAULT_PIPES_CODEC;
+    private int numParserThreads = DEFAULT_NUM_PARSER_THREADS;
+    private int numPrefetchTuples = DEFAULT_NUM_PREFETCH_TUPLES;
+    private boolean warmStandby = false;
 
     public long getTimeoutMillis() {
         return timeoutMillis;
@@ -189,4 +201,89 @@ public class PipesConfigBase extends ConfigBase {
     public void setStaleFetcherDelaySeconds(int staleFetcherDelaySeconds) {
         this.staleFetcherDelaySeconds = staleFetcherDelaySeconds;
     }
+
+    public String getPipesCodec() {
+        return pipesCodec;
+    }
+
+    /**
+     * Which codec to use for the data sent between the PipesClient and the
+     * forked PipesServer: <code>binary</code> (default) or <code>java</code>
+     * (Java serialization).
+     *
+     * @param pipesCodec
+     */
+    public void setPipesCodec(String pipesCodec) {
+        //fail early if this isn't a known codec
+        this.pipesCodec = PipesCodec.load(pipesCodec).getName();
+    }
+
+    public int getNumParserThreads() {
+        return numParserThreads;
+    }
+
+    /**
+     * Number of concurrent parses to run within each forked PipesServer.
+     * The default is <code>1</code>.  If this is greater than 1, each PipesClient
+     * can have this many tuples in flight, and a crash or a timeout in the
+     * forked process fails all of the tuples that are in flight in that process.
+     *
+     * @param numParserThreads
+     */
+    public void setNumParserThreads(int numParserThreads) {
+        if (numParserThreads < 1) {
+            throw new IllegalArgumentException("numParserThreads must be > 0");
+        }
+        this.numParserThreads = numParserThreads;
+    }
+
+    public int getNumPrefetchTuples() {
+        return numPrefetchTuples;
+    }
+
+    /**
+     * Number of tuples beyond <code>numParserThreads</code> that each PipesClient
+     * hands to its forked PipesServer early.  The server fetches these
+     * while its parser threads are busy, so that fetching the next document
+     * overlaps parsing the current one.  A fetched stream that is not already
+     * backed by a file is spooled to a temporary file in the forked process.
+     * The default is <code>0</code>, which turns off prefetching.
+     * <p>
+     * The fetch and the parse are each bounded by <code>timeoutMillis</code>.
+     *
+     * @param numPrefetchTuples
+     * @since Apache Tika 4.0.0
+     */
+    public void setNumPrefetchTuples(int numPrefetchTuples) {
+        if (numPrefetchTuples < 0) {
+            throw new IllegalArgumentException("numPrefetchTuples must be >= 0");
+        }
+        this.numPrefetchTuples = numPrefetchTuples;
+    }
+
+    /**
+     * @return the number of tuples that each PipesClient may have in flight:
+     * <code>numParserThreads + numPrefetchTuples</code>
+     * @since Apache Tika 4.0.0
+     */
+    public int getNumInFlightTuples() {
+        return numParserThreads + numPrefetchTuples;
+    }
+
+    public boolean isWarmStandby() {
+        return warmStandby;
+    }
+
+    /**
+     * If <code>true</code>, each PipesClient keeps a second, fully initialized
+     * forked process on standby.  On a restart (after a timeout, an OOM, a crash
+     * or after hitting maxFilesProcessedPerProcess), the client swaps in the standby
+     * instead of waiting for a new process to start up.  This doubles the number
+     * of forked processes.  The default is <code>false</code>.
+     *
+     * @param warmStandby
+     */
+    public void setWarmStandby(boolean warmStandby) {
+        this.warmStandby = warmStandby;
+    }
 }
@@ -33,10 +33,15 @@ public class PipesParser implements Closeable {
 
     public PipesParser(PipesConfig pipesConfig) {
         this.pipesConfig = pipesConfig;
-        this.clientQueue = new ArrayBlockingQueue<>(pipesConfig.getNumClients());
+        this.clientQueue = new ArrayBlockingQueue<>(
+                pipesConfig.getNumClients() * pipesConfig.getNumInFlightTuples());
         for (int i = 0; i < pipesConfig.getNumClients(); i++) {
             PipesClient client = new PipesClient(pipesConfig);
-            clientQueue.offer(client);
+            //a client with multiple parser threads or with prefetching can handle
+            //that many concurrent requests
+            for (int j = 0; j < pipesConfig.getNumInFlightTuples(); j++) {
+                clientQueue.offer(client);
+            }
             clients.add(client);
         }
     }
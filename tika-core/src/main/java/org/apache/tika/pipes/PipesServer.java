@@ -21,20 +21,23 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
-import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.ContentHandler;
@@ -66,6 +69,10 @@ import org.apache.tika.parser.DigestingParser;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.parser.Parser;
 import org.apache.tika.parser.RecursiveParserWrapper;
+import org.apache.tika.parser.cache.ComputedDigests;
+import org.apache.tika.parser.cache.ExtractCache;
+import org.apache.tika.parser.cache.ExtractCacheKeys;
+import org.apache.tika.pipes.codec.PipesCodec;
 import org.apache.tika.pipes.emitter.EmitData;
 import org.apache.tika.pipes.emitter.EmitKey;
 import org.apache.tika.pipes.emitter.Emitter;
@@ -74,6 +81,7 @@ import org.apache.tika.pipes.emitter.StreamEmitter;
 import org.apache.tika.pipes.emitter.TikaEmitterException;
 import org.apache.tika.pipes.extractor.EmbeddedDocumentBytesConfig;
 import org.apache.tika.pipes.extractor.EmittingEmbeddedDocumentBytesHandler;
+import org.apache.tika.pipes.fetcher.FetchKey;
 import org.apache.tika.pipes.fetcher.Fetcher;
 import org.apache.tika.pipes.fetcher.FetcherManager;
 import org.apache.tika.sax.BasicContentHandlerFactory;
@@ -89,6 +97,18 @@ import org.apache.tika.utils.StringUtils;
  * When configuring logging for this class, make absolutely certain
  * not to write to STDOUT.  This class uses STDOUT to communicate with
  * the PipesClient.
+ * <p>
+ * If <code>numParserThreads</code> is greater than 1, the server runs that many
+ * parses concurrently with a shared parser.  In that mode, each CALL from the
+ * client and each response from the server carries an int request id after the
+ * status byte.  If any single parse times out, the server writes a TIMEOUT for
+ * that request and exits; the client fails the other in-flight requests.
+ * <p>
+ * If <code>numPrefetchTuples</code> is greater than 0, the same protocol is used,
+ * and the client may send that many more tuples than there are parser threads.
+ * The server fetches each tuple as soon as it arrives (see {@link FetchedInput})
+ * and queues it for the next free parser thread.  The fetch and the parse
+ * are timed out separately.
  */
 public class PipesServer implements Runnable {
 
@@ -137,11 +157,24 @@ public class PipesServer implements Runnable {
     private final long maxForEmitBatchBytes;
     private final long serverParseTimeoutMillis;
     private final long serverWaitTimeoutMillis;
+    private final PipesCodec pipesCodec;
+    private final int numParserThreads;
+    private final int numPrefetchTuples;
+    //request id -> start time in millis for the fetches and parses that are currently
+    //running when numParserThreads + numPrefetchTuples > 1
+    private final Map<Integer, Long> activeRequests = new ConcurrentHashMap<>();
+    //set only in the fetch and parser threads when numParserThreads + numPrefetchTuples > 1
+    private final ThreadLocal<Integer> currentRequestId = new ThreadLocal<>();
+    private ExecutorService parserExecutor;
+    //only used if numPrefetchTuples > 0
+    private ExecutorService fetchExecutor;
     private Parser autoDetectParser;
     private Parser rMetaParser;
     private TikaConfig tikaConfig;
     private FetcherManager fetcherManager;
     private EmitterManager emitterManager;
+    private ExtractCache extractCache;
+    private String extractCacheFingerprint;
     private volatile boolean parsing;
     private volatile long since;
 
@@ -150,12 +183,35 @@ public class PipesServer implements Runnable {
                        long maxForEmitBatchBytes, long serverParseTimeoutMillis,
                        long serverWaitTimeoutMillis)
             throws IOException, TikaException, SAXException {
+        this(tikaConfigPath, in, out, maxForEmitBatchBytes, serverParseTimeoutMillis,
+                serverWaitTimeoutMillis, PipesCodec.load(PipesConfigBase.DEFAULT_PIPES_CODEC),
+                PipesConfigBase.DEFAULT_NUM_PARSER_THREADS);
+    }
+
+    public PipesServer(Path tikaConfigPath, InputStream in, PrintStream out,
+                       long maxForEmitBatchBytes, long serverParseTimeoutMillis,
+                       long serverWaitTimeoutMillis, PipesCodec pipesCodec,
+                       int numParserThreads)
+            throws IOException, TikaException, SAXException {
+        this(tikaConfigPath, in, out, maxForEmitBatchBytes, serverParseTimeoutMillis,
+                serverWaitTimeoutMillis, pipesCodec, numParserThreads,
+                PipesConfigBase.DEFAULT_NUM_PREFETCH_TUPLES);
+    }
+
+    public PipesServer(Path tikaConfigPath, InputStream in, PrintStream out,
+                       long maxForEmitBatchBytes, long serverParseTimeoutMillis,
+                       long serverWaitTimeoutMillis, PipesCodec pipesCodec,
+                       int numParserThreads, int numPrefetchTuples)
+            throws IOException, TikaException, SAXException {
         this.tikaConfigPath = tikaConfigPath;
         this.input = new DataInputStream(in);
         this.output = new DataOutputStream(out);
         this.maxForEmitBatchBytes = maxForEmitBatchBytes;
         this.serverParseTimeoutMillis = serverParseTimeoutMillis;
         this.serverWaitTimeoutMillis = serverWaitTimeoutMillis;
+        this.pipesCodec = pipesCodec;
+        this.numParserThreads = numParserThreads;
+        this.numPrefetchTuples = numPrefetchTuples;
         this.parsing = false;
         this.since = System.currentTimeMillis();
     }
@@ -167,10 +223,17 @@ public class PipesServer implements Runnable {
             long maxForEmitBatchBytes = Long.parseLong(args[1]);
             long serverParseTimeoutMillis = Long.parseLong(args[2]);
             long serverWaitTimeoutMillis = Long.parseLong(args[3]);
+            PipesCodec pipesCodec = PipesCodec.load(args.length > 4 ? args[4] :
+                    PipesConfigBase.DEFAULT_PIPES_CODEC);
+            int numParserThreads = args.length > 5 ? Integer.parseInt(args[5]) :
+                    PipesConfigBase.DEFAULT_NUM_PARSER_THREADS;
+            int numPrefetchTuples = args.length > 6 ? Integer.parseInt(args[6]) :
+                    PipesConfigBase.DEFAULT_NUM_PREFETCH_TUPLES;
 
             PipesServer server =
                     new PipesServer(tikaConfig, System.in, System.out, maxForEmitBatchBytes,
-                            serverParseTimeoutMillis, serverWaitTimeoutMillis);
+                            serverParseTimeoutMillis, serverWaitTimeoutMillis, pipesCodec,
+                            numParserThreads, numPrefetchTuples);
             System.setIn(UnsynchronizedByteArrayInputStream.builder().setByteArray(new byte[0]).get());
             System.setOut(System.err);
             Thread watchdog = new Thread(server, "Tika Watchdog");
@@ -189,7 +252,9 @@ public class PipesServer implements Runnable {
             while (true) {
                 synchronized (lock) {
                     long elapsed = System.currentTimeMillis() - since;
-                    if (parsing && elapsed > serverParseTimeoutMillis) {
+                    if (isMultiThreaded()) {
+                        checkActiveRequests(elapsed);
+                    } else if (parsing && elapsed > serverParseTimeoutMillis) {
                         LOG.warn("timeout server; elapsed {}  with {}", elapsed,
                                 serverParseTimeoutMillis);
                         exit(TIMEOUT_EXIT_CODE);
@@ -206,6 +271,29 @@ public class PipesServer implements Runnable {
         }
     }
 
+    private boolean isMultiThreaded() {
+        return numParserThreads + numPrefetchTuples > 1;
+    }
+
+    private void checkActiveRequests(long elapsedSinceLastActivity) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, Long> e : activeRequests.entrySet()) {
+            long elapsed = now - e.getValue();
+            if (elapsed > serverParseTimeoutMillis) {
+                LOG.warn("timeout server; requestId {} elapsed {}  with {}", e.getKey(), elapsed,
+                        serverParseTimeoutMillis);
+                currentRequestId.set(e.getKey());
+                write(STATUS.TIMEOUT);
+                exit(TIMEOUT_EXIT_CODE);
+            }
+        }
+        if (activeRequests.isEmpty() && serverWaitTimeoutMillis > 0 &&
+                elapsedSinceLastActivity > serverWaitTimeoutMillis) {
+            LOG.info("closing down from inactivity");
+            exit(0);
+        }
+    }
+
     public void processRequests() {
         LOG.debug("processing requests");
         //initialize
@@ -216,6 +304,15 @@ public class PipesServer implements Runnable {
                 LOG.trace("timer -- initialize parser and other resources: {} ms",
                         System.currentTimeMillis() - start);
             }
+            if (isMultiThreaded()) {
+                parserExecutor = Executors.newFixedThreadPool(numParserThreads);
+                if (numPrefetchTuples > 0) {
+                    //the client never has more than this many tuples in flight,
+                    //so a fetch never waits for a thread
+                    fetchExecutor =
+                            Executors.newFixedThreadPool(numParserThreads + numPrefetchTuples);
+                }
+            }
             LOG.debug("pipes server initialized");
         } catch (Throwable t) {
             LOG.error("couldn't initialize parser", t);
@@ -242,6 +339,8 @@ public class PipesServer implements Runnable {
                     }
                     write(STATUS.PING);
                     start = System.currentTimeMillis();
+                } else if (request == STATUS.CALL.getByte() && isMultiThreaded()) {
+                    submitOne();
                 } else if (request == STATUS.CALL.getByte()) {
                     parseOne();
                     if (LOG.isTraceEnabled()) {
@@ -251,7 +350,9 @@ public class PipesServer implements Runnable {
                 } else {
                     throw new IllegalStateException("Unexpected request");
                 }
-                output.flush();
+                synchronized (output) {
+                    output.flush();
+                }
             }
         } catch (Throwable t) {
             LOG.error("main loop error (did the forking process shut down?)", t);
@@ -355,6 +456,105 @@ public class PipesServer implements Runnable {
         }
     }
 
+    private void submitOne() throws IOException {
+        int requestId = input.readInt();
+        FetchEmitTuple t = readFetchEmitTuple();
+        activeRequests.put(requestId, System.currentTimeMillis());
+        if (fetchExecutor == null) {
+            parserExecutor.execute(() -> parseInThread(requestId, t, null));
+        } else {
+            fetchExecutor.execute(() -> prefetchInThread(requestId, t));
+        }
+    }
+
+    private void prefetchInThread(int requestId, FetchEmitTuple t) {
+        currentRequestId.set(requestId);
+        boolean queued = false;
+        try {
+            long start = System.currentTimeMillis();
+            Fetcher fetcher = getFetcher(t);
+            if (fetcher == null) {
+                //rely on proper logging/exception handling in getFetcher
+                return;
+            }
+            FetchedInput fetchedInput;
+            try {
+                fetchedInput = FetchedInput.fetch(fetcher, t);
+            } catch (TikaException | IOException e) {
+                LOG.warn("fetch exception " + t.getId(), e);
+                write(STATUS.FETCH_EXCEPTION, ExceptionUtils.getStackTrace(e));
+                return;
+            }
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("timer -- requestId {} prefetched: {} ms", requestId,
+                        System.currentTimeMillis() - start);
+            }
+            //waiting for a parser thread doesn't count against the timeout
+            activeRequests.remove(requestId);
+            queued = true;
+            parserExecutor.execute(() -> parseInThread(requestId, t, fetchedInput));
+        } catch (OutOfMemoryError e) {
+            handleOOM(t.getId(), e);
+        } catch (Throwable e) {
+            LOG.error("fetch thread error: " + t.getId(), e);
+            exit(1);
+        } finally {
+            if (!queued) {
+                activeRequests.remove(requestId);
+            }
+            currentRequestId.remove();
+            synchronized (lock) {
+                since = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void parseInThread(int requestId, FetchEmitTuple t, FetchedInput fetchedInput) {
+        currentRequestId.set(requestId);
+        activeRequests.put(requestId, System.currentTimeMillis());
+        try {
+            long start = System.currentTimeMillis();
+            if (fetchedInput == null) {
+                actuallyParse(t);
+            } else {
+                parseFetched(t, fetchedInput);
+            }
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("timer -- requestId {} actually parsed: {} ms", requestId,
+                        System.currentTimeMillis() - start);
+            }
+        } catch (OutOfMemoryError e) {
+            handleOOM(t.getId(), e);
+        } catch (Throwable e) {
+            LOG.error("parser thread error: " + t.getId(), e);
+            exit(1);
+        } finally {
+            activeRequests.remove(requestId);
+            currentRequestId.remove();
+            synchronized (lock) {
+                since = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void parseFetched(FetchEmitTuple t, FetchedInput fetchedInput) {
+        long start = System.currentTimeMillis();
+        MetadataListAndEmbeddedBytes parseData;
+        try (fetchedInput) {
+            parseData = parseWithStream(t, fetchedInput.getStream(),
+                    fetchedInput.getMetadata());
+        } catch (TikaException | IOException e) {
+            //same as in parseFromTuple
+            LOG.warn("fetch exception " + t.getId(), e);
+            write(STATUS.FETCH_EXCEPTION, ExceptionUtils.getStackTrace(e));
+            return;
+        }
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("timer -- to parse: {} ms", System.currentTimeMillis() - start);
+        }
+        handleParseData(t, parseData);
+    }
+
     private void actuallyParse(FetchEmitTuple t) {
 
         long start = System.currentTimeMillis();
@@ -370,16 +570,16 @@ public class PipesServer implements Runnable {
         }
 
         start = System.currentTimeMillis();
-        MetadataListAndEmbeddedBytes parseData = null;
+        //this can be null if there is a fetch exception
+        MetadataListAndEmbeddedBytes parseData = parseFromTuple(t, fetcher);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("timer -- to parse: {} ms", System.currentTimeMillis() - start);
+        }
+        handleParseData(t, parseData);
+    }
 
+    private void handleParseData(FetchEmitTuple t, MetadataListAndEmbeddedBytes parseData) {
         try {
-            //this can be null if there is a fetch exception
-            parseData = parseFromTuple(t, fetcher);
-
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("timer -- to parse: {} ms", System.currentTimeMillis() - start);
-            }
-
             if (parseData == null || metadataIsEmpty(parseData.getMetadataList())) {
                 write(STATUS.EMPTY_OUTPUT);
                 return;
@@ -537,16 +737,30 @@ public class PipesServer implements Runnable {
                                                          InputStream stream, Metadata metadata)
             throws TikaConfigException {
 
-        List<Metadata> metadataList;
+        //this has to be computed before the parse context is set up for the parse
+        String requestFingerprint = getRequestFingerprint(fetchEmitTuple);
         //this adds the EmbeddedDocumentByteStore to the parsecontext
         ParseContext parseContext = setupParseContext(fetchEmitTuple);
         HandlerConfig handlerConfig = parseContext.get(HandlerConfig.class);
+        preParse(fetchEmitTuple, stream, metadata, parseContext);
+        String cacheKey = getExtractCacheKey(requestFingerprint, metadata, parseContext);
+        List<Metadata> metadataList = readExtractCache(fetchEmitTuple, cacheKey, metadata);
+        if (metadataList != null) {
+            return new MetadataListAndEmbeddedBytes(metadataList,
+                    parseContext.get(EmbeddedDocumentBytesHandler.class));
+        }
+        Metadata input = cacheKey == null ? null : copy(metadata);
         if (handlerConfig.getParseMode() == HandlerConfig.PARSE_MODE.RMETA) {
             metadataList =
                     parseRecursive(fetchEmitTuple, handlerConfig, stream, metadata, parseContext);
+            //a file without embedded files is already cached by the CachingParser
+            if (metadataList.size() > 1) {
+                writeExtractCache(fetchEmitTuple, cacheKey, input, metadataList);
+            }
         } else {
             metadataList = parseConcatenated(fetchEmitTuple, handlerConfig, stream, metadata,
                     parseContext);
+            writeExtractCache(fetchEmitTuple, cacheKey, input, metadataList);
         }
 
         return new MetadataListAndEmbeddedBytes(metadataList,
@@ -615,7 +829,6 @@ public class PipesServer implements Runnable {
 
         String containerException = null;
         long start = System.currentTimeMillis();
-        preParse(fetchEmitTuple, stream, metadata, parseContext);
         try {
             autoDetectParser.parse(stream, handler, metadata, parseContext);
         } catch (SAXException e) {
@@ -653,8 +866,6 @@ public class PipesServer implements Runnable {
                         parseContext), handlerConfig.getMaxEmbeddedResources());
 
         long start = System.currentTimeMillis();
-
-        preParse(fetchEmitTuple, stream, metadata, parseContext);
         try {
             rMetaParser.parse(stream, handler, metadata, parseContext);
         } catch (SAXException e) {
@@ -674,6 +885,134 @@ public class PipesServer implements Runnable {
         return handler.getMetadataList();
     }
 
+    /**
+     * @return a digest of the parts of the tuple that affect the parse, or <code>null</code>
+     * if the result of the parse shouldn't be cached
+     */
+    private String getRequestFingerprint(FetchEmitTuple t) {
+        if (extractCache == null) {
+            return null;
+        }
+        EmbeddedDocumentBytesConfig embeddedDocumentBytesConfig =
+                t.getParseContext().get(EmbeddedDocumentBytesConfig.class);
+        if (embeddedDocumentBytesConfig != null &&
+                embeddedDocumentBytesConfig.isExtractEmbeddedDocumentBytes()) {
+            //the embedded bytes have to be extracted by a parse
+            return null;
+        }
+        FetchEmitTuple request = new FetchEmitTuple("", new FetchKey(), EmitKey.NO_EMIT,
+                new Metadata(), t.getParseContext(), t.getOnParseException());
+        try {
+            return ExtractCacheKeys.sha256Hex(pipesCodec.encodeFetchEmitTuple(request));
+        } catch (IOException e) {
+            LOG.warn("couldn't fingerprint request " + t.getId(), e);
+            return null;
+        }
+    }
+
+    private String getExtractCacheKey(String requestFingerprint, Metadata metadata,
+                                      ParseContext parseContext) {
+        if (requestFingerprint == null) {
+            return null;
+        }
+        //only the digests computed in preParse, never the ones in the request's metadata
+        String digestKey = ComputedDigests.getDigestKey(metadata, parseContext);
+        if (digestKey == null) {
+            return null;
+        }
+        String inputKey = ExtractCacheKeys.getInputKey(metadata, parseContext);
+        if (inputKey == null) {
+            return null;
+        }
+        return "pipes:" + pipesCodec.getName() + ":" + extractCacheFingerprint + ":" +
+                requestFingerprint + ":" + digestKey + ":" + inputKey;
+    }
+
+    /**
+     * The cache entry is the metadata that was the input to the parse followed
+     * by the metadata list from the parse.  On a hit, the changes that the parse
+     * made to its input are applied to this input, which may differ in metadata
+     * that isn't part of the key, e.g. the fetch key.
+     */
+    private List<Metadata> readExtractCache(FetchEmitTuple t, String cacheKey,
+                                            Metadata metadata) {
+        if (cacheKey == null) {
+            return null;
+        }
+        List<Metadata> cached;
+        try {
+            byte[] bytes = extractCache.get(cacheKey);
+            if (bytes == null) {
+                return null;
+            }
+            cached = pipesCodec.decodeEmitData(bytes).getMetadataList();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("couldn't read extract cache for " + t.getId(), e);
+            removeExtractCache(cacheKey);
+            return null;
+        }
+        //the input metadata and at least the container's metadata
+        if (cached == null || cached.size() < 2) {
+            LOG.warn("corrupt extract cache entry for {}", t.getId());
+            removeExtractCache(cacheKey);
+            return null;
+        }
+        Metadata input = cached.get(0);
+        Metadata output = cached.get(1);
+        for (String n : output.names()) {
+            if (!Arrays.equals(input.getValues(n), output.getValues(n))) {
+                metadata.remove(n);
+                for (String v : output.getValues(n)) {
+                    metadata.add(n, v);
+                }
+            }
+        }
+        for (String n : input.names()) {
+            if (output.get(n) == null) {
+                metadata.remove(n);
+            }
+        }
+        List<Metadata> metadataList = new ArrayList<>(cached.size() - 1);
+        metadataList.add(metadata);
+        metadataList.addAll(cached.subList(2, cached.size()));
+        LOG.debug("extract cache hit: {}", t.getId());
+        return metadataList;
+    }
+
+    private void removeExtractCache(String cacheKey) {
+        try {
+            extractCache.remove(cacheKey);
+        } catch (IOException e) {
+            LOG.warn("couldn't remove {} from extract cache", cacheKey, e);
+        }
+    }
+
+    private void writeExtractCache(FetchEmitTuple t, String cacheKey, Metadata input,
+                                   List<Metadata> metadataList) {
+        if (cacheKey == null || metadataIsEmpty(metadataList)) {
+            return;
+        }
+        List<Metadata> entry = new ArrayList<>(metadataList.size() + 1);
+        entry.add(input);
+        entry.addAll(metadataList);
+        try {
+            extractCache.put(cacheKey,
+                    pipesCodec.encodeEmitData(new EmitData(EmitKey.NO_EMIT, entry)));
+        } catch (IOException e) {
+            LOG.warn("couldn't write extract cache for " + t.getId(), e);
+        }
+    }
+
+    private static Metadata copy(Metadata metadata) {
+        Metadata copy = new Metadata();
+        metadata.forEach((n, values) -> {
+            for (String v : values) {
+                copy.add(n, v);
+            }
+        });
+        return copy;
+    }
+
     private void preParse(FetchEmitTuple t, InputStream stream, Metadata metadata,
                           ParseContext parseContext) {
         TemporaryResources tmp = null;
@@ -694,7 +1033,8 @@ public class PipesServer implements Runnable {
                            ParseContext parseContext) {
         if (digester != null) {
             try {
-                digester.digest(tis, metadata, parseContext);
+                //this also lets the CachingParser cache the top level document
+                ComputedDigests.digest(digester, tis, metadata, parseContext);
             } catch (IOException e) {
                 LOG.warn("problem digesting: " + t.getId(), e);
             }
@@ -743,16 +1083,10 @@ public class PipesServer implements Runnable {
             int length = input.readInt();
             byte[] bytes = new byte[length];
             input.readFully(bytes);
-            try (ObjectInputStream objectInputStream = new ObjectInputStream(
-                    UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get())) {
-                return (FetchEmitTuple) objectInputStream.readObject();
-            }
+            return pipesCodec.decodeFetchEmitTuple(bytes);
         } catch (IOException e) {
             LOG.error("problem reading tuple", e);
             exit(1);
-        } catch (ClassNotFoundException e) {
-            LOG.error("can't find class?!", e);
-            exit(1);
         }
         //unreachable, no?!
         return null;
@@ -787,6 +1121,10 @@ public class PipesServer implements Runnable {
                                 new RUnpackExtractorFactory());
             }
         }
+        this.extractCache = ((AutoDetectParser) autoDetectParser).getAutoDetectParserConfig()
+                .getExtractCache();
+        this.extractCacheFingerprint = ((AutoDetectParser) autoDetectParser)
+                .getAutoDetectParserConfig().getExtractCacheFingerprint();
         this.detector = ((AutoDetectParser) this.autoDetectParser).getDetector();
         this.rMetaParser = new RecursiveParserWrapper(autoDetectParser);
     }
@@ -794,11 +1132,7 @@ public class PipesServer implements Runnable {
 
     private void writeIntermediate(EmitKey emitKey, Metadata metadata) {
         try {
-            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
-            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
-                objectOutputStream.writeObject(metadata);
-            }
-            write(STATUS.INTERMEDIATE_RESULT, bos.toByteArray());
+            write(STATUS.INTERMEDIATE_RESULT, pipesCodec.encodeMetadata(metadata));
         } catch (IOException e) {
             LOG.error("problem writing intermediate data (forking process shutdown?)", e);
             exit(1);
@@ -807,11 +1141,7 @@ public class PipesServer implements Runnable {
 
     private void write(EmitData emitData) {
         try {
-            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
-            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
-                objectOutputStream.writeObject(emitData);
-            }
-            write(STATUS.PARSE_SUCCESS, bos.toByteArray());
+            write(STATUS.PARSE_SUCCESS, pipesCodec.encodeEmitData(emitData));
         } catch (IOException e) {
             LOG.error("problem writing emit data (forking process shutdown?)", e);
             exit(1);
@@ -826,10 +1156,13 @@ public class PipesServer implements Runnable {
     private void write(STATUS status, byte[] bytes) {
         try {
             int len = bytes.length;
-            output.write(status.getByte());
-            output.writeInt(len);
-            output.write(bytes);
-            output.flush();
+            synchronized (output) {
+                output.write(status.getByte());
+                writeRequestId();
+                output.writeInt(len);
+                output.write(bytes);
+                output.flush();
+            }
         } catch (IOException e) {
             LOG.error("problem writing data (forking process shutdown?)", e);
             exit(1);
@@ -838,14 +1171,25 @@ public class PipesServer implements Runnable {
 
     private void write(STATUS status) {
         try {
-            output.write(status.getByte());
-            output.flush();
+            synchronized (output) {
+                output.write(status.getByte());
+                writeRequestId();
+                output.flush();
+            }
         } catch (IOException e) {
             LOG.error("problem writing data (forking process shutdown?)", e);
             exit(1);
         }
     }
 
+    //only responses to a specific request in the multi-threaded mode carry a request id
+    private void writeRequestId() throws IOException {
+        Integer requestId = currentRequestId.get();
+        if (requestId != null) {
+            output.writeInt(requestId);
+        }
+    }
+
     static class MetadataListAndEmbeddedBytes {
 
         List<Metadata> metadataList;
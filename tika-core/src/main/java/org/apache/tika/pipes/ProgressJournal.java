@@ -0,0 +1,469 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.tika.pipes.fetcher.FetchKey;
+
+/**
+ * Append-only journal of the fetch keys that have been processed and their
+ * final {@link PipesResult.STATUS}.  If an async run dies, it can be restarted
+ * with the same journal, and the keys that were completed are skipped.
+ * <p>
+ * The journal is a binary file with a record per key: the status and the
+ * UTF-8 bytes of the key.  When the journal is closed, a compacted index
+ * of the latest status for each key is written next to it
+ * (<code>journalPath + ".idx"</code>), so that on restart only the records
+ * that were appended after the index was written have to be read.
+ * <p>
+ * In memory, the keys are held as 64-bit hashes in an open addressing table,
+ * i.e. about 12 bytes per key, and lookups take constant time.
+ * The chance of two keys having the same hash is negligible even at tens
+ * of millions of keys; if it happens, the second key is skipped.
+ * <p>
+ * Records are buffered and flushed every {@link #FLUSH_MILLIS} ms by a daemon thread.
+ * If the process dies, the last records may be lost, and those keys are
+ * processed again.  A record that was only partly written is truncated.
+ * <p>
+ * This is thread safe.  Only one process may write to a journal at a time.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class ProgressJournal implements Closeable {
+
+    /**
+     * Statuses that aren't considered completed by default: the
+     * processing of these keys may succeed if it is tried again.
+     */
+    public static final Set<PipesResult.STATUS> DEFAULT_RETRY_STATUSES =
+            Collections.unmodifiableSet(EnumSet.of(
+                    PipesResult.STATUS.CLIENT_UNAVAILABLE_WITHIN_MS,
+                    PipesResult.STATUS.FETCHER_INITIALIZATION_EXCEPTION,
+                    PipesResult.STATUS.NO_FETCHER_FOUND,
+                    PipesResult.STATUS.NO_EMITTER_FOUND,
+                    PipesResult.STATUS.EMIT_EXCEPTION,
+                    PipesResult.STATUS.INTERRUPTED_EXCEPTION));
+
+    static final long FLUSH_MILLIS = 1000;
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProgressJournal.class);
+
+    private static final int JOURNAL_MAGIC = 0x544a4e4c; //TJNL
+    private static final int INDEX_MAGIC = 0x54494458; //TIDX
+    private static final byte VERSION = 1;
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int BUFFER_SIZE = 65536;
+
+    private static final PipesResult.STATUS[] STATUSES = PipesResult.STATUS.values();
+
+    private final Object[] lock = new Object[0];
+    private final Path journalPath;
+    private final Path indexPath;
+    private final Set<PipesResult.STATUS> retryStatuses;
+
+    //open addressing table of key hashes -> status ordinals; 0 marks an empty slot
+    private long[] hashes = new long[1024];
+    private byte[] statuses = new byte[1024];
+    private int size = 0;
+
+    private FileChannel channel;
+    private DataOutputStream out;
+    private ScheduledExecutorService flusher;
+    private boolean closed = false;
+
+    public ProgressJournal(Path journalPath) throws IOException {
+        this(journalPath, DEFAULT_RETRY_STATUSES);
+    }
+
+    /**
+     * Opens the journal, or creates it if it doesn't exist yet.
+     *
+     * @param journalPath   path to the journal
+     * @param retryStatuses keys whose latest status is one of these are not
+     *                      considered completed
+     * @throws IOException if the journal or its index can't be read
+     */
+    public ProgressJournal(Path journalPath, Set<PipesResult.STATUS> retryStatuses)
+            throws IOException {
+        this.journalPath = journalPath;
+        this.indexPath = journalPath.resolveSibling(journalPath.getFileName() + INDEX_SUFFIX);
+        this.retryStatuses = retryStatuses.isEmpty() ?
+                EnumSet.noneOf(PipesResult.STATUS.class) : EnumSet.copyOf(retryStatuses);
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+        long journalLength = Files.exists(journalPath) ? Files.size(journalPath) : 0;
+        long validLength;
+        if (journalLength == 0) {
+            validLength = 0;
+        } else {
+            long offset = readIndex(journalLength);
+            validLength = readJournal(offset, journalLength);
+        }
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        if (validLength < journalLength) {
+            LOG.warn("truncating partly written record at the end of {}", journalPath);
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        if (validLength == 0) {
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeByte(VERSION);
+            writeStatusNames(out);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tika-progress-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_MILLIS, FLUSH_MILLIS,
+                TimeUnit.MILLISECONDS);
+        LOG.info("opened progress journal {} with {} keys", journalPath, size);
+    }
+
+    private void flush() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            try {
+                out.flush();
+            } catch (IOException e) {
+                LOG.warn("couldn't flush progress journal {}", journalPath, e);
+            }
+        }
+    }
+
+    /**
+     * @param fetchKey
+     * @return whether the key has been recorded with a status that
+     * isn't one of the retry statuses
+     */
+    public boolean isCompleted(FetchKey fetchKey) {
+        PipesResult.STATUS status = getStatus(fetchKey);
+        return status != null && !retryStatuses.contains(status);
+    }
+
+    /**
+     * @param fetchKey
+     * @return the latest status recorded for the key or <code>null</code>
+     */
+    public PipesResult.STATUS getStatus(FetchKey fetchKey) {
+        long hash = hash(toBytes(fetchKey));
+        synchronized (lock) {
+            int slot = find(hash);
+            return hashes[slot] == 0 ? null : STATUSES[statuses[slot]];
+        }
+    }
+
+    public void record(FetchKey fetchKey, PipesResult.STATUS status) throws IOException {
+        byte[] key = toBytes(fetchKey);
+        long hash = hash(key);
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("journal has been closed: " + journalPath);
+            }
+            out.writeByte(status.ordinal());
+            out.writeInt(key.length);
+            out.write(key);
+            put(hash, (byte) status.ordinal());
+        }
+    }
+
+    /**
+     * @return number of distinct keys in the journal
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    /**
+     * Flushes and syncs the journal and writes the compacted index.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flusher.shutdownNow();
+            try {
+                out.flush();
+                channel.force(false);
+                writeIndex(channel.position());
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @return the offset in the journal up to which the index covers the records,
+     * or 0 if there's no usable index
+     */
+    private long readIndex(long journalLength) throws IOException {
+        if (!Files.isRegularFile(indexPath)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexPath), BUFFER_SIZE))) {
+            if (in.readInt() != INDEX_MAGIC || in.readByte() != VERSION) {
+                LOG.warn("ignoring index with unexpected header: {}", indexPath);
+                return 0;
+            }
+            byte[] statusMap = readStatusNames(in).statusMap;
+            long offset = in.readLong();
+            if (offset > journalLength) {
+                LOG.warn("ignoring index that is newer than its journal: {}", indexPath);
+                return 0;
+            }
+            long count = in.readLong();
+            for (long i = 0; i < count; i++) {
+                long hash = in.readLong();
+                put(hash, statusMap[in.readUnsignedByte()]);
+            }
+            return offset;
+        } catch (EOFException e) {
+            LOG.warn("ignoring truncated index: {}", indexPath);
+            clear();
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the records from the offset to the end of the journal.
+     *
+     * @return the length of the journal up to the last complete record
+     */
+    private long readJournal(long offset, long journalLength) throws IOException {
+        try (InputStream is = Files.newInputStream(journalPath)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(is, BUFFER_SIZE));
+            StatusNames header;
+            try {
+                header = readJournalHeader(in);
+            } catch (EOFException e) {
+                //the process died before the header was flushed
+                clear();
+                return 0;
+            }
+            //magic, version, status names
+            long position = 5 + header.length;
+            if (offset > position) {
+                in.skipNBytes(offset - position);
+                position = offset;
+            }
+            while (true) {
+                int status = in.read();
+                if (status < 0) {
+                    return position;
+                }
+                byte[] key;
+                try {
+                    int length = in.readInt();
+                    //a garbled record; drop it and everything after it
+                    if (status >= header.statusMap.length || length < 0 ||
+                            length > journalLength - position - 5) {
+                        LOG.warn("corrupt record at offset {} in {}", position, journalPath);
+                        return position;
+                    }
+                    key = new byte[length];
+                    in.readFully(key);
+                } catch (EOFException e) {
+                    return position;
+                }
+                put(hash(key), header.statusMap[status]);
+                position += 5 + key.length;
+            }
+        }
+    }
+
+    private StatusNames readJournalHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != JOURNAL_MAGIC) {
+            throw new IOException("not a progress journal: " + journalPath);
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported journal version " + version + ": " + journalPath);
+        }
+        return readStatusNames(in);
+    }
+
+    private void writeIndex(long offset) throws IOException {
+        Path tmp = Files.createTempFile(indexPath.toAbsolutePath().getParent(),
+                indexPath.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream indexOut = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE))) {
+                indexOut.writeInt(INDEX_MAGIC);
+                indexOut.writeByte(VERSION);
+                writeStatusNames(indexOut);
+                indexOut.writeLong(offset);
+                indexOut.writeLong(size);
+                for (int i = 0; i < hashes.length; i++) {
+                    if (hashes[i] != 0) {
+                        indexOut.writeLong(hashes[i]);
+                        indexOut.writeByte(statuses[i]);
+                    }
+                }
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    //the names are stored so that the ordinals can change between versions
+    private static void writeStatusNames(DataOutputStream out) throws IOException {
+        out.writeByte(STATUSES.length);
+        for (PipesResult.STATUS status : STATUSES) {
+            out.writeUTF(status.name());
+        }
+    }
+
+    private static StatusNames readStatusNames(DataInputStream in) throws IOException {
+        int numStatuses = in.readUnsignedByte();
+        byte[] statusMap = new byte[numStatuses];
+        //the count byte
+        int length = 1;
+        for (int i = 0; i < numStatuses; i++) {
+            String name = in.readUTF();
+            //the names are ascii
+            length += 2 + name.length();
+            try {
+                statusMap[i] = (byte) PipesResult.STATUS.valueOf(name).ordinal();
+            } catch (IllegalArgumentException e) {
+                //a status that no longer exists; try it again
+                statusMap[i] = (byte) PipesResult.STATUS.INTERRUPTED_EXCEPTION.ordinal();
+            }
+        }
+        return new StatusNames(statusMap, length);
+    }
+
+    private void clear() {
+        hashes = new long[1024];
+        statuses = new byte[1024];
+        size = 0;
+    }
+
+    //call this while holding the lock or from the constructor
+    private void put(long hash, byte status) {
+        int slot = find(hash);
+        if (hashes[slot] == 0) {
+            hashes[slot] = hash;
+            size++;
+        }
+        statuses[slot] = status;
+        if (size > hashes.length * 3L / 4) {
+            grow();
+        }
+    }
+
+    private int find(long hash) {
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while (hashes[slot] != 0 && hashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldHashes = hashes;
+        byte[] oldStatuses = statuses;
+        hashes = new long[oldHashes.length * 2];
+        statuses = new byte[oldHashes.length * 2];
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                int slot = find(oldHashes[i]);
+                hashes[slot] = oldHashes[i];
+                statuses[slot] = oldStatuses[i];
+            }
+        }
+    }
+
+    static byte[] toBytes(FetchKey fetchKey) {
+        String key = fetchKey.getFetcherName() + ":" + fetchKey.getFetchKey();
+        if (fetchKey.hasRange()) {
+            key += ":" + fetchKey.getRangeStart() + "-" + fetchKey.getRangeEnd();
+        }
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    //FNV-1a followed by the murmur3 finalizer; never 0
+    static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private static class StatusNames {
+        //status ordinal in the file -> current status ordinal
+        private final byte[] statusMap;
+        //length in bytes in the file
+        private final int length;
+
+        private StatusNames(byte[] statusMap, int length) {
+            this.statusMap = statusMap;
+            this.length = length;
+        }
+    }
+}
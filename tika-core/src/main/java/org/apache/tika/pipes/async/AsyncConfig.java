@@ -20,21 +20,42 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.pipes.PipesConfigBase;
 import org.apache.tika.pipes.PipesReporter;
+import org.apache.tika.pipes.PipesResult;
+import org.apache.tika.pipes.ProgressJournal;
 
-public class AsyncConfig extends PipesConfigBase {
+public class AsyncConfig extends PipesConfigBase implements Cloneable {
 
     private long emitWithinMillis = 10000;
     private long emitMaxEstimatedBytes = 100000;
 
     private int queueSize = 10000;
     private int numEmitters = 1;
+    private int numEmitterThreads = 1;
+    private int maxInFlightEmitBatches = 2;
+    private int emitMaxRetries = 2;
+    private long emitRetryBackoffMillis = 1000;
+
+    private boolean largestFirst = false;
+    private long largeFileThreshold = -1;
+    private int numLargeFileClients = 1;
+    private long largeFileTimeoutMillis = -1;
+    private List<String> largeFileForkedJvmArgs = Collections.emptyList();
 
     private boolean emitIntermediateResults = false;
 
+    private Path progressJournal = null;
+    private Set<PipesResult.STATUS> resumeRetryStatuses = ProgressJournal.DEFAULT_RETRY_STATUSES;
+
     private PipesReporter pipesReporter = PipesReporter.NO_OP_REPORTER;
 
     public static AsyncConfig load(Path p) throws IOException, TikaConfigException {
@@ -53,9 +74,9 @@ public class AsyncConfig extends PipesConfigBase {
     }
 
     /**
-     * If nothing has been emitted in this amount of time
+     * If an emitter's batch has been waiting for this amount of time
      * and the {@link #getEmitMaxEstimatedBytes()} has not been reached yet,
-     * emit what's in the emit queue.
+     * emit the batch.
      *
      * @param emitWithinMillis
      */
@@ -64,7 +85,7 @@ public class AsyncConfig extends PipesConfigBase {
     }
 
     /**
-     * When the emit queue hits this estimated size (sum of
+     * When an emitter's batch hits this estimated size (sum of
      * estimated extract sizes), emit the batch.
      * @return
      */
@@ -102,6 +123,176 @@ public class AsyncConfig extends PipesConfigBase {
         return numEmitters;
     }
 
+    /**
+     * Number of threads per emitter (per {@link #getNumEmitters() emitter thread})
+     * that call {@link org.apache.tika.pipes.emitter.Emitter#emit(java.util.List)}.
+     *
+     * @return
+     */
+    public int getNumEmitterThreads() {
+        return numEmitterThreads;
+    }
+
+    public void setNumEmitterThreads(int numEmitterThreads) {
+        this.numEmitterThreads = numEmitterThreads;
+    }
+
+    /**
+     * Maximum number of batches per emitter that are being emitted or
+     * are waiting to be emitted.  When these are all taken, the emitter's
+     * next batch keeps growing up to
+     * <code>maxInFlightEmitBatches * emitMaxEstimatedBytes</code>, and
+     * then the emitter thread waits.
+     *
+     * @return
+     */
+    public int getMaxInFlightEmitBatches() {
+        return maxInFlightEmitBatches;
+    }
+
+    public void setMaxInFlightEmitBatches(int maxInFlightEmitBatches) {
+        this.maxInFlightEmitBatches = maxInFlightEmitBatches;
+    }
+
+    /**
+     * Number of times to retry a batch that failed to emit.
+     *
+     * @return
+     */
+    public int getEmitMaxRetries() {
+        return emitMaxRetries;
+    }
+
+    public void setEmitMaxRetries(int emitMaxRetries) {
+        this.emitMaxRetries = emitMaxRetries;
+    }
+
+    /**
+     * How long to wait before the first retry of a failed batch.
+     * The wait is doubled for each further retry.
+     *
+     * @return
+     */
+    public long getEmitRetryBackoffMillis() {
+        return emitRetryBackoffMillis;
+    }
+
+    public void setEmitRetryBackoffMillis(long emitRetryBackoffMillis) {
+        this.emitRetryBackoffMillis = emitRetryBackoffMillis;
+    }
+
+    /**
+     * If <code>true</code>, the fetch emit tuples with the largest known
+     * sizes are handed to the clients first, so that the largest files
+     * don't become the long tail of a run.  A tuple's size is the length of
+     * its fetch range or else the {@link org.apache.tika.metadata.Metadata#CONTENT_LENGTH}
+     * in its metadata.  Default is <code>false</code>: first in, first out.
+     *
+     * @return
+     */
+    public boolean isLargestFirst() {
+        return largestFirst;
+    }
+
+    public void setLargestFirst(boolean largestFirst) {
+        this.largestFirst = largestFirst;
+    }
+
+    /**
+     * Fetch emit tuples with a known size at or above this number of bytes
+     * go to a separate lane of {@link #getNumLargeFileClients()} clients,
+     * which can have their own timeout and jvm args.
+     * Default is <code>-1</code>: there is a single lane.
+     *
+     * @return
+     */
+    public long getLargeFileThreshold() {
+        return largeFileThreshold;
+    }
+
+    public void setLargeFileThreshold(long largeFileThreshold) {
+        if (largeFileThreshold < -1) {
+            throw new IllegalArgumentException("largeFileThreshold must be >= 0, or -1 for " +
+                    "a single lane");
+        }
+        this.largeFileThreshold = largeFileThreshold;
+    }
+
+    /**
+     * Number of clients for the large file lane.  These are in addition to
+     * {@link #getNumClients()}.  When there are no large files waiting,
+     * these clients process small files.
+     *
+     * @return
+     */
+    public int getNumLargeFileClients() {
+        return numLargeFileClients;
+    }
+
+    public void setNumLargeFileClients(int numLargeFileClients) {
+        if (numLargeFileClients < 1) {
+            throw new IllegalArgumentException("numLargeFileClients must be > 0");
+        }
+        this.numLargeFileClients = numLargeFileClients;
+    }
+
+    /**
+     * Timeout for the large file clients.  If this is less than 0,
+     * {@link #getTimeoutMillis()} is used.
+     *
+     * @return
+     */
+    public long getLargeFileTimeoutMillis() {
+        return largeFileTimeoutMillis;
+    }
+
+    public void setLargeFileTimeoutMillis(long largeFileTimeoutMillis) {
+        if (largeFileTimeoutMillis == 0) {
+            throw new IllegalArgumentException("largeFileTimeoutMillis must be > 0, or < 0 " +
+                    "to use timeoutMillis");
+        }
+        this.largeFileTimeoutMillis = largeFileTimeoutMillis;
+    }
+
+    /**
+     * Jvm args for the large file clients, e.g. a larger -Xmx.  If this is
+     * empty, {@link #getForkedJvmArgs()} is used.
+     *
+     * @return
+     */
+    public List<String> getLargeFileForkedJvmArgs() {
+        //defensive copy
+        return new ArrayList<>(largeFileForkedJvmArgs);
+    }
+
+    public void setLargeFileForkedJvmArgs(List<String> largeFileForkedJvmArgs) {
+        if (largeFileForkedJvmArgs == null) {
+            throw new IllegalArgumentException("largeFileForkedJvmArgs must not be null");
+        }
+        this.largeFileForkedJvmArgs = Collections.unmodifiableList(
+                new ArrayList<>(largeFileForkedJvmArgs));
+    }
+
+    /**
+     * @return the config for the clients in the large file lane
+     */
+    AsyncConfig getLargeFileConfig() {
+        AsyncConfig largeFileConfig;
+        try {
+            //shallow copy, so that the pipes reporter etc. are shared
+            largeFileConfig = (AsyncConfig) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        if (largeFileTimeoutMillis > -1) {
+            largeFileConfig.setTimeoutMillis(largeFileTimeoutMillis);
+        }
+        if (!largeFileForkedJvmArgs.isEmpty()) {
+            largeFileConfig.setForkedJvmArgs(largeFileForkedJvmArgs);
+        }
+        return largeFileConfig;
+    }
+
     public PipesReporter getPipesReporter() {
         return pipesReporter;
     }
@@ -117,4 +308,52 @@ public class AsyncConfig extends PipesConfigBase {
     public boolean isEmitIntermediateResults() {
         return emitIntermediateResults;
     }
+
+    /**
+     * Path to the {@link ProgressJournal} for this run.  If this is set, the
+     * final status of each fetch key is recorded, and if the run is started again
+     * with the same journal, the keys that were completed are skipped.
+     * Default is <code>null</code>: no journal.
+     *
+     * @return
+     */
+    public Path getProgressJournal() {
+        return progressJournal;
+    }
+
+    public void setProgressJournal(Path progressJournal) {
+        this.progressJournal = progressJournal;
+    }
+
+    public void setProgressJournal(String progressJournal) {
+        setProgressJournal(Paths.get(progressJournal));
+    }
+
+    /**
+     * Fetch keys whose status in the {@link #getProgressJournal() progress journal}
+     * is one of these are processed again when the run is restarted.
+     * Default is {@link ProgressJournal#DEFAULT_RETRY_STATUSES}.
+     *
+     * @return
+     */
+    public Set<PipesResult.STATUS> getResumeRetryStatuses() {
+        return resumeRetryStatuses;
+    }
+
+    public void setResumeRetryStatuses(Set<PipesResult.STATUS> resumeRetryStatuses) {
+        this.resumeRetryStatuses = Collections.unmodifiableSet(resumeRetryStatuses);
+    }
+
+    public void setResumeRetryStatuses(List<String> resumeRetryStatuses)
+            throws TikaConfigException {
+        Set<PipesResult.STATUS> statuses = EnumSet.noneOf(PipesResult.STATUS.class);
+        for (String s : resumeRetryStatuses) {
+            try {
+                statuses.add(PipesResult.STATUS.valueOf(s));
+            } catch (IllegalArgumentException e) {
+                throw new TikaConfigException("I regret I don't recognize this status: " + s, e);
+            }
+        }
+        setResumeRetryStatuses(statuses);
+    }
 }
@@ -17,19 +17,26 @@
 package org.apache.tika.pipes.async;
 
 import java.io.IOException;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.tika.metrics.TikaMetrics;
+import org.apache.tika.pipes.MetricsPipesReporter;
+import org.apache.tika.pipes.PipesResult;
 import org.apache.tika.pipes.emitter.EmitData;
 import org.apache.tika.pipes.emitter.Emitter;
 import org.apache.tika.pipes.emitter.EmitterManager;
@@ -37,8 +44,30 @@ import org.apache.tika.pipes.emitter.TikaEmitterException;
 import org.apache.tika.utils.ExceptionUtils;
 
 /**
- * Worker thread that takes EmitData off the queue, batches it
- * and tries to emit it as a batch
+ * Worker thread that takes EmitData off the queue, batches it per emitter
+ * and hands the batches to that emitter's own worker threads.
+ * <p>
+ * Each emitter has its own batch, its own size and time limits and its own
+ * workers.  A slow emitter therefore doesn't hold up the emits to the
+ * other emitters.  The number of batches per emitter that are being
+ * emitted or waiting to be emitted is bounded by
+ * {@link AsyncConfig#getMaxInFlightEmitBatches()}.  While all of those
+ * are taken, the emitter's current batch keeps growing.  When it reaches
+ * <code>maxInFlightEmitBatches * emitMaxEstimatedBytes</code>, this
+ * thread waits for that emitter.
+ * <p>
+ * A batch that fails is retried up to {@link AsyncConfig#getEmitMaxRetries()}
+ * times with an exponential backoff.  When a batch has been emitted or
+ * has run out of retries, the optional listener is called with
+ * {@link PipesResult.STATUS#EMIT_SUCCESS} or {@link PipesResult.STATUS#EMIT_EXCEPTION}.
+ * If an emitter throws a runtime exception, a worker is interrupted or the
+ * listener throws, the batch counts as {@link PipesResult.STATUS#EMIT_EXCEPTION}
+ * and {@link #call()} fails.  The listener is called exactly once per batch;
+ * batches that are dropped because {@link #call()} stops early are reported
+ * as {@link PipesResult.STATUS#EMIT_EXCEPTION}.
+ * <p>
+ * If the pipes reporter is a {@link MetricsPipesReporter}, the time of each
+ * call to an emitter is recorded as {@link TikaMetrics.Stage#EMIT}.
  */
 public class AsyncEmitter implements Callable<Integer> {
 
@@ -47,97 +76,299 @@ public class AsyncEmitter implements Callable<Integer> {
 
     private static final Logger LOG = LoggerFactory.getLogger(AsyncEmitter.class);
 
+    private static final long MAX_POLL_MILLIS = 500;
+
     private final AsyncConfig asyncConfig;
     private final EmitterManager emitterManager;
     private final ArrayBlockingQueue<EmitData> emitDataQueue;
+    private final BiConsumer<List<EmitData>, PipesResult.STATUS> emitListener;
+    //null unless the pipes reporter collects metrics
+    private final TikaMetrics metrics;
 
-    Instant lastEmitted = Instant.now();
+    private final Map<String, EmitterLane> lanes = new HashMap<>();
+    //the first unexpected failure of a worker
+    private final AtomicReference<TikaEmitterException> failure = new AtomicReference<>();
 
     public AsyncEmitter(AsyncConfig asyncConfig, ArrayBlockingQueue<EmitData> emitData,
                         EmitterManager emitterManager) {
+        this(asyncConfig, emitData, emitterManager, null);
+    }
+
+    public AsyncEmitter(AsyncConfig asyncConfig, ArrayBlockingQueue<EmitData> emitData,
+                        EmitterManager emitterManager,
+                        BiConsumer<List<EmitData>, PipesResult.STATUS> emitListener) {
         this.asyncConfig = asyncConfig;
         this.emitDataQueue = emitData;
         this.emitterManager = emitterManager;
+        this.emitListener = emitListener;
+        this.metrics = MetricsPipesReporter.findMetrics(asyncConfig.getPipesReporter());
     }
 
     @Override
     public Integer call() throws Exception {
-        EmitDataCache cache = new EmitDataCache(asyncConfig.getEmitMaxEstimatedBytes());
-
-        while (true) {
-            EmitData emitData = emitDataQueue.poll(500, TimeUnit.MILLISECONDS);
-            if (emitData == EMIT_DATA_STOP_SEMAPHORE) {
-                cache.emitAll();
-                return EMITTER_FUTURE_CODE;
-            }
-            if (emitData != null) {
-                //this can block on emitAll
-                cache.add(emitData);
-            } else {
-                LOG.trace("Nothing on the async queue");
+        try {
+            while (true) {
+                checkFailure();
+                EmitData emitData =
+                        emitDataQueue.poll(getPollMillis(), TimeUnit.MILLISECONDS);
+                if (emitData == EMIT_DATA_STOP_SEMAPHORE) {
+                    for (EmitterLane lane : lanes.values()) {
+                        lane.flush(true);
+                    }
+                    for (EmitterLane lane : lanes.values()) {
+                        lane.finish();
+                    }
+                    checkFailure();
+                    return EMITTER_FUTURE_CODE;
+                }
+                if (emitData != null) {
+                    getLane(emitData.getEmitKey().getEmitterName()).add(emitData);
+                } else {
+                    LOG.trace("Nothing on the async queue");
+                }
+                long now = System.currentTimeMillis();
+                for (EmitterLane lane : lanes.values()) {
+                    if (lane.isExpired(now)) {
+                        LOG.debug("emitter ({}): batch older than {} ms, going to emit",
+                                lane.emitterName, asyncConfig.getEmitWithinMillis());
+                        lane.flush(false);
+                    }
+                }
             }
-            LOG.debug("cache size: ({}) bytes and extract count: {}", cache.estimatedSize,
-                    cache.size);
-            long elapsed = ChronoUnit.MILLIS.between(lastEmitted, Instant.now());
-            if (elapsed > asyncConfig.getEmitWithinMillis()) {
-                LOG.debug("{} elapsed > {}, going to emitAll", elapsed, asyncConfig.getEmitWithinMillis());
-                //this can block
-                cache.emitAll();
+        } finally {
+            for (EmitterLane lane : lanes.values()) {
+                lane.abandon();
             }
         }
     }
 
-    private class EmitDataCache {
-        private final long maxBytes;
+    private void checkFailure() throws TikaEmitterException {
+        TikaEmitterException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
 
-        long estimatedSize = 0;
-        int size = 0;
-        Map<String, List<EmitData>> map = new HashMap<>();
+    private EmitterLane getLane(String emitterName) {
+        EmitterLane lane = lanes.get(emitterName);
+        if (lane == null) {
+            lane = new EmitterLane(emitterName, emitterManager.getEmitter(emitterName));
+            lanes.put(emitterName, lane);
+        }
+        return lane;
+    }
 
-        public EmitDataCache(long maxBytes) {
-            this.maxBytes = maxBytes;
+    /**
+     * @return how long to wait for new data before the oldest batch has to be emitted
+     */
+    private long getPollMillis() {
+        long wait = MAX_POLL_MILLIS;
+        long now = System.currentTimeMillis();
+        for (EmitterLane lane : lanes.values()) {
+            //if all in-flight batches are taken, don't spin on an overdue batch
+            if (lane.batch.size() > 0 && lane.inFlight.availablePermits() > 0) {
+                long due = lane.firstAdded + asyncConfig.getEmitWithinMillis() - now;
+                wait = Math.min(wait, Math.max(0, due));
+            }
         }
+        return wait;
+    }
 
-        void updateEstimatedSize(long newBytes) {
-            estimatedSize += newBytes;
+    /**
+     * The current batch, workers and in-flight limit for a single emitter.
+     * The batch is only touched by the {@link AsyncEmitter} thread.
+     */
+    private class EmitterLane {
+
+        private final String emitterName;
+        private final Emitter emitter;
+        private final ExecutorService executorService;
+        private final Semaphore inFlight;
+
+        private List<EmitData> batch = new ArrayList<>();
+        private long estimatedSize = 0;
+        private long firstAdded = 0;
+
+        EmitterLane(String emitterName, Emitter emitter) {
+            this.emitterName = emitterName;
+            this.emitter = emitter;
+            this.executorService =
+                    Executors.newFixedThreadPool(asyncConfig.getNumEmitterThreads());
+            this.inFlight = new Semaphore(asyncConfig.getMaxInFlightEmitBatches());
         }
 
-        void add(EmitData data) {
-            size++;
+        void add(EmitData data) throws InterruptedException {
             long sz = data.getEstimatedSizeBytes();
-            if (estimatedSize + sz > maxBytes) {
-                LOG.debug("estimated size ({}) > maxBytes({}), going to emitAll",
-                        (estimatedSize + sz), maxBytes);
-                emitAll();
+            if (batch.size() > 0 && estimatedSize + sz > asyncConfig.getEmitMaxEstimatedBytes()) {
+                LOG.debug("emitter ({}): estimated size ({}) > maxBytes({}), going to emit",
+                        emitterName, (estimatedSize + sz), asyncConfig.getEmitMaxEstimatedBytes());
+                //if the emitter is busy, keep on batching up to its backlog limit
+                flush(estimatedSize >= getMaxBacklogBytes());
             }
-            List<EmitData> cached = map.computeIfAbsent(data.getEmitKey().getEmitterName(), k -> new ArrayList<>());
-            updateEstimatedSize(sz);
-            cached.add(data);
+            if (batch.isEmpty()) {
+                firstAdded = System.currentTimeMillis();
+            }
+            batch.add(data);
+            estimatedSize += sz;
         }
 
-        private void emitAll() {
-            int emitted = 0;
-            LOG.debug("about to emit {} files, {} estimated bytes", size, estimatedSize);
-            for (Map.Entry<String, List<EmitData>> e : map.entrySet()) {
-                Emitter emitter = emitterManager.getEmitter(e.getKey());
-                tryToEmit(emitter, e.getValue());
-                emitted += e.getValue().size();
-            }
+        boolean isExpired(long now) {
+            return batch.size() > 0 && now - firstAdded >= asyncConfig.getEmitWithinMillis();
+        }
 
-            LOG.debug("emitted: {} files", emitted);
+        private long getMaxBacklogBytes() {
+            return asyncConfig.getMaxInFlightEmitBatches() *
+                    asyncConfig.getEmitMaxEstimatedBytes();
+        }
+
+        /**
+         * @param block whether to wait for an in-flight slot if they are all taken;
+         *              if <code>false</code> and they are all taken, the batch is kept
+         */
+        void flush(boolean block) throws InterruptedException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (block) {
+                inFlight.acquire();
+            } else if (!inFlight.tryAcquire()) {
+                LOG.debug("emitter ({}): all in-flight batches are taken", emitterName);
+                return;
+            }
+            List<EmitData> toEmit = batch;
+            LOG.debug("emitter ({}): about to emit {} files, {} estimated bytes", emitterName,
+                    toEmit.size(), estimatedSize);
+            batch = new ArrayList<>();
             estimatedSize = 0;
-            size = 0;
-            map.clear();
-            lastEmitted = Instant.now();
+            try {
+                executorService.execute(new EmitTask(toEmit));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                throw e;
+            }
         }
 
-        private void tryToEmit(Emitter emitter, List<EmitData> cachedEmitData) {
+        /**
+         * Stops the workers and reports the batches that won't be emitted,
+         * i.e. the current batch and the batches that are waiting for a worker,
+         * as {@link PipesResult.STATUS#EMIT_EXCEPTION}.
+         */
+        void abandon() {
+            for (Runnable task : executorService.shutdownNow()) {
+                notifyListener(((EmitTask) task).toEmit, PipesResult.STATUS.EMIT_EXCEPTION);
+            }
+            if (!batch.isEmpty()) {
+                LOG.warn("emitter ({}): dropping {} files that weren't emitted", emitterName,
+                        batch.size());
+                notifyListener(batch, PipesResult.STATUS.EMIT_EXCEPTION);
+                batch = new ArrayList<>();
+                estimatedSize = 0;
+            }
+        }
+
+        /**
+         * Waits for the in-flight batches to be emitted.
+         */
+        void finish() throws InterruptedException {
+            executorService.shutdown();
+            while (!executorService.awaitTermination(MAX_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOG.debug("emitter ({}): waiting for in-flight batches", emitterName);
+            }
+        }
 
+        /**
+         * @return {@link PipesResult.STATUS#EMIT_SUCCESS} or
+         * {@link PipesResult.STATUS#EMIT_EXCEPTION}; the listener isn't called here
+         */
+        private PipesResult.STATUS tryToEmit(List<EmitData> toEmit) {
+            long backoff = asyncConfig.getEmitRetryBackoffMillis();
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    emit(toEmit);
+                    LOG.debug("emitter ({}): emitted {} files", emitterName, toEmit.size());
+                    return PipesResult.STATUS.EMIT_SUCCESS;
+                } catch (RuntimeException e) {
+                    //this is a bug in the emitter, don't retry
+                    fail(toEmit, e);
+                    return PipesResult.STATUS.EMIT_EXCEPTION;
+                } catch (IOException | TikaEmitterException e) {
+                    if (attempt >= asyncConfig.getEmitMaxRetries()) {
+                        LOG.warn("emitter class ({}): failed to emit {} files after {} attempts: {}",
+                                emitter.getClass(), toEmit.size(), attempt + 1,
+                                ExceptionUtils.getStackTrace(e));
+                        return PipesResult.STATUS.EMIT_EXCEPTION;
+                    }
+                    LOG.debug("emitter ({}): failed to emit, retrying in {} ms", emitterName,
+                            backoff, e);
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(toEmit, e);
+                    return PipesResult.STATUS.EMIT_EXCEPTION;
+                }
+                backoff *= 2;
+            }
+        }
+
+        private void emit(List<EmitData> toEmit) throws IOException, TikaEmitterException {
+            long start = System.nanoTime();
             try {
-                emitter.emit(cachedEmitData);
-            } catch (IOException | TikaEmitterException e) {
-                LOG.warn("emitter class ({}): {}", emitter.getClass(),
-                        ExceptionUtils.getStackTrace(e));
+                emitter.emit(toEmit);
+            } finally {
+                if (metrics != null) {
+                    metrics.record(TikaMetrics.Stage.EMIT, System.nanoTime() - start);
+                }
+            }
+        }
+
+        /**
+         * Records an unexpected problem with a batch so that {@link #call()} fails.
+         */
+        private void fail(List<EmitData> toEmit, Throwable t) {
+            LOG.error("emitter ({}): unexpected failure emitting {} files", emitterName,
+                    toEmit.size(), t);
+            failure.compareAndSet(null, new TikaEmitterException(
+                    "emitter (" + emitterName + ") failed to emit " + toEmit.size() + " files",
+                    t));
+        }
+
+        private void notifyListener(List<EmitData> emitted, PipesResult.STATUS status) {
+            if (emitListener == null) {
+                return;
+            }
+            try {
+                emitListener.accept(emitted, status);
+            } catch (RuntimeException e) {
+                //the batch has been reported; don't report it again
+                fail(emitted, e);
+            }
+        }
+
+        /**
+         * Emits a batch and calls the listener exactly once for it.
+         */
+        private class EmitTask implements Runnable {
+
+            private final List<EmitData> toEmit;
+
+            EmitTask(List<EmitData> toEmit) {
+                this.toEmit = toEmit;
+            }
+
+            @Override
+            public void run() {
+                PipesResult.STATUS status = PipesResult.STATUS.EMIT_EXCEPTION;
+                try {
+                    status = tryToEmit(toEmit);
+                } catch (Throwable t) {
+                    fail(toEmit, t);
+                    throw t;
+                } finally {
+                    inFlight.release();
+                    notifyListener(toEmit, status);
+                }
             }
         }
     }
@@ -20,14 +20,17 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -39,6 +42,7 @@ import org.apache.tika.pipes.PipesClient;
 import org.apache.tika.pipes.PipesException;
 import org.apache.tika.pipes.PipesReporter;
 import org.apache.tika.pipes.PipesResult;
+import org.apache.tika.pipes.ProgressJournal;
 import org.apache.tika.pipes.emitter.EmitData;
 import org.apache.tika.pipes.emitter.EmitterManager;
 import org.apache.tika.pipes.pipesiterator.PipesIterator;
@@ -57,16 +61,22 @@ public class AsyncProcessor implements Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(AsyncProcessor.class);
 
-    private final ArrayBlockingQueue<FetchEmitTuple> fetchEmitTuples;
+    private final FetchEmitTupleQueue fetchEmitTuples;
     private final ArrayBlockingQueue<EmitData> emitData;
     private final ExecutorCompletionService<Integer> executorCompletionService;
     private final ExecutorService executorService;
     private final AsyncConfig asyncConfig;
+    //numClients * (numParserThreads + numPrefetchTuples)
+    private final int numFetchEmitWorkers;
     private final AtomicLong totalProcessed = new AtomicLong(0);
+    private final ProgressJournal progressJournal;
+    //results that are waiting to be emitted by the AsyncEmitters before they are journaled
+    private final Map<EmitData, PendingEmit> pendingEmits = new ConcurrentHashMap<>();
     private static long MAX_OFFER_WAIT_MS = 120000;
     private volatile int numParserThreadsFinished = 0;
     private volatile int numEmitterThreadsFinished = 0;
     private boolean addedEmitterSemaphores = false;
+    private volatile Exception failure = null;
     boolean isShuttingDown = false;
 
     public AsyncProcessor(Path tikaConfigPath) throws TikaException, IOException {
@@ -75,28 +85,43 @@ public class AsyncProcessor implements Closeable {
 
     public AsyncProcessor(Path tikaConfigPath, PipesIterator pipesIterator) throws TikaException, IOException {
         this.asyncConfig = AsyncConfig.load(tikaConfigPath);
-        this.fetchEmitTuples = new ArrayBlockingQueue<>(asyncConfig.getQueueSize());
+        this.fetchEmitTuples = new FetchEmitTupleQueue(asyncConfig.getQueueSize(),
+                asyncConfig.getLargeFileThreshold(), asyncConfig.isLargestFirst());
         this.emitData = new ArrayBlockingQueue<>(100);
+        int numClients = asyncConfig.getNumClients();
+        if (asyncConfig.getLargeFileThreshold() > -1) {
+            numClients += asyncConfig.getNumLargeFileClients();
+        }
+        this.numFetchEmitWorkers = numClients * asyncConfig.getNumInFlightTuples();
         //+1 is the watcher thread
         this.executorService = Executors.newFixedThreadPool(
-                asyncConfig.getNumClients() + asyncConfig.getNumEmitters() + 1);
+                numFetchEmitWorkers + asyncConfig.getNumEmitters() + 1);
         this.executorCompletionService =
                 new ExecutorCompletionService<>(executorService);
+        this.progressJournal = asyncConfig.getProgressJournal() == null ? null :
+                new ProgressJournal(asyncConfig.getProgressJournal(),
+                        asyncConfig.getResumeRetryStatuses());
         try {
+            if (pipesIterator != null && progressJournal != null) {
+                pipesIterator.setProgressJournal(progressJournal);
+            }
             if (!tikaConfigPath.toAbsolutePath().equals(asyncConfig.getTikaConfig().toAbsolutePath())) {
                 LOG.warn("TikaConfig for AsyncProcessor ({}) is different " +
                                 "from TikaConfig for workers ({}). If this is intended," +
                                 " please ignore this warning.", tikaConfigPath.toAbsolutePath(),
                         asyncConfig.getTikaConfig().toAbsolutePath());
             }
+            //rather than polling, the watcher waits for the workers to finish
             this.executorCompletionService.submit(() -> {
                 while (true) {
                     try {
-                        Thread.sleep(500);
-                        checkActive();
+                        handleFinished(executorCompletionService.take());
                     } catch (InterruptedException e) {
                         return WATCHER_FUTURE_CODE;
                     }
+                    if (!checkActive()) {
+                        return WATCHER_FUTURE_CODE;
+                    }
                 }
             });
             //this is run in a daemon thread
@@ -105,24 +130,44 @@ public class AsyncProcessor implements Closeable {
                 startCounter((TotalCounter) pipesIterator);
             }
 
-            for (int i = 0; i < asyncConfig.getNumClients(); i++) {
-                executorCompletionService.submit(
-                        new FetchEmitWorker(asyncConfig, fetchEmitTuples, emitData));
+            startClients(asyncConfig, asyncConfig.getNumClients(),
+                    FetchEmitTupleQueue.SMALL_FILE_LANE);
+            if (asyncConfig.getLargeFileThreshold() > -1) {
+                startClients(asyncConfig.getLargeFileConfig(),
+                        asyncConfig.getNumLargeFileClients(), FetchEmitTupleQueue.LARGE_FILE_LANE);
             }
 
             EmitterManager emitterManager = EmitterManager.load(asyncConfig.getTikaConfig());
             for (int i = 0; i < asyncConfig.getNumEmitters(); i++) {
                 executorCompletionService.submit(
-                        new AsyncEmitter(asyncConfig, emitData, emitterManager));
+                        new AsyncEmitter(asyncConfig, emitData, emitterManager,
+                                progressJournal == null ? null : this::emitted));
             }
         } catch (Exception e) {
             LOG.error("problem initializing AsyncProcessor", e);
             executorService.shutdownNow();
             asyncConfig.getPipesReporter().error(e);
+            if (progressJournal != null) {
+                progressJournal.close();
+            }
             throw e;
         }
     }
 
+    private void startClients(AsyncConfig clientConfig, int numClients, int lane) {
+        for (int i = 0; i < numClients; i++) {
+            //if there are multiple parser threads or prefetching per forked process,
+            //the workers share the PipesClient and the last one to finish closes it
+            PipesClient pipesClient = new PipesClient(clientConfig);
+            AtomicInteger activeWorkers = new AtomicInteger(clientConfig.getNumInFlightTuples());
+            for (int j = 0; j < clientConfig.getNumInFlightTuples(); j++) {
+                executorCompletionService.submit(
+                        new FetchEmitWorker(asyncConfig, pipesClient, activeWorkers,
+                                fetchEmitTuples, lane, emitData));
+            }
+        }
+    }
+
     private void startCounter(TotalCounter totalCounter) {
         Thread counterThread = new Thread(() -> {
             totalCounter.startTotalCount();
@@ -155,23 +200,7 @@ public class AsyncProcessor implements Closeable {
             throw new OfferLargerThanQueueSize(newFetchEmitTuples.size(),
                     asyncConfig.getQueueSize());
         }
-        long start = System.currentTimeMillis();
-        long elapsed = System.currentTimeMillis() - start;
-        while (elapsed < offerMs) {
-            if (fetchEmitTuples.remainingCapacity() > newFetchEmitTuples.size()) {
-                try {
-                    fetchEmitTuples.addAll(newFetchEmitTuples);
-                    return true;
-                } catch (IllegalStateException e) {
-                    //this means that the add all failed because the queue couldn't
-                    //take the full list
-                    LOG.debug("couldn't add full list", e);
-                }
-            }
-            Thread.sleep(100);
-            elapsed = System.currentTimeMillis() - start;
-        }
-        return false;
+        return fetchEmitTuples.offer(newFetchEmitTuples, offerMs, TimeUnit.MILLISECONDS);
     }
 
     public int getCapacity() {
@@ -191,7 +220,7 @@ public class AsyncProcessor implements Closeable {
     }
 
     public void finished() throws InterruptedException {
-        for (int i = 0; i < asyncConfig.getNumClients(); i++) {
+        for (int i = 0; i < numFetchEmitWorkers; i++) {
             boolean offered = fetchEmitTuples.offer(PipesIterator.COMPLETED_SEMAPHORE,
                     MAX_OFFER_WAIT_MS, TimeUnit.MILLISECONDS);
             if (! offered) {
@@ -202,56 +231,94 @@ public class AsyncProcessor implements Closeable {
     }
 
     public synchronized boolean checkActive() throws InterruptedException {
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+        return !(numParserThreadsFinished == numFetchEmitWorkers &&
+                numEmitterThreadsFinished == asyncConfig.getNumEmitters());
+    }
 
-        Future<Integer> future = executorCompletionService.poll();
-        if (future != null) {
-            try {
-                Integer i = future.get();
-                switch (i) {
-                    case PARSER_FUTURE_CODE :
-                        numParserThreadsFinished++;
-                        LOG.debug("fetchEmitWorker finished, total {}", numParserThreadsFinished);
-                        break;
-                    case AsyncEmitter.EMITTER_FUTURE_CODE :
-                        numEmitterThreadsFinished++;
-                        LOG.debug("emitter thread finished, total {}", numEmitterThreadsFinished);
-                        break;
-                    case WATCHER_FUTURE_CODE :
-                        LOG.debug("watcher thread finished");
-                        break;
-                    default :
-                        throw new IllegalArgumentException("Don't recognize this future code: " + i);
-                }
-            } catch (ExecutionException e) {
-                LOG.error("execution exception", e);
-                asyncConfig.getPipesReporter().error(e);
-                throw new RuntimeException(e);
+    /**
+     * Called by the watcher thread as each worker finishes.
+     */
+    private synchronized void handleFinished(Future<Integer> future) throws InterruptedException {
+        try {
+            Integer i = future.get();
+            switch (i) {
+                case PARSER_FUTURE_CODE :
+                    numParserThreadsFinished++;
+                    LOG.debug("fetchEmitWorker finished, total {}", numParserThreadsFinished);
+                    break;
+                case AsyncEmitter.EMITTER_FUTURE_CODE :
+                    numEmitterThreadsFinished++;
+                    LOG.debug("emitter thread finished, total {}", numEmitterThreadsFinished);
+                    break;
+                default :
+                    throw new IllegalArgumentException("Don't recognize this future code: " + i);
             }
+        } catch (ExecutionException | IllegalArgumentException e) {
+            LOG.error("execution exception", e);
+            asyncConfig.getPipesReporter().error(e);
+            failure = e;
+            return;
         }
-        if (numParserThreadsFinished == asyncConfig.getNumClients() && ! addedEmitterSemaphores) {
+        if (numParserThreadsFinished == numFetchEmitWorkers && ! addedEmitterSemaphores) {
             for (int i = 0; i < asyncConfig.getNumEmitters(); i++) {
-                try {
-                    boolean offered = emitData.offer(AsyncEmitter.EMIT_DATA_STOP_SEMAPHORE,
-                            MAX_OFFER_WAIT_MS,
-                            TimeUnit.MILLISECONDS);
-                    if (! offered) {
-                        throw new RuntimeException("Couldn't offer emit data stop semaphore " +
-                                "within " + MAX_OFFER_WAIT_MS + " ms");
-                    }
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+                boolean offered = emitData.offer(AsyncEmitter.EMIT_DATA_STOP_SEMAPHORE,
+                        MAX_OFFER_WAIT_MS,
+                        TimeUnit.MILLISECONDS);
+                if (! offered) {
+                    failure = new RuntimeException("Couldn't offer emit data stop semaphore " +
+                            "within " + MAX_OFFER_WAIT_MS + " ms");
+                    return;
                 }
             }
             addedEmitterSemaphores = true;
         }
-        return !(numParserThreadsFinished == asyncConfig.getNumClients() &&
-                numEmitterThreadsFinished == asyncConfig.getNumEmitters());
+    }
+
+    /**
+     * Called by the AsyncEmitters after they have tried to emit a batch.
+     */
+    private void emitted(List<EmitData> emitted, PipesResult.STATUS status) {
+        for (EmitData data : emitted) {
+            PendingEmit pendingEmit = pendingEmits.remove(data);
+            if (pendingEmit == null) {
+                continue;
+            }
+            if (status == PipesResult.STATUS.EMIT_SUCCESS) {
+                journal(pendingEmit.t,
+                        pendingEmit.parseStatus == PipesResult.STATUS.PARSE_SUCCESS ?
+                                PipesResult.STATUS.EMIT_SUCCESS :
+                                PipesResult.STATUS.EMIT_SUCCESS_PARSE_EXCEPTION);
+            } else {
+                journal(pendingEmit.t, status);
+            }
+        }
+    }
+
+    private void journal(FetchEmitTuple t, PipesResult.STATUS status) {
+        if (progressJournal == null) {
+            return;
+        }
+        try {
+            progressJournal.record(t.getFetchKey(), status);
+        } catch (IOException e) {
+            LOG.error("couldn't write to progress journal", e);
+            failure = e;
+        }
     }
 
     @Override
     public void close() throws IOException {
         executorService.shutdownNow();
-        asyncConfig.getPipesReporter().close();
+        try {
+            asyncConfig.getPipesReporter().close();
+        } finally {
+            if (progressJournal != null) {
+                progressJournal.close();
+            }
+        }
     }
 
     public long getTotalProcessed() {
@@ -261,29 +328,31 @@ public class AsyncProcessor implements Closeable {
     private class FetchEmitWorker implements Callable<Integer> {
 
         private final AsyncConfig asyncConfig;
-        private final ArrayBlockingQueue<FetchEmitTuple> fetchEmitTuples;
+        private final PipesClient pipesClient;
+        private final AtomicInteger activeWorkers;
+        private final FetchEmitTupleQueue fetchEmitTuples;
+        private final int lane;
         private final ArrayBlockingQueue<EmitData> emitDataQueue;
 
-        private FetchEmitWorker(AsyncConfig asyncConfig,
-                                ArrayBlockingQueue<FetchEmitTuple> fetchEmitTuples,
+        private FetchEmitWorker(AsyncConfig asyncConfig, PipesClient pipesClient,
+                                AtomicInteger activeWorkers,
+                                FetchEmitTupleQueue fetchEmitTuples, int lane,
                                 ArrayBlockingQueue<EmitData> emitDataQueue) {
             this.asyncConfig = asyncConfig;
+            this.pipesClient = pipesClient;
+            this.activeWorkers = activeWorkers;
             this.fetchEmitTuples = fetchEmitTuples;
+            this.lane = lane;
             this.emitDataQueue = emitDataQueue;
         }
 
         @Override
         public Integer call() throws Exception {
 
-            try (PipesClient pipesClient = new PipesClient(asyncConfig)) {
+            try {
                 while (true) {
-                    FetchEmitTuple t = fetchEmitTuples.poll(1, TimeUnit.SECONDS);
-                    if (t == null) {
-                        //skip
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("null fetch emit tuple");
-                        }
-                    } else if (t == PipesIterator.COMPLETED_SEMAPHORE) {
+                    FetchEmitTuple t = fetchEmitTuples.take(lane);
+                    if (t == PipesIterator.COMPLETED_SEMAPHORE) {
                         if (LOG.isTraceEnabled()) {
                             LOG.trace("hit completed semaphore");
                         }
@@ -303,7 +372,13 @@ public class AsyncProcessor implements Closeable {
                         }
                         long offerStart = System.currentTimeMillis();
 
-                        if (shouldEmit(result)) {
+                        boolean emit = shouldEmit(result);
+                        if (emit && progressJournal != null && !result.isIntermediate()) {
+                            //this has to be added before the emitter can see the data
+                            pendingEmits.put(result.getEmitData(),
+                                    new PendingEmit(t, result.getStatus()));
+                        }
+                        if (emit) {
                             LOG.trace("adding result to emitter queue: " + result.getEmitData());
                             boolean offered = emitDataQueue.offer(result.getEmitData(),
                                     MAX_OFFER_WAIT_MS,
@@ -319,9 +394,16 @@ public class AsyncProcessor implements Closeable {
                         }
                         long elapsed = System.currentTimeMillis() - start;
                         asyncConfig.getPipesReporter().report(t, result, elapsed);
+                        if (!emit && !result.isIntermediate()) {
+                            journal(t, result.getStatus());
+                        }
                         totalProcessed.incrementAndGet();
                     }
                 }
+            } finally {
+                if (activeWorkers.decrementAndGet() == 0) {
+                    pipesClient.close();
+                }
             }
         }
 
@@ -334,4 +416,14 @@ public class AsyncProcessor implements Closeable {
             return result.isIntermediate() && asyncConfig.isEmitIntermediateResults();
         }
     }
+
+    private static class PendingEmit {
+        private final FetchEmitTuple t;
+        private final PipesResult.STATUS parseStatus;
+
+        private PendingEmit(FetchEmitTuple t, PipesResult.STATUS parseStatus) {
+            this.t = t;
+            this.parseStatus = parseStatus;
+        }
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.async;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.fetcher.FetchKey;
+import org.apache.tika.pipes.pipesiterator.PipesIterator;
+
+/**
+ * Bounded queue of {@link FetchEmitTuple}s that are waiting for a
+ * {@link org.apache.tika.pipes.PipesClient}.
+ * <p>
+ * If a large file threshold is set, the tuples are split into a lane for
+ * small files and a lane for large files, each served by its own
+ * clients.  The large file clients also take small files when there are no
+ * large files waiting.  Within each lane, tuples are handed out in the
+ * order they were offered, or if <code>largestFirst</code> is set, the
+ * largest known sizes go first so that they don't become the long tail of
+ * a run.
+ * <p>
+ * The size of a tuple is the length of its fetch range, or else
+ * {@link FetchEmitTuple#getSize()}, if a pipes iterator provided it.  Tuples of unknown size are treated as small and, when
+ * ordering by size, go after the tuples of known size.
+ * <p>
+ * {@link PipesIterator#COMPLETED_SEMAPHORE}s don't count against the
+ * capacity, and a worker is only handed one once its lane is empty.
+ */
+class FetchEmitTupleQueue {
+
+    static final int SMALL_FILE_LANE = 0;
+    static final int LARGE_FILE_LANE = 1;
+
+    private static final Comparator<Entry> LARGEST_FIRST =
+            Comparator.comparingLong((Entry e) -> -e.size).thenComparingLong(e -> e.sequence);
+
+    private final int capacity;
+    private final long largeFileThreshold;
+    private final Queue<Entry>[] lanes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    private int size = 0;
+    private int completedSemaphores = 0;
+    private long sequence = 0;
+
+    /**
+     * @param capacity           maximum number of tuples in the queue
+     * @param largeFileThreshold size at or above which a tuple goes to the
+     *                           large file lane, or -1 for a single lane
+     * @param largestFirst       whether to hand out the largest tuples first
+     */
+    @SuppressWarnings("unchecked")
+    FetchEmitTupleQueue(int capacity, long largeFileThreshold, boolean largestFirst) {
+        this.capacity = capacity;
+        this.largeFileThreshold = largeFileThreshold;
+        this.lanes = new Queue[largeFileThreshold > -1 ? 2 : 1];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = largestFirst ? new PriorityQueue<>(LARGEST_FIRST) : new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @return the size of the file, or -1 if it is not known
+     */
+    static long getSize(FetchEmitTuple t) {
+        FetchKey fetchKey = t.getFetchKey();
+        if (fetchKey != null && fetchKey.hasRange()) {
+            return fetchKey.getRangeEnd() - fetchKey.getRangeStart() + 1;
+        }
+        return t.getSize();
+    }
+
+    boolean offer(FetchEmitTuple t, long timeout, TimeUnit unit) throws InterruptedException {
+        return offer(List.of(t), timeout, unit);
+    }
+
+    /**
+     * Adds all of the tuples, or none of them if there isn't room for
+     * all of them within the timeout.
+     */
+    boolean offer(List<FetchEmitTuple> tuples, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            int needed = 0;
+            for (FetchEmitTuple t : tuples) {
+                if (t != PipesIterator.COMPLETED_SEMAPHORE) {
+                    needed++;
+                }
+            }
+            while (capacity - size < needed) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            for (FetchEmitTuple t : tuples) {
+                if (t == PipesIterator.COMPLETED_SEMAPHORE) {
+                    completedSemaphores++;
+                } else {
+                    long sz = getSize(t);
+                    int lane = lanes.length > 1 && sz >= largeFileThreshold ? LARGE_FILE_LANE :
+                            SMALL_FILE_LANE;
+                    lanes[lane].add(new Entry(t, sz, sequence++));
+                    size++;
+                }
+            }
+            notEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the next tuple for a worker in the given lane.
+     */
+    FetchEmitTuple take(int lane) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Entry entry = lanes[lane].poll();
+                if (entry == null && lane == LARGE_FILE_LANE) {
+                    entry = lanes[SMALL_FILE_LANE].poll();
+                }
+                if (entry != null) {
+                    size--;
+                    notFull.signalAll();
+                    return entry.tuple;
+                }
+                if (completedSemaphores > 0) {
+                    completedSemaphores--;
+                    return PipesIterator.COMPLETED_SEMAPHORE;
+                }
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Entry {
+        private final FetchEmitTuple tuple;
+        private final long size;
+        private final long sequence;
+
+        Entry(FetchEmitTuple tuple, long size, long sequence) {
+            this.tuple = tuple;
+            this.size = size;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.emitter.EmitData;
+import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.pipes.fetcher.FetchKey;
+
+/**
+ * Compact binary codec for the pipes protocol.
+ * <p>
+ * Each payload starts with a version byte.  Counts and lengths are written as
+ * unsigned varints, strings are written as a varint length (0 for <code>null</code>,
+ * otherwise length + 1) followed by UTF-8 bytes, and metadata keys are written
+ * via a per-payload string table so that keys that repeat across the metadata
+ * objects in an {@link EmitData} are only written once.
+ * <p>
+ * The objects in a {@link ParseContext} may be of any (serializable) class;
+ * a non-empty ParseContext is therefore still carried as a nested Java-serialized
+ * blob within the tuple.  Everything else, including all metadata traveling from
+ * the forked process back to the client, is written without Java serialization.
+ * <p>
+ * The {@link ParseContext} within {@link EmitData} is not sent.
+ */
+public class BinaryPipesCodec implements PipesCodec {
+
+    public static final String NAME = "binary";
+
+    static final byte VERSION = 1;
+
+    static final BinaryPipesCodec INSTANCE = new BinaryPipesCodec();
+
+    private static final FetchEmitTuple.ON_PARSE_EXCEPTION[] ON_PARSE_EXCEPTIONS =
+            FetchEmitTuple.ON_PARSE_EXCEPTION.values();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encodeFetchEmitTuple(FetchEmitTuple t) throws IOException {
+        PayloadWriter writer = new PayloadWriter();
+        writer.writeString(t.getId());
+        FetchKey fetchKey = t.getFetchKey();
+        writer.writeString(fetchKey.getFetcherName());
+        writer.writeString(fetchKey.getFetchKey());
+        writer.writeLong(fetchKey.getRangeStart());
+        writer.writeLong(fetchKey.getRangeEnd());
+        writeEmitKey(t.getEmitKey(), writer);
+        writer.writeVarInt(t.getOnParseException().ordinal());
+        writer.writeMetadata(t.getMetadata());
+        ParseContext parseContext = t.getParseContext();
+        if (parseContext == null || parseContext.isEmpty()) {
+            writer.writeVarInt(0);
+        } else {
+            writer.writeBytes(JavaSerializationPipesCodec.serialize(parseContext));
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public FetchEmitTuple decodeFetchEmitTuple(byte[] bytes) throws IOException {
+        PayloadReader reader = new PayloadReader(bytes);
+        String id = reader.readString();
+        String fetcherName = reader.readString();
+        String fetchKey = reader.readString();
+        long rangeStart = reader.readLong();
+        long rangeEnd = reader.readLong();
+        EmitKey emitKey = readEmitKey(reader);
+        int onParseException = reader.readVarInt();
+        if (onParseException >= ON_PARSE_EXCEPTIONS.length) {
+            throw new IOException("unrecognized onParseException: " + onParseException);
+        }
+        Metadata metadata = reader.readMetadata();
+        byte[] parseContextBytes = reader.readBytes();
+        ParseContext parseContext = parseContextBytes.length == 0 ? new ParseContext() :
+                (ParseContext) JavaSerializationPipesCodec.deserialize(parseContextBytes);
+        return new FetchEmitTuple(id, new FetchKey(fetcherName, fetchKey, rangeStart, rangeEnd),
+                emitKey, metadata, parseContext, ON_PARSE_EXCEPTIONS[onParseException]);
+    }
+
+    @Override
+    public byte[] encodeMetadata(Metadata metadata) throws IOException {
+        PayloadWriter writer = new PayloadWriter();
+        writer.writeMetadata(metadata);
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Metadata decodeMetadata(byte[] bytes) throws IOException {
+        return new PayloadReader(bytes).readMetadata();
+    }
+
+    @Override
+    public byte[] encodeEmitData(EmitData emitData) throws IOException {
+        PayloadWriter writer = new PayloadWriter();
+        writeEmitKey(emitData.getEmitKey(), writer);
+        writer.writeString(emitData.getContainerStackTrace());
+        List<Metadata> metadataList = emitData.getMetadataList();
+        writer.writeVarInt(metadataList.size());
+        for (Metadata m : metadataList) {
+            writer.writeMetadata(m);
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public EmitData decodeEmitData(byte[] bytes) throws IOException {
+        PayloadReader reader = new PayloadReader(bytes);
+        EmitKey emitKey = readEmitKey(reader);
+        String stack = reader.readString();
+        int size = reader.readVarInt();
+        List<Metadata> metadataList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            metadataList.add(reader.readMetadata());
+        }
+        return new EmitData(emitKey, metadataList, stack);
+    }
+
+    private static void writeEmitKey(EmitKey emitKey, PayloadWriter writer) {
+        writer.writeString(emitKey.getEmitterName());
+        writer.writeString(emitKey.getEmitKey());
+    }
+
+    private static EmitKey readEmitKey(PayloadReader reader) throws IOException {
+        String emitterName = reader.readString();
+        String emitKey = reader.readString();
+        return new EmitKey(emitterName, emitKey);
+    }
+
+    private static class PayloadWriter {
+        private final UnsynchronizedByteArrayOutputStream bos =
+                UnsynchronizedByteArrayOutputStream.builder().get();
+        private final Map<String, Integer> keyTable = new HashMap<>();
+
+        PayloadWriter() {
+            bos.write(VERSION);
+        }
+
+        void writeVarInt(int v) {
+            while ((v & ~0x7F) != 0) {
+                bos.write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bos.write(v);
+        }
+
+        void writeLong(long v) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bos.write((int) (v >>> shift));
+            }
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            bos.write(bytes, 0, bytes.length);
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            bos.write(bytes, 0, bytes.length);
+        }
+
+        //keys that have already been written in this payload are written as
+        //their index + 1; new keys are written as 0 followed by the string
+        void writeKey(String key) {
+            Integer index = keyTable.get(key);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+            writeVarInt(0);
+            writeString(key);
+            keyTable.put(key, keyTable.size());
+        }
+
+        void writeMetadata(Metadata metadata) {
+            String[] names = metadata.names();
+            writeVarInt(names.length);
+            for (String n : names) {
+                writeKey(n);
+                String[] values = metadata.getValues(n);
+                writeVarInt(values.length);
+                for (String v : values) {
+                    writeString(v);
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return bos.toByteArray();
+        }
+    }
+
+    private static class PayloadReader {
+        private final byte[] bytes;
+        private final List<String> keyTable = new ArrayList<>();
+        private int offset = 0;
+
+        PayloadReader(byte[] bytes) throws IOException {
+            this.bytes = bytes;
+            int version = readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary pipes codec version: " + version +
+                        ". I only support: " + VERSION);
+            }
+        }
+
+        int readByte() throws IOException {
+            if (offset >= bytes.length) {
+                throw new EOFException();
+            }
+            return bytes[offset++] & 0xFF;
+        }
+
+        int readVarInt() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+            throw new IOException("malformed varint");
+        }
+
+        long readLong() throws IOException {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | readByte();
+            }
+            return v;
+        }
+
+        private int checkLength(int len) throws IOException {
+            if (len < 0 || len > bytes.length - offset) {
+                throw new EOFException("length " + len + " exceeds remaining bytes");
+            }
+            return len;
+        }
+
+        String readString() throws IOException {
+            int len = readVarInt();
+            if (len == 0) {
+                return null;
+            }
+            len = checkLength(len - 1);
+            String s = new String(bytes, offset, len, StandardCharsets.UTF_8);
+            offset += len;
+            return s;
+        }
+
+        byte[] readBytes() throws IOException {
+            int len = checkLength(readVarInt());
+            byte[] ret = new byte[len];
+            System.arraycopy(bytes, offset, ret, 0, len);
+            offset += len;
+            return ret;
+        }
+
+        String readKey() throws IOException {
+            int index = readVarInt();
+            if (index == 0) {
+                String key = readString();
+                keyTable.add(key);
+                return key;
+            }
+            if (index > keyTable.size()) {
+                throw new IOException("key index out of bounds: " + index);
+            }
+            return keyTable.get(index - 1);
+        }
+
+        Metadata readMetadata() throws IOException {
+            Metadata metadata = new Metadata();
+            int numNames = readVarInt();
+            for (int i = 0; i < numNames; i++) {
+                String name = readKey();
+                int numValues = readVarInt();
+                for (int j = 0; j < numValues; j++) {
+                    metadata.add(name, readString());
+                }
+            }
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.codec;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.emitter.EmitData;
+
+/**
+ * Legacy codec that relies on Java serialization for everything that
+ * goes across the wire.  This is kept as a fallback for users who
+ * need to send objects that {@link BinaryPipesCodec} can't handle.
+ */
+public class JavaSerializationPipesCodec implements PipesCodec {
+
+    public static final String NAME = "java";
+
+    static final JavaSerializationPipesCodec INSTANCE = new JavaSerializationPipesCodec();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encodeFetchEmitTuple(FetchEmitTuple t) throws IOException {
+        return serialize(t);
+    }
+
+    @Override
+    public FetchEmitTuple decodeFetchEmitTuple(byte[] bytes) throws IOException {
+        return (FetchEmitTuple) deserialize(bytes);
+    }
+
+    @Override
+    public byte[] encodeMetadata(Metadata metadata) throws IOException {
+        return serialize(metadata);
+    }
+
+    @Override
+    public Metadata decodeMetadata(byte[] bytes) throws IOException {
+        return (Metadata) deserialize(bytes);
+    }
+
+    @Override
+    public byte[] encodeEmitData(EmitData emitData) throws IOException {
+        return serialize(emitData);
+    }
+
+    @Override
+    public EmitData decodeEmitData(byte[] bytes) throws IOException {
+        return (EmitData) deserialize(bytes);
+    }
+
+    static byte[] serialize(Object object) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
+            objectOutputStream.writeObject(object);
+        }
+        return bos.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(
+                UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get())) {
+            return objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("class not found exception deserializing data", e);
+        }
+    }
+}
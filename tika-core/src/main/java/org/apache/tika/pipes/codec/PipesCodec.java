@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.codec;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.emitter.EmitData;
+
+/**
+ * Encodes and decodes the payloads that are sent between the
+ * {@link org.apache.tika.pipes.PipesClient} and the forked
+ * {@link org.apache.tika.pipes.PipesServer}.
+ * <p>
+ * The framing (status byte + length) is handled by the client and server;
+ * implementations only need to handle the bytes within a single frame.
+ * Implementations must be thread safe.
+ */
+public interface PipesCodec {
+
+    String getName();
+
+    byte[] encodeFetchEmitTuple(FetchEmitTuple t) throws IOException;
+
+    FetchEmitTuple decodeFetchEmitTuple(byte[] bytes) throws IOException;
+
+    byte[] encodeMetadata(Metadata metadata) throws IOException;
+
+    Metadata decodeMetadata(byte[] bytes) throws IOException;
+
+    byte[] encodeEmitData(EmitData emitData) throws IOException;
+
+    EmitData decodeEmitData(byte[] bytes) throws IOException;
+
+    /**
+     * @param name case-insensitive name of the codec, e.g. <code>binary</code> or
+     *             <code>java</code>
+     * @return the codec
+     * @throws IllegalArgumentException if the name is not recognized
+     */
+    static PipesCodec load(String name) {
+        String lc = name == null ? "" : name.trim().toLowerCase(Locale.US);
+        switch (lc) {
+            case BinaryPipesCodec.NAME:
+                return BinaryPipesCodec.INSTANCE;
+            case JavaSerializationPipesCodec.NAME:
+                return JavaSerializationPipesCodec.INSTANCE;
+            default:
+                throw new IllegalArgumentException("I regret I don't recognize pipes codec '" +
+                        name + "'. I only know '" + BinaryPipesCodec.NAME + "' and '" +
+                        JavaSerializationPipesCodec.NAME + "'");
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.exception.TikaTimeoutException;
 import org.apache.tika.pipes.FetchEmitTuple;
 import org.apache.tika.pipes.HandlerConfig;
+import org.apache.tika.pipes.ProgressJournal;
 import org.apache.tika.sax.BasicContentHandlerFactory;
 
 /**
@@ -78,6 +79,8 @@ public abstract class PipesIterator extends ConfigBase
     private int maxEmbeddedResources = -1;
 
     private int added = 0;
+    private int skipped = 0;
+    private ProgressJournal progressJournal = null;
     private FutureTask<Integer> futureTask;
 
     public static PipesIterator build(Path tikaConfigFile) throws IOException,
@@ -166,9 +169,24 @@ public abstract class PipesIterator extends ConfigBase
         this.parseMode = parseMode;
     }
 
+    /**
+     * If this is set, fetch emit tuples whose fetch keys are
+     * {@link ProgressJournal#isCompleted(org.apache.tika.pipes.fetcher.FetchKey) completed}
+     * in the journal are skipped, e.g. when a run is restarted.
+     *
+     * @param progressJournal
+     */
+    public void setProgressJournal(ProgressJournal progressJournal) {
+        this.progressJournal = progressJournal;
+    }
+
     public Integer call() throws Exception {
         enqueue();
         tryToAdd(COMPLETED_SEMAPHORE);
+        if (skipped > 0) {
+            LOGGER.info("skipped {} fetch keys that were completed in the progress journal",
+                    skipped);
+        }
         return added;
     }
 
@@ -181,6 +199,11 @@ public abstract class PipesIterator extends ConfigBase
     protected abstract void enqueue() throws IOException, TimeoutException, InterruptedException;
 
     protected void tryToAdd(FetchEmitTuple p) throws InterruptedException, TimeoutException {
+        if (progressJournal != null && p != COMPLETED_SEMAPHORE &&
+                progressJournal.isCompleted(p.getFetchKey())) {
+            skipped++;
+            return;
+        }
         added++;
         boolean offered = queue.offer(p, maxWaitMs, TimeUnit.MILLISECONDS);
         if (!offered) {
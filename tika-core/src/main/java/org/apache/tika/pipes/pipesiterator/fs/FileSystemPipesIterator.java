@@ -156,9 +156,12 @@ public class FileSystemPipesIterator extends PipesIterator
             try {
                 ParseContext parseContext = new ParseContext();
                 parseContext.set(HandlerConfig.class, getHandlerConfig());
-                tryToAdd(new FetchEmitTuple(relPath, new FetchKey(fetcherName, relPath),
+                //the size lets the async processor order the tuples and pick a lane
+                FetchEmitTuple t = new FetchEmitTuple(relPath, new FetchKey(fetcherName, relPath),
                         new EmitKey(emitterName, relPath), new Metadata(), parseContext,
-                        getOnParseException()));
+                        getOnParseException());
+                t.setSize(attrs.size());
+                tryToAdd(t);
             } catch (TimeoutException e) {
                 throw new IOException(e);
             } catch (InterruptedException e) {
@@ -61,9 +61,16 @@ public class RenderResult implements Closeable {
         }
     }
 
+    /**
+     * @return the rendering.  If the rendering was kept in memory as a byte array,
+     * the stream is backed by that array and has no file until
+     * {@link TikaInputStream#getPath()} is called.
+     */
     public TikaInputStream getInputStream() throws IOException {
         if (result instanceof Path) {
             return TikaInputStream.get((Path)result, metadata);
+        } else if (result instanceof byte[]) {
+            return TikaInputStream.get((byte[]) result, metadata);
         } else {
             TikaInputStream tis = TikaInputStream.get(new byte[0]);
             tis.setOpenContainer(result);
@@ -20,6 +20,8 @@ import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_16BE;
 import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.BufferedInputStream;
@@ -220,6 +222,12 @@ public class MagicDetectorTest {
                 assertEquals(aByte, (byte) stream.read());
             }
             assertEquals(-1, stream.read());
+
+            // The byte array api must agree with the stream api
+            if (detector instanceof MagicDetector) {
+                assertEquals(!MediaType.OCTET_STREAM.equals(type),
+                        ((MagicDetector) detector).matches(bytes));
+            }
         } catch (IOException e) {
             fail("Unexpected exception from MagicDetector");
         }
@@ -247,6 +255,27 @@ public class MagicDetectorTest {
         }
     }
 
+    @Test
+    public void testCanMatchFirstByte() throws Exception {
+        MediaType html = new MediaType("text", "html");
+        MagicDetector fixed = new MagicDetector(html, "<html".getBytes(US_ASCII));
+        assertTrue(fixed.canMatchFirstByte((byte) '<'));
+        assertFalse(fixed.canMatchFirstByte((byte) 'h'));
+
+        MagicDetector ignoreCase = MagicDetector.parse(html, "stringignorecase", "0", "<HTML", null);
+        assertTrue(ignoreCase.canMatchFirstByte((byte) '<'));
+        assertFalse(ignoreCase.canMatchFirstByte((byte) 'H'));
+
+        // anything can start a document if the offset isn't fixed at zero
+        MagicDetector range = new MagicDetector(html, "<html".getBytes(US_ASCII), null, 0, 64);
+        assertTrue(range.canMatchFirstByte((byte) 'h'));
+        MagicDetector offset = new MagicDetector(html, "<html".getBytes(US_ASCII), 1);
+        assertTrue(offset.canMatchFirstByte((byte) 'h'));
+        MagicDetector masked = new MagicDetector(html, new byte[]{(byte) 0xf0}, new byte[]{(byte) 0xf0}, 0, 0);
+        assertTrue(masked.canMatchFirstByte((byte) 0xf3));
+        assertFalse(masked.canMatchFirstByte((byte) 0xe3));
+    }
+
     @Test
     public void testBZ2Detection() throws Exception {
         Detector detector = new TikaConfig().getDetector();
@@ -16,17 +16,26 @@
  */
 package org.apache.tika.metadata;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 import java.util.TimeZone;
@@ -492,6 +501,69 @@ public class TestMetadata extends TikaTest {
         assertEquals("key=value1", m.toString());
     }
 
+    @Test
+    public void testManyValues() {
+        Metadata m = new Metadata();
+        String[] expected = new String[100];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = Integer.toString(i);
+            m.add("key", expected[i]);
+            assertEquals(i + 1, m.getValues("key").length);
+        }
+        assertEquals("0", m.get("key"));
+        assertTrue(m.isMultiValued("key"));
+        assertArrayEquals(expected, m.getValues("key"));
+        m.add("key", "100");
+        assertEquals(101, m.getValues("key").length);
+        assertEquals("100", m.getValues("key")[100]);
+        m.set("key", "a");
+        assertFalse(m.isMultiValued("key"));
+        assertArrayEquals(new String[]{"a"}, m.getValues("key"));
+    }
+
+    @Test
+    public void testForEach() {
+        Metadata m = new Metadata();
+        m.set("a", "1");
+        m.add("b", "2");
+        m.add("b", "3");
+        Map<String, String[]> seen = new HashMap<>();
+        m.forEach(seen::put);
+        assertEquals(2, seen.size());
+        assertArrayEquals(new String[]{"1"}, seen.get("a"));
+        assertArrayEquals(new String[]{"2", "3"}, seen.get("b"));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        //the serialized form must stay readable by earlier versions
+        assertEquals(Map.class,
+                ObjectStreamClass.lookup(Metadata.class).getField("metadata").getType());
+
+        Metadata m = new Metadata();
+        m.set(TikaCoreProperties.TITLE, "title");
+        m.add("b", "2");
+        m.add("b", "3");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(m);
+        }
+        Metadata deserialized;
+        try (ObjectInputStream ois =
+                     new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            deserialized = (Metadata) ois.readObject();
+        }
+        assertEquals(m, deserialized);
+        //known property names are shared rather than copied
+        for (String name : deserialized.names()) {
+            if (name.equals(TikaCoreProperties.TITLE.getName())) {
+                assertSame(TikaCoreProperties.TITLE.getName(), name);
+            }
+        }
+        deserialized.add("b", "4");
+        assertArrayEquals(new String[]{"2", "3", "4"}, deserialized.getValues("b"));
+    }
+
     private static class MetadataDateAdder implements Callable<Integer> {
         private final Random random = new Random();
 
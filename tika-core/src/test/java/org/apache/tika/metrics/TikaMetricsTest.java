@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.TikaTest;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.mock.MockParser;
+import org.apache.tika.pipes.MetricsPipesReporter;
+import org.apache.tika.pipes.PipesResult;
+import org.apache.tika.pipes.emitter.EmitData;
+import org.apache.tika.pipes.emitter.EmitKey;
+
+public class TikaMetricsTest extends TikaTest {
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.0001);
+        assertWithin(500, histogram.getPercentile(50));
+        assertWithin(990, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testBuckets() {
+        for (long v : new long[]{0, 1, 7, 8, 9, 15, 16, 1000, 123456789L, Long.MAX_VALUE}) {
+            int bucket = Histogram.getBucket(v);
+            assertTrue(Histogram.getUpperBound(bucket) >= v, Long.toString(v));
+            if (bucket > 0) {
+                assertTrue(Histogram.getUpperBound(bucket - 1) < v, Long.toString(v));
+            }
+        }
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        TikaMetrics metrics = new TikaMetrics();
+        ParseContext context = new ParseContext();
+        context.set(TikaMetrics.class, metrics);
+        List<Metadata> metadataList =
+                getRecursiveMetadata("mock/embedded.xml", new Metadata(), context);
+
+        assertEquals(metadataList.size() - 1, metrics.getCounter(TikaMetrics.EMBEDDED));
+        assertEquals(metadataList.size(), metrics.getHistogram(TikaMetrics.PARSER,
+                MockParser.class.getName()).getCount());
+        assertEquals(metadataList.size(),
+                metrics.getHistogram(TikaMetrics.MIME_TYPE, "application/mock+xml").getCount());
+        assertEquals(1, metrics.getHistogram(TikaMetrics.STAGE, "parse").getCount());
+        assertEquals(metadataList.size(),
+                metrics.getHistogram(TikaMetrics.STAGE, "detect").getCount());
+
+        Map<String, Object> map = metrics.toMap();
+        assertTrue(map.containsKey("counters"));
+        assertTrue(map.containsKey(TikaMetrics.PARSER));
+    }
+
+    @Test
+    public void testMaxNamesPerGroup() {
+        TikaMetrics metrics = new TikaMetrics();
+        for (int i = 0; i < TikaMetrics.MAX_NAMES_PER_GROUP + 10; i++) {
+            metrics.recordParse("parser", "application/x-made-up-" + i, 1);
+        }
+        Map<String, Object> mimeTypes =
+                (Map<String, Object>) metrics.toMap().get(TikaMetrics.MIME_TYPE);
+        assertEquals(TikaMetrics.MAX_NAMES_PER_GROUP + 1, mimeTypes.size());
+        assertEquals(10, metrics.getHistogram(TikaMetrics.MIME_TYPE, TikaMetrics.OTHER).getCount());
+    }
+
+    @Test
+    public void testPipesReporterExcludesEmbedded() throws Exception {
+        MetricsPipesReporter reporter = new MetricsPipesReporter();
+        reporter.initialize(Collections.emptyMap());
+        List<Metadata> metadataList = List.of(
+                parsed("container", null, 100),
+                parsed("child", "/1", 60),
+                parsed("grandchild", "/1/2", 20),
+                parsed("child", "/3", 5));
+        reporter.report(null,
+                new PipesResult(new EmitData(new EmitKey("e", "k"), metadataList)), 120);
+        TikaMetrics metrics = reporter.getMetrics();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(35),
+                metrics.getHistogram(TikaMetrics.PARSER, "container").getMax());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(40),
+                metrics.getHistogram(TikaMetrics.PARSER, "child").getMax());
+        assertEquals(2, metrics.getHistogram(TikaMetrics.PARSER, "child").getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20),
+                metrics.getHistogram(TikaMetrics.PARSER, "grandchild").getMax());
+        //the whole parse still counts for the parse stage
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100),
+                metrics.getHistogram(TikaMetrics.STAGE, "parse").getMax());
+    }
+
+    private static Metadata parsed(String parser, String idPath, long millis) {
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.TIKA_PARSED_BY, parser);
+        metadata.set(TikaCoreProperties.PARSE_TIME_MILLIS, Long.toString(millis));
+        if (idPath != null) {
+            metadata.set(TikaCoreProperties.EMBEDDED_ID_PATH, idPath);
+        }
+        return metadata;
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        //buckets are 12.5% wide
+        assertTrue(actual >= expected && actual <= expected * 1.125,
+                expected + " vs " + actual);
+    }
+}
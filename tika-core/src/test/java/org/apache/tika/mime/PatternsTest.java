@@ -17,6 +17,7 @@
 package org.apache.tika.mime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -97,4 +98,24 @@ public class PatternsTest {
         assertTrue(extensions.contains(".jpeg"));
     }
 
+    @Test
+    public void testGlobs() throws MimeTypeException {
+        MimeType readme = types.forName("text/x-readme");
+        MimeType makefile = types.forName("text/x-makefile");
+        MimeType log = types.forName("text/x-log");
+        patterns.add("README*", readme);
+        patterns.add("Makefile.?", makefile);
+        patterns.add("log-\\d+\\.txt", true, log);
+
+        assertEquals(readme, patterns.matches("README.md"));
+        assertEquals(makefile, patterns.matches("Makefile.a"));
+        assertEquals(log, patterns.matches("log-42.txt"));
+        assertNull(patterns.matches("Makefile.ab"));
+        assertNull(patterns.matches("log-x.txt"));
+
+        //the cached result is dropped when a pattern is added
+        assertNull(patterns.matches("notes.txt"));
+        patterns.add("*.txt", text);
+        assertEquals(text, patterns.matches("notes.txt"));
+    }
 }
@@ -18,6 +18,7 @@ package org.apache.tika.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.ByteArrayInputStream;
 import java.util.Collections;
@@ -150,4 +151,46 @@ public class CompositeParserTest {
         assertEquals("True", metadata.get("BMP"));
         assertEquals("True", metadata.get("Alias"));
     }
+
+    @Test
+    @SuppressWarnings("serial")
+    public void testContextDependentTypes() throws Exception {
+        Parser constant = new EmptyParser() {
+            public Set<MediaType> getSupportedTypes(ParseContext context) {
+                return Collections.singleton(MediaType.TEXT_PLAIN);
+            }
+        };
+        //only supports image/png if a String is in the context
+        Parser contextDependent = new EmptyParser() {
+            public Set<MediaType> getSupportedTypes(ParseContext context) {
+                if (context.get(String.class) != null) {
+                    return Collections.singleton(MediaType.image("png"));
+                }
+                return Collections.emptySet();
+            }
+        };
+        CompositeParser composite =
+                new CompositeParser(MediaTypeRegistry.getDefaultRegistry(), constant,
+                        contextDependent);
+        ParseContext empty = new ParseContext();
+        ParseContext withString = new ParseContext();
+        withString.set(String.class, "on");
+
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.CONTENT_TYPE, "image/png");
+        //the lookup table is reused while the supported types don't change
+        assertSame(composite.getSupportedTypes(empty), composite.getSupportedTypes(empty));
+        assertEquals(1, composite.getSupportedTypes(empty).size());
+        assertSame(composite.getFallback(), composite.getParser(metadata, empty));
+
+        assertEquals(2, composite.getSupportedTypes(withString).size());
+        assertSame(contextDependent, composite.getParser(metadata, withString));
+        assertSame(composite.getFallback(), composite.getParser(metadata, empty));
+
+        //changing the component parsers invalidates the table
+        composite.setParsers(Collections.singletonMap(MediaType.image("png"), constant));
+        assertEquals(1, composite.getSupportedTypes(empty).size());
+        assertEquals(constant,
+                ((ParserDecorator) composite.getParser(metadata, empty)).getWrappedParser());
+    }
 }
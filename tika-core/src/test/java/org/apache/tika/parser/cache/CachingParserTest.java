@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.extractor.EmbeddedDocumentExtractor;
+import org.apache.tika.extractor.EmbeddedDocumentUtil;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.DigestingParser;
+import org.apache.tika.parser.DummyParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.ParserDecorator;
+import org.apache.tika.parser.PasswordProvider;
+import org.apache.tika.sax.ToXMLContentHandler;
+
+public class CachingParserTest {
+
+    private static final String DIGEST = TikaCoreProperties.TIKA_META_PREFIX + "digest" +
+            TikaCoreProperties.NAMESPACE_PREFIX_DELIMITER + "SHA256";
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemExtractCache cache;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        cache = new FileSystemExtractCache();
+        cache.setBasePath(tempDir.toString());
+        cache.initialize(Collections.emptyMap());
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        Parser parser = newParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Map.of("author", "Jane"), "hello world"),
+                parses, false));
+
+        Metadata first = newMetadata("a.txt");
+        String firstXml = parse(parser, first, "abcd");
+        Metadata second = newMetadata("a.txt");
+        second.set("source", "second");
+        String secondXml = parse(parser, second, "abcd");
+
+        assertEquals(1, parses.get());
+        assertEquals(firstXml, secondXml);
+        assertEquals("Jane", second.get("author"));
+        //input metadata that the parser didn't touch is kept
+        assertEquals("second", second.get("source"));
+        assertEquals("abcd", second.get(DIGEST));
+
+        //different content
+        parse(parser, newMetadata("a.txt"), "efgh");
+        assertEquals(2, parses.get());
+
+        //not digested, no caching
+        Parser notDigesting = new CachingParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "hello world"),
+                parses, false), cache, "fingerprint");
+        parse(notDigesting, new Metadata(), "abcd");
+        parse(notDigesting, new Metadata(), "abcd");
+        assertEquals(4, parses.get());
+    }
+
+    @Test
+    public void testInputDigestsIgnored() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        Parser parser = newParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "secret"),
+                parses, false));
+        parse(parser, newMetadata("a.txt"), "abcd");
+
+        //a digest in the input metadata doesn't get another document the cached extract
+        Metadata metadata = newMetadata("b.txt");
+        metadata.set(DIGEST, "abcd");
+        parse(parser, metadata, "efgh");
+        assertEquals(2, parses.get());
+        assertEquals("efgh", metadata.get(DIGEST));
+
+        //and isn't used for the key if the document isn't digested
+        Parser notDigesting = new CachingParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "other"),
+                parses, false), cache, "fingerprint");
+        metadata = newMetadata("c.txt");
+        metadata.set(DIGEST, "abcd");
+        String xml = parse(notDigesting, metadata, "ijkl");
+        assertEquals(3, parses.get());
+        assertFalse(xml.contains("secret"));
+    }
+
+    @Test
+    public void testInputMetadataInKey() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        Parser parser = newParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "hello world"),
+                parses, false));
+        parse(parser, newMetadata("a.txt"), "abcd");
+        parse(parser, newMetadata("a.csv"), "abcd");
+        assertEquals(2, parses.get());
+
+        Metadata metadata = newMetadata("a.txt");
+        metadata.set(TikaCoreProperties.CONTENT_TYPE_USER_OVERRIDE, "text/csv");
+        parse(parser, metadata, "abcd");
+        metadata = newMetadata("a.txt");
+        metadata.set(Metadata.CONTENT_TYPE, "text/plain; charset=UTF-16LE");
+        parse(parser, metadata, "abcd");
+        assertEquals(4, parses.get());
+
+        parse(parser, newMetadata("a.csv"), "abcd");
+        assertEquals(4, parses.get());
+    }
+
+    @Test
+    public void testCorruptEntryRemoved() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        Parser parser = newParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "hello world"),
+                parses, false));
+        String xml = parse(parser, newMetadata("a.txt"), "abcd");
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            for (Path p : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                Files.write(p, new byte[]{1, 0x7f, (byte) 0xff});
+            }
+        }
+        assertEquals(xml, parse(parser, newMetadata("a.txt"), "abcd"));
+        assertEquals(2, parses.get());
+        //the entry was written again
+        assertEquals(xml, parse(parser, newMetadata("a.txt"), "abcd"));
+        assertEquals(2, parses.get());
+    }
+
+    @Test
+    public void testParseContextBypassesCache() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        Parser parser = newParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "decrypted"),
+                parses, false));
+        ParseContext context = new ParseContext();
+        context.set(PasswordProvider.class, metadata -> "password");
+        parse(parser, newMetadata("a.pdf"), "abcd", context);
+        parse(parser, newMetadata("a.pdf"), "abcd", context);
+        assertEquals(2, parses.get());
+
+        //nothing was stored for requests without the password
+        parse(parser, newMetadata("a.pdf"), "abcd");
+        assertEquals(3, parses.get());
+    }
+
+    @Test
+    public void testContainerNotStored() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        Parser parser = newParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "container"),
+                parses, true));
+        parse(parser, newMetadata("a.zip"), "abcd");
+        parse(parser, newMetadata("a.zip"), "abcd");
+        assertEquals(2, parses.get());
+    }
+
+    @Test
+    public void testExtractorUseMarksContainer() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        AtomicInteger embedded = new AtomicInteger();
+        Parser parser = newParser(new CountingParser(
+                new DummyParser(Collections.emptySet(), Collections.emptyMap(), "container"),
+                parses, true));
+        //an extractor that doesn't know about the cache
+        EmbeddedDocumentExtractor extractor = new EmbeddedDocumentExtractor() {
+            @Override
+            public boolean shouldParseEmbedded(Metadata metadata) {
+                embedded.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            public void parseEmbedded(TikaInputStream stream, ContentHandler handler,
+                                      Metadata metadata, boolean outputHtml) {
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            ParseContext context = new ParseContext();
+            context.set(EmbeddedDocumentExtractor.class, extractor);
+            parse(parser, newMetadata("a.zip"), "abcd", context);
+            assertSame(extractor, context.get(EmbeddedDocumentExtractor.class));
+        }
+        assertEquals(2, parses.get());
+        assertEquals(2, embedded.get());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        cache.setMaxBytes(250);
+        byte[] value = new byte[100];
+        cache.put("a", value);
+        cache.put("b", value);
+        //touch a so that b is the least recently used
+        assertArrayEquals(value, cache.get("a"));
+        cache.put("c", value);
+        assertNull(cache.get("b"));
+        assertArrayEquals(value, cache.get("a"));
+        assertArrayEquals(value, cache.get("c"));
+
+        //the index is rebuilt from disk
+        FileSystemExtractCache reopened = new FileSystemExtractCache();
+        reopened.setBasePath(tempDir.toString());
+        reopened.initialize(Collections.emptyMap());
+        assertArrayEquals(value, reopened.get("a"));
+        assertNull(reopened.get("b"));
+    }
+
+    private Parser newParser(Parser parser) {
+        //the "digest" is the content itself
+        return new DigestingParser(new CachingParser(parser, cache, "fingerprint"),
+                (is, m, context) -> {
+                    is.mark(1024);
+                    m.set(DIGEST, new String(is.readNBytes(1024), StandardCharsets.UTF_8));
+                    is.reset();
+                }, false);
+    }
+
+    private static Metadata newMetadata(String name) {
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, name);
+        return metadata;
+    }
+
+    private static String parse(Parser parser, Metadata metadata, String content)
+            throws Exception {
+        return parse(parser, metadata, content, new ParseContext());
+    }
+
+    private static String parse(Parser parser, Metadata metadata, String content,
+                                ParseContext context) throws Exception {
+        ToXMLContentHandler handler = new ToXMLContentHandler();
+        try (InputStream is = new ByteArrayInputStream(
+                content.getBytes(StandardCharsets.UTF_8))) {
+            parser.parse(is, handler, metadata, context);
+        }
+        return handler.toString();
+    }
+
+    private static class CountingParser extends ParserDecorator {
+        private final AtomicInteger parses;
+        private final boolean hasEmbedded;
+
+        CountingParser(Parser parser, AtomicInteger parses, boolean hasEmbedded) {
+            super(parser);
+            this.parses = parses;
+            this.hasEmbedded = hasEmbedded;
+        }
+
+        @Override
+        public void parse(InputStream stream, ContentHandler handler, Metadata metadata,
+                          ParseContext context) throws IOException, SAXException, TikaException {
+            parses.incrementAndGet();
+            if (hasEmbedded) {
+                //this is what parsers of containers do
+                EmbeddedDocumentUtil.getEmbeddedDocumentExtractor(context)
+                        .shouldParseEmbedded(new Metadata());
+            }
+            super.parse(stream, handler, metadata, context);
+        }
+    }
+}
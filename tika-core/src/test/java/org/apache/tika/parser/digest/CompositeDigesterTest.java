@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.digest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.DigestingParser;
+import org.apache.tika.parser.ParseContext;
+
+public class CompositeDigesterTest {
+
+    private static final DigestingParser.Encoder HEX = bytes -> HexFormat.of().formatHex(bytes);
+
+    private static final String[] ALGORITHMS = {"MD5", "SHA-1", "SHA-256"};
+
+    @TempDir
+    private Path tmpDir;
+
+    @Test
+    public void testShortStream() throws Exception {
+        //fits within the mark limit
+        assertDigests(bytes(100), 1000, false);
+    }
+
+    @Test
+    public void testSpooledStream() throws Exception {
+        //longer than the mark limit, digested while it is spooled
+        assertDigests(bytes(10000), 1000, false);
+        assertDigests(bytes(1000), 1000, false);
+        assertDigests(bytes(1001), 1000, false);
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        assertDigests(bytes(10000), 1000, true);
+        assertDigests(bytes(100), 1000, true);
+    }
+
+    @Test
+    public void testNotSinglePass() throws Exception {
+        byte[] bytes = bytes(5000);
+        InputStreamDigester overridden = new InputStreamDigester(1000, "SHA-1", HEX) {
+            @Override
+            public void digest(InputStream is, Metadata metadata, ParseContext parseContext)
+                    throws IOException {
+                super.digest(is, metadata, parseContext);
+            }
+        };
+        CompositeDigester digester =
+                new CompositeDigester(new InputStreamDigester(1000, "MD5", HEX), overridden);
+        Metadata metadata = new Metadata();
+        try (InputStream is = new ByteArrayInputStream(bytes)) {
+            digester.digest(is, metadata, new ParseContext());
+        }
+        assertEquals(expected("MD5", bytes), metadata.get("X-TIKA:digest:MD5"));
+        assertEquals(expected("SHA-1", bytes), metadata.get("X-TIKA:digest:SHA-1"));
+        assertEquals("5000", metadata.get(Metadata.CONTENT_LENGTH));
+    }
+
+    private void assertDigests(byte[] bytes, int markLimit, boolean file) throws Exception {
+        InputStreamDigester[] digesters = new InputStreamDigester[ALGORITHMS.length];
+        for (int i = 0; i < ALGORITHMS.length; i++) {
+            digesters[i] = new InputStreamDigester(markLimit, ALGORITHMS[i], HEX);
+        }
+        Metadata metadata = new Metadata();
+        InputStream is;
+        if (file) {
+            Path p = Files.createTempFile(tmpDir, "digest-", ".bin");
+            Files.write(p, bytes);
+            is = TikaInputStream.get(p);
+        } else {
+            is = TikaInputStream.get(bytes);
+        }
+        try {
+            new CompositeDigester(digesters).digest(is, metadata, new ParseContext());
+            //the stream must be left at the start for the parser
+            assertEquals(bytes.length, is.readAllBytes().length);
+        } finally {
+            is.close();
+        }
+        for (String algorithm : ALGORITHMS) {
+            assertEquals(expected(algorithm, bytes),
+                    metadata.get("X-TIKA:digest:" + algorithm), algorithm);
+        }
+        assertEquals(Integer.toString(bytes.length), metadata.get(Metadata.CONTENT_LENGTH));
+    }
+
+    private static String expected(String algorithm, byte[] bytes) throws Exception {
+        return HEX.encode(MessageDigest.getInstance(algorithm).digest(bytes));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
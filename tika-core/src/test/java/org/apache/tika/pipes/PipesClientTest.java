@@ -19,7 +19,11 @@ package org.apache.tika.pipes;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.junit.jupiter.api.Assertions;
@@ -44,14 +48,14 @@ public class PipesClientTest {
     String fetcherName = "fs";
     String testPdfFile = "testOverlappingText.pdf";
 
+    Path tikaConfigPath =
+            Paths.get("src", "test", "resources", "org", "apache", "tika", "pipes",
+                    "tika-sample-config.xml");
     private PipesClient pipesClient;
 
     @BeforeEach
     public void init()
             throws TikaConfigException, IOException, ParserConfigurationException, SAXException {
-        Path tikaConfigPath =
-                Paths.get("src", "test", "resources", "org", "apache", "tika", "pipes",
-                        "tika-sample-config.xml");
         PipesConfig pipesConfig = PipesConfig.load(tikaConfigPath);
         pipesClient = new PipesClient(pipesConfig);
     }
@@ -94,4 +98,119 @@ public class PipesClientTest {
         Metadata metadata = pipesResult.getEmitData().getMetadataList().get(0);
         Assertions.assertEquals(4, Integer.parseInt(metadata.get("X-TIKA:attachment_count")));
     }
+
+    @Test
+    public void testMultipleParserThreads() throws Exception {
+        PipesConfig pipesConfig = PipesConfig.load(tikaConfigPath);
+        pipesConfig.setNumParserThreads(3);
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try (PipesClient multiThreadedClient = new PipesClient(pipesConfig)) {
+            List<Future<PipesResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                String file = (i % 2 == 0) ? testPdfFile : "mock/embedded.xml";
+                futures.add(executorService.submit(() -> multiThreadedClient.process(
+                        new FetchEmitTuple(file, new FetchKey(fetcherName, file),
+                                new EmitKey(), new Metadata(), new ParseContext(),
+                                FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP))));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                PipesResult pipesResult = futures.get(i).get();
+                Assertions.assertEquals(PipesResult.STATUS.PARSE_SUCCESS, pipesResult.getStatus());
+                List<Metadata> metadataList = pipesResult.getEmitData().getMetadataList();
+                if (i % 2 == 0) {
+                    Assertions.assertEquals(1, metadataList.size());
+                    Assertions.assertEquals(testPdfFile,
+                            metadataList.get(0).get(TikaCoreProperties.RESOURCE_NAME_KEY));
+                } else {
+                    Assertions.assertEquals(5, metadataList.size());
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInterruptedRequest() throws Exception {
+        PipesConfig pipesConfig = PipesConfig.load(tikaConfigPath);
+        pipesConfig.setNumParserThreads(2);
+        String slowFile = "mock/slow.xml";
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try (PipesClient multiThreadedClient = new PipesClient(pipesConfig)) {
+            //start the server
+            multiThreadedClient.process(
+                    new FetchEmitTuple(testPdfFile, new FetchKey(fetcherName, testPdfFile),
+                            new EmitKey(), new Metadata(), new ParseContext(),
+                            FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+            Future<PipesResult> abandoned = executorService.submit(() -> multiThreadedClient.process(
+                    new FetchEmitTuple(slowFile, new FetchKey(fetcherName, slowFile),
+                            new EmitKey(), new Metadata(), new ParseContext(),
+                            FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP)));
+            Thread.sleep(500);
+            abandoned.cancel(true);
+            //this is still in flight when the response to the abandoned request comes in
+            Future<PipesResult> other = executorService.submit(() -> multiThreadedClient.process(
+                    new FetchEmitTuple(slowFile, new FetchKey(fetcherName, slowFile),
+                            new EmitKey(), new Metadata(), new ParseContext(),
+                            FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP)));
+            Assertions.assertEquals(PipesResult.STATUS.PARSE_SUCCESS, other.get().getStatus());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        PipesConfig pipesConfig = PipesConfig.load(tikaConfigPath);
+        pipesConfig.setNumPrefetchTuples(2);
+        Assertions.assertEquals(3, pipesConfig.getNumInFlightTuples());
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try (PipesClient prefetchingClient = new PipesClient(pipesConfig)) {
+            List<Future<PipesResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                String file = (i % 3 == 0) ? testPdfFile :
+                        (i % 3 == 1) ? "mock/embedded.xml" : "mock/does-not-exist.xml";
+                futures.add(executorService.submit(() -> prefetchingClient.process(
+                        new FetchEmitTuple(file, new FetchKey(fetcherName, file),
+                                new EmitKey(), new Metadata(), new ParseContext(),
+                                FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP))));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                PipesResult pipesResult = futures.get(i).get();
+                if (i % 3 == 2) {
+                    Assertions.assertEquals(PipesResult.STATUS.FETCH_EXCEPTION,
+                            pipesResult.getStatus());
+                    continue;
+                }
+                Assertions.assertEquals(PipesResult.STATUS.PARSE_SUCCESS, pipesResult.getStatus());
+                List<Metadata> metadataList = pipesResult.getEmitData().getMetadataList();
+                if (i % 3 == 0) {
+                    Assertions.assertEquals(1, metadataList.size());
+                    Assertions.assertEquals(testPdfFile,
+                            metadataList.get(0).get(TikaCoreProperties.RESOURCE_NAME_KEY));
+                } else {
+                    Assertions.assertEquals(5, metadataList.size());
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWarmStandby() throws Exception {
+        PipesConfig pipesConfig = PipesConfig.load(tikaConfigPath);
+        pipesConfig.setWarmStandby(true);
+        pipesConfig.setMaxFilesProcessedPerProcess(1);
+        try (PipesClient standbyClient = new PipesClient(pipesConfig)) {
+            for (int i = 0; i < 4; i++) {
+                PipesResult pipesResult = standbyClient.process(
+                        new FetchEmitTuple(testPdfFile, new FetchKey(fetcherName, testPdfFile),
+                                new EmitKey(), new Metadata(), new ParseContext(),
+                                FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+                Assertions.assertEquals(PipesResult.STATUS.PARSE_SUCCESS, pipesResult.getStatus());
+                Assertions.assertEquals(1, standbyClient.getFilesProcessed());
+            }
+        }
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.tika.pipes.fetcher.FetchKey;
+
+public class ProgressJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testResume() throws Exception {
+        Path journalPath = tempDir.resolve("journal");
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            for (int i = 0; i < 5000; i++) {
+                journal.record(key(i), PipesResult.STATUS.EMIT_SUCCESS);
+            }
+            journal.record(key(1), PipesResult.STATUS.EMIT_EXCEPTION);
+            journal.record(new FetchKey("fs", "file-2", 0, 10), PipesResult.STATUS.TIMEOUT);
+            assertEquals(5001, journal.size());
+        }
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            assertEquals(5001, journal.size());
+            assertTrue(journal.isCompleted(key(0)));
+            assertTrue(journal.isCompleted(key(4999)));
+            //latest status wins, and emit exceptions are retried by default
+            assertEquals(PipesResult.STATUS.EMIT_EXCEPTION, journal.getStatus(key(1)));
+            assertFalse(journal.isCompleted(key(1)));
+            assertTrue(journal.isCompleted(new FetchKey("fs", "file-2", 0, 10)));
+            assertFalse(journal.isCompleted(key(5000)));
+            //records after the index was written
+            journal.record(key(1), PipesResult.STATUS.EMIT_SUCCESS);
+            journal.record(key(5000), PipesResult.STATUS.PARSE_EXCEPTION_NO_EMIT);
+        }
+        //without the index, the whole journal is read
+        Files.delete(tempDir.resolve("journal.idx"));
+        try (ProgressJournal journal =
+                     new ProgressJournal(journalPath, EnumSet.of(PipesResult.STATUS.TIMEOUT))) {
+            assertEquals(5002, journal.size());
+            assertTrue(journal.isCompleted(key(1)));
+            assertTrue(journal.isCompleted(key(5000)));
+            assertFalse(journal.isCompleted(new FetchKey("fs", "file-2", 0, 10)));
+            assertNull(journal.getStatus(key(5001)));
+        }
+    }
+
+    @Test
+    public void testPartialRecord() throws Exception {
+        Path journalPath = tempDir.resolve("journal");
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            journal.record(key(0), PipesResult.STATUS.EMIT_SUCCESS);
+        }
+        long length = Files.size(journalPath);
+        //the process died in the middle of a record
+        Files.write(journalPath, new byte[]{(byte) PipesResult.STATUS.EMIT_SUCCESS.ordinal(), 0, 0},
+                StandardOpenOption.APPEND);
+        Files.delete(tempDir.resolve("journal.idx"));
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            assertEquals(1, journal.size());
+            journal.record(key(1), PipesResult.STATUS.EMIT_SUCCESS);
+        }
+        assertTrue(Files.size(journalPath) > length);
+        Files.delete(tempDir.resolve("journal.idx"));
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            assertEquals(2, journal.size());
+            assertTrue(journal.isCompleted(key(0)));
+            assertTrue(journal.isCompleted(key(1)));
+        }
+    }
+
+    @Test
+    public void testCorruptLength() throws Exception {
+        Path journalPath = tempDir.resolve("journal");
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            journal.record(key(0), PipesResult.STATUS.EMIT_SUCCESS);
+        }
+        long length = Files.size(journalPath);
+        //a garbled key length must not be allocated
+        byte[] garbled = new byte[]{(byte) PipesResult.STATUS.EMIT_SUCCESS.ordinal(),
+                0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 'a', 'b'};
+        Files.write(journalPath, garbled, StandardOpenOption.APPEND);
+        Files.delete(tempDir.resolve("journal.idx"));
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            assertEquals(1, journal.size());
+            assertTrue(journal.isCompleted(key(0)));
+        }
+        assertEquals(length, Files.size(journalPath));
+    }
+
+    @Test
+    public void testTimedFlush() throws Exception {
+        Path journalPath = tempDir.resolve("journal");
+        try (ProgressJournal journal = new ProgressJournal(journalPath)) {
+            long length = Files.size(journalPath);
+            journal.record(key(0), PipesResult.STATUS.EMIT_SUCCESS);
+            long start = System.currentTimeMillis();
+            while (Files.size(journalPath) == length &&
+                    System.currentTimeMillis() - start < 10 * ProgressJournal.FLUSH_MILLIS) {
+                Thread.sleep(50);
+            }
+            assertTrue(Files.size(journalPath) > length);
+        }
+    }
+
+    private static FetchKey key(int i) {
+        return new FetchKey("fs", "file-" + i);
+    }
+}
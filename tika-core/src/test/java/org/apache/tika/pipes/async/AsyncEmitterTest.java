@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metrics.TikaMetrics;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.MetricsPipesReporter;
+import org.apache.tika.pipes.PipesResult;
+import org.apache.tika.pipes.emitter.AbstractEmitter;
+import org.apache.tika.pipes.emitter.EmitData;
+import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.pipes.emitter.EmitterManager;
+import org.apache.tika.pipes.emitter.TikaEmitterException;
+
+public class AsyncEmitterTest {
+
+    @Test
+    public void testSlowEmitterDoesNotBlockOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingEmitter slow = new CollectingEmitter("slow", release, 0);
+        CollectingEmitter fast = new CollectingEmitter("fast", null, 0);
+        AsyncConfig asyncConfig = new AsyncConfig();
+        asyncConfig.setEmitWithinMillis(50);
+        ArrayBlockingQueue<EmitData> queue = new ArrayBlockingQueue<>(100);
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        try {
+            Future<Integer> future = executorService.submit(
+                    new AsyncEmitter(asyncConfig, queue, new EmitterManager(List.of(slow, fast))));
+            for (int i = 0; i < 20; i++) {
+                queue.put(emitData("slow", i));
+                queue.put(emitData("fast", i));
+                Thread.sleep(10);
+            }
+            //the slow emitter is stuck on its first batch
+            long start = System.currentTimeMillis();
+            while (fast.emitted.size() < 20 && System.currentTimeMillis() - start < 10000) {
+                Thread.sleep(10);
+            }
+            assertEquals(20, fast.emitted.size());
+            assertEquals(0, slow.emitted.size());
+
+            release.countDown();
+            queue.put(AsyncEmitter.EMIT_DATA_STOP_SEMAPHORE);
+            assertEquals(AsyncEmitter.EMITTER_FUTURE_CODE, future.get(30, TimeUnit.SECONDS));
+            assertEquals(20, slow.emitted.size());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        CollectingEmitter failing = new CollectingEmitter("failing", null, 2);
+        AsyncConfig asyncConfig = new AsyncConfig();
+        asyncConfig.setEmitRetryBackoffMillis(10);
+        ArrayBlockingQueue<EmitData> queue = new ArrayBlockingQueue<>(100);
+        queue.put(emitData("failing", 0));
+        queue.put(AsyncEmitter.EMIT_DATA_STOP_SEMAPHORE);
+        assertEquals(AsyncEmitter.EMITTER_FUTURE_CODE,
+                new AsyncEmitter(asyncConfig, queue,
+                        new EmitterManager(List.of(failing))).call());
+        assertEquals(1, failing.emitted.size());
+        assertEquals(3, failing.attempts.get());
+    }
+
+    @Test
+    public void testRuntimeExceptionFailsEmitter() throws Exception {
+        AbstractEmitter broken = new CollectingEmitter("broken", null, 0) {
+            @Override
+            public void emit(List<? extends EmitData> emitData) {
+                throw new IllegalStateException("bug");
+            }
+        };
+        List<EmitData> failed = Collections.synchronizedList(new ArrayList<>());
+        ArrayBlockingQueue<EmitData> queue = new ArrayBlockingQueue<>(100);
+        queue.put(emitData("broken", 0));
+        queue.put(emitData("broken", 1));
+        queue.put(AsyncEmitter.EMIT_DATA_STOP_SEMAPHORE);
+        AsyncEmitter asyncEmitter = new AsyncEmitter(new AsyncConfig(), queue,
+                new EmitterManager(List.of(broken)), (emitData, status) -> {
+                    assertEquals(PipesResult.STATUS.EMIT_EXCEPTION, status);
+                    failed.addAll(emitData);
+                });
+        TikaEmitterException e = assertThrows(TikaEmitterException.class, asyncEmitter::call);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals(2, failed.size());
+    }
+
+    @Test
+    public void testThrowingListenerNotifiedOnce() throws Exception {
+        CollectingEmitter emitter = new CollectingEmitter("e", null, 0);
+        List<PipesResult.STATUS> notified = Collections.synchronizedList(new ArrayList<>());
+        ArrayBlockingQueue<EmitData> queue = new ArrayBlockingQueue<>(100);
+        queue.put(emitData("e", 0));
+        queue.put(AsyncEmitter.EMIT_DATA_STOP_SEMAPHORE);
+        AsyncEmitter asyncEmitter = new AsyncEmitter(new AsyncConfig(), queue,
+                new EmitterManager(List.of(emitter)), (emitData, status) -> {
+                    notified.add(status);
+                    throw new IllegalStateException("listener");
+                });
+        assertThrows(TikaEmitterException.class, asyncEmitter::call);
+        assertEquals(List.of(PipesResult.STATUS.EMIT_SUCCESS), notified);
+    }
+
+    @Test
+    public void testDroppedBatchesReported() throws Exception {
+        AbstractEmitter broken = new CollectingEmitter("broken", null, 0) {
+            @Override
+            public void emit(List<? extends EmitData> emitData) {
+                throw new IllegalStateException("bug");
+            }
+        };
+        CollectingEmitter other = new CollectingEmitter("other", null, 0);
+        AsyncConfig asyncConfig = new AsyncConfig();
+        asyncConfig.setEmitWithinMillis(60000);
+        //each batch is flushed when the next one is added
+        asyncConfig.setEmitMaxEstimatedBytes(1);
+        Map<String, PipesResult.STATUS> notified = new ConcurrentHashMap<>();
+        AtomicInteger notifications = new AtomicInteger();
+        ArrayBlockingQueue<EmitData> queue = new ArrayBlockingQueue<>(100);
+        queue.put(emitData("broken", 0));
+        queue.put(emitData("other", 0));
+        queue.put(emitData("broken", 1));
+        AsyncEmitter asyncEmitter = new AsyncEmitter(asyncConfig, queue,
+                new EmitterManager(List.of(broken, other)), (emitData, status) -> {
+                    for (EmitData d : emitData) {
+                        notifications.incrementAndGet();
+                        notified.put(d.getEmitKey().getEmitKey(), status);
+                    }
+                });
+        assertThrows(TikaEmitterException.class, asyncEmitter::call);
+        //the worker reports the failed batch after it recorded the failure
+        long start = System.currentTimeMillis();
+        while (notifications.get() < 3 && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        //the batch that failed, the batch behind it and the other emitter's batch
+        assertEquals(3, notifications.get());
+        assertEquals(PipesResult.STATUS.EMIT_EXCEPTION, notified.get("broken-0"));
+        assertEquals(PipesResult.STATUS.EMIT_EXCEPTION, notified.get("broken-1"));
+        assertEquals(PipesResult.STATUS.EMIT_EXCEPTION, notified.get("other-0"));
+        assertEquals(0, other.emitted.size());
+    }
+
+    @Test
+    public void testEmitStageRecorded() throws Exception {
+        CollectingEmitter emitter = new CollectingEmitter("e", null, 0);
+        MetricsPipesReporter reporter = new MetricsPipesReporter();
+        reporter.initialize(Collections.emptyMap());
+        AsyncConfig asyncConfig = new AsyncConfig();
+        asyncConfig.setPipesReporter(reporter);
+        ArrayBlockingQueue<EmitData> queue = new ArrayBlockingQueue<>(100);
+        queue.put(emitData("e", 0));
+        queue.put(AsyncEmitter.EMIT_DATA_STOP_SEMAPHORE);
+        new AsyncEmitter(asyncConfig, queue, new EmitterManager(List.of(emitter))).call();
+        assertEquals(1, emitter.emitted.size());
+        assertEquals(1, reporter.getMetrics().getHistogram(TikaMetrics.STAGE, "emit").getCount());
+    }
+
+    private static EmitData emitData(String emitterName, int i) {
+        Metadata metadata = new Metadata();
+        metadata.set("i", Integer.toString(i));
+        return new EmitData(new EmitKey(emitterName, emitterName + "-" + i),
+                Collections.singletonList(metadata));
+    }
+
+    private static class CollectingEmitter extends AbstractEmitter {
+
+        private final List<EmitData> emitted = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final CountDownLatch release;
+        private final int failures;
+
+        CollectingEmitter(String name, CountDownLatch release, int failures) {
+            setName(name);
+            this.release = release;
+            this.failures = failures;
+        }
+
+        @Override
+        public void emit(String emitKey, List<Metadata> metadataList, ParseContext parseContext) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void emit(List<? extends EmitData> emitData)
+                throws IOException, TikaEmitterException {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new IOException("failure " + attempts.get());
+            }
+            if (release != null) {
+                try {
+                    assertTrue(release.await(30, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            emitted.addAll(emitData);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.async;
+
+import static org.apache.tika.pipes.async.FetchEmitTupleQueue.LARGE_FILE_LANE;
+import static org.apache.tika.pipes.async.FetchEmitTupleQueue.SMALL_FILE_LANE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.pipes.fetcher.FetchKey;
+import org.apache.tika.pipes.pipesiterator.PipesIterator;
+
+public class FetchEmitTupleQueueTest {
+
+    @Test
+    public void testFifo() throws Exception {
+        FetchEmitTupleQueue queue = new FetchEmitTupleQueue(10, -1, false);
+        queue.offer(List.of(tuple("a", 10), tuple("b", 1000), tuple("c", -1)), 0,
+                TimeUnit.MILLISECONDS);
+        assertEquals("a", queue.take(SMALL_FILE_LANE).getId());
+        assertEquals("b", queue.take(SMALL_FILE_LANE).getId());
+        assertEquals("c", queue.take(SMALL_FILE_LANE).getId());
+    }
+
+    @Test
+    public void testLargestFirst() throws Exception {
+        FetchEmitTupleQueue queue = new FetchEmitTupleQueue(10, -1, true);
+        queue.offer(List.of(tuple("a", 10), tuple("b", -1), tuple("c", 1000),
+                tuple("d", 10), PipesIterator.COMPLETED_SEMAPHORE), 0, TimeUnit.MILLISECONDS);
+        assertEquals("c", queue.take(SMALL_FILE_LANE).getId());
+        //ties keep their order
+        assertEquals("a", queue.take(SMALL_FILE_LANE).getId());
+        assertEquals("d", queue.take(SMALL_FILE_LANE).getId());
+        assertEquals("b", queue.take(SMALL_FILE_LANE).getId());
+        //the semaphore only comes out once the queue is empty
+        assertSame(PipesIterator.COMPLETED_SEMAPHORE, queue.take(SMALL_FILE_LANE));
+    }
+
+    @Test
+    public void testLanes() throws Exception {
+        FetchEmitTupleQueue queue = new FetchEmitTupleQueue(10, 100, false);
+        queue.offer(List.of(tuple("small", 10), tuple("unknown", -1), tuple("large", 100),
+                PipesIterator.COMPLETED_SEMAPHORE, PipesIterator.COMPLETED_SEMAPHORE), 0,
+                TimeUnit.MILLISECONDS);
+        assertEquals("large", queue.take(LARGE_FILE_LANE).getId());
+        assertEquals("small", queue.take(SMALL_FILE_LANE).getId());
+        //the large file lane takes small files when it has nothing else
+        assertEquals("unknown", queue.take(LARGE_FILE_LANE).getId());
+        assertSame(PipesIterator.COMPLETED_SEMAPHORE, queue.take(SMALL_FILE_LANE));
+        assertSame(PipesIterator.COMPLETED_SEMAPHORE, queue.take(LARGE_FILE_LANE));
+    }
+
+    @Test
+    public void testCapacity() throws Exception {
+        FetchEmitTupleQueue queue = new FetchEmitTupleQueue(2, -1, false);
+        assertTrue(queue.offer(tuple("a", -1), 0, TimeUnit.MILLISECONDS));
+        //all or nothing
+        assertFalse(queue.offer(List.of(tuple("b", -1), tuple("c", -1)), 10,
+                TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.remainingCapacity());
+        //semaphores don't count against the capacity
+        assertTrue(queue.offer(PipesIterator.COMPLETED_SEMAPHORE, 0, TimeUnit.MILLISECONDS));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        try {
+            Future<Boolean> offered = executorService.submit(() ->
+                    queue.offer(List.of(tuple("b", -1), tuple("c", -1)), 10,
+                            TimeUnit.SECONDS));
+            assertEquals("a", queue.take(SMALL_FILE_LANE).getId());
+            assertTrue(offered.get(10, TimeUnit.SECONDS));
+            assertEquals(0, queue.remainingCapacity());
+
+            //the queue is full, so this blocks until a tuple is taken
+            Future<Boolean> blocked = executorService.submit(() ->
+                    queue.offer(tuple("d", -1), 10, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertFalse(blocked.isDone());
+            assertEquals("b", queue.take(SMALL_FILE_LANE).getId());
+            assertTrue(blocked.get(10, TimeUnit.SECONDS));
+            assertEquals("c", queue.take(SMALL_FILE_LANE).getId());
+            assertEquals("d", queue.take(SMALL_FILE_LANE).getId());
+            assertSame(PipesIterator.COMPLETED_SEMAPHORE, queue.take(SMALL_FILE_LANE));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMetadataIsNotTheSize() throws Exception {
+        //the metadata goes to the parse; the size comes from the tuple or the fetch range
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.CONTENT_LENGTH, "1000");
+        assertEquals(-1, FetchEmitTupleQueue.getSize(new FetchEmitTuple("a",
+                new FetchKey("fetcher", "a"), new EmitKey("emitter", "a"), metadata)));
+        assertEquals(100, FetchEmitTupleQueue.getSize(new FetchEmitTuple("b",
+                new FetchKey("fetcher", "b", 100, 199), new EmitKey("emitter", "b"))));
+        assertEquals(1000, FetchEmitTupleQueue.getSize(tuple("c", 1000)));
+    }
+
+    private static FetchEmitTuple tuple(String id, long size) {
+        FetchEmitTuple t = new FetchEmitTuple(id, new FetchKey("fetcher", id),
+                new EmitKey("emitter", id));
+        t.setSize(size);
+        return t;
+    }
+}
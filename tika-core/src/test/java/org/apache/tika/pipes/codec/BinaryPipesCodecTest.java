@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.HandlerConfig;
+import org.apache.tika.pipes.emitter.EmitData;
+import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.pipes.fetcher.FetchKey;
+
+public class BinaryPipesCodecTest {
+
+    private final PipesCodec codec = PipesCodec.load("binary");
+
+    @Test
+    public void testTuple() throws Exception {
+        Metadata metadata = new Metadata();
+        metadata.add("k1", "v1");
+        metadata.add("k1", "v2");
+        metadata.set("k2", "é中");
+        FetchEmitTuple t = new FetchEmitTuple("id", new FetchKey("fs", "a/b.pdf", 10, 100),
+                new EmitKey("emitter", null), metadata, new ParseContext(),
+                FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP);
+        assertEquals(t, codec.decodeFetchEmitTuple(codec.encodeFetchEmitTuple(t)));
+
+        ParseContext parseContext = new ParseContext();
+        parseContext.set(HandlerConfig.class, HandlerConfig.DEFAULT_HANDLER_CONFIG);
+        t = new FetchEmitTuple("id", new FetchKey("fs", "a/b.pdf"),
+                new EmitKey("emitter", "emitKey"), new Metadata(), parseContext);
+        FetchEmitTuple deserialized = codec.decodeFetchEmitTuple(codec.encodeFetchEmitTuple(t));
+        assertEquals(t, deserialized);
+        assertEquals(HandlerConfig.DEFAULT_HANDLER_CONFIG,
+                deserialized.getParseContext().get(HandlerConfig.class));
+    }
+
+    @Test
+    public void testEmitData() throws Exception {
+        List<Metadata> metadataList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Metadata m = new Metadata();
+            m.set(TikaCoreProperties.TIKA_CONTENT, "content " + i);
+            m.set(TikaCoreProperties.RESOURCE_NAME_KEY, "file" + i);
+            m.add("multi", "a");
+            m.add("multi", "b");
+            metadataList.add(m);
+        }
+        EmitData emitData = new EmitData(new EmitKey("e", "k"), metadataList, "stack");
+        EmitData deserialized = codec.decodeEmitData(codec.encodeEmitData(emitData));
+        assertEquals(emitData.getEmitKey(), deserialized.getEmitKey());
+        assertEquals("stack", deserialized.getContainerStackTrace());
+        assertEquals(metadataList, deserialized.getMetadataList());
+
+        //the keys should only be written once
+        byte[] one = codec.encodeEmitData(new EmitData(new EmitKey("e", "k"),
+                metadataList.subList(0, 1)));
+        byte[] all = codec.encodeEmitData(emitData);
+        assertTrue(all.length < one.length * metadataList.size());
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        Metadata metadata = new Metadata();
+        assertEquals(metadata, codec.decodeMetadata(codec.encodeMetadata(metadata)));
+        metadata.set(Metadata.CONTENT_TYPE, "application/pdf");
+        metadata.set(TikaCoreProperties.TIKA_CONTENT, "x".repeat(100000));
+        assertEquals(metadata, codec.decodeMetadata(codec.encodeMetadata(metadata)));
+    }
+
+    @Test
+    public void testBadInput() throws Exception {
+        byte[] bytes = codec.encodeMetadata(new Metadata());
+        bytes[0] = 99;
+        assertThrows(IOException.class, () -> codec.decodeMetadata(bytes));
+
+        Metadata metadata = new Metadata();
+        metadata.set("k", "v");
+        byte[] truncated = codec.encodeMetadata(metadata);
+        byte[] shorter = new byte[truncated.length - 1];
+        System.arraycopy(truncated, 0, shorter, 0, shorter.length);
+        assertThrows(IOException.class, () -> codec.decodeMetadata(shorter));
+    }
+
+    @Test
+    public void testLoad() {
+        assertEquals("java", PipesCodec.load("JAVA").getName());
+        assertThrows(IllegalArgumentException.class, () -> PipesCodec.load("protobuf"));
+    }
+}
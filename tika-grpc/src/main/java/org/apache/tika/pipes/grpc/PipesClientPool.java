@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.grpc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.PipesClient;
+import org.apache.tika.pipes.PipesConfig;
+import org.apache.tika.pipes.PipesResult;
+
+/**
+ * A fixed set of <code>numClients</code> {@link PipesClient}s.  Each client can
+ * process {@link PipesConfig#getNumInFlightTuples()} tuples at a time, so the
+ * pool processes up to {@link #getCapacity()} tuples concurrently.  Callers
+ * block in {@link #process(FetchEmitTuple)} while all of the clients are busy.
+ */
+class PipesClientPool implements Closeable {
+
+    private final List<PipesClient> clients = new ArrayList<>();
+    private final BlockingQueue<PipesClient> available;
+    private final int capacity;
+
+    PipesClientPool(PipesConfig pipesConfig) {
+        int numClients = Math.max(1, pipesConfig.getNumClients());
+        int numInFlightTuples = Math.max(1, pipesConfig.getNumInFlightTuples());
+        capacity = numClients * numInFlightTuples;
+        available = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < numClients; i++) {
+            clients.add(new PipesClient(pipesConfig));
+        }
+        //interleave the clients so that the work is spread across them
+        for (int i = 0; i < numInFlightTuples; i++) {
+            available.addAll(clients);
+        }
+    }
+
+    /**
+     * @return the number of tuples that can be processed at the same time
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    PipesResult process(FetchEmitTuple t) throws IOException, InterruptedException {
+        PipesClient client = available.take();
+        try {
+            return client.process(t);
+        } finally {
+            available.add(client);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException ex = null;
+        for (PipesClient client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                ex = e;
+            }
+        }
+        if (ex != null) {
+            throw ex;
+        }
+    }
+}
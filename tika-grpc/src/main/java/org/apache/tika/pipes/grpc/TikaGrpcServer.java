@@ -20,6 +20,7 @@ import static io.grpc.health.v1.HealthCheckResponse.ServingStatus;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
@@ -45,6 +46,7 @@ public class TikaGrpcServer {
     private static final Logger LOGGER = LoggerFactory.getLogger(TikaGrpcServer.class);
     public static final int TIKA_SERVER_GRPC_DEFAULT_PORT = 50052;
     private Server server;
+    private TikaGrpcServerImpl serviceImpl;
     @Parameter(names = {"-p", "--port"}, description = "The grpc server port", help = true)
     private Integer port = TIKA_SERVER_GRPC_DEFAULT_PORT;
 
@@ -97,9 +99,10 @@ public class TikaGrpcServer {
         }
         File tikaConfigFile = new File(tikaConfigXml.getAbsolutePath());
         healthStatusManager.setStatus(TikaGrpcServer.class.getSimpleName(), ServingStatus.SERVING);
+        serviceImpl = new TikaGrpcServerImpl(tikaConfigFile.getAbsolutePath());
         server = Grpc
                 .newServerBuilderForPort(port, creds)
-                .addService(new TikaGrpcServerImpl(tikaConfigFile.getAbsolutePath()))
+                .addService(serviceImpl)
                 .addService(healthStatusManager.getHealthService())
                 .addService(ProtoReflectionServiceV1.newInstance())
                 .build()
@@ -126,6 +129,13 @@ public class TikaGrpcServer {
                     .shutdown()
                     .awaitTermination(30, TimeUnit.SECONDS);
         }
+        if (serviceImpl != null) {
+            try {
+                serviceImpl.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close the pipes clients", e);
+            }
+        }
     }
 
     /**
@@ -19,13 +19,18 @@ package org.apache.tika.pipes.grpc;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
@@ -42,8 +47,10 @@ import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
 import com.fasterxml.jackson.module.jsonSchema.JsonSchemaGenerator;
 import com.google.rpc.Status;
 import io.grpc.protobuf.StatusProto;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +68,8 @@ import org.apache.tika.GetFetcherReply;
 import org.apache.tika.GetFetcherRequest;
 import org.apache.tika.ListFetchersReply;
 import org.apache.tika.ListFetchersRequest;
+import org.apache.tika.ParseBytesReply;
+import org.apache.tika.ParseBytesRequest;
 import org.apache.tika.SaveFetcherReply;
 import org.apache.tika.SaveFetcherRequest;
 import org.apache.tika.TikaGrpc;
@@ -68,14 +77,15 @@ import org.apache.tika.config.Initializable;
 import org.apache.tika.config.Param;
 import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.pipes.FetchEmitTuple;
-import org.apache.tika.pipes.PipesClient;
 import org.apache.tika.pipes.PipesConfig;
 import org.apache.tika.pipes.PipesResult;
 import org.apache.tika.pipes.emitter.EmitKey;
 import org.apache.tika.pipes.fetcher.AbstractFetcher;
 import org.apache.tika.pipes.fetcher.FetchKey;
+import org.apache.tika.pipes.fetcher.fs.FileSystemFetcher;
 import org.apache.tika.pipes.fetcher.config.AbstractConfig;
 import org.apache.tika.pipes.fetcher.config.FetcherConfigContainer;
 
@@ -87,12 +97,27 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
     }
     public static final JsonSchemaGenerator JSON_SCHEMA_GENERATOR = new JsonSchemaGenerator(OBJECT_MAPPER);
 
+    /**
+     * Name of the file system fetcher that reads the documents uploaded by ParseBytes
+     */
+    static final String INLINE_FETCHER_NAME = "tika-grpc-inline";
+
+    static final int DEFAULT_MAX_CONTENT_CHUNK_CHARS = 65536;
+
     /**
      * FetcherID is key, The pair is the Fetcher object and the Metadata
      */
     PipesConfig pipesConfig;
-    PipesClient pipesClient;
+    PipesClientPool pipesClientPool;
+    //runs the items of the bi-directional streams; the pool bounds the concurrent parses
+    ExecutorService streamingExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "tika-grpc-stream");
+        t.setDaemon(true);
+        return t;
+    });
     ExpiringFetcherStore expiringFetcherStore;
+    //the documents uploaded by ParseBytes are staged here until they have been parsed
+    Path inlineDirectory;
 
     String tikaConfigPath;
 
@@ -110,11 +135,12 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
             tikaConfigPath = tikaConfigFile.getAbsolutePath();
         }
         pipesConfig = PipesConfig.load(tikaConfigFile.toPath());
-        pipesClient = new PipesClient(pipesConfig);
+        pipesClientPool = new PipesClientPool(pipesConfig);
 
         expiringFetcherStore = new ExpiringFetcherStore(pipesConfig.getStaleFetcherTimeoutSeconds(),
                 pipesConfig.getStaleFetcherDelaySeconds());
         this.tikaConfigPath = tikaConfigPath;
+        inlineDirectory = Files.createTempDirectory("tika-grpc-inline");
         updateTikaConfig();
     }
 
@@ -128,8 +154,8 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
             fetchersElement = tikaConfigDoc.createElement("fetchers");
             tikaConfigDoc.getDocumentElement().appendChild(fetchersElement);
         }
-        for (int i = 0; i < fetchersElement.getChildNodes().getLength(); ++i) {
-            fetchersElement.removeChild(fetchersElement.getChildNodes().item(i));
+        while (fetchersElement.hasChildNodes()) {
+            fetchersElement.removeChild(fetchersElement.getFirstChild());
         }
         for (var fetcherEntry : expiringFetcherStore.getFetchers().entrySet()) {
             AbstractFetcher fetcherObject = fetcherEntry.getValue();
@@ -145,6 +171,7 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
             populateFetcherConfigs(fetcherConfigParams, tikaConfigDoc, fetcher);
             fetchersElement.appendChild(fetcher);
         }
+        fetchersElement.appendChild(createInlineFetcherElement(tikaConfigDoc));
         DOMSource source = new DOMSource(tikaConfigDoc);
         FileWriter writer = new FileWriter(tikaConfigPath, StandardCharsets.UTF_8);
         StreamResult result = new StreamResult(writer);
@@ -154,6 +181,18 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
         transformer.transform(source, result);
     }
 
+    private Element createInlineFetcherElement(Document tikaConfigDoc) {
+        Element fetcher = tikaConfigDoc.createElement("fetcher");
+        fetcher.setAttribute("class", FileSystemFetcher.class.getName());
+        Element fetcherName = tikaConfigDoc.createElement("name");
+        fetcherName.setTextContent(INLINE_FETCHER_NAME);
+        fetcher.appendChild(fetcherName);
+        Element basePath = tikaConfigDoc.createElement("basePath");
+        basePath.setTextContent(inlineDirectory.toAbsolutePath().toString());
+        fetcher.appendChild(basePath);
+        return fetcher;
+    }
+
     private void populateFetcherConfigs(Map<String, Object> fetcherConfigParams,
                                         Document tikaConfigDoc, Element fetcher) {
         for (var configParam : fetcherConfigParams.entrySet()) {
@@ -182,22 +221,22 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
     @Override
     public StreamObserver<FetchAndParseRequest> fetchAndParseBiDirectionalStreaming(
             StreamObserver<FetchAndParseReply> responseObserver) {
-        return new StreamObserver<>() {
-            @Override
-            public void onNext(FetchAndParseRequest fetchAndParseRequest) {
-                fetchAndParseImpl(fetchAndParseRequest, responseObserver);
-            }
+        return new BiDirectionalStream((ServerCallStreamObserver<FetchAndParseReply>) responseObserver);
+    }
 
-            @Override
-            public void onError(Throwable throwable) {
-                LOG.error("Parse error occurred", throwable);
-            }
+    @Override
+    public StreamObserver<ParseBytesRequest> parseBytes(
+            StreamObserver<ParseBytesReply> responseObserver) {
+        return new ParseBytesStream(responseObserver);
+    }
 
-            @Override
-            public void onCompleted() {
-                responseObserver.onCompleted();
-            }
-        };
+    void close() throws IOException {
+        streamingExecutor.shutdownNow();
+        try {
+            pipesClientPool.close();
+        } finally {
+            FileUtils.deleteDirectory(inlineDirectory.toFile());
+        }
     }
 
     @Override
@@ -210,6 +249,17 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
 
     private void fetchAndParseImpl(FetchAndParseRequest request,
                                    StreamObserver<FetchAndParseReply> responseObserver) {
+        try {
+            responseObserver.onNext(fetchAndParseReply(request));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private FetchAndParseReply fetchAndParseReply(FetchAndParseRequest request)
+            throws IOException, InterruptedException {
         AbstractFetcher fetcher =
                 expiringFetcherStore.getFetcherAndLogAccess(request.getFetcherId());
         if (fetcher == null) {
@@ -217,43 +267,332 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
                     "Could not find fetcher with name " + request.getFetcherId());
         }
         Metadata tikaMetadata = new Metadata();
-        try {
-            ParseContext parseContext = new ParseContext();
-            String additionalFetchConfigJson = request.getAdditionalFetchConfigJson();
-            if (StringUtils.isNotBlank(additionalFetchConfigJson)) {
-                // The fetch and parse has the option to specify additional configuration
-                AbstractConfig abstractConfig = expiringFetcherStore
-                        .getFetcherConfigs()
-                        .get(fetcher.getName());
-                parseContext.set(FetcherConfigContainer.class, new FetcherConfigContainer()
-                        .setConfigClassName(abstractConfig
-                                .getClass().getName())
-                        .setJson(additionalFetchConfigJson));
+        ParseContext parseContext = new ParseContext();
+        String additionalFetchConfigJson = request.getAdditionalFetchConfigJson();
+        if (StringUtils.isNotBlank(additionalFetchConfigJson)) {
+            // The fetch and parse has the option to specify additional configuration
+            AbstractConfig abstractConfig = expiringFetcherStore
+                    .getFetcherConfigs()
+                    .get(fetcher.getName());
+            parseContext.set(FetcherConfigContainer.class, new FetcherConfigContainer()
+                    .setConfigClassName(abstractConfig
+                            .getClass().getName())
+                    .setJson(additionalFetchConfigJson));
+        }
+        PipesResult pipesResult = pipesClientPool.process(new FetchEmitTuple(request.getFetchKey(),
+                new FetchKey(fetcher.getName(), request.getFetchKey()), new EmitKey(), tikaMetadata, parseContext, FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+        FetchAndParseReply.Builder fetchReplyBuilder =
+                FetchAndParseReply.newBuilder()
+                                  .setFetchKey(request.getFetchKey())
+                        .setStatus(pipesResult.getStatus().name());
+        if (pipesResult.getStatus().equals(PipesResult.STATUS.FETCH_EXCEPTION)) {
+            fetchReplyBuilder.setErrorMessage(pipesResult.getMessage());
+        }
+        if (pipesResult.getEmitData() != null && pipesResult.getEmitData().getMetadataList() != null) {
+            for (Metadata metadata : pipesResult.getEmitData().getMetadataList()) {
+                for (String name : metadata.names()) {
+                    String value = metadata.get(name);
+                    if (value != null) {
+                        fetchReplyBuilder.putFields(name, value);
+                    }
+                }
+            }
+        }
+        return fetchReplyBuilder.build();
+    }
+
+    /**
+     * Processes the requests of a bi-directional stream concurrently, and sends the
+     * replies in the order in which the items finish.
+     * <p>
+     * Inbound flow control is manual: the stream starts by requesting as many messages as
+     * the pool can process at the same time, and it requests one more each time an item
+     * finishes, but only while the client is ready to take more replies.  If the client
+     * isn't ready, the request is deferred until the transport calls the on-ready handler.
+     */
+    private class BiDirectionalStream implements StreamObserver<FetchAndParseRequest> {
+
+        private final ServerCallStreamObserver<FetchAndParseReply> responseObserver;
+        private final Object[] lock = new Object[0];
+        private boolean started = false;
+        private int inFlight = 0;
+        private int deferredRequests = 0;
+        private boolean completed = false;
+        private boolean closed = false;
+
+        BiDirectionalStream(ServerCallStreamObserver<FetchAndParseReply> responseObserver) {
+            this.responseObserver = responseObserver;
+            responseObserver.disableAutoRequest();
+            responseObserver.setOnReadyHandler(this::onReady);
+        }
+
+        private void onReady() {
+            synchronized (lock) {
+                if (closed) {
+                    return;
+                }
+                if (!started) {
+                    started = true;
+                    responseObserver.request(pipesClientPool.getCapacity());
+                } else if (deferredRequests > 0) {
+                    responseObserver.request(deferredRequests);
+                    deferredRequests = 0;
+                }
+            }
+        }
+
+        @Override
+        public void onNext(FetchAndParseRequest fetchAndParseRequest) {
+            synchronized (lock) {
+                inFlight++;
+            }
+            streamingExecutor.execute(() -> process(fetchAndParseRequest));
+        }
+
+        private void process(FetchAndParseRequest fetchAndParseRequest) {
+            FetchAndParseReply reply;
+            try {
+                reply = fetchAndParseReply(fetchAndParseRequest);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+                return;
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                return;
+            }
+            synchronized (lock) {
+                inFlight--;
+                if (closed) {
+                    return;
+                }
+                responseObserver.onNext(reply);
+                if (responseObserver.isReady()) {
+                    responseObserver.request(1);
+                } else {
+                    deferredRequests++;
+                }
+                maybeComplete();
+            }
+        }
+
+        private void fail(Exception e) {
+            LOG.warn("Failed to fetch and parse", e);
+            synchronized (lock) {
+                inFlight--;
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                responseObserver.onError(io.grpc.Status.INTERNAL
+                        .withDescription(e.getMessage())
+                        .withCause(e)
+                        .asRuntimeException());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOG.error("Parse error occurred", throwable);
+            synchronized (lock) {
+                //the call is cancelled, so the replies can't be sent anymore
+                closed = true;
             }
-            PipesResult pipesResult = pipesClient.process(new FetchEmitTuple(request.getFetchKey(),
-                    new FetchKey(fetcher.getName(), request.getFetchKey()), new EmitKey(), tikaMetadata, parseContext, FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
-            FetchAndParseReply.Builder fetchReplyBuilder =
-                    FetchAndParseReply.newBuilder()
-                                      .setFetchKey(request.getFetchKey())
-                            .setStatus(pipesResult.getStatus().name());
-            if (pipesResult.getStatus().equals(PipesResult.STATUS.FETCH_EXCEPTION)) {
-                fetchReplyBuilder.setErrorMessage(pipesResult.getMessage());
+        }
+
+        @Override
+        public void onCompleted() {
+            synchronized (lock) {
+                completed = true;
+                maybeComplete();
+            }
+        }
+
+        private void maybeComplete() {
+            if (completed && inFlight == 0 && !closed) {
+                closed = true;
+                responseObserver.onCompleted();
             }
-            if (pipesResult.getEmitData() != null && pipesResult.getEmitData().getMetadataList() != null) {
-                for (Metadata metadata : pipesResult.getEmitData().getMetadataList()) {
-                    for (String name : metadata.names()) {
-                        String value = metadata.get(name);
-                        if (value != null) {
-                            fetchReplyBuilder.putFields(name, value);
-                        }
+        }
+    }
+
+    /**
+     * Stages the uploaded bytes of one document in the inline directory, and parses them
+     * with the inline fetcher once the client completes the stream.
+     */
+    private class ParseBytesStream implements StreamObserver<ParseBytesRequest> {
+
+        private final StreamObserver<ParseBytesReply> responseObserver;
+        private String resourceName = "";
+        private int maxContentChunkChars = DEFAULT_MAX_CONTENT_CHUNK_CHARS;
+        private Path stagedFile;
+        private OutputStream stagedOutputStream;
+        private boolean failed = false;
+
+        ParseBytesStream(StreamObserver<ParseBytesReply> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(ParseBytesRequest request) {
+            if (failed) {
+                return;
+            }
+            try {
+                if (stagedFile == null) {
+                    start(request);
+                }
+                request.getChunk().writeTo(stagedOutputStream);
+            } catch (IOException e) {
+                failed = true;
+                cleanUp();
+                responseObserver.onError(io.grpc.Status.INTERNAL
+                        .withDescription("Failed to stage the uploaded bytes: " + e.getMessage())
+                        .withCause(e)
+                        .asRuntimeException());
+            }
+        }
+
+        private void start(ParseBytesRequest request) throws IOException {
+            resourceName = request.getResourceName();
+            if (request.getMaxContentChunkChars() > 0) {
+                maxContentChunkChars = request.getMaxContentChunkChars();
+            }
+            //keep the extension so that detection on the forked side can use it
+            String extension = FilenameUtils.getExtension(resourceName);
+            stagedFile = Files.createTempFile(inlineDirectory, "inline-",
+                    StringUtils.isBlank(extension) ? "" : "." + extension);
+            stagedOutputStream = Files.newOutputStream(stagedFile);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOG.warn("ParseBytes upload failed", throwable);
+            failed = true;
+            cleanUp();
+        }
+
+        @Override
+        public void onCompleted() {
+            if (failed) {
+                return;
+            }
+            try {
+                if (stagedFile == null) {
+                    //nothing was uploaded; parse an empty document
+                    start(ParseBytesRequest.getDefaultInstance());
+                }
+                stagedOutputStream.close();
+            } catch (IOException e) {
+                cleanUp();
+                responseObserver.onError(io.grpc.Status.INTERNAL
+                        .withDescription("Failed to stage the uploaded bytes: " + e.getMessage())
+                        .withCause(e)
+                        .asRuntimeException());
+                return;
+            }
+            streamingExecutor.execute(this::parse);
+        }
+
+        private void parse() {
+            try {
+                Metadata tikaMetadata = new Metadata();
+                if (StringUtils.isNotBlank(resourceName)) {
+                    tikaMetadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, resourceName);
+                }
+                String fetchKey = stagedFile.getFileName().toString();
+                PipesResult pipesResult = pipesClientPool.process(new FetchEmitTuple(fetchKey,
+                        new FetchKey(INLINE_FETCHER_NAME, fetchKey), new EmitKey(), tikaMetadata,
+                        new ParseContext(), FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+                sendReplies(pipesResult);
+                responseObserver.onCompleted();
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to parse uploaded bytes for {}", resourceName, e);
+                responseObserver.onError(io.grpc.Status.INTERNAL
+                        .withDescription(e.getMessage())
+                        .withCause(e)
+                        .asRuntimeException());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                responseObserver.onError(io.grpc.Status.CANCELLED
+                        .withCause(e)
+                        .asRuntimeException());
+            } finally {
+                cleanUp();
+            }
+        }
+
+        private void sendReplies(PipesResult pipesResult) {
+            String status = pipesResult.getStatus().name();
+            String errorMessage = pipesResult.getMessage();
+            List<Metadata> metadataList = pipesResult.getEmitData() == null ? null :
+                    pipesResult.getEmitData().getMetadataList();
+            if (metadataList == null || metadataList.isEmpty()) {
+                ParseBytesReply.Builder builder = newReplyBuilder(status, errorMessage, 0);
+                responseObserver.onNext(builder.setLastChunk(true).build());
+                return;
+            }
+            for (int i = 0; i < metadataList.size(); i++) {
+                Metadata metadata = metadataList.get(i);
+                ParseBytesReply.Builder builder = newReplyBuilder(status, errorMessage, i);
+                for (String name : metadata.names()) {
+                    if (TikaCoreProperties.TIKA_CONTENT.getName().equals(name)) {
+                        continue;
+                    }
+                    String value = metadata.get(name);
+                    if (value != null) {
+                        builder.putFields(name, value);
+                    }
+                }
+                String content = metadata.get(TikaCoreProperties.TIKA_CONTENT);
+                if (content == null || content.isEmpty()) {
+                    responseObserver.onNext(builder.setLastChunk(true).build());
+                    continue;
+                }
+                int chunkIndex = 0;
+                int start = 0;
+                while (start < content.length()) {
+                    int end = Math.min(content.length(), start + maxContentChunkChars);
+                    //don't split a surrogate pair across two replies
+                    if (end < content.length() && end - 1 > start &&
+                            Character.isHighSurrogate(content.charAt(end - 1))) {
+                        end--;
                     }
+                    if (chunkIndex > 0) {
+                        builder = newReplyBuilder(status, errorMessage, i);
+                    }
+                    builder.setContent(content.substring(start, end))
+                            .setContentChunkIndex(chunkIndex++)
+                            .setLastChunk(end == content.length());
+                    responseObserver.onNext(builder.build());
+                    start = end;
                 }
             }
-            responseObserver.onNext(fetchReplyBuilder.build());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        }
+
+        private ParseBytesReply.Builder newReplyBuilder(String status, String errorMessage,
+                                                        int documentIndex) {
+            ParseBytesReply.Builder builder = ParseBytesReply.newBuilder()
+                    .setResourceName(resourceName)
+                    .setStatus(status)
+                    .setDocumentIndex(documentIndex);
+            if (errorMessage != null) {
+                builder.setErrorMessage(errorMessage);
+            }
+            return builder;
+        }
+
+        private void cleanUp() {
+            try {
+                if (stagedOutputStream != null) {
+                    stagedOutputStream.close();
+                }
+                if (stagedFile != null) {
+                    Files.deleteIfExists(stagedFile);
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to delete staged file {}", stagedFile, e);
+            }
         }
     }
 
@@ -39,6 +39,7 @@ import com.asarkar.grpc.test.GrpcCleanupExtension;
 import com.asarkar.grpc.test.Resources;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.ByteString;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
 import io.grpc.Status;
@@ -47,6 +48,7 @@ import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
 import org.apache.commons.io.FileUtils;
+import org.awaitility.Awaitility;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
@@ -62,6 +64,8 @@ import org.apache.tika.FetchAndParseReply;
 import org.apache.tika.FetchAndParseRequest;
 import org.apache.tika.GetFetcherReply;
 import org.apache.tika.GetFetcherRequest;
+import org.apache.tika.ParseBytesReply;
+import org.apache.tika.ParseBytesRequest;
 import org.apache.tika.SaveFetcherReply;
 import org.apache.tika.SaveFetcherRequest;
 import org.apache.tika.TikaGrpc;
@@ -277,6 +281,8 @@ public class TikaGrpcServerTest {
                     .setFetchKey("does not exist")
                     .build());
             requestStreamObserver.onCompleted();
+            // the items are processed concurrently, so the stream completes asynchronously
+            Awaitility.await().atMost(Duration.ofSeconds(60)).until(finished::get);
             assertEquals(NUM_TEST_DOCS, successes.size());
             assertEquals(1, errors.size());
             assertTrue(finished.get());
@@ -284,4 +290,72 @@ public class TikaGrpcServerTest {
             FileUtils.deleteDirectory(testDocumentFolder);
         }
     }
+
+    @Test
+    public void testParseBytes(Resources resources) throws Exception {
+        String serverName = InProcessServerBuilder.generateName();
+
+        Server server = InProcessServerBuilder
+                .forName(serverName)
+                .directExecutor()
+                .addService(new TikaGrpcServerImpl(tikaConfigXml.getAbsolutePath()))
+                .build()
+                .start();
+        resources.register(server, Duration.ofSeconds(10));
+
+        ManagedChannel channel = InProcessChannelBuilder
+                .forName(serverName)
+                .directExecutor()
+                .build();
+        resources.register(channel, Duration.ofSeconds(10));
+        TikaGrpc.TikaStub tikaStub = TikaGrpc.newStub(channel);
+
+        List<ParseBytesReply> replies = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean finished = new AtomicBoolean(false);
+        StreamObserver<ParseBytesReply> replyStreamObserver = new StreamObserver<>() {
+            @Override
+            public void onNext(ParseBytesReply parseBytesReply) {
+                replies.add(parseBytesReply);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                finished.set(true);
+            }
+        };
+
+        StreamObserver<ParseBytesRequest> requestStreamObserver = tikaStub.parseBytes(replyStreamObserver);
+        byte[] bytes = "<html><body>the quick brown fox jumped over the lazy dog</body></html>"
+                .getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i += 16) {
+            ParseBytesRequest.Builder builder = ParseBytesRequest.newBuilder()
+                    .setChunk(ByteString.copyFrom(bytes, i, Math.min(16, bytes.length - i)));
+            if (i == 0) {
+                builder.setResourceName("test.html").setMaxContentChunkChars(10);
+            }
+            requestStreamObserver.onNext(builder.build());
+        }
+        requestStreamObserver.onCompleted();
+        Awaitility.await().atMost(Duration.ofSeconds(60)).until(finished::get);
+
+        assertTrue(replies.size() > 1);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < replies.size(); i++) {
+            ParseBytesReply reply = replies.get(i);
+            assertEquals(PipesResult.STATUS.PARSE_SUCCESS.name(), reply.getStatus());
+            assertEquals("test.html", reply.getResourceName());
+            assertEquals(0, reply.getDocumentIndex());
+            assertEquals(i, reply.getContentChunkIndex());
+            assertEquals(i == replies.size() - 1, reply.getLastChunk());
+            assertTrue(reply.getContent().length() <= 10);
+            content.append(reply.getContent());
+        }
+        assertEquals("test.html", replies.get(0).getFieldsMap().get("resourceName"));
+        assertTrue(content.toString().contains("the quick brown fox jumped over the lazy dog"));
+    }
 }
@@ -77,6 +77,8 @@ public class TesseractOCRConfig implements Serializable {
     private long maxFileSizeToOcr = Integer.MAX_VALUE;
     // Minimum file size to submit file to ocr.
     private long minFileSizeToOcr = 0;
+    // Maximum size of an in-memory input to pipe to tesseract.
+    private long maxStdinBytes = 16 * 1024 * 1024;
     // The format of the ocr'ed output to be returned, txt or hocr.
     private OUTPUT_TYPE outputType = OUTPUT_TYPE.TXT;
     // Tesseract page segmentation mode.
@@ -270,6 +272,27 @@ public class TesseractOCRConfig implements Serializable {
         userConfigured.add("maxFileSizeToOcr");
     }
 
+    /**
+     * @see #setMaxStdinBytes(long maxStdinBytes)
+     */
+    public long getMaxStdinBytes() {
+        return maxStdinBytes;
+    }
+
+    /**
+     * Set the maximum size of an input that is held in memory (e.g. a page
+     * rendering) to write to tesseract's stdin and to read the output from
+     * tesseract's stdout.  Larger inputs and inputs that are not in memory are
+     * passed to tesseract in temporary files.  Set this to 0 to always use
+     * temporary files.  Input that needs image preprocessing always goes
+     * through temporary files.
+     * Default is 16MB.
+     */
+    public void setMaxStdinBytes(long maxStdinBytes) {
+        this.maxStdinBytes = maxStdinBytes;
+        userConfigured.add("maxStdinBytes");
+    }
+
     /**
      * @return timeout value for Tesseract
      * @see #setTimeoutSeconds(int timeout)
@@ -22,6 +22,8 @@ import static org.apache.tika.sax.XHTMLContentHandler.XHTML;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -50,6 +52,7 @@ import javax.imageio.ImageIO;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
@@ -94,7 +97,8 @@ import org.apache.tika.utils.XMLReaderUtils;
  * parseContext.set(TesseractOCRConfig.class, config);<br>
  * </p>
  */
-public class TesseractOCRParser extends AbstractExternalProcessParser implements Initializable {
+public class TesseractOCRParser extends AbstractExternalProcessParser
+        implements Initializable, Closeable {
 
     public static final String TESS_META = "tess:";
     public static final Property IMAGE_ROTATION = Property.externalRealSeq(TESS_META + "rotation");
@@ -144,6 +148,9 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
     //at initialization and then check langs
     //at parse time
     private boolean preloadLangs = false;
+    //if > 0, images are OCR'd by a pool of long-lived tesseract processes
+    private int workerPoolSize = 0;
+    private transient volatile TesseractWorkerPool workerPool;
     private boolean hasTesseract;
     private boolean hasImageMagick;
     private ImagePreprocessor imagePreprocessor;
@@ -170,6 +177,12 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         return Collections.emptySet();
     }
 
+    private ProcessBuilder newProcessBuilder(List<String> cmd) {
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        setEnv(pb);
+        return pb;
+    }
+
     private void setEnv(ProcessBuilder pb) {
         Map<String, String> env = pb.environment();
 
@@ -263,21 +276,71 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
 
         try (TemporaryResources tmp = new TemporaryResources()) {
             TikaInputStream tikaStream = TikaInputStream.get(stream, tmp, metadata);
-
-            //trigger the spooling to a tmp file if the stream wasn't
-            //already a TikaInputStream that contained a file
-            tikaStream.getPath();
-            //this is the text output file name specified on the tesseract
-            //commandline.  The actual output file name will have a suffix added.
-            File tmpOCROutputFile = tmp.createTemporaryFile();
             ContentHandler baseHandler = getContentHandler(config.isInlineContent(), handler, metadata, parseContext);
             XHTMLContentHandler xhtml = new XHTMLContentHandler(baseHandler, metadata);
             xhtml.startDocument();
-            parse(tikaStream, tmpOCROutputFile, xhtml, metadata, parseContext, config);
+            TesseractWorkerPool pool = workerPool;
+            if (canUseWorker(pool, tikaStream, config)) {
+                parseWithWorker(pool, tikaStream, xhtml, metadata, parseContext, config);
+            } else if (canUseStdin(tikaStream, config)) {
+                parseWithStdin(tikaStream, xhtml, metadata, parseContext, config);
+            } else {
+                //trigger the spooling to a tmp file if the stream wasn't
+                //already a TikaInputStream that contained a file
+                tikaStream.getPath();
+                //this is the text output file name specified on the tesseract
+                //commandline.  The actual output file name will have a suffix added.
+                File tmpOCROutputFile = tmp.createTemporaryFile();
+                parse(tikaStream, tmpOCROutputFile, xhtml, metadata, parseContext, config);
+            }
             xhtml.endDocument();
         }
     }
 
+    /**
+     * The long-lived processes only write plain text, and they read the input from a file.
+     * Input that is held in memory is written to a temporary file, which is still much
+     * cheaper than starting tesseract.  They only read the first image of a file, so
+     * multi-page TIFFs are OCR'd by a new process.
+     */
+    private boolean canUseWorker(TesseractWorkerPool pool, TikaInputStream tikaInputStream,
+                                 TesseractOCRConfig config) throws IOException {
+        if (pool == null) {
+            return false;
+        }
+        if (config.isEnableImagePreprocessing() || config.isApplyRotation()) {
+            return false;
+        }
+        if ("0".equals(config.getPageSegMode()) ||
+                config.getOutputType() != TesseractOCRConfig.OUTPUT_TYPE.TXT) {
+            return false;
+        }
+        //whether a process per image appends the separator depends on the version of tesseract
+        if (!config.getPageSeparator().isEmpty()) {
+            return false;
+        }
+        return TesseractWorkerPool.canPass(tikaInputStream.getPath());
+    }
+
+    /**
+     * Input that is held in memory, e.g. a page rendering, can be piped to tesseract
+     * without writing it to a temporary file first.
+     */
+    private boolean canUseStdin(TikaInputStream tikaInputStream, TesseractOCRConfig config) {
+        if (tikaInputStream.hasFile() || !tikaInputStream.hasLength()) {
+            return false;
+        }
+        if (config.isEnableImagePreprocessing() || config.isApplyRotation()) {
+            return false;
+        }
+        try {
+            return tikaInputStream.getLength() <= config.getMaxStdinBytes();
+        } catch (IOException e) {
+            //can't happen if hasLength() is true
+            return false;
+        }
+    }
+
     private ContentHandler getContentHandler(boolean isInlineContent,
                                              ContentHandler handler, Metadata metadata, ParseContext parseContext) {
         if (! isInlineContent) {
@@ -342,13 +405,7 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
 
                 if (tmpTxtOutput.exists()) {
                     try (InputStream is = new FileInputStream(tmpTxtOutput)) {
-                        if (config.getPageSegMode().equals("0")) {
-                            extractOSD(is, metadata);
-                        } else if (config.getOutputType().equals(TesseractOCRConfig.OUTPUT_TYPE.HOCR)) {
-                            extractHOCROutput(is, parseContext, xhtml);
-                        } else {
-                            extractOutput(is, xhtml);
-                        }
+                        handleOutput(is, xhtml, metadata, parseContext, config);
                     }
                 }
             }
@@ -359,6 +416,64 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         }
     }
 
+    /**
+     * Writes the input to tesseract's stdin and reads the output from its stdout,
+     * so that neither touches the disk.
+     */
+    private void parseWithStdin(TikaInputStream tikaInputStream, ContentHandler xhtml,
+                                Metadata metadata, ParseContext parseContext,
+                                TesseractOCRConfig config)
+            throws IOException, SAXException, TikaException {
+        warnOnFirstParse();
+        validateLangString(config.getLanguage());
+
+        long size = tikaInputStream.getLength();
+        if (size < config.getMinFileSizeToOcr() || size > config.getMaxFileSizeToOcr()) {
+            return;
+        }
+        UnsynchronizedByteArrayOutputStream output =
+                UnsynchronizedByteArrayOutputStream.builder().get();
+        runOCR(buildCommand("stdin", "stdout", config.getPageSeparator(), config),
+                tikaInputStream, output, config, parseContext);
+        try (InputStream is = output.toInputStream()) {
+            handleOutput(is, xhtml, metadata, parseContext, config);
+        }
+    }
+
+    private void parseWithWorker(TesseractWorkerPool pool, TikaInputStream tikaInputStream,
+                                 ContentHandler xhtml, Metadata metadata,
+                                 ParseContext parseContext, TesseractOCRConfig config)
+            throws IOException, SAXException, TikaException {
+        warnOnFirstParse();
+        validateLangString(config.getLanguage());
+
+        long size = tikaInputStream.getLength();
+        if (size < config.getMinFileSizeToOcr() || size > config.getMaxFileSizeToOcr()) {
+            return;
+        }
+        long timeoutMillis = TikaTaskTimeout.getTimeoutMillis(parseContext,
+                config.getTimeoutSeconds() * 1000);
+        List<String> cmd = buildCommand("stdin", "stdout", TesseractWorkerPool.PAGE_END, config);
+        //the last argument is the output type; options have to come before it
+        cmd.addAll(cmd.size() - 1, Arrays.asList("-c", "stream_filelist=true"));
+        byte[] text = pool.ocr(cmd, tikaInputStream.getPath(), timeoutMillis);
+        try (InputStream is = new ByteArrayInputStream(text)) {
+            extractOutput(is, xhtml);
+        }
+    }
+
+    private void handleOutput(InputStream is, ContentHandler xhtml, Metadata metadata,
+                              ParseContext parseContext, TesseractOCRConfig config)
+            throws IOException, SAXException, TikaException {
+        if (config.getPageSegMode().equals("0")) {
+            extractOSD(is, metadata);
+        } else if (config.getOutputType().equals(TesseractOCRConfig.OUTPUT_TYPE.HOCR)) {
+            extractHOCROutput(is, parseContext, xhtml);
+        } else {
+            extractOutput(is, xhtml);
+        }
+    }
+
     private void extractOSD(InputStream is, Metadata metadata) throws IOException {
         Matcher matcher = Pattern.compile("^([^:]+):\\s+(.*)").matcher("");
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(is,
@@ -413,10 +528,19 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
      */
     private void doOCR(File input, File output, TesseractOCRConfig config, ParseContext parseContext)
             throws IOException, TikaException {
+        runOCR(buildCommand(input.getPath(), output.getPath(), config.getPageSeparator(), config),
+                null, null, config, parseContext);
+    }
 
+    /**
+     * @param input  the input file name, or "stdin"
+     * @param output the output file base name, or "stdout"
+     */
+    private List<String> buildCommand(String input, String output, String pageSeparator,
+                                      TesseractOCRConfig config) {
         ArrayList<String> cmd = new ArrayList<>(
-                Arrays.asList(getTesseractPath() + getTesseractProg(), input.getPath(),
-                        output.getPath(), "--psm", config.getPageSegMode()));
+                Arrays.asList(getTesseractPath() + getTesseractProg(), input,
+                        output, "--psm", config.getPageSegMode()));
         //if --psm == 0, don't add anything else to the command line
         if (! "0".equals(config.getPageSegMode())) {
             if (!StringUtils.isBlank(config.getLanguage())) {
@@ -427,15 +551,23 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
                 cmd.add("-c");
                 cmd.add(entry.getKey() + "=" + entry.getValue());
             }
-            cmd.addAll(Arrays.asList("-c", "page_separator=" + config.getPageSeparator(), "-c",
+            cmd.addAll(Arrays.asList("-c", "page_separator=" + pageSeparator, "-c",
                     (config.isPreserveInterwordSpacing()) ? "preserve_interword_spaces=1" :
                             "preserve_interword_spaces=0",
                     config.getOutputType().name().toLowerCase(Locale.US)));
         }
         LOG.debug("Tesseract command: " + String.join(" ", cmd));
+        return cmd;
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(cmd);
-        setEnv(pb);
+    /**
+     * @param stdin  written to the process' stdin, may be <code>null</code>
+     * @param stdout receives the process' stdout, may be <code>null</code>
+     */
+    private void runOCR(List<String> cmd, InputStream stdin, OutputStream stdout,
+                        TesseractOCRConfig config, ParseContext parseContext)
+            throws IOException, TikaException {
+        ProcessBuilder pb = newProcessBuilder(cmd);
 
         Process process = null;
         String id = null;
@@ -444,7 +576,7 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         try {
             process = pb.start();
             id = register(process);
-            runOCRProcess(process, timeoutMillis);
+            runOCRProcess(process, timeoutMillis, stdin, stdout);
         } finally {
             if (process != null) {
                 process.destroyForcibly();
@@ -455,17 +587,30 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         }
     }
 
-    private void runOCRProcess(Process process, long timeoutMillis) throws IOException,
-            TikaException {
-        process.getOutputStream().close();
+    private void runOCRProcess(Process process, long timeoutMillis, InputStream stdin,
+                               OutputStream stdout) throws IOException, TikaException {
         InputStream out = process.getInputStream();
         InputStream err = process.getErrorStream();
         StringBuilder outBuilder = new StringBuilder();
         StringBuilder errBuilder = new StringBuilder();
-        Thread outThread = logStream(out, outBuilder);
+        Thread outThread = stdout == null ? logStream(out, outBuilder) : copyStream(out, stdout);
         Thread errThread = logStream(err, errBuilder);
         outThread.start();
         errThread.start();
+        if (stdin == null) {
+            process.getOutputStream().close();
+        } else {
+            //write on another thread so that the timeout applies if tesseract stops reading
+            Thread inThread = new Thread(() -> {
+                try (OutputStream os = process.getOutputStream()) {
+                    IOUtils.copy(stdin, os);
+                } catch (IOException e) {
+                    //tesseract may have exited early; the exit value tells us why
+                    LOG.debug("couldn't write to tesseract's stdin", e);
+                }
+            });
+            inThread.start();
+        }
 
         int exitValue = Integer.MIN_VALUE;
         try {
@@ -492,7 +637,15 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
                     "TesseractOCRParser bad exit value " + exitValue + " err msg: " +
                             errBuilder.toString());
         }
-
+        if (stdout != null) {
+            try {
+                //make sure all the output has been read
+                outThread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TikaException("TesseractOCRParser interrupted", e);
+            }
+        }
     }
 
     /**
@@ -560,6 +713,22 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         });
     }
 
+    /**
+     * Starts a thread that copies the standard output of the given process
+     * to the given output stream.  The stream is closed once fully processed.
+     */
+    private Thread copyStream(final InputStream stream, final OutputStream out) {
+        return new Thread(() -> {
+            try {
+                IOUtils.copy(stream, out);
+            } catch (IOException e) {
+                //swallow
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+        });
+    }
+
     @Override
     public void initialize(Map<String, Param> params) throws TikaConfigException {
         hasTesseract = hasTesseract();
@@ -575,6 +744,14 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
             }
         }
         imagePreprocessor = new ImagePreprocessor(getImageMagickPath() + getImageMagickProg());
+        if (workerPoolSize > 0 && hasTesseract) {
+            try {
+                workerPool = new TesseractWorkerPool(workerPoolSize, this::newProcessBuilder,
+                        this::register, this::release);
+            } catch (IOException e) {
+                throw new TikaConfigException("couldn't start the tesseract worker pool", e);
+            }
+        }
     }
 
     private void validateLangString(String language) throws TikaConfigException {
@@ -747,6 +924,15 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         return defaultConfig.getMaxFileSizeToOcr();
     }
 
+    @Field
+    public void setMaxStdinBytes(long maxStdinBytes) {
+        defaultConfig.setMaxStdinBytes(maxStdinBytes);
+    }
+
+    public long getMaxStdinBytes() {
+        return defaultConfig.getMaxStdinBytes();
+    }
+
     @Field
     public void setMinFileSizeToOcr(long minFileSizeToOcr) {
         defaultConfig.setMinFileSizeToOcr(minFileSizeToOcr);
@@ -879,6 +1065,45 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
     public boolean isPreloadLangs() {
         return this.preloadLangs;
     }
+
+    /**
+     * If this is greater than 0, images are OCR'd by a pool of up to this many
+     * long-lived tesseract processes rather than by a new tesseract process per image.
+     * This saves loading the language models for every image, which dominates the
+     * time it takes to OCR small images.  A good value is the number of cores that
+     * should be used for OCR; at most this many images are OCR'd at a time.
+     * <p>
+     * The processes are reused for requests with the same language, page segmentation
+     * mode and other tesseract settings.  They are only used for plain text output
+     * without image preprocessing or a page separator; everything else still starts a
+     * process per image.
+     * This requires tesseract 4 or later.
+     * <p>
+     * Default is 0.
+     *
+     * @param workerPoolSize
+     */
+    @Field
+    public void setWorkerPoolSize(int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+    }
+
+    public int getWorkerPoolSize() {
+        return workerPoolSize;
+    }
+
+    /**
+     * Stops the pool of long-lived tesseract processes, if there is one.  After this,
+     * every image is OCR'd by a new tesseract process.
+     */
+    @Override
+    public void close() {
+        TesseractWorkerPool pool = workerPool;
+        workerPool = null;
+        if (pool != null) {
+            pool.close();
+        }
+    }
     public TesseractOCRConfig getDefaultConfig() {
         return defaultConfig;
     }
@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.ocr;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.tika.exception.TikaException;
+
+/**
+ * A pool of long-lived tesseract processes.  Each process is started with
+ * <code>stream_filelist=true</code>, reads the paths of the images to OCR from
+ * its stdin, one per line, and writes the text of each image to its stdout.
+ * {@link #PAGE_END} is set as tesseract's page separator.  This saves loading
+ * the language models for every image, which dominates the time it takes to
+ * OCR small images.
+ * <p>
+ * Tesseract 4.0 writes the page separator after every image, later versions
+ * only between images, so the text of an image isn't terminated until the next
+ * image is read.  Each image is therefore followed by a blank sentinel image,
+ * whose text is dropped: either way, the separator that follows the text of the
+ * image is written at the latest when tesseract starts on the sentinel.
+ * <p>
+ * A process is only reused for the same command line, i.e. for requests with
+ * the same language, page segmentation mode and other settings.  At most
+ * <code>size</code> images are OCR'd at a time and at most <code>size</code>
+ * processes are kept; the least recently used idle process is stopped to make
+ * room for a process with a different command line.  A process that fails or
+ * times out is destroyed.
+ * <p>
+ * The processes only OCR the first image of a file, so files that can hold
+ * several images, i.e. TIFFs, must not be passed; see {@link #canPass(Path)}.
+ * The processes are stopped by {@link #close()}.
+ */
+class TesseractWorkerPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TesseractWorkerPool.class);
+
+    /**
+     * Set as the page separator of the processes to mark the end of the text of an image
+     */
+    static final String PAGE_END =
+            "tika-page-end-" + UUID.randomUUID().toString().replace("-", "");
+
+    private static final int MAX_ERR_CHARS = 4096;
+
+    private static final int SENTINEL_SIZE = 32;
+
+    private final int size;
+    private final Function<List<String>, ProcessBuilder> processBuilders;
+    private final Function<Process, String> register;
+    private final Consumer<String> release;
+    private final Semaphore permits;
+    private final Path sentinel;
+    //least recently used first
+    private final Deque<Worker> idle = new ArrayDeque<>();
+    private int busy = 0;
+    private boolean closed = false;
+
+    /**
+     * @param size            the maximum number of processes
+     * @param processBuilders creates the process builder for a command line
+     * @param register        registers a process so that it is destroyed when the jvm exits
+     * @param release         releases a process that has been destroyed
+     * @throws IOException if the sentinel image can't be written to a path that
+     *                     can be passed to the processes
+     */
+    TesseractWorkerPool(int size, Function<List<String>, ProcessBuilder> processBuilders,
+                        Function<Process, String> register, Consumer<String> release)
+            throws IOException {
+        this.size = size;
+        this.processBuilders = processBuilders;
+        this.register = register;
+        this.release = release;
+        this.permits = new Semaphore(size, true);
+        this.sentinel = writeSentinel();
+    }
+
+    /**
+     * @return a blank bitmap in the binary PBM format, which leptonica reads natively
+     */
+    private static Path writeSentinel() throws IOException {
+        Path p = Files.createTempFile("tika-tesseract-sentinel-", ".pbm");
+        try {
+            byte[] header = ("P4\n" + SENTINEL_SIZE + " " + SENTINEL_SIZE + "\n").getBytes(UTF_8);
+            byte[] pbm = Arrays.copyOf(header, header.length + SENTINEL_SIZE * SENTINEL_SIZE / 8);
+            Files.write(p, pbm);
+            if (!canPass(p)) {
+                throw new IOException("can't pass the sentinel image to tesseract: " + p);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(p);
+            throw e;
+        }
+        return p;
+    }
+
+    /**
+     * @return whether a file can be passed to a process.  Paths are written
+     * to tesseract's stdin one per line, so only plain ASCII is passed.  Files
+     * are read with leptonica's <code>pixRead</code>, which only reads the first
+     * image of a multi-page TIFF, so TIFFs are not passed.
+     */
+    static boolean canPass(Path path) throws IOException {
+        String s = path.toAbsolutePath().toString();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x20 || c > 0x7E) {
+                return false;
+            }
+        }
+        return !isTIFF(path);
+    }
+
+    /**
+     * @return whether the file starts with the little or big endian magic of
+     * a TIFF or a BigTIFF
+     */
+    static boolean isTIFF(Path path) throws IOException {
+        byte[] magic = new byte[4];
+        try (InputStream is = Files.newInputStream(path)) {
+            if (IOUtils.read(is, magic) < magic.length) {
+                return false;
+            }
+        }
+        if (magic[0] == 'I' && magic[1] == 'I') {
+            return (magic[2] == 42 || magic[2] == 43) && magic[3] == 0;
+        }
+        if (magic[0] == 'M' && magic[1] == 'M') {
+            return magic[2] == 0 && (magic[3] == 42 || magic[3] == 43);
+        }
+        return false;
+    }
+
+    /**
+     * OCRs an image with a process that runs the given command line.  This blocks
+     * while <code>size</code> images are being OCR'd.
+     *
+     * @param cmd           the command line of the process
+     * @param image         the image; see {@link #canPass(Path)}
+     * @param timeoutMillis how long to wait for the text
+     * @return the text that tesseract wrote for the image, without the page end marker
+     * @throws TikaException if the process failed or timed out
+     */
+    byte[] ocr(List<String> cmd, Path image, long timeoutMillis)
+            throws IOException, TikaException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TikaException("interrupted while waiting for a tesseract process", e);
+        }
+        Worker worker = null;
+        boolean success = false;
+        try {
+            worker = borrow(cmd);
+            byte[] text = worker.ocr(image, timeoutMillis);
+            success = true;
+            return text;
+        } finally {
+            giveBack(worker, success);
+            permits.release();
+        }
+    }
+
+    private Worker borrow(List<String> cmd) throws IOException {
+        synchronized (idle) {
+            busy++;
+            if (closed) {
+                throw new IOException("tesseract worker pool is closed");
+            }
+            //prefer the most recently used process
+            Iterator<Worker> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                Worker worker = it.next();
+                if (!worker.process.isAlive()) {
+                    it.remove();
+                    worker.close();
+                } else if (worker.cmd.equals(cmd)) {
+                    it.remove();
+                    return worker;
+                }
+            }
+            while (busy + idle.size() > size && !idle.isEmpty()) {
+                idle.removeFirst().close();
+            }
+        }
+        return new Worker(cmd);
+    }
+
+    private void giveBack(Worker worker, boolean success) {
+        synchronized (idle) {
+            busy--;
+            if (worker != null) {
+                if (success && !closed && worker.process.isAlive()) {
+                    idle.addLast(worker);
+                } else {
+                    worker.close();
+                }
+            }
+            deleteSentinelIfDone();
+        }
+    }
+
+    /**
+     * Stops the idle processes.  Processes that are OCR'ing an image are stopped
+     * once they are done, and no new processes are started.
+     */
+    void close() {
+        synchronized (idle) {
+            closed = true;
+            while (!idle.isEmpty()) {
+                idle.removeFirst().close();
+            }
+            deleteSentinelIfDone();
+        }
+    }
+
+    //call this while holding the lock on idle
+    private void deleteSentinelIfDone() {
+        if (closed && busy == 0) {
+            try {
+                Files.deleteIfExists(sentinel);
+            } catch (IOException e) {
+                LOG.warn("couldn't delete {}", sentinel, e);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first occurrence of <code>marker</code> in
+     * <code>bytes</code> at or after <code>from</code>, or -1
+     */
+    static int indexOf(byte[] bytes, int length, byte[] marker, int from) {
+        outer:
+        for (int i = from; i <= length - marker.length; i++) {
+            for (int j = 0; j < marker.length; j++) {
+                if (bytes[i + j] != marker[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private class Worker {
+
+        private final List<String> cmd;
+        private final Process process;
+        private final String id;
+        //the text of each image other than the sentinels; empty once the process'
+        //stdout is closed
+        private final BlockingQueue<Optional<byte[]>> pages = new LinkedBlockingQueue<>();
+        private final StringBuilder err = new StringBuilder();
+
+        Worker(List<String> cmd) throws IOException {
+            this.cmd = cmd;
+            LOG.debug("starting tesseract process: {}", cmd);
+            this.process = processBuilders.apply(cmd).start();
+            this.id = register.apply(process);
+            start(this::readPages, "tika-tesseract-stdout");
+            start(this::readErr, "tika-tesseract-stderr");
+        }
+
+        byte[] ocr(Path image, long timeoutMillis) throws TikaException {
+            try {
+                OutputStream stdin = process.getOutputStream();
+                stdin.write((image.toAbsolutePath() + "\n" + sentinel.toAbsolutePath() + "\n")
+                        .getBytes(UTF_8));
+                stdin.flush();
+            } catch (IOException e) {
+                throw new TikaException("couldn't write to tesseract process. err msg: " +
+                        getErr(), e);
+            }
+            Optional<byte[]> page;
+            try {
+                page = pages.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TikaException("TesseractOCRParser interrupted", e);
+            }
+            if (page == null) {
+                throw new TikaException("TesseractOCRParser timeout");
+            }
+            if (!page.isPresent()) {
+                throw new TikaException("tesseract process exited. err msg: " + getErr());
+            }
+            return page.get();
+        }
+
+        private void readPages() {
+            byte[] marker = PAGE_END.getBytes(UTF_8);
+            UnsynchronizedByteArrayOutputStream page =
+                    UnsynchronizedByteArrayOutputStream.builder().get();
+            byte[] buffer = new byte[8192];
+            //every other image is a sentinel
+            boolean isSentinel = false;
+            try (InputStream stdout = process.getInputStream()) {
+                for (int n = stdout.read(buffer); n != -1; n = stdout.read(buffer)) {
+                    //the marker may have started in an earlier read
+                    int from = Math.max(0, page.size() - marker.length + 1);
+                    page.write(buffer, 0, n);
+                    byte[] bytes = page.toByteArray();
+                    int start = 0;
+                    int end = indexOf(bytes, bytes.length, marker, from);
+                    while (end > -1) {
+                        if (!isSentinel) {
+                            pages.add(Optional.of(Arrays.copyOfRange(bytes, start, end)));
+                        }
+                        isSentinel = !isSentinel;
+                        start = end + marker.length;
+                        end = indexOf(bytes, bytes.length, marker, start);
+                    }
+                    if (start > 0) {
+                        page.reset();
+                        page.write(bytes, start, bytes.length - start);
+                    }
+                }
+            } catch (IOException e) {
+                //the process was destroyed
+            }
+            pages.add(Optional.empty());
+        }
+
+        private void readErr() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream(), UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    LOG.debug("{}", line);
+                    synchronized (err) {
+                        err.append(line).append('\n');
+                        if (err.length() > MAX_ERR_CHARS) {
+                            err.delete(0, err.length() - MAX_ERR_CHARS);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                //swallow
+            }
+        }
+
+        private String getErr() {
+            synchronized (err) {
+                return err.toString();
+            }
+        }
+
+        private void start(Runnable runnable, String name) {
+            Thread t = new Thread(runnable, name);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        void close() {
+            IOUtils.closeQuietly(process.getOutputStream());
+            process.destroyForcibly();
+            release.accept(id);
+        }
+    }
+}
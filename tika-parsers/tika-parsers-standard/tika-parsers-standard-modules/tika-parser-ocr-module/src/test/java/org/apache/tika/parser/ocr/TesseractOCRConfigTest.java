@@ -40,6 +40,7 @@ public class TesseractOCRConfigTest extends TikaTest {
         assertEquals("1", config.getPageSegMode(), "Invalid default pageSegMode value");
         assertEquals(0, config.getMinFileSizeToOcr(), "Invalid default minFileSizeToOcr value");
         assertEquals(Integer.MAX_VALUE, config.getMaxFileSizeToOcr(), "Invalid default maxFileSizeToOcr value");
+        assertEquals(16 * 1024 * 1024, config.getMaxStdinBytes(), "Invalid default maxStdinBytes value");
         assertEquals(120, config.getTimeoutSeconds(), "Invalid default timeout value");
         assertEquals(300, config.getDensity(), "Invalid default density value");
         assertEquals(4, config.getDepth(), "Invalid default depth value");
@@ -30,6 +30,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 
 import org.apache.tika.TikaTest;
@@ -37,6 +38,7 @@ import org.apache.tika.config.TikaConfig;
 import org.apache.tika.config.TikaTaskTimeout;
 import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.mime.MediaType;
@@ -82,6 +84,79 @@ public class TesseractOCRParserTest extends TikaTest {
         assertTrue(m.find());
     }
 
+    @Test
+    public void testStdin() throws Exception {
+        assumeTrue(canRun(), "can run OCR");
+        byte[] bytes;
+        try (InputStream is = getResourceAsStream("/test-documents/testOCR_spacing.png")) {
+            bytes = IOUtils.toByteArray(is);
+        }
+        TesseractOCRParser parser = new TesseractOCRParser();
+        parser.initialize(Collections.EMPTY_MAP);
+
+        //input that is in memory is piped to tesseract
+        String stdin = getText(TikaInputStream.get(bytes), parser, new ParseContext(),
+                new Metadata());
+        assertContains("The quick", stdin);
+
+        TesseractOCRConfig config = new TesseractOCRConfig();
+        config.setMaxStdinBytes(0);
+        ParseContext parseContext = new ParseContext();
+        parseContext.set(TesseractOCRConfig.class, config);
+        String files = getText(TikaInputStream.get(bytes), parser, parseContext, new Metadata());
+        assertEquals(files, stdin);
+    }
+
+    @Test
+    public void testWorkerPool() throws Exception {
+        assumeTrue(canRun(), "can run OCR");
+        TesseractOCRParser parser = new TesseractOCRParser();
+        parser.initialize(Collections.EMPTY_MAP);
+        String expected = getText("testOCR_spacing.png", parser);
+        assertContains("The quick", expected);
+
+        TesseractOCRParser pooled = new TesseractOCRParser();
+        pooled.setWorkerPoolSize(2);
+        pooled.initialize(Collections.EMPTY_MAP);
+        try {
+            //the second and third parse reuse the process of the first
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected, getText("testOCR_spacing.png", pooled));
+            }
+        } finally {
+            pooled.close();
+        }
+    }
+
+    @Test
+    public void testWorkerPoolMultiPageTiff() throws Exception {
+        assumeTrue(canRun(), "can run OCR");
+        TesseractOCRParser pooled = new TesseractOCRParser();
+        pooled.setWorkerPoolSize(1);
+        pooled.initialize(Collections.EMPTY_MAP);
+        try {
+            //the long-lived processes only read the first page of a tiff
+            String text = getText("testTIFF_multipage.tif", pooled);
+            //TIKA-4043 -- on some OS/versions of tesseract Page?2 is extracted
+            text = text.replaceAll("[^A-Za-z0-9]", " ");
+            assertContains("Page 2", text);
+        } finally {
+            pooled.close();
+        }
+    }
+
+    @Test
+    public void testWorkerPoolClose() throws Exception {
+        assumeTrue(canRun(), "can run OCR");
+        TesseractOCRParser pooled = new TesseractOCRParser();
+        pooled.setWorkerPoolSize(1);
+        pooled.initialize(Collections.EMPTY_MAP);
+        String expected = getText("testOCR_spacing.png", pooled);
+        pooled.close();
+        //images are still OCR'd, by a new process per image
+        assertEquals(expected, getText("testOCR_spacing.png", pooled));
+    }
+
 
     private Metadata getMetadata(MediaType mediaType) {
         Metadata metadata = new Metadata();
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.ocr;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.tika.exception.TikaException;
+
+/**
+ * Runs the pool against a shell script that stands in for tesseract, so this
+ * doesn't need tesseract to be installed.
+ */
+public class TesseractWorkerPoolTest {
+
+    //reads paths from stdin like tesseract with stream_filelist=true; the "text" of a
+    //file is its content, and the sentinel, a PBM, is blank
+    private static final String FAKE_TESSERACT = String.join("\n",
+            "n=0",
+            "while IFS= read -r path; do",
+            "  if [ \"$1\" = between ] && [ $n -gt 0 ]; then printf '%s' \"$2\"; fi",
+            "  case \"$(head -c 4 \"$path\")\" in",
+            "    P4*) ;;",
+            "    exit) exit 1 ;;",
+            "    *) cat \"$path\" ;;",
+            "  esac",
+            "  if [ \"$1\" = after ]; then printf '%s' \"$2\"; fi",
+            "  n=$((n + 1))",
+            "done",
+            "");
+
+    @TempDir
+    Path tempDir;
+
+    private Path script;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        assumeFalse(System.getProperty("os.name").startsWith("Windows"));
+        script = tempDir.resolve("tesseract.sh");
+        Files.write(script, FAKE_TESSERACT.getBytes(UTF_8));
+    }
+
+    @Test
+    public void testSeparatorAfterEveryPage() throws Exception {
+        //tesseract 4.0
+        assertPages("after");
+    }
+
+    @Test
+    public void testSeparatorBetweenPages() throws Exception {
+        //later versions of tesseract
+        assertPages("between");
+    }
+
+    @Test
+    public void testProcessExit() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        TesseractWorkerPool pool = newPool(started);
+        try {
+            List<String> cmd = cmd("between");
+            assertEquals("one", ocr(pool, cmd, "one"));
+            assertThrows(TikaException.class, () -> ocr(pool, cmd, "exit"));
+            //the failed process isn't reused
+            assertEquals("two", ocr(pool, cmd, "two"));
+            assertEquals(2, started.get());
+        } finally {
+            pool.close();
+        }
+    }
+
+    private void assertPages(String mode) throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        TesseractWorkerPool pool = newPool(started);
+        try {
+            List<String> cmd = cmd(mode);
+            assertEquals("one", ocr(pool, cmd, "one"));
+            assertEquals("", ocr(pool, cmd, ""));
+            assertEquals("three\nlines\n", ocr(pool, cmd, "three\nlines\n"));
+            assertEquals(1, started.get());
+        } finally {
+            pool.close();
+        }
+    }
+
+    private TesseractWorkerPool newPool(AtomicInteger started) throws Exception {
+        return new TesseractWorkerPool(1, cmd -> {
+            started.incrementAndGet();
+            return new ProcessBuilder(cmd);
+        }, process -> "id", id -> {
+        });
+    }
+
+    private List<String> cmd(String mode) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("sh");
+        cmd.add(script.toAbsolutePath().toString());
+        cmd.add(mode);
+        cmd.add(TesseractWorkerPool.PAGE_END);
+        return cmd;
+    }
+
+    private String ocr(TesseractWorkerPool pool, List<String> cmd, String text)
+            throws Exception {
+        Path image = Files.createTempFile(tempDir, "image", ".png");
+        Files.write(image, text.getBytes(UTF_8));
+        return new String(pool.ocr(cmd, image, 10000), UTF_8);
+    }
+}
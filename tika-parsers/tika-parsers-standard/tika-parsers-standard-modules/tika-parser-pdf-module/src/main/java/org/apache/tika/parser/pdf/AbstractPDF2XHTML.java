@@ -48,6 +48,7 @@ import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
@@ -96,6 +97,7 @@ import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
 
+import org.apache.tika.config.TikaTaskTimeout;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.exception.WriteLimitReachedException;
 import org.apache.tika.extractor.EmbeddedDocumentExtractor;
@@ -107,6 +109,7 @@ import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.PDF;
 import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.metadata.TikaPagedText;
+import org.apache.tika.metrics.TikaMetrics;
 import org.apache.tika.mime.MediaType;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.parser.Parser;
@@ -151,15 +154,21 @@ class AbstractPDF2XHTML extends PDFTextStripper {
     private static final String NULL_STRING = "null";
     private static final MediaType XFA_MEDIA_TYPE = MediaType.application("vnd.adobe.xdp+xml");
     private static final MediaType XMP_MEDIA_TYPE = MediaType.application("rdf+xml");
+    //this module doesn't depend on the ocr module
+    private static final String TESSERACT_OCR_CONFIG =
+            "org.apache.tika.parser.ocr.TesseractOCRConfig";
 
     final List<IOException> exceptions = new ArrayList<>();
     final PDDocument pdDocument;
     final XHTMLContentHandler xhtml;
+
     final ParseContext context;
     final Metadata metadata;
     final EmbeddedDocumentExtractor embeddedDocumentExtractor;
     final PDFParserConfig config;
     final Parser ocrParser;
+    //null unless the OCR is run on separate threads
+    final OCRPipeline ocrPipeline;
     /**
      * Format used for signature dates
      * TODO Make this thread-safe
@@ -198,7 +207,14 @@ class AbstractPDF2XHTML extends PDFTextStripper {
     AbstractPDF2XHTML(PDDocument pdDocument, ContentHandler handler, ParseContext context,
                       Metadata metadata, PDFParserConfig config) throws IOException {
         this.pdDocument = pdDocument;
-        this.xhtml = new XHTMLContentHandler(handler, metadata);
+        if (config.getOcrStrategy() != NO_OCR && config.getNumOcrThreads() > 0) {
+            ocrPipeline = new OCRPipeline(handler, config.getNumOcrThreads(),
+                    config.getMaxPendingOcrPages());
+            this.xhtml = new XHTMLContentHandler(ocrPipeline, metadata);
+        } else {
+            ocrPipeline = null;
+            this.xhtml = new XHTMLContentHandler(handler, metadata);
+        }
         this.context = context;
         this.metadata = metadata;
         this.config = config;
@@ -550,6 +566,14 @@ class AbstractPDF2XHTML extends PDFTextStripper {
             }
         }
 
+        if (ocrPipeline != null) {
+            try {
+                submitOCR(pdPage, ocrImageMediaType);
+            } catch (IOException e) {
+                handleCatchableIOE(e);
+            }
+            return;
+        }
         try (TemporaryResources tmp = new TemporaryResources()) {
             try (RenderResult renderResult = renderCurrentPage(pdPage, context, tmp)) {
                 Metadata renderMetadata = renderResult.getMetadata();
@@ -567,6 +591,84 @@ class AbstractPDF2XHTML extends PDFTextStripper {
         }
     }
 
+    /**
+     * Renders the page on this thread, because a PDDocument isn't thread safe, and hands
+     * the rendering to the OCR pipeline.
+     */
+    private void submitOCR(PDPage pdPage, MediaType ocrImageMediaType)
+            throws IOException, TikaException, SAXException {
+        TemporaryResources tmp = new TemporaryResources();
+        boolean submitted = false;
+        try {
+            RenderResult renderResult = renderCurrentPage(pdPage, context, tmp);
+            tmp.addResource(renderResult);
+            ParseContext ocrContext = newOCRContext();
+            ocrPipeline.submit(() -> ocr(renderResult, tmp, ocrImageMediaType, ocrContext), tmp);
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                tmp.close();
+            }
+        }
+        ocrPipeline.writeCompleted(false);
+        handleOCRExceptions();
+    }
+
+    /**
+     * The parse context isn't thread safe and the parsers write to it, so each OCR job
+     * gets its own context with the entries that the OCR parser reads.
+     */
+    private ParseContext newOCRContext() {
+        return context.copy(TESSERACT_OCR_CONFIG, TikaTaskTimeout.class.getName(),
+                TikaMetrics.class.getName());
+    }
+
+    /**
+     * This runs on an OCR thread.
+     */
+    private OCRPipeline.Result ocr(RenderResult renderResult, TemporaryResources tmp,
+                                   MediaType ocrImageMediaType, ParseContext ocrContext) {
+        OCRPipeline.Result result = new OCRPipeline.Result();
+        try (tmp) {
+            Metadata renderMetadata = renderResult.getMetadata();
+            try (TikaInputStream tis = renderResult.getInputStream()) {
+                renderMetadata.set(TikaCoreProperties.CONTENT_TYPE_PARSER_OVERRIDE,
+                        ocrImageMediaType.toString());
+                ocrParser.parse(tis,
+                        new EmbeddedContentHandler(new BodyContentHandler(result.getHandler())),
+                        renderMetadata, ocrContext);
+            }
+        } catch (IOException e) {
+            result.setException(e);
+        } catch (SAXException | TikaException e) {
+            result.setException(new IOException("error writing OCR content from PDF", e));
+        }
+        return result;
+    }
+
+    private void handleOCRExceptions() throws IOException {
+        for (IOException e : ocrPipeline.takeExceptions()) {
+            handleCatchableIOE(e);
+        }
+    }
+
+    /**
+     * Waits for the pending OCR and writes its output
+     */
+    void finishOCR() throws IOException, SAXException {
+        if (ocrPipeline == null) {
+            return;
+        }
+        ocrPipeline.writeCompleted(true);
+        handleOCRExceptions();
+    }
+
+    void closeOCRPipeline() {
+        if (ocrPipeline != null) {
+            ocrPipeline.close();
+        }
+    }
+
     private RenderResult renderCurrentPage(PDPage pdPage, ParseContext parseContext,
                                            TemporaryResources tmpResources)
             throws IOException, TikaException {
@@ -657,7 +759,7 @@ class AbstractPDF2XHTML extends PDFTextStripper {
         }
 
         int dpi = config.getOcrDPI();
-        Path tmpFile = null;
+        Object rendering;
 
         RenderingTracker renderingTracker = parseContext.get(RenderingTracker.class);
         if (renderingTracker == null) {
@@ -670,12 +772,21 @@ class AbstractPDF2XHTML extends PDFTextStripper {
             BufferedImage image =
                     renderer.renderImageWithDPI(pageIndex, dpi, config.getOcrImageType().getImageType());
 
-            //TODO -- get suffix based on OcrImageType
-            tmpFile = tmpResources.createTempFile();
-            try (OutputStream os = Files.newOutputStream(tmpFile)) {
-                //TODO: get output format from TesseractConfig
-                ImageIOUtil.writeImage(image, config.getOcrImageFormatName(), os, dpi,
-                        config.getOcrImageQuality());
+            UnsynchronizedByteArrayOutputStream bos =
+                    UnsynchronizedByteArrayOutputStream.builder().get();
+            //TODO: get output format from TesseractConfig
+            ImageIOUtil.writeImage(image, config.getOcrImageFormatName(), bos, dpi,
+                    config.getOcrImageQuality());
+            //keep small renderings in memory so that they never touch the disk
+            if (bos.size() <= config.getMaxInMemoryRenderingBytes()) {
+                rendering = bos.toByteArray();
+            } else {
+                //TODO -- get suffix based on OcrImageType
+                Path tmpFile = tmpResources.createTempFile();
+                try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                    bos.writeTo(os);
+                }
+                rendering = tmpFile;
             }
         } catch (SecurityException e) {
             //throw SecurityExceptions immediately
@@ -689,7 +800,7 @@ class AbstractPDF2XHTML extends PDFTextStripper {
 
             return new RenderResult(RenderResult.STATUS.EXCEPTION, id, null, pageMetadata);
         }
-        return new RenderResult(RenderResult.STATUS.SUCCESS, id, tmpFile, pageMetadata);
+        return new RenderResult(RenderResult.STATUS.SUCCESS, id, rendering, pageMetadata);
     }
 
     @Override
@@ -985,6 +1096,7 @@ class AbstractPDF2XHTML extends PDFTextStripper {
     @Override
     protected void endDocument(PDDocument pdf) throws IOException {
         try {
+            finishOCR();
             // Extract text for any bookmarks:
             if (config.isExtractBookmarksText()) {
                 extractBookmarkText();
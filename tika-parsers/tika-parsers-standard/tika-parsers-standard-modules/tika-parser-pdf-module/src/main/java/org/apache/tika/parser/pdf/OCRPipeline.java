@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.pdf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.apache.tika.sax.XHTMLContentHandler;
+
+/**
+ * Runs the OCR of rendered pages on {@link PDFParserConfig#getNumOcrThreads()} threads,
+ * while the parsing thread goes on to render the next pages, and writes the output in
+ * document order.
+ * <p>
+ * This sits between the {@link XHTMLContentHandler} of a PDF2XHTML and the handler.  While
+ * no OCR is pending, SAX events pass straight through to the handler.  Once a page has been
+ * submitted, the events that come after it are buffered until the OCR output of the page
+ * has been written.  At most {@link PDFParserConfig#getMaxPendingOcrPages()} pages are
+ * pending at a time; {@link #submit(Callable, Closeable)} blocks until the oldest page is
+ * written once the limit is reached.
+ * <p>
+ * This is not thread safe.  Only the parsing thread should call it; the OCR jobs only
+ * write to their own {@link Result}.
+ */
+class OCRPipeline extends ContentHandlerDecorator implements Closeable {
+
+    private final ContentHandler handler;
+    private final int numThreads;
+    private final int maxPendingPages;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final List<IOException> exceptions = new ArrayList<>();
+    private ExecutorService executorService;
+
+    OCRPipeline(ContentHandler handler, int numThreads, int maxPendingPages) {
+        super(handler);
+        this.handler = handler;
+        this.numThreads = numThreads;
+        this.maxPendingPages = Math.max(numThreads, maxPendingPages);
+    }
+
+    /**
+     * Submits the OCR of a page.  The output of the job is written after all the
+     * events that have been written to this handler so far.
+     *
+     * @param job the OCR job
+     * @param resources closed if the job is cancelled before it starts
+     */
+    void submit(Callable<Result> job, Closeable resources) throws IOException, SAXException {
+        while (segments.size() >= maxPendingPages) {
+            writeHead(true);
+        }
+        if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread t = new Thread(r, "tika-pdf-ocr");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        segments.add(new Segment(executorService.submit(job), resources));
+    }
+
+    /**
+     * Writes the output of the pages at the head of the pipeline whose OCR has finished,
+     * and the events that were buffered behind them.
+     *
+     * @param wait whether to wait for all of the pending pages
+     */
+    void writeCompleted(boolean wait) throws IOException, SAXException {
+        while (!segments.isEmpty()) {
+            if (!writeHead(wait)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the exceptions of the OCR jobs that have been written since the last call
+     */
+    List<IOException> takeExceptions() {
+        List<IOException> taken = new ArrayList<>(exceptions);
+        exceptions.clear();
+        return taken;
+    }
+
+    private boolean writeHead(boolean wait) throws IOException, SAXException {
+        Segment head = segments.peekFirst();
+        if (!wait && !head.ocr.isDone()) {
+            return false;
+        }
+        Result result;
+        try {
+            result = head.ocr.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for OCR", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("OCR failed", e.getCause());
+        }
+        segments.removeFirst();
+        result.events.replay(handler);
+        if (result.exception != null) {
+            exceptions.add(result.exception);
+        }
+        head.following.replay(handler);
+        return true;
+    }
+
+    /**
+     * @return where to write the next event: the handler, or the buffer behind
+     * the last pending page
+     */
+    private ContentHandler target() {
+        return segments.isEmpty() ? handler : segments.peekLast().following;
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        target().startPrefixMapping(prefix, uri);
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+        target().endPrefixMapping(prefix);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts)
+            throws SAXException {
+        target().startElement(uri, localName, qName, atts);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        target().endElement(uri, localName, qName);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        target().characters(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        target().ignorableWhitespace(ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        target().processingInstruction(target, data);
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException {
+        target().skippedEntity(name);
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        try {
+            writeCompleted(true);
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+        super.endDocument();
+    }
+
+    /**
+     * Stops the OCR threads.  The resources of the pages whose OCR hasn't started are
+     * closed; running jobs close their own.
+     */
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            if (segment.ocr.cancel(false)) {
+                IOUtils.closeQuietly(segment.resources);
+            }
+        }
+        segments.clear();
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * The output of the OCR of a page
+     */
+    static class Result {
+
+        private final SAXEventBuffer events = new SAXEventBuffer();
+        private IOException exception;
+
+        /**
+         * @return a handler for the OCR output.  This does the same to the body of
+         * a document as the XHTMLContentHandler of a PDF2XHTML, and records the result.
+         */
+        ContentHandler getHandler() {
+            return new XHTMLContentHandler(new BodyRecorder(events), new Metadata());
+        }
+
+        void setException(IOException exception) {
+            this.exception = exception;
+        }
+    }
+
+    private static class Segment {
+        private final Future<Result> ocr;
+        private final Closeable resources;
+        //the events that were written after the page was submitted
+        private final SAXEventBuffer following = new SAXEventBuffer();
+
+        Segment(Future<Result> ocr, Closeable resources) {
+            this.ocr = ocr;
+            this.resources = resources;
+        }
+    }
+
+    /**
+     * Drops the html, head and body elements that an XHTMLContentHandler writes
+     * around the output.
+     */
+    private static class BodyRecorder extends DefaultHandler {
+
+        private final SAXEventBuffer events;
+        private boolean inBody = false;
+
+        BodyRecorder(SAXEventBuffer events) {
+            this.events = events;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                                 Attributes attributes) {
+            if (inBody) {
+                events.startElement(uri, localName, qName, attributes);
+            } else if ("body".equals(localName)) {
+                inBody = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("body".equals(localName)) {
+                inBody = false;
+            } else if (inBody) {
+                events.endElement(uri, localName, qName);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inBody) {
+                events.characters(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            if (inBody) {
+                events.ignorableWhitespace(ch, start, length);
+            }
+        }
+    }
+}
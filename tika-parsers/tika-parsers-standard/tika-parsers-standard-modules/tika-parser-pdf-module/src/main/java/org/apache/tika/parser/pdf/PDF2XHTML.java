@@ -92,15 +92,27 @@ class PDF2XHTML extends AbstractPDF2XHTML {
             throws SAXException, TikaException {
         PDF2XHTML pdf2XHTML = null;
         try {
-            // Extract text using a dummy Writer as we override the
-            // key methods to output to the given content
-            // handler.
             if (config.isDetectAngles()) {
                 pdf2XHTML =
                         new AngleDetectingPDF2XHTML(document, handler, context, metadata, config);
             } else {
                 pdf2XHTML = new PDF2XHTML(document, handler, context, metadata, config);
             }
+        } catch (IOException e) {
+            throw new TikaException("Unable to extract PDF content", e);
+        }
+        process(pdf2XHTML, document, config);
+    }
+
+    /**
+     * Runs an already constructed PDF2XHTML over the document.
+     */
+    static void process(PDF2XHTML pdf2XHTML, PDDocument document, PDFParserConfig config)
+            throws SAXException, TikaException {
+        try {
+            // Extract text using a dummy Writer as we override the
+            // key methods to output to the given content
+            // handler.
             config.configure(pdf2XHTML);
 
             pdf2XHTML.writeText(document, new Writer() {
@@ -122,6 +134,8 @@ class PDF2XHTML extends AbstractPDF2XHTML {
             } else {
                 throw new TikaException("Unable to extract PDF content", e);
             }
+        } finally {
+            pdf2XHTML.closeOCRPipeline();
         }
         if (!pdf2XHTML.exceptions.isEmpty()) {
             //throw the first
@@ -215,6 +215,10 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
                     PDFMarkedContent2XHTML
                             .process(pdfDocument, handler, context, metadata,
                                     localConfig);
+                } else if (shouldExtractPagesInParallel(pdfDocument, tstream, localConfig)) {
+                    ParallelPDF2XHTML.process(pdfDocument, tstream.getPath(), password,
+                            memoryUsageSetting.streamCache, handler, context, metadata,
+                            localConfig);
                 } else {
                     PDF2XHTML.process(pdfDocument, handler, context, metadata,
                             localConfig);
@@ -247,6 +251,18 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
         }
     }
 
+    private boolean shouldExtractPagesInParallel(PDDocument pdfDocument, TikaInputStream tstream,
+                                                 PDFParserConfig localConfig) {
+        if (localConfig.getNumPageExtractionThreads() < 2 || localConfig.isDetectAngles()) {
+            return false;
+        }
+        //the workers load their own copies of the document from the file
+        if (tstream == null || !tstream.hasFile()) {
+            return false;
+        }
+        return pdfDocument.getNumberOfPages() >= localConfig.getMinPagesForParallelExtraction();
+    }
+
     private void checkEncryptedPayload(PDDocument pdfDocument,
                                        boolean hasCollection, PDFParserConfig localConfig)
             throws IOException, EncryptedDocumentException {
@@ -857,6 +873,48 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
         return defaultConfig.getOcrImageQuality();
     }
 
+    /**
+     * See {@link PDFParserConfig#setNumOcrThreads(int)}
+     *
+     * @param numOcrThreads
+     */
+    @Field
+    public void setNumOcrThreads(int numOcrThreads) {
+        defaultConfig.setNumOcrThreads(numOcrThreads);
+    }
+
+    public int getNumOcrThreads() {
+        return defaultConfig.getNumOcrThreads();
+    }
+
+    /**
+     * See {@link PDFParserConfig#setMaxPendingOcrPages(int)}
+     *
+     * @param maxPendingOcrPages
+     */
+    @Field
+    public void setMaxPendingOcrPages(int maxPendingOcrPages) {
+        defaultConfig.setMaxPendingOcrPages(maxPendingOcrPages);
+    }
+
+    public int getMaxPendingOcrPages() {
+        return defaultConfig.getMaxPendingOcrPages();
+    }
+
+    /**
+     * See {@link PDFParserConfig#setMaxInMemoryRenderingBytes(int)}
+     *
+     * @param maxInMemoryRenderingBytes
+     */
+    @Field
+    public void setMaxInMemoryRenderingBytes(int maxInMemoryRenderingBytes) {
+        defaultConfig.setMaxInMemoryRenderingBytes(maxInMemoryRenderingBytes);
+    }
+
+    public int getMaxInMemoryRenderingBytes() {
+        return defaultConfig.getMaxInMemoryRenderingBytes();
+    }
+
     @Field
     public void setOcrImageFormatName(String formatName) {
         defaultConfig.setOcrImageFormatName(formatName);
@@ -1083,6 +1141,35 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
     public boolean isThrowOnEncryptedPayload() {
         return defaultConfig.isThrowOnEncryptedPayload();
     }
+
+    /**
+     * See {@link PDFParserConfig#setNumPageExtractionThreads(int)}
+     *
+     * @param numPageExtractionThreads
+     */
+    @Field
+    public void setNumPageExtractionThreads(int numPageExtractionThreads) {
+        defaultConfig.setNumPageExtractionThreads(numPageExtractionThreads);
+    }
+
+    public int getNumPageExtractionThreads() {
+        return defaultConfig.getNumPageExtractionThreads();
+    }
+
+    /**
+     * See {@link PDFParserConfig#setMinPagesForParallelExtraction(int)}
+     *
+     * @param minPagesForParallelExtraction
+     */
+    @Field
+    public void setMinPagesForParallelExtraction(int minPagesForParallelExtraction) {
+        defaultConfig.setMinPagesForParallelExtraction(minPagesForParallelExtraction);
+    }
+
+    public int getMinPagesForParallelExtraction() {
+        return defaultConfig.getMinPagesForParallelExtraction();
+    }
+
     /**
      * This is a no-op.  There is no need to initialize multiple fields.
      * The regular field loading should happen without this.
@@ -131,6 +131,9 @@ public class PDFParserConfig implements Serializable {
     private TikaImageType ocrImageType = TikaImageType.GRAY;
     private String ocrImageFormatName = "png";
     private float ocrImageQuality = 1.0f;
+    private int numOcrThreads = 0;
+    private int maxPendingOcrPages = 4;
+    private int maxInMemoryRenderingBytes = 16 * 1024 * 1024;
 
     /**
      * Should the entire document be rendered?
@@ -164,6 +167,10 @@ public class PDFParserConfig implements Serializable {
 
     private boolean throwOnEncryptedPayload = false;
 
+    private int numPageExtractionThreads = 1;
+
+    private int minPagesForParallelExtraction = 100;
+
     /**
      * @return whether or not to extract only inline image metadata and not render the images
      */
@@ -720,6 +727,64 @@ public class PDFParserConfig implements Serializable {
         userConfigured.add("ocrImageQuality");
     }
 
+    public int getNumOcrThreads() {
+        return numOcrThreads;
+    }
+
+    /**
+     * The number of threads to run OCR on.  If this is greater than 0, the
+     * parsing thread renders the pages and hands them to these threads, so the
+     * rendering of the next page overlaps with the OCR of the previous ones.
+     * The OCR output is still written in page order.
+     * <p>
+     * The default is <code>0</code>: each page is rendered and OCR'd on the
+     * parsing thread before it moves on to the next page.
+     *
+     * @param numOcrThreads
+     */
+    public void setNumOcrThreads(int numOcrThreads) {
+        this.numOcrThreads = numOcrThreads;
+        userConfigured.add("numOcrThreads");
+    }
+
+    public int getMaxPendingOcrPages() {
+        return maxPendingOcrPages;
+    }
+
+    /**
+     * The maximum number of rendered pages that are waiting for or undergoing OCR
+     * if {@link #getNumOcrThreads()} is greater than 0.  Once this is reached, the
+     * parsing thread waits for the oldest page before it renders the next one.  This
+     * bounds the memory and temporary files used by renderings.  It is raised to the
+     * number of OCR threads if it is lower.
+     * <p>
+     * The default is <code>4</code>.
+     *
+     * @param maxPendingOcrPages
+     */
+    public void setMaxPendingOcrPages(int maxPendingOcrPages) {
+        this.maxPendingOcrPages = maxPendingOcrPages;
+        userConfigured.add("maxPendingOcrPages");
+    }
+
+    public int getMaxInMemoryRenderingBytes() {
+        return maxInMemoryRenderingBytes;
+    }
+
+    /**
+     * The maximum size of an encoded page rendering that is kept in memory
+     * and handed to the OCR parser as bytes.  Larger renderings are written to a
+     * temporary file.  Set this to <code>0</code> to always use temporary files.
+     * <p>
+     * The default is 16MB.
+     *
+     * @param maxInMemoryRenderingBytes
+     */
+    public void setMaxInMemoryRenderingBytes(int maxInMemoryRenderingBytes) {
+        this.maxInMemoryRenderingBytes = maxInMemoryRenderingBytes;
+        userConfigured.add("maxInMemoryRenderingBytes");
+    }
+
     /**
      * @return whether or not to extract PDActions
      * @see #setExtractActions(boolean)
@@ -917,6 +982,48 @@ public class PDFParserConfig implements Serializable {
         return throwOnEncryptedPayload;
     }
 
+    public int getNumPageExtractionThreads() {
+        return numPageExtractionThreads;
+    }
+
+    /**
+     * The number of threads to use to extract the text of the pages of a
+     * document.  If this is greater than 1, the page range is split into
+     * blocks of pages, and each thread extracts the text of a block with
+     * its own copy of the document.  The text is written to the handler
+     * in page order.
+     * <p>
+     * This only applies to documents that are backed by a file and that have at
+     * least {@link #getMinPagesForParallelExtraction()} pages, and it doesn't
+     * apply with {@link #setDetectAngles(boolean)}.
+     * <p>
+     * The default is <code>1</code>: the pages are processed on the calling thread.
+     *
+     * @param numPageExtractionThreads
+     */
+    public void setNumPageExtractionThreads(int numPageExtractionThreads) {
+        this.numPageExtractionThreads = numPageExtractionThreads;
+        userConfigured.add("numPageExtractionThreads");
+    }
+
+    public int getMinPagesForParallelExtraction() {
+        return minPagesForParallelExtraction;
+    }
+
+    /**
+     * The minimum number of pages for a document to be extracted on
+     * {@link #getNumPageExtractionThreads()} threads.  Loading the extra copies of a
+     * document isn't worth it for short documents.
+     * <p>
+     * The default is <code>100</code>.
+     *
+     * @param minPagesForParallelExtraction
+     */
+    public void setMinPagesForParallelExtraction(int minPagesForParallelExtraction) {
+        this.minPagesForParallelExtraction = minPagesForParallelExtraction;
+        userConfigured.add("minPagesForParallelExtraction");
+    }
+
     public enum OCR_STRATEGY {
         AUTO, NO_OCR, OCR_ONLY, OCR_AND_TEXT_EXTRACTION;
 
@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.pdf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.extractor.EmbeddedDocumentExtractor;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+
+/**
+ * Extracts the text of the pages of a large document on
+ * {@link PDFParserConfig#getNumPageExtractionThreads()} threads.
+ * <p>
+ * The page range is split into blocks of pages.  A {@link PDDocument} isn't thread safe,
+ * so each worker thread loads its own copy of the document from the file, runs a
+ * {@link PDFTextStripper} over a block and records the SAX events of each page.
+ * <p>
+ * This class walks the pages of the document on the calling thread as usual. For each
+ * page, it replays the recorded text into the handler and then does the rest of the work
+ * at the end of a page: annotations, inline images, OCR, etc.  The output is the same as
+ * with {@link PDF2XHTML}.  Only a few blocks ahead of the current page are extracted at
+ * a time, so the buffered text is bounded.
+ */
+class ParallelPDF2XHTML extends PDF2XHTML {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelPDF2XHTML.class);
+
+    //each thread gets a few blocks so that a slow block doesn't hold up the others for long
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private static final long WORKER_SHUTDOWN_SECONDS = 60;
+
+    private final ContentHandler handler;
+    private final Path path;
+    private final String password;
+    private final RandomAccessStreamCache.StreamCacheCreateFunction streamCacheCreateFunction;
+    private final ParseContext workerContext = new ParseContext();
+    //the copies of the document that aren't currently used by a worker
+    private final LinkedBlockingQueue<PDDocument> idleDocuments = new LinkedBlockingQueue<>();
+    private final List<PDDocument> documents = new ArrayList<>();
+
+    private BlockResult currentBlock;
+
+    private ParallelPDF2XHTML(PDDocument document, Path path, String password,
+                              RandomAccessStreamCache.StreamCacheCreateFunction
+                                      streamCacheCreateFunction,
+                              ContentHandler handler, ParseContext context,
+                              Metadata metadata, PDFParserConfig config) throws IOException {
+        super(document, handler, context, metadata, config);
+        //the page text has to go behind any pending OCR output
+        this.handler = ocrPipeline == null ? handler : ocrPipeline;
+        this.path = path;
+        this.password = password;
+        this.streamCacheCreateFunction = streamCacheCreateFunction;
+        //the workers don't handle embedded documents, but this keeps them from
+        //creating a parser for them
+        workerContext.set(EmbeddedDocumentExtractor.class, embeddedDocumentExtractor);
+    }
+
+    /**
+     * Converts the given PDF document (and related metadata) to a stream
+     * of XHTML SAX events sent to the given content handler.
+     *
+     * @param document PDF document
+     * @param path the file that <code>document</code> was loaded from
+     * @param handler  SAX content handler
+     * @param metadata PDF metadata
+     * @throws SAXException  if the content handler fails to process SAX events
+     * @throws TikaException if there was an exception outside of per page processing
+     */
+    static void process(PDDocument document, Path path, String password,
+                        RandomAccessStreamCache.StreamCacheCreateFunction streamCacheCreateFunction,
+                        ContentHandler handler, ParseContext context, Metadata metadata,
+                        PDFParserConfig config) throws SAXException, TikaException {
+        ParallelPDF2XHTML pdf2XHTML;
+        try {
+            pdf2XHTML = new ParallelPDF2XHTML(document, path, password,
+                    streamCacheCreateFunction, handler, context, metadata, config);
+        } catch (IOException e) {
+            throw new TikaException("Unable to extract PDF content", e);
+        }
+        try {
+            PDF2XHTML.process(pdf2XHTML, document, config);
+        } finally {
+            pdf2XHTML.closeDocuments();
+        }
+    }
+
+    @Override
+    protected void processPages(PDPageTree pages) throws IOException {
+        int first = Math.max(1, getStartPage());
+        int last = Math.min(pages.getCount(), getEndPage());
+        if (last < first) {
+            return;
+        }
+        int numThreads = config.getNumPageExtractionThreads();
+        int numPages = last - first + 1;
+        int blockSize = Math.max(1, (int) Math.ceil((double) numPages /
+                (numThreads * BLOCKS_PER_THREAD)));
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread t = new Thread(r, "tika-pdf-page-extraction");
+            t.setDaemon(true);
+            return t;
+        });
+        Deque<Future<BlockResult>> blocks = new ArrayDeque<>();
+        int nextBlockStart = first;
+        try {
+            //keep every thread busy, with one more block per thread waiting
+            while (nextBlockStart <= last && blocks.size() < numThreads * 2) {
+                blocks.add(submit(executorService, nextBlockStart,
+                        Math.min(last, nextBlockStart + blockSize - 1)));
+                nextBlockStart += blockSize;
+            }
+            for (PDPage page : pages) {
+                int pageNo = getCurrentPageNo();
+                if (pageNo >= first && pageNo <= last) {
+                    if (currentBlock == null || pageNo > currentBlock.end) {
+                        currentBlock = take(blocks.removeFirst());
+                        if (nextBlockStart <= last) {
+                            blocks.add(submit(executorService, nextBlockStart,
+                                    Math.min(last, nextBlockStart + blockSize - 1)));
+                            nextBlockStart += blockSize;
+                        }
+                    }
+                    processPage(page);
+                }
+                pageIndex++;
+            }
+        } finally {
+            executorService.shutdownNow();
+            //don't close the copies of the document while a worker is still using one
+            try {
+                if (!executorService.awaitTermination(WORKER_SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+                    LOG.warn("page extraction workers didn't stop within {} seconds",
+                            WORKER_SHUTDOWN_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Future<BlockResult> submit(ExecutorService executorService, int start, int end) {
+        return executorService.submit(() -> extract(start, end));
+    }
+
+    private BlockResult take(Future<BlockResult> future) throws IOException {
+        BlockResult result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while extracting pages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to extract pages", e.getCause());
+        }
+        totalCharacters += result.totalCharacters;
+        totalUnmappedUnicodeCharacters += result.totalUnmappedUnicodeCharacters;
+        containsDamagedFont |= result.containsDamagedFont;
+        containsNonEmbeddedFont |= result.containsNonEmbeddedFont;
+        exceptions.addAll(result.exceptions);
+        return result;
+    }
+
+    private BlockResult extract(int start, int end) throws IOException {
+        PDDocument document = idleDocuments.poll();
+        if (document == null) {
+            document = Loader.loadPDF(path.toFile(), password, streamCacheCreateFunction);
+            synchronized (documents) {
+                documents.add(document);
+            }
+        }
+        try {
+            BlockResult result = new BlockResult(end);
+            PageTextRecorder recorder = new PageTextRecorder();
+            PageRangeWorker worker =
+                    new PageRangeWorker(document, recorder, workerContext, config, result);
+            config.configure(worker);
+            worker.setStartPage(start);
+            worker.setEndPage(end);
+            worker.writeText(document, Writer.nullWriter());
+            result.totalCharacters = worker.totalCharacters;
+            result.totalUnmappedUnicodeCharacters = worker.totalUnmappedUnicodeCharacters;
+            result.containsDamagedFont = worker.containsDamagedFont;
+            result.containsNonEmbeddedFont = worker.containsNonEmbeddedFont;
+            result.exceptions.addAll(worker.exceptions);
+            return result;
+        } finally {
+            idleDocuments.add(document);
+        }
+    }
+
+    @Override
+    public void processPage(PDPage page) throws IOException {
+        PageText pageText = currentBlock.pages.get(getCurrentPageNo());
+        if (pageText == null) {
+            //the worker's text stripper skipped this page, so the serial one would have too
+            return;
+        }
+        try {
+            startPage(page);
+            pageText.events.replay(handler);
+            totalCharsPerPage = pageText.totalChars;
+            unmappedUnicodeCharsPerPage = pageText.unmappedUnicodeChars;
+        } catch (SAXException e) {
+            throw new IOException("Unable to write page text", e);
+        } catch (IOException e) {
+            handleCatchableIOE(e);
+        }
+        endPage(page);
+    }
+
+    private void closeDocuments() {
+        synchronized (documents) {
+            for (PDDocument document : documents) {
+                try {
+                    document.close();
+                } catch (IOException e) {
+                    //swallow
+                }
+            }
+            documents.clear();
+        }
+    }
+
+    /**
+     * Extracts the text of a block of pages. Everything other than the text of a page
+     * is left to the calling thread.
+     */
+    private static class PageRangeWorker extends PDF2XHTML {
+
+        private final PageTextRecorder recorder;
+        private final BlockResult result;
+
+        PageRangeWorker(PDDocument document, PageTextRecorder recorder, ParseContext context,
+                        PDFParserConfig config, BlockResult result) throws IOException {
+            super(document, recorder, context, new Metadata(), config);
+            this.recorder = recorder;
+            this.result = result;
+        }
+
+        @Override
+        protected void startDocument(PDDocument pdf) {
+        }
+
+        @Override
+        protected void endDocument(PDDocument pdf) {
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            //the page's div and first paragraph are written by the calling thread
+            super.startPage(page);
+            recorder.start(new PageText());
+        }
+
+        @Override
+        protected void endPage(PDPage page) {
+            PageText pageText = recorder.stop();
+            pageText.totalChars = totalCharsPerPage;
+            pageText.unmappedUnicodeChars = unmappedUnicodeCharsPerPage;
+            result.pages.put(getCurrentPageNo(), pageText);
+            totalCharsPerPage = 0;
+            unmappedUnicodeCharsPerPage = 0;
+        }
+    }
+
+    private static class BlockResult {
+        private final int end;
+        private final Map<Integer, PageText> pages = new HashMap<>();
+        private final List<IOException> exceptions = new ArrayList<>();
+        private int totalCharacters;
+        private int totalUnmappedUnicodeCharacters;
+        private boolean containsDamagedFont;
+        private boolean containsNonEmbeddedFont;
+
+        BlockResult(int end) {
+            this.end = end;
+        }
+    }
+
+    private static class PageText {
+        private final SAXEventBuffer events = new SAXEventBuffer();
+        private int totalChars;
+        private int unmappedUnicodeChars;
+    }
+
+    /**
+     * Records the SAX events between {@link #start(PageText)} and {@link #stop()}
+     * and drops the others.
+     */
+    private static class PageTextRecorder extends DefaultHandler {
+
+        private PageText pageText;
+
+        void start(PageText pageText) {
+            this.pageText = pageText;
+        }
+
+        PageText stop() {
+            PageText stopped = pageText;
+            pageText = null;
+            return stopped == null ? new PageText() : stopped;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                                 Attributes attributes) {
+            if (pageText != null) {
+                pageText.events.startElement(uri, localName, qName, attributes);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (pageText != null) {
+                pageText.events.endElement(uri, localName, qName);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (pageText != null) {
+                pageText.events.characters(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            if (pageText != null) {
+                pageText.events.ignorableWhitespace(ch, start, length);
+            }
+        }
+    }
+}
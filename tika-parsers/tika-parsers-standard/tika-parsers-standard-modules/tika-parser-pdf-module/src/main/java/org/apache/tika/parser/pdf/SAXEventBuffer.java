@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.pdf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Records SAX events in memory so that they can be replayed into another
+ * handler later, e.g. once the output that comes before them has been written.
+ */
+class SAXEventBuffer extends DefaultHandler {
+
+    private final List<SAXEvent> events = new ArrayList<>();
+
+    boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    void replay(ContentHandler handler) throws SAXException {
+        for (SAXEvent event : events) {
+            event.replay(handler);
+        }
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) {
+        events.add(h -> h.startPrefixMapping(prefix, uri));
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) {
+        events.add(h -> h.endPrefixMapping(prefix));
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        Attributes copy = new AttributesImpl(attributes);
+        events.add(h -> h.startElement(uri, localName, qName, copy));
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        events.add(h -> h.endElement(uri, localName, qName));
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        char[] copy = copy(ch, start, length);
+        events.add(h -> h.characters(copy, 0, copy.length));
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+        char[] copy = copy(ch, start, length);
+        events.add(h -> h.ignorableWhitespace(copy, 0, copy.length));
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) {
+        events.add(h -> h.processingInstruction(target, data));
+    }
+
+    @Override
+    public void skippedEntity(String name) {
+        events.add(h -> h.skippedEntity(name));
+    }
+
+    private static char[] copy(char[] ch, int start, int length) {
+        char[] copy = new char[length];
+        System.arraycopy(ch, start, copy, 0, length);
+        return copy;
+    }
+
+    private interface SAXEvent {
+        void replay(ContentHandler handler) throws SAXException;
+    }
+}
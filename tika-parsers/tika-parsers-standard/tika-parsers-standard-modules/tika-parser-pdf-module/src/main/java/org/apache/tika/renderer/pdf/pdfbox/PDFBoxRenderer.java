@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -88,6 +89,7 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
     private int defaultDPI = 300;
     private ImageType defaultImageType = ImageType.GRAY;
     private String defaultImageFormatName = "png";
+    private int defaultMaxInMemoryBytes = 16 * 1024 * 1024;
 
 
     @Override
@@ -138,6 +140,9 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
             tracker = new RenderingTracker();
             parseContext.set(RenderingTracker.class, tracker);
         }
+        //the results of a range are held until the caller closes them, so only
+        //keep the rendering in memory if a single page was requested
+        int maxInMemoryBytes = start == endInclusive ? getMaxInMemoryBytes(parseContext) : -1;
         for (int i = start; i <= endInclusive; i++) {
             int id = tracker.getNextId();
             Metadata m = new Metadata();
@@ -146,7 +151,7 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
             try {
                 m.set(TikaPagedText.PAGE_NUMBER, i);
                 m.set(TikaPagedText.PAGE_ROTATION, (double)pdDocument.getPage(i - 1).getRotation());
-                results.add(renderPage(renderer, id, i, m, parseContext));
+                results.add(renderPage(renderer, id, i, m, parseContext, maxInMemoryBytes));
             } catch (IOException e) {
                 EmbeddedDocumentUtil.recordException(e, m);
                 results.add(new RenderResult(RenderResult.STATUS.EXCEPTION, id, null, m));
@@ -157,9 +162,20 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
     protected RenderResult renderPage(PDFRenderer renderer, int id, int pageNumber,
                                       Metadata metadata, ParseContext parseContext)
             throws IOException {
+        return renderPage(renderer, id, pageNumber, metadata, parseContext, -1);
+    }
+
+    /**
+     * @param maxInMemoryBytes renderings up to this size are kept in memory rather
+     *                         than written to a temporary file
+     */
+    protected RenderResult renderPage(PDFRenderer renderer, int id, int pageNumber,
+                                      Metadata metadata, ParseContext parseContext,
+                                      int maxInMemoryBytes)
+            throws IOException {
 
-        Path tmpFile = Files.createTempFile("tika-pdfbox-rendering-",
-                "-" + id + "-" + pageNumber + "." + getImageFormatName(parseContext));
+        Path tmpFile = null;
+        Object rendering;
         try {
             long start = System.currentTimeMillis();
             //TODO: parameterize whether or not to un-rotate page?
@@ -170,8 +186,18 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
             long renderingElapsed = System.currentTimeMillis() - start;
             metadata.set(PDFBOX_RENDERING_TIME_MS, renderingElapsed);
             start = System.currentTimeMillis();
-            try (OutputStream os = Files.newOutputStream(tmpFile)) {
-                ImageIOUtil.writeImage(image, getImageFormatName(parseContext), os, getDPI(parseContext));
+            UnsynchronizedByteArrayOutputStream bos =
+                    UnsynchronizedByteArrayOutputStream.builder().get();
+            ImageIOUtil.writeImage(image, getImageFormatName(parseContext), bos, getDPI(parseContext));
+            if (bos.size() <= maxInMemoryBytes) {
+                rendering = bos.toByteArray();
+            } else {
+                tmpFile = Files.createTempFile("tika-pdfbox-rendering-",
+                        "-" + id + "-" + pageNumber + "." + getImageFormatName(parseContext));
+                try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                    bos.writeTo(os);
+                }
+                rendering = tmpFile;
             }
             long elapsedWrite = System.currentTimeMillis() - start;
             metadata.set(PDFBOX_IMAGE_WRITING_TIME_MS, elapsedWrite);
@@ -180,14 +206,16 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
             //throw SecurityExceptions immediately
             throw e;
         } catch (Exception e) {
-            try {
-                Files.delete(tmpFile);
-            } catch (IOException ex) {
-                LOG.warn("couldn't delete " + tmpFile, ex);
+            if (tmpFile != null) {
+                try {
+                    Files.delete(tmpFile);
+                } catch (IOException ex) {
+                    LOG.warn("couldn't delete " + tmpFile, ex);
+                }
             }
             throw new IOException(e);
         }
-        return new RenderResult(RenderResult.STATUS.SUCCESS, id, tmpFile, metadata);
+        return new RenderResult(RenderResult.STATUS.SUCCESS, id, rendering, metadata);
     }
 
     @Override
@@ -213,6 +241,14 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
         this.defaultImageFormatName = imageFormatName;
     }
 
+    /**
+     * When a single page is rendered, renderings up to this size are kept in memory
+     * rather than written to a temporary file.
+     */
+    public void setMaxInMemoryBytes(int maxInMemoryBytes) {
+        this.defaultMaxInMemoryBytes = maxInMemoryBytes;
+    }
+
     protected int getDPI(ParseContext parseContext) {
         PDFParserConfig pdfParserConfig = parseContext.get(PDFParserConfig.class);
         if (pdfParserConfig == null) {
@@ -229,6 +265,14 @@ public class PDFBoxRenderer implements PDDocumentRenderer, Initializable {
         return pdfParserConfig.getOcrImageType().getImageType();
     }
 
+    protected int getMaxInMemoryBytes(ParseContext parseContext) {
+        PDFParserConfig pdfParserConfig = parseContext.get(PDFParserConfig.class);
+        if (pdfParserConfig == null) {
+            return defaultMaxInMemoryBytes;
+        }
+        return pdfParserConfig.getMaxInMemoryRenderingBytes();
+    }
+
     protected String getImageFormatName(ParseContext parseContext) {
         PDFParserConfig pdfParserConfig = parseContext.get(PDFParserConfig.class);
         if (pdfParserConfig == null) {
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.pdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.apache.tika.sax.ToTextContentHandler;
+
+public class OCRPipelineTest {
+
+    @Test
+    public void testOutputInDocumentOrder() throws Exception {
+        ToTextContentHandler text = new ToTextContentHandler();
+        CountDownLatch firstPage = new CountDownLatch(1);
+        try (OCRPipeline pipeline = new OCRPipeline(text, 2, 2)) {
+            pipeline.startDocument();
+            characters(pipeline, "a ");
+            //the first page finishes after the second one
+            pipeline.submit(() -> {
+                firstPage.await(10, TimeUnit.SECONDS);
+                return result("ocr1 ");
+            }, null);
+            characters(pipeline, "b ");
+            pipeline.submit(() -> {
+                firstPage.countDown();
+                return result("ocr2 ");
+            }, null);
+            characters(pipeline, "c");
+            pipeline.endDocument();
+        }
+        assertEquals("a ocr1 b ocr2 c", text.toString());
+    }
+
+    @Test
+    public void testExceptions() throws Exception {
+        ToTextContentHandler text = new ToTextContentHandler();
+        try (OCRPipeline pipeline = new OCRPipeline(text, 1, 1)) {
+            pipeline.startDocument();
+            pipeline.submit(() -> {
+                OCRPipeline.Result result = result("partial ");
+                result.setException(new IOException("ocr failed"));
+                return result;
+            }, null);
+            characters(pipeline, "after");
+            pipeline.writeCompleted(true);
+            List<IOException> exceptions = pipeline.takeExceptions();
+            assertEquals(1, exceptions.size());
+            assertEquals("ocr failed", exceptions.get(0).getMessage());
+            assertTrue(pipeline.takeExceptions().isEmpty());
+            pipeline.endDocument();
+        }
+        assertEquals("partial after", text.toString());
+    }
+
+    private static OCRPipeline.Result result(String content) throws SAXException {
+        OCRPipeline.Result result = new OCRPipeline.Result();
+        ContentHandler handler = result.getHandler();
+        handler.startDocument();
+        characters(handler, content);
+        handler.endDocument();
+        return result;
+    }
+
+    private static void characters(ContentHandler handler, String s) throws SAXException {
+        handler.characters(s.toCharArray(), 0, s.length());
+    }
+}
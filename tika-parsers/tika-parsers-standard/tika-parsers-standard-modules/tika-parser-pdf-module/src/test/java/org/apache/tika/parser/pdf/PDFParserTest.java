@@ -52,6 +52,7 @@ import org.apache.tika.exception.EncryptedDocumentException;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.exception.ZeroByteFileException;
 import org.apache.tika.extractor.DocumentSelector;
+import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Font;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.PDF;
@@ -498,6 +499,32 @@ public class PDFParserTest extends TikaTest {
         assertContains("( overlap )", r.xml);
     }
 
+    @Test
+    public void testParallelPageExtraction() throws Exception {
+        PDFParser parser = new PDFParser();
+        XMLResult serial = getXMLFromFile("testJournalParser.pdf", parser);
+
+        parser.getPDFParserConfig().setNumPageExtractionThreads(3);
+        parser.getPDFParserConfig().setMinPagesForParallelExtraction(1);
+        XMLResult parallel = getXMLFromFile("testJournalParser.pdf", parser);
+
+        assertEquals(serial.xml, parallel.xml);
+        assertArrayEquals(serial.metadata.getValues(PDF.CHARACTERS_PER_PAGE),
+                parallel.metadata.getValues(PDF.CHARACTERS_PER_PAGE));
+        assertArrayEquals(serial.metadata.getValues(PDF.UNMAPPED_UNICODE_CHARS_PER_PAGE),
+                parallel.metadata.getValues(PDF.UNMAPPED_UNICODE_CHARS_PER_PAGE));
+        assertEquals(serial.metadata.get(PDF.TOTAL_UNMAPPED_UNICODE_CHARS),
+                parallel.metadata.get(PDF.TOTAL_UNMAPPED_UNICODE_CHARS));
+    }
+
+    //the workers load their own copies of the document, so this needs a file
+    private XMLResult getXMLFromFile(String fileName, Parser parser) throws Exception {
+        try (TikaInputStream tis = TikaInputStream.get(
+                getResourceAsFile("/test-documents/" + fileName).toPath())) {
+            return getXML(tis, parser, new Metadata());
+        }
+    }
+
     @Test
     public void testSortByPosition() throws Exception {
         PDFParser parser = new PDFParser();
@@ -43,6 +43,8 @@ import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.PDF;
 import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metrics.ParseTimer;
+import org.apache.tika.metrics.TikaMetrics;
 import org.apache.tika.mime.MediaType;
 import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.parser.ParseContext;
@@ -428,6 +430,29 @@ public class PDFParserTest extends TikaTest {
         assertNotContained("Applications", xmlResult.xml);
     }
 
+    @Test
+    public void testOCRThreads() throws Exception {
+        assumeTrue(canRunOCR(), "can run OCR");
+        PDFParserConfig config = new PDFParserConfig();
+        config.setOcrRenderingStrategy(PDFParserConfig.OCR_RENDERING_STRATEGY.ALL);
+        config.setOcrStrategy(PDFParserConfig.OCR_STRATEGY.OCR_ONLY);
+        ParseContext parseContext = new ParseContext();
+        parseContext.set(PDFParserConfig.class, config);
+        String expected = getText("testPDF_XFA_govdocs1_258578.pdf", new Metadata(), parseContext);
+
+        config.setNumOcrThreads(2);
+        parseContext = new ParseContext();
+        parseContext.set(PDFParserConfig.class, config);
+        TesseractOCRConfig tesseractOCRConfig = new TesseractOCRConfig();
+        tesseractOCRConfig.setLanguage("eng");
+        parseContext.set(TesseractOCRConfig.class, tesseractOCRConfig);
+        parseContext.set(TikaMetrics.class, new TikaMetrics());
+        assertEquals(expected,
+                getText("testPDF_XFA_govdocs1_258578.pdf", new Metadata(), parseContext));
+        //the OCR threads didn't leave their timers in the parse context
+        assertNull(parseContext.get(ParseTimer.class));
+    }
+
     @Test
     public void testTesseractInitializationWorks() throws Exception {
         //TIKA-2970 -- make sure that configurations set on the TesseractOCRParser
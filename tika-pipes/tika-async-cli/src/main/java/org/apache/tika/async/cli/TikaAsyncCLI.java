@@ -49,6 +49,9 @@ public class TikaAsyncCLI {
         options.addOption("?", "help", false, "this help message");
         options.addOption("t", "timeoutMs", true, "timeout for each parse in milliseconds");
         options.addOption("l", "fileList", true, "file list");
+        options.addOption("j", "journal", true,
+                "progress journal; if the run is restarted with the same journal, " +
+                        "the files that were completed are skipped");
 
         return options;
     }
@@ -100,6 +103,7 @@ public class TikaAsyncCLI {
         Long timeoutMs = null;
         Integer numClients = null;
         String fileList = null;
+        String progressJournal = null;
         if (line.hasOption("i")) {
             inputDir = line.getOptionValue("i");
         }
@@ -118,8 +122,11 @@ public class TikaAsyncCLI {
         if (line.hasOption("l")) {
             fileList = line.getOptionValue("l");
         }
+        if (line.hasOption("j")) {
+            progressJournal = line.getOptionValue("j");
+        }
         return new SimpleAsyncConfig(inputDir, outputDir,
-                numClients, timeoutMs, xmx, fileList);
+                numClients, timeoutMs, xmx, fileList, progressJournal);
     }
 
 
@@ -121,11 +121,13 @@ public class AZBlobPipesIterator extends PipesIterator implements Initializable
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("adding ({}) {} in {} ms", count, blob.getName(), elapsed);
             }
-            //TODO -- extract metadata about content length etc from properties
             ParseContext parseContext = new ParseContext();
             parseContext.set(HandlerConfig.class, handlerConfig);
-            tryToAdd(new FetchEmitTuple(blob.getName(), new FetchKey(fetcherName, blob.getName()), new EmitKey(emitterName, blob.getName()), new Metadata(), parseContext,
-                    getOnParseException()));
+            //the size lets the async processor order the tuples and pick a lane
+            FetchEmitTuple t = new FetchEmitTuple(blob.getName(), new FetchKey(fetcherName, blob.getName()), new EmitKey(emitterName, blob.getName()), new Metadata(), parseContext,
+                    getOnParseException());
+            t.setSize(blob.getProperties().getContentLength());
+            tryToAdd(t);
             count++;
         }
         long elapsed = System.currentTimeMillis() - start;
@@ -116,8 +116,11 @@ public class GCSPipesIterator extends PipesIterator implements Initializable {
             //TODO -- allow user specified metadata as the "id"?
             ParseContext parseContext = new ParseContext();
             parseContext.set(HandlerConfig.class, handlerConfig);
-            tryToAdd(new FetchEmitTuple(blob.getName(), new FetchKey(fetcherName, blob.getName()), new EmitKey(emitterName, blob.getName()), new Metadata(), parseContext,
-                    getOnParseException()));
+            //the size lets the async processor order the tuples and pick a lane
+            FetchEmitTuple t = new FetchEmitTuple(blob.getName(), new FetchKey(fetcherName, blob.getName()), new EmitKey(emitterName, blob.getName()), new Metadata(), parseContext,
+                    getOnParseException());
+            t.setSize(blob.getSize());
+            tryToAdd(t);
             count++;
         }
         long elapsed = System.currentTimeMillis() - start;
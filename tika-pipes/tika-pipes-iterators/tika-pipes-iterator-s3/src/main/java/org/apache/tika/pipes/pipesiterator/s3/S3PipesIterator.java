@@ -200,8 +200,11 @@ public class S3PipesIterator extends PipesIterator implements Initializable {
             //TODO -- allow user specified metadata as the "id"?
             ParseContext parseContext = new ParseContext();
             parseContext.set(HandlerConfig.class, handlerConfig);
-            tryToAdd(new FetchEmitTuple(summary.getKey(), new FetchKey(fetcherName, summary.getKey()), new EmitKey(emitterName, summary.getKey()), new Metadata(), parseContext,
-                    getOnParseException()));
+            //the size lets the async processor order the tuples and pick a lane
+            FetchEmitTuple t = new FetchEmitTuple(summary.getKey(), new FetchKey(fetcherName, summary.getKey()), new EmitKey(emitterName, summary.getKey()), new Metadata(),
+                    parseContext, getOnParseException());
+            t.setSize(summary.getSize());
+            tryToAdd(t);
             count++;
         }
         long elapsed = System.currentTimeMillis() - start;
@@ -55,8 +55,25 @@ public class JsonStreamingSerializer implements AutoCloseable {
         JsonMetadata.writeMetadataObject(metadata, jsonGenerator, false);
     }
 
+    /**
+     * Flushes the metadata objects that have been added so far to the writer
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        if (jsonGenerator != null) {
+            jsonGenerator.flush();
+        }
+    }
+
     @Override
     public void close() throws IOException {
+        if (!hasStartedArray) {
+            //write an empty array
+            jsonGenerator = new JsonFactory().createGenerator(writer);
+            jsonGenerator.writeStartArray();
+            hasStartedArray = true;
+        }
         jsonGenerator.writeEndArray();
         jsonGenerator.flush();
         jsonGenerator.close();
@@ -51,6 +51,7 @@ public class JsonFetchEmitTuple {
     public static final String EMITKEY = "emitKey";
     public static final String METADATAKEY = "metadata";
     public static final String ON_PARSE_EXCEPTION = "onParseException";
+    public static final String SIZE = "size";
 
     public static FetchEmitTuple fromJson(Reader reader) throws IOException {
         JsonNode root = new ObjectMapper().readTree(reader);
@@ -70,9 +71,12 @@ public class JsonFetchEmitTuple {
         JsonNode parseContextNode = root.get(PARSE_CONTEXT);
         ParseContext parseContext = parseContextNode == null ? new ParseContext() : ParseContextDeserializer.readParseContext(parseContextNode);
         FetchEmitTuple.ON_PARSE_EXCEPTION onParseException = readOnParseException(root);
+        long size = readLong(SIZE, root, -1l, false);
 
-        return new FetchEmitTuple(id, new FetchKey(fetcherName, fetchKey, fetchRangeStart, fetchRangeEnd), new EmitKey(emitterName, emitKey), metadata, parseContext,
-                onParseException);
+        FetchEmitTuple t = new FetchEmitTuple(id, new FetchKey(fetcherName, fetchKey, fetchRangeStart, fetchRangeEnd), new EmitKey(emitterName, emitKey), metadata,
+                parseContext, onParseException);
+        t.setSize(size);
+        return t;
     }
 
     private static FetchEmitTuple.ON_PARSE_EXCEPTION readOnParseException(JsonNode root) throws IOException {
@@ -185,6 +189,9 @@ public class JsonFetchEmitTuple {
                 .getOnParseException()
                 .name()
                 .toLowerCase(Locale.US));
+        if (t.getSize() > -1) {
+            jsonGenerator.writeNumberField(SIZE, t.getSize());
+        }
         if (!t
                 .getParseContext()
                 .isEmpty()) {
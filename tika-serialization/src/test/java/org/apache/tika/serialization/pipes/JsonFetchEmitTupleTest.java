@@ -57,6 +57,20 @@ public class JsonFetchEmitTupleTest {
         assertEquals(t, deserialized);
     }
 
+    @Test
+    public void testSize() throws Exception {
+        FetchEmitTuple t = new FetchEmitTuple("my_id", new FetchKey("my_fetcher", "fetchKey1"), new EmitKey("my_emitter", "emitKey1"));
+        t.setSize(12345);
+        String json = JsonFetchEmitTuple.toJson(t);
+        FetchEmitTuple deserialized = JsonFetchEmitTuple.fromJson(new StringReader(json));
+        assertEquals(12345, deserialized.getSize());
+        assertEquals(t, deserialized);
+        //the size is not metadata
+        assertEquals(0, deserialized
+                .getMetadata()
+                .size());
+    }
+
     @Test
     public void testFetchRange() throws Exception {
         Metadata m = new Metadata();
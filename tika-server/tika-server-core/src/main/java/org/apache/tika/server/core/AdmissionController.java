@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.server.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.tika.metrics.Histogram;
+
+/**
+ * Bounds the number of tasks that run at the same time in the server process.
+ * <p>
+ * Each task takes as many slots as the weight of its endpoint (default 1).  If
+ * there are no free slots, up to <code>maxQueued</code> tasks wait for up to
+ * <code>maxQueueWaitMillis</code>.  Other tasks are rejected right away with
+ * a 503 (or 429) and a <code>Retry-After</code> header, so that an overloaded
+ * server pushes back on its clients instead of running out of memory and
+ * restarting with all of its in-flight requests.
+ * <p>
+ * If <code>maxConcurrent</code> is &lt;= 0, every task is admitted.
+ */
+public class AdmissionController {
+
+    public static final AdmissionController UNLIMITED = new AdmissionController(-1, 0, 0, 1, 503, Collections.emptyMap());
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxQueueWaitMillis;
+    private final int retryAfterSeconds;
+    private final int rejectionStatus;
+    private final Map<String, Integer> weights;
+    private final Semaphore slots;
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Histogram queueWait = new Histogram();
+
+    /**
+     * @param maxConcurrent      number of slots; &lt;= 0 admits every task
+     * @param maxQueued          maximum number of tasks that may wait for slots
+     * @param maxQueueWaitMillis how long a task may wait for slots before it is rejected
+     * @param retryAfterSeconds  value of the <code>Retry-After</code> header of a rejection
+     * @param rejectionStatus    http status of a rejection, 503 or 429
+     * @param weights            number of slots per endpoint, e.g. <code>unpack -&gt; 4</code>
+     */
+    public AdmissionController(int maxConcurrent, int maxQueued, long maxQueueWaitMillis, int retryAfterSeconds, int rejectionStatus, Map<String, Integer> weights) {
+        if (rejectionStatus != 429 && rejectionStatus != 503) {
+            throw new IllegalArgumentException("rejectionStatus must be 429 or 503: " + rejectionStatus);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rejectionStatus = rejectionStatus;
+        this.weights = new HashMap<>(weights);
+        this.slots = new Semaphore(Math.max(maxConcurrent, 0), true);
+    }
+
+    public static AdmissionController load(TikaServerConfig config) {
+        return new AdmissionController(config.getMaxConcurrentTasks(), config.getMaxQueuedTasks(), config.getMaxQueueWaitMillis(), config.getRetryAfterSeconds(),
+                config.getAdmissionRejectionStatus(), config.getTaskWeights());
+    }
+
+    /**
+     * Takes the slots for a task on this endpoint, waiting in the queue if needed.
+     *
+     * @param endpoint the endpoint, e.g. <code>/rmeta/text</code>; only the first path segment is used
+     * @return the number of slots taken; pass this to {@link #release(int)} when the task is done
+     * @throws WebApplicationException with a 503 or 429 if the task is rejected
+     */
+    public int acquire(String endpoint) throws WebApplicationException {
+        if (maxConcurrent <= 0) {
+            return 0;
+        }
+        int weight = getWeight(endpoint);
+        if (slots.tryAcquire(weight)) {
+            admitted.increment();
+            queueWait.record(0);
+            return weight;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw reject(endpoint);
+        }
+        long started = System.nanoTime();
+        try {
+            if (slots.tryAcquire(weight, maxQueueWaitMillis, TimeUnit.MILLISECONDS)) {
+                admitted.increment();
+                queueWait.record(System.nanoTime() - started);
+                return weight;
+            }
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+        throw reject(endpoint);
+    }
+
+    /**
+     * @param numSlots the value returned by {@link #acquire(String)}
+     */
+    public void release(int numSlots) {
+        if (numSlots > 0) {
+            slots.release(numSlots);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getSlotsInUse() {
+        return maxConcurrent <= 0 ? 0 : maxConcurrent - slots.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the limits, the slots in use, the queue depth and the counts of
+     * admitted and rejected tasks, and the time admitted tasks waited, in ms
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("max_concurrent", maxConcurrent);
+        map.put("max_queued", maxQueued);
+        map.put("slots_in_use", getSlotsInUse());
+        map.put("queue_depth", getQueueDepth());
+        map.put("admitted", admitted.sum());
+        map.put("rejected", rejected.sum());
+        map.put("queue_wait", queueWait.toMap(TimeUnit.NANOSECONDS));
+        return map;
+    }
+
+    int getWeight(String endpoint) {
+        String key = endpoint == null ? "" : endpoint;
+        if (key.startsWith("/")) {
+            key = key.substring(1);
+        }
+        int slash = key.indexOf('/');
+        if (slash > -1) {
+            key = key.substring(0, slash);
+        }
+        int weight = weights.getOrDefault(key, 1);
+        //a task that is heavier than the whole server would never get in
+        return Math.max(1, Math.min(weight, maxConcurrent));
+    }
+
+    private WebApplicationException reject(String endpoint) {
+        rejected.increment();
+        LOG.debug("rejecting task for {}; slots in use: {}, queue depth: {}", endpoint, getSlotsInUse(), getQueueDepth());
+        return new WebApplicationException(Response
+                .status(rejectionStatus)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity("Server is at capacity, retry after " + retryAfterSeconds + " seconds")
+                .build());
+    }
+}
@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metrics.TikaMetrics;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.pipes.fetcher.Fetcher;
 import org.apache.tika.pipes.fetcher.FetcherManager;
@@ -110,7 +111,10 @@ public class FetcherStreamFactory implements InputStreamFactory {
                     throw new IllegalArgumentException(
                             "Can't call a fetch with a range on a fetcher that" + " is not a RangeFetcher: name=" + fetcher.getName() + " class=" + fetcher.getClass());
                 }
-                return fetcher.fetch(fetchKey, metadata, parseContext);
+                long start = System.nanoTime();
+                InputStream fetched = fetcher.fetch(fetchKey, metadata, parseContext);
+                TikaResource.getMetrics().record(TikaMetrics.Stage.FETCH, System.nanoTime() - start);
+                return fetched;
             } catch (TikaException e) {
                 throw new IOException(e);
             }
@@ -16,14 +16,28 @@
  */
 package org.apache.tika.server.core;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.tika.metrics.TikaMetrics;
+
+/**
+ * Status of the forked server process and the tasks that are running in it.
+ * <p>
+ * Every request starts and completes a task, so the task registry is a
+ * concurrent map, and none of the methods here take a lock.  Reads of the
+ * tasks, e.g. by the {@link ServerStatusWatcher}, are weakly consistent
+ * and don't block the request threads.
+ */
 public class ServerStatus {
 
     private static final Logger LOG = LoggerFactory.getLogger(ServerStatus.class);
@@ -31,9 +45,11 @@ public class ServerStatus {
     private final int numRestarts;
 
     private final boolean isLegacy;
-    private AtomicLong counter = new AtomicLong(0);
-    private Map<Long, TaskStatus> tasks = new HashMap<>();
-    private STATUS status = STATUS.OPERATING;
+    private final TikaMetrics metrics = new TikaMetrics();
+    private volatile AdmissionController admissionController = AdmissionController.UNLIMITED;
+    private final AtomicLong counter = new AtomicLong(0);
+    private final Map<Long, TaskStatus> tasks = new ConcurrentHashMap<>();
+    private volatile STATUS status = STATUS.OPERATING;
     private volatile long lastStarted = Instant
             .now()
             .toEpochMilli();
@@ -48,7 +64,7 @@ public class ServerStatus {
         this.isLegacy = isLegacy;
     }
 
-    public synchronized long start(TASK task, String fileName, long timeoutMillis) {
+    public long start(TASK task, String fileName, long timeoutMillis) {
         long taskId = counter.incrementAndGet();
         Instant now = Instant.now();
         lastStarted = now.toEpochMilli();
@@ -62,26 +78,64 @@ public class ServerStatus {
      * @param taskId
      * @throws IllegalArgumentException if there is no task by that taskId in the collection
      */
-    public synchronized void complete(long taskId) throws IllegalArgumentException {
+    public void complete(long taskId) throws IllegalArgumentException {
         TaskStatus status = tasks.remove(taskId);
         if (status == null) {
             throw new IllegalArgumentException("TaskId is not in map:" + taskId);
         }
     }
 
-    public synchronized STATUS getStatus() {
+    public STATUS getStatus() {
         return status;
     }
 
-    public synchronized void setStatus(STATUS status) {
+    public void setStatus(STATUS status) {
         this.status = status;
     }
 
-    public synchronized Map<Long, TaskStatus> getTasks() {
+    /**
+     * @return a copy of the tasks that are currently running
+     */
+    public Map<Long, TaskStatus> getTasks() {
         return new HashMap<>(tasks);
     }
 
-    public synchronized long getFilesProcessed() {
+    /**
+     * @return the number of tasks that are currently running; this doesn't copy the tasks
+     */
+    public int getNumActiveTasks() {
+        return tasks.size();
+    }
+
+    /**
+     * @param now
+     * @return the tasks that have been running for longer than their timeouts
+     */
+    public List<TaskStatus> getTimedOutTasks(Instant now) {
+        List<TaskStatus> timedOut = new ArrayList<>();
+        for (TaskStatus taskStatus : tasks.values()) {
+            long millisElapsed = Duration
+                    .between(taskStatus.started, now)
+                    .toMillis();
+            if (millisElapsed > taskStatus.timeoutMillis) {
+                timedOut.add(taskStatus);
+            }
+        }
+        return timedOut;
+    }
+
+    /**
+     * @return the admission controller that bounds the concurrent tasks
+     */
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public long getFilesProcessed() {
         return counter.get();
     }
 
@@ -94,7 +148,7 @@ public class ServerStatus {
     /**
      * @return true if this is legacy, otherwise whether or not status == OPERATING.
      */
-    public synchronized boolean isOperating() {
+    public boolean isOperating() {
         if (isLegacy) {
             return true;
         }
@@ -109,6 +163,13 @@ public class ServerStatus {
         return numRestarts;
     }
 
+    /**
+     * @return the metrics of the parses in this server process
+     */
+    public TikaMetrics getMetrics() {
+        return metrics;
+    }
+
     enum DIRECTIVES {
         PING((byte) 0), PING_ACTIVE_SERVER_TASKS((byte) 1), SHUTDOWN((byte) 2);
 
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.server.core;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.FilenameUtils;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metadata.filter.MetadataFilter;
+import org.apache.tika.parser.RecursiveParserWrapper;
+import org.apache.tika.sax.AbstractRecursiveParserWrapperHandler;
+import org.apache.tika.sax.ContentHandlerFactory;
+import org.apache.tika.serialization.JsonStreamingSerializer;
+
+/**
+ * Writes the metadata of each embedded document to a {@link JsonStreamingSerializer}
+ * as soon as that document has been parsed, instead of caching the full list
+ * as the {@link org.apache.tika.sax.RecursiveParserWrapperHandler} does. The
+ * container document is written last.
+ * <p>
+ * Because nothing is cached, the {@link TikaCoreProperties#FINAL_EMBEDDED_RESOURCE_PATH}
+ * is built from the names that are known when an embedded document is written,
+ * and metadata list filters can't be applied.
+ * <p>
+ * <b>NOTE: This handler must only be used with the {@link RecursiveParserWrapper}</b>
+ */
+public class StreamingRecursiveParserWrapperHandler extends AbstractRecursiveParserWrapperHandler {
+
+    private final JsonStreamingSerializer serializer;
+    private final MetadataFilter metadataFilter;
+    private final Map<String, String> idToName = new HashMap<>();
+
+    public StreamingRecursiveParserWrapperHandler(ContentHandlerFactory contentHandlerFactory, int maxEmbeddedResources, MetadataFilter metadataFilter,
+                                                  JsonStreamingSerializer serializer) {
+        super(contentHandlerFactory, maxEmbeddedResources);
+        this.metadataFilter = metadataFilter;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public void startEmbeddedDocument(ContentHandler contentHandler, Metadata metadata) throws SAXException {
+        super.startEmbeddedDocument(contentHandler, metadata);
+        String id = metadata.get(TikaCoreProperties.EMBEDDED_ID);
+        String path = metadata.get(TikaCoreProperties.EMBEDDED_RESOURCE_PATH);
+        if (id != null && path != null) {
+            idToName.put(id, FilenameUtils.getName(path));
+        }
+    }
+
+    @Override
+    public void endEmbeddedDocument(ContentHandler contentHandler, Metadata metadata) throws SAXException {
+        super.endEmbeddedDocument(contentHandler, metadata);
+        //the name may only be known after the parse, e.g. for attachments in mail
+        updateName(metadata);
+        setFinalEmbeddedPath(metadata);
+        write(contentHandler, metadata);
+    }
+
+    @Override
+    public void endDocument(ContentHandler contentHandler, Metadata metadata) throws SAXException {
+        super.endDocument(contentHandler, metadata);
+        write(contentHandler, metadata);
+    }
+
+    private void write(ContentHandler contentHandler, Metadata metadata) throws SAXException {
+        addContent(contentHandler, metadata);
+        try {
+            metadataFilter.filter(metadata);
+        } catch (TikaException e) {
+            throw new SAXException(e);
+        }
+        if (metadata.size() == 0) {
+            return;
+        }
+        try {
+            serializer.add(metadata);
+            serializer.flush();
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    private void updateName(Metadata metadata) {
+        String id = metadata.get(TikaCoreProperties.EMBEDDED_ID);
+        if (id == null) {
+            return;
+        }
+        AtomicInteger unknownCount = new AtomicInteger(0);
+        String name = RecursiveParserWrapper.getResourceName(metadata, unknownCount);
+        //keep the name from the embedded resource path if there's still no real name
+        if (unknownCount.get() == 0) {
+            idToName.put(id, name);
+        }
+    }
+
+    private void setFinalEmbeddedPath(Metadata metadata) {
+        String idPath = metadata.get(TikaCoreProperties.EMBEDDED_ID_PATH);
+        if (idPath == null) {
+            return;
+        }
+        if (idPath.startsWith("/")) {
+            idPath = idPath.substring(1);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String id : idPath.split("/")) {
+            sb
+                    .append("/")
+                    .append(idToName.get(id));
+        }
+        metadata.set(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH, sb.toString());
+    }
+
+    private void addContent(ContentHandler handler, Metadata metadata) {
+        if (handler.getClass().equals(DefaultHandler.class)) {
+            //no-op: DefaultHandler's toString() is not its content
+            return;
+        }
+        String content = handler.toString();
+        if (content != null && !content.isBlank()) {
+            metadata.add(TikaCoreProperties.TIKA_CONTENT, content);
+            metadata.add(TikaCoreProperties.TIKA_CONTENT_HANDLER, handler
+                    .getClass()
+                    .getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.server.core;
+
+import java.io.IOException;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import org.apache.tika.metrics.TikaMetrics;
+
+/**
+ * Counts the bytes that the message body writers write as
+ * {@link TikaMetrics#BYTES_OUT}.  The count is taken before any
+ * compression of the response.
+ */
+@Provider
+public class TikaMetricsWriterInterceptor implements WriterInterceptor {
+
+    private final TikaMetrics metrics;
+
+    public TikaMetricsWriterInterceptor(TikaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context)
+            throws IOException, WebApplicationException {
+        CountingOutputStream out = new CountingOutputStream(context.getOutputStream());
+        context.setOutputStream(out);
+        try {
+            context.proceed();
+        } finally {
+            metrics.add(TikaMetrics.BYTES_OUT, out.getByteCount());
+        }
+    }
+}
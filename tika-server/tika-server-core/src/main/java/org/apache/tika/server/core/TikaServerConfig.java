@@ -23,8 +23,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Matcher;
@@ -69,6 +71,20 @@ public class TikaServerConfig extends ConfigBase {
      * Number of milliseconds to wait for forked process to startup
      */
     public static final long DEFAULT_FORKED_STARTUP_MILLIS = 120000;
+    /**
+     * Maximum number of tasks that may wait for a slot when
+     * <code>maxConcurrentTasks</code> is set
+     */
+    public static final int DEFAULT_MAX_QUEUED_TASKS = 10;
+    /**
+     * Maximum number of milliseconds a task may wait for a slot
+     * before it is rejected
+     */
+    public static final long DEFAULT_MAX_QUEUE_WAIT_MILLIS = 1000;
+    /**
+     * Value of the Retry-After header when a task is rejected
+     */
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 5;
     private static final Logger LOG = LoggerFactory.getLogger(TikaServerConfig.class);
     //used in fork mode -- restart after processing this many files
     private static final long DEFAULT_MAX_FILES = 100000;
@@ -132,6 +148,13 @@ private long forkedProcessShutdownMillis = DEFAULT_FORKED_PROCESS_SHUTDOWN_MILLI
 
     private TlsConfig tlsConfig = new TlsConfig();
 
+    private int maxConcurrentTasks = -1;
+    private int maxQueuedTasks = DEFAULT_MAX_QUEUED_TASKS;
+    private long maxQueueWaitMillis = DEFAULT_MAX_QUEUE_WAIT_MILLIS;
+    private int retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+    private int admissionRejectionStatus = 503;
+    private Map<String, Integer> taskWeights = new HashMap<>();
+
     /**
      * Config with only the defaults
      */
@@ -552,6 +575,92 @@ private long forkedProcessShutdownMillis = DEFAULT_FORKED_PROCESS_SHUTDOWN_MILLI
         this.maxFiles = maxFiles;
     }
 
+    /**
+     * Maximum number of slots for concurrent tasks (parse, detect, unpack, etc.).
+     * A task takes as many slots as its endpoint's weight.  If this is &lt;= 0,
+     * the default, there is no limit.  See {@link AdmissionController}.
+     *
+     * @return
+     */
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        this.maxConcurrentTasks = maxConcurrentTasks;
+    }
+
+    public int getMaxQueuedTasks() {
+        return maxQueuedTasks;
+    }
+
+    public void setMaxQueuedTasks(int maxQueuedTasks) {
+        this.maxQueuedTasks = maxQueuedTasks;
+    }
+
+    public long getMaxQueueWaitMillis() {
+        return maxQueueWaitMillis;
+    }
+
+    public void setMaxQueueWaitMillis(long maxQueueWaitMillis) {
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return http status of a rejected task: 503 (the default) or 429
+     */
+    public int getAdmissionRejectionStatus() {
+        return admissionRejectionStatus;
+    }
+
+    public void setAdmissionRejectionStatus(int admissionRejectionStatus) throws TikaConfigException {
+        if (admissionRejectionStatus != 429 && admissionRejectionStatus != 503) {
+            throw new TikaConfigException("admissionRejectionStatus must be 429 or 503");
+        }
+        this.admissionRejectionStatus = admissionRejectionStatus;
+    }
+
+    public Map<String, Integer> getTaskWeights() {
+        return taskWeights;
+    }
+
+    /**
+     * @param taskWeights number of slots per endpoint, e.g. <code>unpack:4</code>.
+     *                    Endpoints that aren't listed take one slot.
+     * @throws TikaConfigException
+     */
+    public void setTaskWeights(List<String> taskWeights) throws TikaConfigException {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String taskWeight : taskWeights) {
+            int i = taskWeight.lastIndexOf(':');
+            if (i < 1) {
+                throw new TikaConfigException("task weight must look like 'endpoint:weight': " + taskWeight);
+            }
+            String endpoint = taskWeight
+                    .substring(0, i)
+                    .trim();
+            if (endpoint.startsWith("/")) {
+                endpoint = endpoint.substring(1);
+            }
+            try {
+                weights.put(endpoint, Integer.parseInt(taskWeight
+                        .substring(i + 1)
+                        .trim()));
+            } catch (NumberFormatException e) {
+                throw new TikaConfigException("task weight must be an integer: " + taskWeight);
+            }
+        }
+        this.taskWeights = weights;
+    }
+
     public boolean isReturnStackTrace() {
         return returnStackTrace;
     }
@@ -76,6 +76,7 @@ import org.apache.tika.server.core.resource.TikaDetectors;
 import org.apache.tika.server.core.resource.TikaMimeTypes;
 import org.apache.tika.server.core.resource.TikaParsers;
 import org.apache.tika.server.core.resource.TikaResource;
+import org.apache.tika.server.core.resource.TikaServerMetrics;
 import org.apache.tika.server.core.resource.TikaServerResource;
 import org.apache.tika.server.core.resource.TikaServerStatus;
 import org.apache.tika.server.core.resource.TikaVersion;
@@ -225,6 +226,7 @@ public class TikaServerProcess {
             serverStatus = new ServerStatus(serverId, tikaServerConfig.getNumRestarts(), false);
             System.setOut(System.err);
         }
+        serverStatus.setAdmissionController(AdmissionController.load(tikaServerConfig));
         TikaResource.init(tika, tikaServerConfig, digester, inputStreamFactory, serverStatus);
         JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
 
@@ -316,6 +318,7 @@ public class TikaServerProcess {
         writers.addAll(loadWriterServices());
         writers.add(new TikaServerParseExceptionMapper(tikaServerConfig.isReturnStackTrace()));
         writers.add(new JSONObjWriter());
+        writers.add(new TikaMetricsWriterInterceptor(serverStatus.getMetrics()));
 
         TikaLoggingFilter logFilter = null;
         if (!StringUtils.isBlank(tikaServerConfig.getLogLevel())) {
@@ -374,6 +377,7 @@ public class TikaServerProcess {
                     addPipesResource = true;
                 }
                 resourceProviders.add(new SingletonResourceProvider(new TikaServerStatus(serverStatus)));
+                resourceProviders.add(new SingletonResourceProvider(new TikaServerMetrics(serverStatus)));
             }
         } else {
             for (String endPoint : tikaServerConfig.getEndpoints()) {
@@ -405,6 +409,8 @@ public class TikaServerProcess {
                     addAsyncResource = true;
                 } else if ("status".equals(endPoint)) {
                     resourceProviders.add(new SingletonResourceProvider(new TikaServerStatus(serverStatus)));
+                } else if ("metrics".equals(endPoint)) {
+                    resourceProviders.add(new SingletonResourceProvider(new TikaServerMetrics(serverStatus)));
                 }
             }
         }
@@ -59,6 +59,9 @@ public class DetectorResource {
         ParseContext parseContext = new ParseContext();
         TikaResource.fillParseContext(httpHeaders.getRequestHeaders(), met, parseContext);
         long timeoutMillis = TikaResource.getTaskTimeout(parseContext);
+        int slots = serverStatus
+                .getAdmissionController()
+                .acquire("detect");
         long taskId = serverStatus.start(ServerStatus.TASK.DETECT, filename, timeoutMillis);
 
         try (TikaInputStream tis = TikaInputStream.get(TikaResource.getInputStream(is, met, httpHeaders, info))) {
@@ -79,6 +82,9 @@ public class DetectorResource {
             throw e;
         } finally {
             serverStatus.complete(taskId);
+            serverStatus
+                    .getAdmissionController()
+                    .release(slots);
         }
     }
 }
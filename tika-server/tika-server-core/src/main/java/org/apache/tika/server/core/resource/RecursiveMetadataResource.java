@@ -17,11 +17,13 @@
 
 package org.apache.tika.server.core.resource;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.tika.server.core.resource.TikaResource.fillMetadata;
 import static org.apache.tika.server.core.resource.TikaResource.fillParseContext;
 import static org.apache.tika.server.core.resource.TikaResource.getConfig;
 
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.util.List;
 
 import jakarta.ws.rs.Consumes;
@@ -35,6 +37,7 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
 import org.apache.cxf.jaxrs.ext.multipart.Attachment;
 import org.slf4j.Logger;
@@ -48,7 +51,9 @@ import org.apache.tika.parser.RecursiveParserWrapper;
 import org.apache.tika.pipes.HandlerConfig;
 import org.apache.tika.sax.BasicContentHandlerFactory;
 import org.apache.tika.sax.RecursiveParserWrapperHandler;
+import org.apache.tika.serialization.JsonStreamingSerializer;
 import org.apache.tika.server.core.MetadataList;
+import org.apache.tika.server.core.StreamingRecursiveParserWrapperHandler;
 import org.apache.tika.server.core.TikaServerParseException;
 
 @Path("/rmeta")
@@ -90,6 +95,47 @@ public class RecursiveMetadataResource {
         return metadataListFilter.filter(handler.getMetadataList());
     }
 
+    /**
+     * Parses the input inside the returned {@link StreamingOutput}, and writes the
+     * metadata of each embedded document to it as soon as that document has been
+     * parsed. The container document's metadata is written last.
+     * <p>
+     * Unlike {@link #parseMetadata(InputStream, Metadata, MultivaluedMap, UriInfo, HandlerConfig)},
+     * this does not hold the metadata list in memory, so metadata list filters are not applied.
+     */
+    public static StreamingOutput streamMetadata(InputStream is, Metadata metadata, MultivaluedMap<String, String> httpHeaders, UriInfo info, HandlerConfig handlerConfig)
+            throws Exception {
+        final ParseContext context = new ParseContext();
+        Parser parser = TikaResource.createParser();
+
+        RecursiveParserWrapper wrapper = new RecursiveParserWrapper(parser);
+        fillMetadata(parser, metadata, httpHeaders);
+        fillParseContext(httpHeaders, metadata, context);
+        TikaResource.logRequest(LOG, "/rmeta/stream", metadata);
+
+        //admit the parse before the response is committed
+        int slots = TikaResource.acquire("/rmeta/stream", is);
+        return outputStream -> {
+            try {
+                JsonStreamingSerializer serializer = new JsonStreamingSerializer(new OutputStreamWriter(outputStream, UTF_8));
+                StreamingRecursiveParserWrapperHandler handler = new StreamingRecursiveParserWrapperHandler(
+                        new BasicContentHandlerFactory(handlerConfig.getType(), handlerConfig.getWriteLimit(), handlerConfig.isThrowOnWriteLimitReached(), context),
+                        handlerConfig.getMaxEmbeddedResources(), TikaResource
+                        .getConfig()
+                        .getMetadataFilter(), serializer);
+                try {
+                    TikaResource.parseAdmitted(wrapper, LOG, "/rmeta/stream", is, handler, metadata, context);
+                } catch (TikaServerParseException e) {
+                    //the exception is recorded in the container document's metadata
+                    LOG.debug("server parse exception", e);
+                }
+                serializer.close();
+            } finally {
+                TikaResource.release(slots);
+            }
+        };
+    }
+
     static HandlerConfig buildHandlerConfig(MultivaluedMap<String, String> httpHeaders, String handlerTypeName, HandlerConfig.PARSE_MODE parseMode) {
         int writeLimit = -1;
         if (httpHeaders.containsKey("writeLimit")) {
@@ -174,6 +220,35 @@ public class RecursiveMetadataResource {
                 .build();
     }
 
+    /**
+     * Same as {@link #getMetadata(InputStream, HttpHeaders, UriInfo, String)}, but
+     * each embedded document's metadata is written to the response as soon as that
+     * document has been parsed, and the container document's metadata is written last.
+     * This bounds the memory that a request with many or large embedded documents needs,
+     * and clients can start to read the results before the parse has finished.
+     * <p>
+     * Specify the handler for the content (xml, html, text, ignore)
+     * in the path:<br/>
+     * /rmeta/stream (default: xml)<br/>
+     * /rmeta/stream/xml    (store the content as xml)<br/>
+     * /rmeta/stream/text   (store the content as text)<br/>
+     * /rmeta/stream/ignore (don't record any content)<br/>
+     *
+     * @param info            uri info
+     * @param handlerTypeName which type of handler to use
+     * @return the output that writes a json array of {@link Metadata} objects
+     * @throws Exception
+     */
+    @PUT
+    @Produces("application/json")
+    @Path("stream{" + HANDLER_TYPE_PARAM + " : (\\w+)?}")
+    public StreamingOutput getStreamingMetadata(InputStream is, @Context HttpHeaders httpHeaders, @Context UriInfo info, @PathParam(HANDLER_TYPE_PARAM) String handlerTypeName)
+            throws Exception {
+        Metadata metadata = new Metadata();
+        return streamMetadata(TikaResource.getInputStream(is, metadata, httpHeaders, info), metadata, httpHeaders.getRequestHeaders(), info,
+                buildHandlerConfig(httpHeaders.getRequestHeaders(), handlerTypeName, HandlerConfig.PARSE_MODE.RMETA));
+    }
+
     private MetadataList parseMetadataToMetadataList(InputStream is, Metadata metadata, MultivaluedMap<String, String> httpHeaders, UriInfo info, HandlerConfig handlerConfig)
             throws Exception {
         return new MetadataList(parseMetadata(is, metadata, httpHeaders, info, handlerConfig));
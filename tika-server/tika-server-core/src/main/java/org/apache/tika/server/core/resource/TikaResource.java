@@ -67,8 +67,10 @@ import org.apache.tika.config.TikaTaskTimeout;
 import org.apache.tika.exception.EncryptedDocumentException;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metrics.TikaMetrics;
 import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.parser.DigestingParser;
 import org.apache.tika.parser.ParseContext;
@@ -353,14 +355,62 @@ public class TikaResource {
      */
     public static void parse(Parser parser, Logger logger, String path, InputStream inputStream, ContentHandler handler, Metadata metadata, ParseContext parseContext)
             throws IOException {
+        int slots = acquire(path, inputStream);
+        try {
+            parseAdmitted(parser, logger, path, inputStream, handler, metadata, parseContext);
+        } finally {
+            release(slots);
+        }
+    }
 
-        checkIsOperating();
+    /**
+     * Admits a parse.  Endpoints that parse inside a {@link StreamingOutput} have to call this
+     * before they return the response, so that a rejection is sent as such and not as a
+     * broken 200, and then call
+     * {@link #parseAdmitted(Parser, Logger, String, InputStream, ContentHandler, Metadata, ParseContext)}
+     * and {@link #release(int)} in the output.
+     *
+     * @param path        the endpoint
+     * @param inputStream the input of the parse, which is closed if the parse is rejected
+     * @return the slots to release
+     * @throws WebApplicationException if the parse is rejected
+     */
+    public static int acquire(String path, InputStream inputStream) throws IOException {
+        try {
+            checkIsOperating();
+            return SERVER_STATUS
+                    .getAdmissionController()
+                    .acquire(path);
+        } catch (RuntimeException e) {
+            //a rejected request still has to close its stream
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    public static void release(int slots) {
+        SERVER_STATUS
+                .getAdmissionController()
+                .release(slots);
+    }
+
+    /**
+     * Like {@link #parse(Parser, Logger, String, InputStream, ContentHandler, Metadata, ParseContext)}
+     * for a parse that has already been admitted by {@link #acquire(String, InputStream)}.
+     * The caller has to release the slots.  This closes the InputStream.
+     */
+    public static void parseAdmitted(Parser parser, Logger logger, String path, InputStream inputStream, ContentHandler handler, Metadata metadata,
+                                     ParseContext parseContext) throws IOException {
         String fileName = metadata.get(TikaCoreProperties.RESOURCE_NAME_KEY);
         long timeoutMillis = getTaskTimeout(parseContext);
 
         long taskId = SERVER_STATUS.start(ServerStatus.TASK.PARSE, fileName, timeoutMillis);
+        if (parseContext.get(TikaMetrics.class) == null) {
+            parseContext.set(TikaMetrics.class, SERVER_STATUS.getMetrics());
+        }
         try {
             parser.parse(inputStream, handler, metadata, parseContext);
+            recordBytesIn(inputStream);
         } catch (SAXException e) {
             throw new TikaServerParseException(e);
         } catch (EncryptedDocumentException e) {
@@ -381,6 +431,29 @@ public class TikaResource {
         }
     }
 
+    private static void recordBytesIn(InputStream inputStream) {
+        TikaInputStream tis = TikaInputStream.cast(inputStream);
+        if (tis == null) {
+            return;
+        }
+        long length = tis.getPosition();
+        if (tis.hasLength()) {
+            try {
+                length = tis.getLength();
+            } catch (IOException e) {
+                //swallow, the length was known
+            }
+        }
+        SERVER_STATUS.getMetrics().add(TikaMetrics.BYTES_IN, length);
+    }
+
+    /**
+     * @return the metrics of the parses in this server process
+     */
+    public static TikaMetrics getMetrics() {
+        return SERVER_STATUS.getMetrics();
+    }
+
     protected static long getTaskTimeout(ParseContext parseContext) {
 
         TikaTaskTimeout tikaTaskTimeout = parseContext.get(TikaTaskTimeout.class);
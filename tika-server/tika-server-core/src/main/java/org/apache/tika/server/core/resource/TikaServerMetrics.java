@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.server.core.resource;
+
+import java.util.Map;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+
+import org.apache.tika.server.core.ServerStatus;
+
+/**
+ * Durations per stage, parser and mime type, and counts of bytes and
+ * embedded documents, since the server process started, and the state
+ * of the admission control.
+ */
+@Path("/metrics")
+public class TikaServerMetrics {
+    private final ServerStatus serverStatus;
+
+    public TikaServerMetrics(ServerStatus serverStatus) {
+        this.serverStatus = serverStatus;
+    }
+
+    @GET
+    @Produces("application/json")
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> map = serverStatus.getMetrics().toMap();
+        map.put("admission", serverStatus
+                .getAdmissionController()
+                .toMap());
+        map.put("server_id", serverStatus.getServerId());
+        return map;
+    }
+}
@@ -41,6 +41,7 @@ public class TikaServerStatus {
         map.put("status", serverStatus.getStatus());
         map.put("millis_since_last_parse_started", serverStatus.getMillisSinceLastParseStarted());
         map.put("files_processed", serverStatus.getFilesProcessed());
+        map.put("num_active_tasks", serverStatus.getNumActiveTasks());
         map.put("num_restarts", serverStatus.getNumRestarts());
         return map;
     }
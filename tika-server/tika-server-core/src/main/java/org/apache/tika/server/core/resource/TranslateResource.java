@@ -97,6 +97,9 @@ public class TranslateResource {
             LOG.info("Using default translator");
         }
         TikaResource.checkIsOperating();
+        int slots = serverStatus
+                .getAdmissionController()
+                .acquire("translate");
         long taskId = serverStatus.start(ServerStatus.TASK.TRANSLATE, null, timeoutMillis);
         try {
             return translate.translate(content, sLang, dLang);
@@ -105,6 +108,9 @@ public class TranslateResource {
             throw e;
         } finally {
             serverStatus.complete(taskId);
+            serverStatus
+                    .getAdmissionController()
+                    .release(slots);
         }
     }
 
@@ -25,10 +25,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import jakarta.ws.rs.PUT;
@@ -37,7 +41,9 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
@@ -58,6 +64,7 @@ import org.apache.tika.extractor.DefaultEmbeddedStreamTranslator;
 import org.apache.tika.extractor.EmbeddedDocumentExtractor;
 import org.apache.tika.extractor.EmbeddedStreamTranslator;
 import org.apache.tika.io.BoundedInputStream;
+import org.apache.tika.io.TemporaryResources;
 import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
@@ -67,6 +74,7 @@ import org.apache.tika.parser.ParseContext;
 import org.apache.tika.parser.Parser;
 import org.apache.tika.sax.BodyContentHandler;
 import org.apache.tika.sax.RichTextContentHandler;
+import org.apache.tika.server.core.writer.StreamingArchiveWriter;
 
 @Path("/unpack")
 public class UnpackerResource {
@@ -107,21 +115,104 @@ public class UnpackerResource {
         return process(TikaResource.getInputStream(is, new Metadata(), httpHeaders, info), httpHeaders, info, true);
     }
 
-    private Map<String, byte[]> process(InputStream is, @Context HttpHeaders httpHeaders, @Context UriInfo info, boolean saveAll) throws Exception {
+    /**
+     * Same as {@link #unpack(InputStream, HttpHeaders, UriInfo)}, but each embedded
+     * file is written to the zip or tar output as soon as it has been extracted,
+     * instead of after the parse.  Memory use doesn't grow with the size of the
+     * attachments, so <code>unpackMaxBytes</code> doesn't apply.  Zip entries are deflated,
+     * and an empty archive is returned if there are no attachments.
+     */
+    @Path("/stream{id:(/.*)?}")
+    @PUT
+    @Produces({"application/zip", "application/x-tar"})
+    public Response unpackStreaming(InputStream is, @Context HttpHeaders httpHeaders, @Context UriInfo info) throws Exception {
+        return processStreaming(TikaResource.getInputStream(is, new Metadata(), httpHeaders, info), httpHeaders, info, false);
+    }
+
+    /**
+     * Streaming version of {@link #unpackAll(InputStream, HttpHeaders, UriInfo)}.  The
+     * text and the metadata are written after the embedded files.
+     * See {@link #unpackStreaming(InputStream, HttpHeaders, UriInfo)}.
+     */
+    @Path("/stream/all{id:(/.*)?}")
+    @PUT
+    @Produces({"application/zip", "application/x-tar"})
+    public Response unpackAllStreaming(InputStream is, @Context HttpHeaders httpHeaders, @Context UriInfo info) throws Exception {
+        return processStreaming(TikaResource.getInputStream(is, new Metadata(), httpHeaders, info), httpHeaders, info, true);
+    }
+
+    private Response processStreaming(InputStream is, HttpHeaders httpHeaders, UriInfo info, boolean saveAll) throws Exception {
         Metadata metadata = new Metadata();
         ParseContext pc = new ParseContext();
-        long unpackMaxBytes = DEFAULT_MAX_ATTACHMENT_BYTES;
-        String unpackMaxBytesString = httpHeaders
-                .getRequestHeaders()
-                .getFirst(UNPACK_MAX_BYTES_KEY);
-        if (!StringUtils.isBlank(unpackMaxBytesString)) {
-            unpackMaxBytes = Long.parseLong(unpackMaxBytesString);
-            if (unpackMaxBytes > Integer.MAX_VALUE) {
-                throw new IllegalArgumentException("Can't request value > than Integer" + ".MAX_VALUE : " + unpackMaxBytes);
-            } else if (unpackMaxBytes < 0) {
-                throw new IllegalArgumentException("Can't request value < 0: " + unpackMaxBytes);
+        Parser parser = prepareParse(metadata, pc, httpHeaders, "/unpack/stream");
+        MediaType archiveType = getArchiveType(httpHeaders);
+
+        //admit the parse before the response is committed
+        int slots = TikaResource.acquire(info.getPath(), is);
+        StreamingOutput output = outputStream -> {
+            try {
+                StreamingArchiveWriter archive = StreamingArchiveWriter.get(archiveType, outputStream);
+                boolean success = false;
+                try (TemporaryResources tmp = new TemporaryResources()) {
+                    ContentHandler ch;
+                    java.nio.file.Path text = null;
+                    Writer textWriter = null;
+                    if (saveAll) {
+                        //the text can be as large as the attachments, so it goes to a temp file
+                        text = tmp.createTempFile();
+                        textWriter = Files.newBufferedWriter(text, UTF_8);
+                        ch = new BodyContentHandler(new RichTextContentHandler(textWriter));
+                    } else {
+                        ch = new DefaultHandler();
+                    }
+                    pc.set(EmbeddedDocumentExtractor.class, new StreamingEmbeddedDocumentExtractor(new MutableInt(), archive));
+
+                    TikaResource.parseAdmitted(parser, LOG, info.getPath(), is, ch, metadata, pc);
+
+                    if (saveAll) {
+                        textWriter.close();
+                        try (TikaInputStream tis = TikaInputStream.get(text)) {
+                            archive.write(TEXT_FILENAME, tis);
+                        }
+                        UnsynchronizedByteArrayOutputStream metaStream = UnsynchronizedByteArrayOutputStream
+                                .builder()
+                                .get();
+                        metadataToCsv(metadata, metaStream);
+                        try (TikaInputStream tis = TikaInputStream.get(metaStream.toByteArray())) {
+                            archive.write(META_FILENAME, tis);
+                        }
+                    }
+                    success = true;
+                } finally {
+                    //don't finish the archive if the parse failed, the client would
+                    //get a valid archive with a 200 and no way to tell that entries are missing
+                    if (success) {
+                        archive.close();
+                    } else {
+                        archive.abort();
+                    }
+                }
+            } finally {
+                TikaResource.release(slots);
+            }
+        };
+        return Response
+                .ok(output, archiveType)
+                .build();
+    }
+
+    private static MediaType getArchiveType(HttpHeaders httpHeaders) {
+        for (MediaType mediaType : httpHeaders.getAcceptableMediaTypes()) {
+            if (mediaType.isCompatible(StreamingArchiveWriter.TAR) && !mediaType.isWildcardSubtype()) {
+                return StreamingArchiveWriter.TAR;
+            } else if (mediaType.isCompatible(StreamingArchiveWriter.ZIP)) {
+                return StreamingArchiveWriter.ZIP;
             }
         }
+        return StreamingArchiveWriter.ZIP;
+    }
+
+    private Parser prepareParse(Metadata metadata, ParseContext pc, HttpHeaders httpHeaders, String endpoint) throws Exception {
         Parser parser = TikaResource.createParser();
         if (parser instanceof DigestingParser) {
             //no need to digest for unwrapping
@@ -130,10 +221,29 @@ public class UnpackerResource {
         fillMetadata(parser, metadata, httpHeaders.getRequestHeaders());
         fillParseContext(httpHeaders.getRequestHeaders(), metadata, pc);
 
-        TikaResource.logRequest(LOG, "/unpack", metadata);
+        TikaResource.logRequest(LOG, endpoint, metadata);
         //even though we aren't currently parsing embedded documents,
         //we need to add this to allow for "inline" use of other parsers.
         pc.set(Parser.class, parser);
+        return parser;
+    }
+
+    private Map<String, byte[]> process(InputStream is, @Context HttpHeaders httpHeaders, @Context UriInfo info, boolean saveAll) throws Exception {
+        Metadata metadata = new Metadata();
+        ParseContext pc = new ParseContext();
+        long unpackMaxBytes = DEFAULT_MAX_ATTACHMENT_BYTES;
+        String unpackMaxBytesString = httpHeaders
+                .getRequestHeaders()
+                .getFirst(UNPACK_MAX_BYTES_KEY);
+        if (!StringUtils.isBlank(unpackMaxBytesString)) {
+            unpackMaxBytes = Long.parseLong(unpackMaxBytesString);
+            if (unpackMaxBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Can't request value > than Integer" + ".MAX_VALUE : " + unpackMaxBytes);
+            } else if (unpackMaxBytes < 0) {
+                throw new IllegalArgumentException("Can't request value < 0: " + unpackMaxBytes);
+            }
+        }
+        Parser parser = prepareParse(metadata, pc, httpHeaders, "/unpack");
         ContentHandler ch;
         UnsynchronizedByteArrayOutputStream text = UnsynchronizedByteArrayOutputStream
                 .builder()
@@ -170,6 +280,102 @@ public class UnpackerResource {
         return files;
     }
 
+    private static String getName(Metadata metadata, MutableInt count) {
+        String name = metadata.get(TikaCoreProperties.RESOURCE_NAME_KEY);
+        String contentType = metadata.get(org.apache.tika.metadata.HttpHeaders.CONTENT_TYPE);
+
+        if (name == null) {
+            name = Integer.toString(count.intValue());
+        }
+
+        if (!name.contains(".") && contentType != null) {
+            try {
+                String ext = TikaResource
+                        .getConfig()
+                        .getMimeRepository()
+                        .forName(contentType)
+                        .getExtension();
+
+                if (ext != null) {
+                    name += ext;
+                }
+            } catch (MimeTypeException e) {
+                LOG.warn("Unexpected MimeTypeException", e);
+            }
+        }
+        return name;
+    }
+
+    private static String getFinalName(String name, Set<String> usedNames, MutableInt count) {
+        name = name.replaceAll("\u0000", " ");
+        String normalizedName = FilenameUtils.normalize(name);
+
+        if (normalizedName == null) {
+            normalizedName = FilenameUtils.getName(name);
+        }
+
+        if (normalizedName == null) {
+            normalizedName = count.toString();
+        }
+        //strip off initial C:/ or ~/ or /
+        int prefixLength = FilenameUtils.getPrefixLength(normalizedName);
+        if (prefixLength > -1) {
+            normalizedName = normalizedName.substring(prefixLength);
+        }
+        if (usedNames.contains(normalizedName)) {
+            return UUID
+                    .randomUUID()
+                    .toString() + "-" + normalizedName;
+        }
+        return normalizedName;
+    }
+
+    /**
+     * Writes each embedded file to the archive as soon as it is extracted.
+     * Only the names of the entries are kept.
+     */
+    private static class StreamingEmbeddedDocumentExtractor implements EmbeddedDocumentExtractor {
+        private final MutableInt count;
+        private final StreamingArchiveWriter archive;
+        private final Set<String> usedNames = new HashSet<>();
+        private final EmbeddedStreamTranslator embeddedStreamTranslator = new DefaultEmbeddedStreamTranslator();
+
+        StreamingEmbeddedDocumentExtractor(MutableInt count, StreamingArchiveWriter archive) {
+            this.count = count;
+            this.archive = archive;
+        }
+
+        public boolean shouldParseEmbedded(Metadata metadata) {
+            return true;
+        }
+
+        @Override
+        public void parseEmbedded(TikaInputStream tis, ContentHandler contentHandler, Metadata metadata, boolean b) throws SAXException, IOException {
+            String finalName = getFinalName(getName(metadata, count), usedNames, count);
+            if (embeddedStreamTranslator.shouldTranslate(tis, metadata)) {
+                try (TemporaryResources tmp = new TemporaryResources();
+                        TikaInputStream translated = TikaInputStream.get(embeddedStreamTranslator.translate(tis, metadata), tmp, new Metadata())) {
+                    write(finalName, translated);
+                }
+            } else {
+                write(finalName, tis);
+            }
+        }
+
+        private void write(String finalName, TikaInputStream tis) throws IOException {
+            //skip empty attachments, as the buffering extractor does
+            tis.mark(1);
+            int b = tis.read();
+            tis.reset();
+            if (b == -1) {
+                return;
+            }
+            archive.write(finalName, tis);
+            usedNames.add(finalName);
+            count.increment();
+        }
+    }
+
     private static class MyEmbeddedDocumentExtractor implements EmbeddedDocumentExtractor {
         private final MutableInt count;
         private final Map<String, byte[]> zout;
@@ -202,28 +408,7 @@ public class UnpackerResource {
             }
             byte[] data = bos.toByteArray();
 
-            String name = metadata.get(TikaCoreProperties.RESOURCE_NAME_KEY);
-            String contentType = metadata.get(org.apache.tika.metadata.HttpHeaders.CONTENT_TYPE);
-
-            if (name == null) {
-                name = Integer.toString(count.intValue());
-            }
-
-            if (!name.contains(".") && contentType != null) {
-                try {
-                    String ext = TikaResource
-                            .getConfig()
-                            .getMimeRepository()
-                            .forName(contentType)
-                            .getExtension();
-
-                    if (ext != null) {
-                        name += ext;
-                    }
-                } catch (MimeTypeException e) {
-                    LOG.warn("Unexpected MimeTypeException", e);
-                }
-            }
+            String name = getName(metadata, count);
             try (TikaInputStream is = TikaInputStream.get(data)) {
                 if (embeddedStreamTranslator.shouldTranslate(is, metadata)) {
                     InputStream translated = embeddedStreamTranslator.translate(UnsynchronizedByteArrayInputStream.builder().setByteArray(data).get(), metadata);
@@ -235,7 +420,7 @@ public class UnpackerResource {
                 }
             }
 
-            final String finalName = getFinalName(name, zout);
+            final String finalName = getFinalName(name, zout.keySet(), count);
 
             if (data.length > 0) {
                 zout.put(finalName, data);
@@ -243,30 +428,6 @@ public class UnpackerResource {
             }
         }
 
-        private String getFinalName(String name, Map<String, byte[]> zout) {
-            name = name.replaceAll("\u0000", " ");
-            String normalizedName = FilenameUtils.normalize(name);
-
-            if (normalizedName == null) {
-                normalizedName = FilenameUtils.getName(name);
-            }
-
-            if (normalizedName == null) {
-                normalizedName = count.toString();
-            }
-            //strip off initial C:/ or ~/ or /
-            int prefixLength = FilenameUtils.getPrefixLength(normalizedName);
-            if (prefixLength > -1) {
-                normalizedName = normalizedName.substring(prefixLength);
-            }
-            if (zout.containsKey(normalizedName)) {
-                return UUID
-                        .randomUUID()
-                        .toString() + "-" + normalizedName;
-            }
-            return normalizedName;
-        }
-
 /*        protected void copy(DirectoryEntry sourceDir, DirectoryEntry destDir)
                 throws IOException {
             for (Entry entry : sourceDir) {
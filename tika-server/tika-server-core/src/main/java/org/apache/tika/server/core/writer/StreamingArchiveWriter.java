@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.server.core.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import jakarta.ws.rs.core.MediaType;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import org.apache.tika.io.TikaInputStream;
+
+/**
+ * Writes a zip or tar archive one entry at a time, as the entries are
+ * extracted, instead of from a map of byte arrays like the {@link ZipWriter}
+ * and the {@link TarWriter} do.
+ * <p>
+ * Zip entries are deflated and written with a data descriptor, so they don't need
+ * to be buffered.  Tar entries need their length up front, so the {@link TikaInputStream}
+ * of an entry is spooled to a temporary file if its length isn't known.
+ */
+public abstract class StreamingArchiveWriter implements Closeable {
+
+    public static final MediaType TAR = new MediaType("application", "x-tar");
+
+    public static final MediaType ZIP = new MediaType("application", "zip");
+
+    private final OutputStream outputStream;
+    private boolean written = false;
+
+    StreamingArchiveWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * @param mediaType    {@link #TAR} or {@link #ZIP}; anything else gets a zip
+     * @param outputStream the stream to write the archive to
+     * @return the writer
+     */
+    public static StreamingArchiveWriter get(MediaType mediaType, OutputStream outputStream) {
+        if (TAR.isCompatible(mediaType)) {
+            return new Tar(outputStream);
+        }
+        return new Zip(outputStream);
+    }
+
+    /**
+     * @return the media type of the archive
+     */
+    public abstract MediaType getMediaType();
+
+    /**
+     * Writes the stream to the archive as an entry named <code>name</code>
+     *
+     * @param name entry name
+     * @param tis  the entry's bytes; this is not closed by this call
+     * @throws IOException
+     */
+    public void write(String name, TikaInputStream tis) throws IOException {
+        written = true;
+        writeEntry(name, tis);
+    }
+
+    /**
+     * Stops writing the archive after a failure.  If anything has been written,
+     * the underlying stream is closed without finishing the archive, so that the
+     * client gets a broken archive instead of a valid one that is missing entries.
+     * This must be called instead of {@link #close()}.
+     *
+     * @throws IOException
+     */
+    public void abort() throws IOException {
+        if (written) {
+            outputStream.close();
+        }
+    }
+
+    abstract void writeEntry(String name, TikaInputStream tis) throws IOException;
+
+    private static class Zip extends StreamingArchiveWriter {
+
+        private final ZipArchiveOutputStream zip;
+
+        Zip(OutputStream outputStream) {
+            super(outputStream);
+            zip = new ZipArchiveOutputStream(outputStream);
+            zip.setMethod(ZipArchiveOutputStream.DEFLATED);
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return ZIP;
+        }
+
+        @Override
+        void writeEntry(String name, TikaInputStream tis) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            if (tis.hasLength()) {
+                //lets the stream decide whether the entry needs zip64 extensions
+                entry.setSize(tis.getLength());
+            }
+            zip.putArchiveEntry(entry);
+            IOUtils.copy(tis, zip);
+            zip.closeArchiveEntry();
+            zip.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    private static class Tar extends StreamingArchiveWriter {
+
+        private final TarArchiveOutputStream tar;
+
+        Tar(OutputStream outputStream) {
+            super(outputStream);
+            tar = new TarArchiveOutputStream(outputStream);
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return TAR;
+        }
+
+        @Override
+        void writeEntry(String name, TikaInputStream tis) throws IOException {
+            TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setSize(tis.getLength());
+            tar.putArchiveEntry(entry);
+            IOUtils.copy(tis, tar);
+            tar.closeArchiveEntry();
+            tar.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            tar.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.server.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.EmptyParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.HandlerConfig;
+import org.apache.tika.sax.BasicContentHandlerFactory;
+import org.apache.tika.server.core.resource.RecursiveMetadataResource;
+import org.apache.tika.server.core.resource.TikaResource;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void testRejection() throws Exception {
+        AdmissionController controller = new AdmissionController(2, 0, 0, 7, 503, Map.of("unpack", 2));
+        int slots = controller.acquire("/rmeta/text");
+        assertEquals(1, slots);
+        assertEquals(1, controller.getSlotsInUse());
+
+        //unpack needs both slots
+        WebApplicationException e = assertThrows(WebApplicationException.class, () -> controller.acquire("unpack/all"));
+        assertEquals(503, e
+                .getResponse()
+                .getStatus());
+        assertEquals("7", e
+                .getResponse()
+                .getHeaderString("Retry-After"));
+        assertEquals(1, controller.getRejected());
+
+        controller.release(slots);
+        assertEquals(2, controller.acquire("unpack/all"));
+        assertEquals(2, controller.getSlotsInUse());
+        controller.release(2);
+        assertEquals(0, controller.getSlotsInUse());
+    }
+
+    @Test
+    public void testQueue() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 1, 60000, 1, 429, Map.of());
+        int slots = controller.acquire("tika");
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Future<Integer> queued = executorService.submit(() -> {
+                started.countDown();
+                return controller.acquire("tika");
+            });
+            started.await();
+            while (controller.getQueueDepth() == 0) {
+                Thread.sleep(10);
+            }
+            //the queue is full
+            WebApplicationException e = assertThrows(WebApplicationException.class, () -> controller.acquire("tika"));
+            assertEquals(429, e
+                    .getResponse()
+                    .getStatus());
+
+            controller.release(slots);
+            assertEquals(1, queued.get());
+            assertEquals(0, controller.getQueueDepth());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedParseClosesStream() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 0, 0, 1, 503, Map.of());
+        ServerStatus serverStatus = new ServerStatus("test", 0);
+        serverStatus.setAdmissionController(controller);
+        TikaResource.init(TikaConfig.getDefaultConfig(), new TikaServerConfig(), null, null, serverStatus);
+        int slots = controller.acquire("tika");
+        AtomicBoolean closed = new AtomicBoolean(false);
+        InputStream stream = new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        try {
+            assertThrows(WebApplicationException.class,
+                    () -> TikaResource.parse(EmptyParser.INSTANCE, LoggerFactory.getLogger(AdmissionControllerTest.class), "tika", stream, new DefaultHandler(),
+                            new Metadata(), new ParseContext()));
+            assertTrue(closed.get());
+        } finally {
+            controller.release(slots);
+        }
+    }
+
+    @Test
+    public void testStreamingRejectedBeforeResponse() throws Exception {
+        AdmissionController controller = new AdmissionController(1, 0, 0, 1, 503, Map.of());
+        ServerStatus serverStatus = new ServerStatus("test", 0);
+        serverStatus.setAdmissionController(controller);
+        TikaResource.init(TikaConfig.getDefaultConfig(), new TikaServerConfig(), null, null, serverStatus);
+        int slots = controller.acquire("tika");
+        try {
+            //the rejection is thrown before there is a response, not when it's written
+            WebApplicationException e = assertThrows(WebApplicationException.class,
+                    () -> RecursiveMetadataResource.streamMetadata(new ByteArrayInputStream(new byte[0]), new Metadata(), new MultivaluedHashMap<>(), null,
+                            null));
+            assertEquals(503, e
+                    .getResponse()
+                    .getStatus());
+        } finally {
+            controller.release(slots);
+        }
+
+        StreamingOutput output = RecursiveMetadataResource.streamMetadata(new ByteArrayInputStream("hello".getBytes(UTF_8)), new Metadata(), new MultivaluedHashMap<>(), null,
+                new HandlerConfig(BasicContentHandlerFactory.HANDLER_TYPE.TEXT, HandlerConfig.PARSE_MODE.RMETA, -1, -1, true));
+        assertEquals(1, controller.getSlotsInUse());
+        output.write(new ByteArrayOutputStream());
+        assertEquals(0, controller.getSlotsInUse());
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        assertEquals(0, AdmissionController.UNLIMITED.acquire("unpack"));
+        AdmissionController.UNLIMITED.release(0);
+        assertEquals(0, AdmissionController.UNLIMITED.getSlotsInUse());
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.tika.server.core;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -41,6 +42,7 @@ import org.apache.tika.server.core.writer.MetadataListMessageBodyWriter;
 public class RecursiveMetadataResourceTest extends CXFTestBase {
 
     public static final String TEST_NULL_POINTER = "test-documents/mock/null_pointer.xml";
+    public static final String TEST_EMBEDDED = "test-documents/mock/embedded.xml";
     private static final String META_PATH = "/rmeta";
 
     @Override
@@ -72,6 +74,28 @@ public class RecursiveMetadataResourceTest extends CXFTestBase {
         assertContains("null pointer message", metadata.get(TikaCoreProperties.CONTAINER_EXCEPTION));
 
     }
+
+    @Test
+    public void testStreaming() throws Exception {
+        Response response = WebClient
+                .create(endPoint + META_PATH + "/stream/text")
+                .accept("application/json")
+                .put(ClassLoader.getSystemResourceAsStream(TEST_EMBEDDED));
+
+        Reader reader = new InputStreamReader((InputStream) response.getEntity(), UTF_8);
+        List<Metadata> metadataList = JsonMetadataList.fromJson(reader);
+        assertEquals(5, metadataList.size());
+        //the container is written last, but JsonMetadataList moves it back to the front
+        for (int i = 1; i < 5; i++) {
+            Metadata embedded = metadataList.get(i);
+            assertEquals("/embed" + i + ".xml", embedded.get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+            assertEquals("embeddedAuthor", embedded.get("author"));
+        }
+        Metadata container = metadataList.get(0);
+        assertEquals("Nikolai Lobachevsky", container.get("author"));
+        assertNull(container.get(TikaCoreProperties.EMBEDDED_RESOURCE_PATH));
+        assertContains("main_content", container.get(TikaCoreProperties.TIKA_CONTENT));
+    }
     /*
     @Test
     public void testWriteLimitInAll() throws Exception {
@@ -20,6 +20,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Callable;
@@ -41,6 +43,29 @@ public class ServerStatusTest {
         });
     }
 
+    @Test
+    public void testTimedOutTasks() throws Exception {
+        ServerStatus status = new ServerStatus("", 0);
+        long shortTask = status.start(ServerStatus.TASK.PARSE, "short", 10);
+        status.start(ServerStatus.TASK.PARSE, "long", 60000);
+        assertEquals(2, status.getNumActiveTasks());
+
+        List<TaskStatus> timedOut = status.getTimedOutTasks(Instant
+                .now()
+                .plusMillis(1000));
+        assertEquals(1, timedOut.size());
+        assertEquals("short", timedOut
+                .get(0).fileName.get());
+
+        status.complete(shortTask);
+        assertEquals(1, status.getNumActiveTasks());
+        assertEquals(0, status
+                .getTimedOutTasks(Instant
+                        .now()
+                        .plusMillis(1000))
+                .size());
+    }
+
     @Test
     @Timeout(60000)
     public void testBasicMultiThreading() throws Exception {
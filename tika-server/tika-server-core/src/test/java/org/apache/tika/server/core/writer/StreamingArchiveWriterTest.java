@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.server.core.writer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.io.TikaInputStream;
+
+public class StreamingArchiveWriterTest {
+
+    //signature of the zip's end of central directory record
+    private static final String END_OF_CENTRAL_DIRECTORY = "PK\u0005\u0006";
+
+    @Test
+    public void testCloseFinishesArchive() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        StreamingArchiveWriter archive = StreamingArchiveWriter.get(StreamingArchiveWriter.ZIP, bos);
+        write(archive, "a.txt");
+        archive.close();
+        assertTrue(new String(bos.toByteArray(), UTF_8).contains(END_OF_CENTRAL_DIRECTORY));
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+        StreamingArchiveWriter archive = StreamingArchiveWriter.get(StreamingArchiveWriter.ZIP, bos);
+        //nothing has been sent yet, so the stream is left for an error response
+        archive.abort();
+        assertFalse(closed.get());
+        assertEquals(0, bos.size());
+
+        archive = StreamingArchiveWriter.get(StreamingArchiveWriter.ZIP, bos);
+        write(archive, "a.txt");
+        archive.abort();
+        assertTrue(closed.get());
+        assertTrue(bos.size() > 0);
+        assertFalse(new String(bos.toByteArray(), UTF_8).contains(END_OF_CENTRAL_DIRECTORY));
+    }
+
+    private static void write(StreamingArchiveWriter archive, String name) throws IOException {
+        try (TikaInputStream tis = TikaInputStream.get("hello world".getBytes(UTF_8))) {
+            archive.write(name, tis);
+        }
+    }
+}